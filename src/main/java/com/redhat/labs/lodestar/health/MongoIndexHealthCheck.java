@@ -0,0 +1,41 @@
+package com.redhat.labs.lodestar.health;
+
+import java.util.Set;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
+
+@Readiness
+@ApplicationScoped
+public class MongoIndexHealthCheck implements HealthCheck {
+
+    @Inject
+    EngagementIndexManager indexManager;
+
+    @Override
+    public HealthCheckResponse call() {
+
+        HealthCheckResponseBuilder healthCheckResponseBuilder = HealthCheckResponse.named("Mongo Indexes");
+
+        // reconciled on startup and on a schedule, never by the probe
+        Set<String> missingUnique = indexManager.getMissingUniqueIndexes();
+        if (!indexManager.isReconciled()) {
+            healthCheckResponseBuilder.down();
+        } else if (!missingUnique.isEmpty()) {
+            healthCheckResponseBuilder.down().withData("missing", missingUnique.toString());
+        } else {
+            healthCheckResponseBuilder.up().withData("failed", indexManager.getFailedIndexes().toString());
+        }
+
+        return healthCheckResponseBuilder.build();
+
+    }
+
+}
@@ -8,7 +8,7 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(callSuper = true)
@@ -20,4 +20,13 @@ public class Artifact extends EngagementAttribute {
     private String type;
     private String linkAddress;
 
-}
\ No newline at end of file
+    /**
+     * Returns a copy of this {@link Artifact}.
+     * 
+     * @return
+     */
+    public Artifact copy() {
+        return toBuilder().build();
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.redhat.labs.lodestar.model;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,11 +11,21 @@ import javax.json.bind.annotation.JsonbProperty;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class BillingCodes {
 
     @JsonbProperty("projects")
     private List<BillingProject> billingProjects;
+
+    /**
+     * Returns a deep copy of this {@link BillingCodes}.
+     * 
+     * @return
+     */
+    public BillingCodes copy() {
+        return toBuilder().billingProjects(CopyUtils.copyList(billingProjects, BillingProject::copy)).build();
+    }
+
 }
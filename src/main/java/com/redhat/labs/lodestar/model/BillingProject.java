@@ -1,5 +1,7 @@
 package com.redhat.labs.lodestar.model;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,11 +9,21 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class BillingProject {
 
     private String code;
     private List<String> tasks;
+
+    /**
+     * Returns a deep copy of this {@link BillingProject}.
+     * 
+     * @return
+     */
+    public BillingProject copy() {
+        return toBuilder().tasks(CopyUtils.copyList(tasks)).build();
+    }
+
 }
@@ -7,7 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
@@ -16,4 +16,13 @@ public class Category extends EngagementAttribute {
     private String name;
     private Integer count;
 
-}
\ No newline at end of file
+    /**
+     * Returns a copy of this {@link Category}.
+     * 
+     * @return
+     */
+    public Category copy() {
+        return toBuilder().build();
+    }
+
+}
@@ -7,6 +7,8 @@ import java.util.Set;
 
 import javax.json.bind.annotation.JsonbProperty;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -50,4 +52,15 @@ public class Commit {
         
         return changedFiles.stream().filter(fileName::contains).count() > 0;
     }
+
+    /**
+     * Returns a deep copy of this {@link Commit}.
+     * 
+     * @return
+     */
+    public Commit copy() {
+        return toBuilder().added(CopyUtils.copyList(added)).modified(CopyUtils.copyList(modified))
+                .removed(CopyUtils.copyList(removed)).build();
+    }
+
 }
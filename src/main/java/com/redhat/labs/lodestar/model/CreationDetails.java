@@ -8,7 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CreationDetails {
@@ -20,4 +20,13 @@ public class CreationDetails {
     @JsonbProperty("created_on")
     private String createdOn;
 
+    /**
+     * Returns a copy of this {@link CreationDetails}.
+     * 
+     * @return
+     */
+    public CreationDetails copy() {
+        return toBuilder().build();
+    }
+
 }
@@ -0,0 +1,26 @@
+package com.redhat.labs.lodestar.model;
+
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntityBase;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version of a data set that is incremented on every write. Shared by all
+ * backend instances so that each can tell when its cached results are out of
+ * date.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class DataVersion extends PanacheMongoEntityBase {
+
+    @BsonId
+    private String name;
+    private Long version;
+
+}
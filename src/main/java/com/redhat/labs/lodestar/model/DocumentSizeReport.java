@@ -0,0 +1,23 @@
+package com.redhat.labs.lodestar.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSizeReport {
+
+    private Integer engagements;
+    private Long totalBytes;
+    private Long warningBytes;
+    private String lastScan;
+    private List<DocumentSize> largestEngagements;
+    private List<DocumentSize> largestFields;
+
+}
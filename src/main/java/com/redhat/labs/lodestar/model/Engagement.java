@@ -2,7 +2,9 @@ package com.redhat.labs.lodestar.model;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.json.bind.annotation.JsonbProperty;
 import javax.json.bind.annotation.JsonbTransient;
@@ -11,6 +13,7 @@ import org.bson.codecs.pojo.annotations.BsonId;
 import org.bson.types.ObjectId;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.redhat.labs.lodestar.util.CopyUtils;
 import com.redhat.labs.lodestar.util.DateFormatter;
 import com.redhat.labs.lodestar.validation.ValidName;
 
@@ -63,6 +66,9 @@ public class Engagement extends PanacheMongoEntityBase {
     private String customerContactEmail;
     @JsonbProperty("hosting_environments")
     private List<HostingEnvironment> hostingEnvironments;
+    // normalized subdomains of the hosting environments, backs the unique subdomain index
+    @JsonbTransient
+    private List<String> subdomainKeys;
     @JsonbProperty("public_reference")
     private Boolean publicReference;
     @JsonProperty("additional_details")
@@ -110,6 +116,45 @@ public class Engagement extends PanacheMongoEntityBase {
     private List<BillingCodes> billingCodes;
 
 
+    /**
+     * Returns the distinct normalized subdomains of the {@link HostingEnvironment}s
+     * so the stored keys always match the hosting environments being written. If
+     * the hosting environments were not loaded, the stored keys are returned.
+     * 
+     * @return
+     */
+    public List<String> getSubdomainKeys() {
+
+        if (null == hostingEnvironments) {
+            return subdomainKeys;
+        }
+
+        return hostingEnvironments.stream().filter(Objects::nonNull).map(HostingEnvironment::getOcpSubDomain)
+                .map(HostingEnvironment::normalizeSubdomain).filter(Objects::nonNull).distinct()
+                .collect(Collectors.toList());
+
+    }
+
+    /**
+     * Returns a deep copy of this {@link Engagement} built field by field, so
+     * changes to the copy or any of its nested objects do not affect this
+     * {@link Engagement}.
+     * 
+     * @return
+     */
+    public Engagement copy() {
+        return toBuilder().hostingEnvironments(CopyUtils.copyList(hostingEnvironments, HostingEnvironment::copy))
+                .subdomainKeys(CopyUtils.copyList(subdomainKeys)).launch(null == launch ? null : launch.copy())
+                .engagementUsers(CopyUtils.copySet(engagementUsers, EngagementUser::copy))
+                .status(null == status ? null : status.copy()).commits(CopyUtils.copyList(commits, Commit::copy))
+                .creationDetails(null == creationDetails ? null : creationDetails.copy())
+                .categories(CopyUtils.copyList(categories, Category::copy))
+                .useCases(CopyUtils.copyList(useCases, UseCase::copy))
+                .artifacts(CopyUtils.copyList(artifacts, Artifact::copy))
+                .scores(CopyUtils.copyList(scores, Score::copy))
+                .billingCodes(CopyUtils.copyList(billingCodes, BillingCodes::copy)).build();
+    }
+
     /**
      * The value return here is relative to the time entered. If the time entered was
      * (currentDate) Jan 1 2020  and this engagement started on Feb 1 and ended Feb 28
@@ -12,7 +12,7 @@ import lombok.experimental.SuperBuilder;
 
 @Data
 @ToString
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class EngagementAttribute {
@@ -52,4 +52,13 @@ public class EngagementUser {
         return result;
     }
 
+    /**
+     * Returns a copy of this {@link EngagementUser}.
+     * 
+     * @return
+     */
+    public EngagementUser copy() {
+        return toBuilder().build();
+    }
+
 }
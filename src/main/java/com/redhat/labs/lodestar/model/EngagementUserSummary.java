@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class EngagementUserSummary {
@@ -14,4 +14,14 @@ public class EngagementUserSummary {
     private Integer allUsersCount;
     private Integer rhUsersCount;
     private Integer otherUsersCount;
+
+    /**
+     * Returns a copy of this {@link EngagementUserSummary}.
+     * 
+     * @return
+     */
+    public EngagementUserSummary copy() {
+        return toBuilder().build();
+    }
+
 }
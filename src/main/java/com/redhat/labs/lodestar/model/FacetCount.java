@@ -0,0 +1,31 @@
+package com.redhat.labs.lodestar.model;
+
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntityBase;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of times a value of an engagement attribute, such as a category name,
+ * is used across all engagements. Values are counted by their lowercase key and
+ * keep the spelling used first.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class FacetCount extends PanacheMongoEntityBase {
+
+    @BsonId
+    private String id;
+    private String facet;
+    private String key;
+    private String name;
+    private Long count;
+
+}
@@ -1,5 +1,7 @@
 package com.redhat.labs.lodestar.model;
 
+import java.util.Locale;
+
 import javax.json.bind.annotation.JsonbProperty;
 
 import lombok.AllArgsConstructor;
@@ -10,7 +12,7 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(callSuper = true)
@@ -41,4 +43,24 @@ public class HostingEnvironment extends EngagementAttribute {
     @JsonbProperty("ocp_cluster_size")
     private String ocpClusterSize;
 
-}
\ No newline at end of file
+    /**
+     * Returns the trimmed, lower case form of the subdomain used for uniqueness
+     * checks. Returns null if the subdomain is null or blank.
+     * 
+     * @param subdomain
+     * @return
+     */
+    public static String normalizeSubdomain(String subdomain) {
+        return (null == subdomain || subdomain.isBlank()) ? null : subdomain.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns a copy of this {@link HostingEnvironment}.
+     * 
+     * @return
+     */
+    public HostingEnvironment copy() {
+        return toBuilder().build();
+    }
+
+}
@@ -8,7 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Launch {
@@ -20,4 +20,13 @@ public class Launch {
     @JsonbProperty("launched_by_email")
     private String launchedByEmail;
 
+    /**
+     * Returns a copy of this {@link Launch}.
+     * 
+     * @return
+     */
+    public Launch copy() {
+        return toBuilder().build();
+    }
+
 }
@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Message {
@@ -15,4 +15,13 @@ public class Message {
     private String message;
     private String updated;
 
+    /**
+     * Returns a copy of this {@link Message}.
+     * 
+     * @return
+     */
+    public Message copy() {
+        return toBuilder().build();
+    }
+
 }
@@ -0,0 +1,22 @@
+package com.redhat.labs.lodestar.model;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MongoIndexUsage {
+
+    private String name;
+    private Map<String, Object> key;
+    private Boolean managed;
+    private Long ops;
+    private String since;
+
+}
@@ -0,0 +1,22 @@
+package com.redhat.labs.lodestar.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadModelCheck {
+
+    private Boolean consistent;
+    private Integer engagements;
+    private List<String> missing;
+    private List<String> unexpected;
+    private List<String> changed;
+
+}
@@ -0,0 +1,21 @@
+package com.redhat.labs.lodestar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadModelStatus {
+
+    private Boolean enabled;
+    private Boolean current;
+    private Integer engagements;
+    private Long bytes;
+    private Long lagMillis;
+    private String lastRefresh;
+
+}
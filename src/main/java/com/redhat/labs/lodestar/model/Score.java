@@ -8,7 +8,7 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(callSuper = true)
@@ -18,4 +18,13 @@ public class Score extends EngagementAttribute {
     private String name;
     private Double value;
 
-}
\ No newline at end of file
+    /**
+     * Returns a copy of this {@link Score}.
+     * 
+     * @return
+     */
+    public Score copy() {
+        return toBuilder().build();
+    }
+
+}
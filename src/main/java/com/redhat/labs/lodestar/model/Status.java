@@ -4,13 +4,15 @@ import java.util.List;
 
 import javax.json.bind.annotation.JsonbProperty;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Status {
@@ -20,4 +22,14 @@ public class Status {
     private List<Message> messages;
     private List<Subsystem> subsystems;
 
+    /**
+     * Returns a deep copy of this {@link Status}.
+     * 
+     * @return
+     */
+    public Status copy() {
+        return toBuilder().messages(CopyUtils.copyList(messages, Message::copy))
+                .subsystems(CopyUtils.copyList(subsystems, Subsystem::copy)).build();
+    }
+
 }
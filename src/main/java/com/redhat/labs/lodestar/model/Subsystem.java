@@ -5,13 +5,15 @@ import java.util.Map;
 
 import javax.json.bind.annotation.JsonbProperty;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Subsystem {
@@ -25,4 +27,14 @@ public class Subsystem {
     @JsonbProperty("access_urls")
     private List<Map<String, Object>> accessUrls;
 
+    /**
+     * Returns a deep copy of this {@link Subsystem}.
+     * 
+     * @return
+     */
+    public Subsystem copy() {
+        return toBuilder().messages(CopyUtils.copyList(messages, Message::copy))
+                .accessUrls(CopyUtils.copyList(accessUrls, CopyUtils::copyMap)).build();
+    }
+
 }
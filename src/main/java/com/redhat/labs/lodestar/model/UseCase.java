@@ -8,7 +8,7 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(callSuper = true)
@@ -19,4 +19,13 @@ public class UseCase extends EngagementAttribute {
     private String description;
     private Integer order;
 
-}
\ No newline at end of file
+    /**
+     * Returns a copy of this {@link UseCase}.
+     * 
+     * @return
+     */
+    public UseCase copy() {
+        return toBuilder().build();
+    }
+
+}
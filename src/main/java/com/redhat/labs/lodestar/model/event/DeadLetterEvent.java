@@ -0,0 +1,48 @@
+package com.redhat.labs.lodestar.model.event;
+
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import com.redhat.labs.lodestar.model.Engagement;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntityBase;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * An engagement event that could not be delivered within the retry limit, or
+ * while too many retries were waiting. It keeps the address and payload of the
+ * original event so it can be replayed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class DeadLetterEvent extends PanacheMongoEntityBase {
+
+    @BsonId
+    private String id;
+    private String address;
+    private String engagementUuid;
+    private String lastUpdate;
+    private Engagement engagement;
+    private String message;
+    private Integer attempts;
+    // message of the last failure
+    private String error;
+    private String deadAt;
+
+    /**
+     * Returns an {@link OutboxEvent} for the original address and payload.
+     * 
+     * @return
+     */
+    public OutboxEvent toOutboxEvent() {
+        return OutboxEvent.builder().address(address).engagementUuid(engagementUuid).lastUpdate(lastUpdate)
+                .engagement(engagement).message(message).build();
+    }
+
+}
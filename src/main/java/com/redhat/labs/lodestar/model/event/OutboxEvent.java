@@ -0,0 +1,74 @@
+package com.redhat.labs.lodestar.model.event;
+
+import com.redhat.labs.lodestar.model.Engagement;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * An event written to the outbox along with the engagement change that caused
+ * it. The event is available for delivery from its available time, and the
+ * lease owner is set each time it is claimed for delivery.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class OutboxEvent extends PanacheMongoEntity {
+
+    private String address;
+    private String engagementUuid;
+    // last update of the engagement written with the event
+    private String lastUpdate;
+    private Engagement engagement;
+    private String message;
+
+    private Long createdAt;
+    private Long availableAt;
+    private String leaseOwner;
+    @Builder.Default
+    private Integer attempts = 0;
+
+    /**
+     * Returns an {@link OutboxEvent} for the given address carrying the
+     * {@link Engagement}.
+     * 
+     * @param address
+     * @param engagement
+     * @return
+     */
+    public static OutboxEvent of(String address, Engagement engagement) {
+        return OutboxEvent.builder().address(address).engagementUuid(engagement.getUuid())
+                .lastUpdate(engagement.getLastUpdate()).engagement(engagement).build();
+    }
+
+    /**
+     * Returns an {@link OutboxEvent} for the given address carrying the message
+     * about the {@link Engagement}.
+     * 
+     * @param address
+     * @param engagement
+     * @param message
+     * @return
+     */
+    public static OutboxEvent of(String address, Engagement engagement, String message) {
+        return OutboxEvent.builder().address(address).engagementUuid(engagement.getUuid())
+                .lastUpdate(engagement.getLastUpdate()).message(message).build();
+    }
+
+    /**
+     * Returns the message if there is one, otherwise the {@link Engagement}. Not
+     * a getter, so it is not stored.
+     * 
+     * @return
+     */
+    public Object payload() {
+        return null == message ? engagement : message;
+    }
+
+}
@@ -30,10 +30,18 @@ public class ListFilterOptions extends FilterOptions {
     @HeaderParam(value = "Accept-version")
     String apiVersion;
 
-    @Parameter(name = "search", required = false, description = "search string used to query engagements.  allows =, not like, like, not exists, exists")
+    @Parameter(name = "search", required = false, description = "search string used to query engagements.  allows =, !=, like, not like, matches, not matches, starts, in, between, >, >=, <, <=, exists, not exists")
     @QueryParam("search")
     private String search;
 
+    @Parameter(name = "q", required = false, description = "text to search for in the customer, project, description, additional details, artifact titles, category names and use case titles.  results are ranked by relevance unless sortFields is set")
+    @QueryParam("q")
+    private String text;
+
+    @Parameter(name = "view", required = false, description = "named set of fields to return for each engagement.  valid values are 'card', 'table' or 'full'.  ignored if include or exclude is set.  defaults to card for v2 and full for v1")
+    @QueryParam("view")
+    private ListView view;
+
     @Parameter(name = "sortOrder", required = false, description = "response list sort order.  valid values are 'ASC' or 'DESC'")
     @QueryParam("sortOrder")
     private SortOrder sortOrder;
@@ -50,6 +58,14 @@ public class ListFilterOptions extends FilterOptions {
     @QueryParam("perPage")
     private Integer perPage;
 
+    @Parameter(name = "cursor", required = false, description = "cursor from the next link of a previous response.  an empty value starts paging by cursor from the first result.  page is ignored when set")
+    @QueryParam("cursor")
+    private String cursor;
+
+    @Parameter(name = "includeTotalCount", required = false, description = "set to true to return the total count when paging by cursor.  always returned when paging by page number")
+    @QueryParam("includeTotalCount")
+    private Boolean includeTotalCount;
+
     @Builder.Default
     private Optional<String> suggestFieldName = Optional.empty();
     @Builder.Default
@@ -63,6 +79,41 @@ public class ListFilterOptions extends FilterOptions {
         return Optional.ofNullable(search);
     }
 
+    public Optional<String> getText() {
+        return Optional.ofNullable(text).map(String::trim).filter(t -> !t.isEmpty());
+    }
+
+    /**
+     * Returns true if the results are ranked by relevance to the text search. Only
+     * a text search without sort fields is ranked.
+     * 
+     * @return
+     */
+    public boolean isRankedByText() {
+        return getText().isPresent() && getSortFields().isEmpty();
+    }
+
+    public Optional<ListView> getView() {
+        return Optional.ofNullable(view);
+    }
+
+    /**
+     * Sets the fields to include from the configured view, or the given default
+     * view if none is configured. Fields to include or exclude that are already
+     * set take precedence over any view.
+     * 
+     * @param defaultView
+     */
+    public void applyView(ListView defaultView) {
+
+        if (null != getInclude() || null != getExclude()) {
+            return;
+        }
+
+        getView().orElse(defaultView).getInclude().ifPresent(this::setInclude);
+
+    }
+
     public Optional<SortOrder> getSortOrder() {
         return Optional.ofNullable(sortOrder);
     }
@@ -79,6 +130,29 @@ public class ListFilterOptions extends FilterOptions {
         return Optional.ofNullable(perPage);
     }
 
+    public Optional<String> getCursor() {
+        return Optional.ofNullable(cursor);
+    }
+
+    /**
+     * Returns true if results should be paged by cursor instead of page number.
+     * 
+     * @return
+     */
+    public boolean isCursorPaging() {
+        return null != cursor;
+    }
+
+    /**
+     * Returns true if the total count should be computed. The total count is
+     * always computed when paging by page number.
+     * 
+     * @return
+     */
+    public boolean isTotalCountIncluded() {
+        return !isCursorPaging() || Boolean.TRUE.equals(includeTotalCount);
+    }
+
     /**
      * Returns a {@link List} containing the fields specified in sort fields
      * attribute. If not provided, `customer_name,project_name` is used.
@@ -0,0 +1,53 @@
+package com.redhat.labs.lodestar.model.filter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Named sets of {@link com.redhat.labs.lodestar.model.Engagement} fields
+ * returned by the engagement list. Card has what a list screen shows, table
+ * adds the columns of the engagement table and full returns whole documents.
+ */
+public enum ListView {
+
+    CARD(List.of("uuid", "customerName", "projectName", "type", "region", "startDate", "endDate", "archiveDate",
+            "launch", "lastUpdate")),
+    TABLE(Stream.concat(CARD.fields.stream(),
+            Stream.of("projectId", "description", "location", "engagementLeadName", "technicalLeadName",
+                    "customerContactName", "publicReference", "timezone", "categories", "lastUpdateByName"))
+            .collect(Collectors.toList())),
+    FULL(List.of());
+
+    private final List<String> fields;
+
+    ListView(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Returns the comma separated fields to include, or empty if the whole
+     * document is returned.
+     *
+     * @return
+     */
+    public Optional<String> getInclude() {
+        return fields.isEmpty() ? Optional.empty() : Optional.of(String.join(",", fields));
+    }
+
+    /**
+     * Returns the {@link ListView} for the given name, ignoring case. Throws a
+     * {@link WebApplicationException} if there is no such view.
+     *
+     * @param name
+     * @return
+     */
+    public static ListView fromString(String name) {
+        return Stream.of(values()).filter(v -> v.name().equalsIgnoreCase(name)).findFirst()
+                .orElseThrow(() -> new WebApplicationException("unknown view " + name, 400));
+    }
+
+}
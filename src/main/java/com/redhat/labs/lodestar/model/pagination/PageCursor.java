@@ -0,0 +1,98 @@
+package com.redhat.labs.lodestar.model.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.http.HttpStatus;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position after the last result of a page when paging by key. The token given
+ * to clients is opaque and holds the sort keys, including the tie breaking
+ * keys, the sort order and the key values of the last result.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCursor {
+
+    private static final String KEYS = "k";
+    private static final String ORDER = "o";
+    private static final String VALUES = "v";
+    private static final String INVALID_CURSOR = "invalid cursor";
+
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private List<String> keys;
+    private SortOrder sortOrder;
+    private List<BsonValue> values;
+
+    /**
+     * Returns the URL safe token for this {@link PageCursor}.
+     *
+     * @return
+     */
+    public String encode() {
+
+        BsonDocument document = new BsonDocument()
+                .append(KEYS, new BsonArray(keys.stream().map(BsonString::new).collect(Collectors.toList())))
+                .append(ORDER, new BsonString(sortOrder.name())).append(VALUES, new BsonArray(values));
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(document.toJson(JSON_SETTINGS).getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    /**
+     * Returns the {@link PageCursor} for the given token. Throws a
+     * {@link WebApplicationException} if the token is not valid.
+     *
+     * @param token
+     * @return
+     */
+    public static PageCursor decode(String token) {
+
+        try {
+
+            BsonDocument document = BsonDocument
+                    .parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+
+            List<String> keys = document.getArray(KEYS).stream().map(k -> k.asString().getValue())
+                    .collect(Collectors.toList());
+            SortOrder sortOrder = SortOrder.valueOf(document.getString(ORDER).getValue());
+            List<BsonValue> values = new ArrayList<>(document.getArray(VALUES).getValues());
+
+            if (keys.size() != values.size()) {
+                throw new WebApplicationException(INVALID_CURSOR, HttpStatus.SC_BAD_REQUEST);
+            }
+
+            return PageCursor.builder().keys(keys).sortOrder(sortOrder).values(values).build();
+
+        } catch (IllegalArgumentException | JsonParseException | BsonInvalidOperationException e) {
+            throw new WebApplicationException(INVALID_CURSOR, HttpStatus.SC_BAD_REQUEST);
+        }
+
+    }
+
+}
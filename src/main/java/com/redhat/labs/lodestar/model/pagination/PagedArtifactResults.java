@@ -9,4 +9,13 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 public class PagedArtifactResults extends PagedResults<Artifact> {
 
+    /**
+     * Returns a copy of these results.
+     *
+     * @return
+     */
+    public PagedArtifactResults copy() {
+        return copyTo(new PagedArtifactResults(), Artifact::copy);
+    }
+
 }
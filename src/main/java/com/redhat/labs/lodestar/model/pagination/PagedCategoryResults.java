@@ -9,4 +9,13 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 public class PagedCategoryResults extends PagedResults<Category> {
 
+    /**
+     * Returns a copy of these results.
+     *
+     * @return
+     */
+    public PagedCategoryResults copy() {
+        return copyTo(new PagedCategoryResults(), Category::copy);
+    }
+
 }
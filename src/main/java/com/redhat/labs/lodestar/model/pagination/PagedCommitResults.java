@@ -0,0 +1,12 @@
+package com.redhat.labs.lodestar.model.pagination;
+
+import com.redhat.labs.lodestar.model.Commit;
+
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@SuperBuilder
+@NoArgsConstructor
+public class PagedCommitResults extends PagedResults<Commit> {
+
+}
@@ -9,4 +9,13 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 public class PagedEngagementResults extends PagedResults<Engagement> {
 
+    /**
+     * Returns a copy of these results.
+     *
+     * @return
+     */
+    public PagedEngagementResults copy() {
+        return copyTo(new PagedEngagementResults(), Engagement::copy);
+    }
+
 }
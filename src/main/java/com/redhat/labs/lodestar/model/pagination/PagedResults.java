@@ -4,11 +4,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.UriBuilder;
 
+import com.redhat.labs.lodestar.util.CopyUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,6 +28,9 @@ public class PagedResults<T> {
     private static final String PER_PAGE = "per_page";
     private static final String PAGE_HEADER_FORMAT = "x-%s-page";
     private static final String PER_PAGE_HEADER = "x-per-page";
+    private static final String CURSOR = "cursor";
+    private static final String NEXT_CURSOR_HEADER = "x-next-cursor";
+    private static final String TOTAL_COUNT_HEADER = "x-total-count";
 
     private static final String CURRENT = "current";
     private static final String CURRENT_PAGE_HEADER = String.format(PAGE_HEADER_FORMAT, CURRENT);
@@ -46,8 +52,13 @@ public class PagedResults<T> {
     @Builder.Default
     private Integer perPage = 20;
 
+    // set when paging by cursor, null if there are no more results
+    private String nextCursor;
+    @Builder.Default
+    private boolean cursorPaging = false;
+
     @Builder.Default
-    private Map<String, Map<String, Integer>> linkHeaders = new HashMap<>();
+    private Map<String, Map<String, Object>> linkHeaders = new HashMap<>();
     @Builder.Default
     private Map<String, Object> headers = new HashMap<>();
     
@@ -69,6 +80,29 @@ public class PagedResults<T> {
 
     }
 
+    /**
+     * Sets the paging, headers and a copy of each result of these results on the
+     * given {@link PagedResults} and returns it.
+     *
+     * @param <P>
+     * @param copy
+     * @param copier
+     * @return
+     */
+    protected <P extends PagedResults<T>> P copyTo(P copy, UnaryOperator<T> copier) {
+
+        copy.setTotalCount(totalCount);
+        copy.setCurrentPage(currentPage);
+        copy.setPerPage(perPage);
+        copy.setNextCursor(nextCursor);
+        copy.setCursorPaging(cursorPaging);
+        copy.setLinkHeaders(CopyUtils.copyMap(linkHeaders));
+        copy.setHeaders(CopyUtils.copyMap(headers));
+        copy.setResults(CopyUtils.copyList(results, copier));
+        return copy;
+
+    }
+
     /**
      * Creates an array lf {@link Link} for the configured link headers.
      * 
@@ -77,14 +111,15 @@ public class PagedResults<T> {
      */
     public Link[] getLinks(UriBuilder uriBuilder) {
 
-        if (null == linkHeaders || linkHeaders.isEmpty()) {
+        // headers are never empty once set, unlike the links of a last page
+        if (null == headers || headers.isEmpty()) {
             setHeadersForRelations();
         }
 
         List<Link> links = linkHeaders.entrySet().stream().map(e1 -> {
 
             String rel = e1.getKey();
-            Map<String, Integer> headerMap = e1.getValue();
+            Map<String, Object> headerMap = e1.getValue();
 
             javax.ws.rs.core.Link.Builder builder = Link.fromUriBuilder(uriBuilder).rel(rel);
             headerMap.entrySet().forEach(e2 -> builder.param(e2.getKey(), String.valueOf(e2.getValue())));
@@ -106,6 +141,15 @@ public class PagedResults<T> {
             headers = new HashMap<>();
         }
 
+        if (null == linkHeaders) {
+            linkHeaders = new HashMap<>();
+        }
+
+        if (cursorPaging) {
+            setHeadersForCursor();
+            return;
+        }
+
         // current page
         setHeadersForRelation(CURRENT, CURRENT_PAGE_HEADER, currentPage);
 
@@ -126,6 +170,25 @@ public class PagedResults<T> {
 
     }
 
+    /**
+     * Sets the NEXT relation and next cursor header if there are more results. The
+     * total count header is only set if the count was requested.
+     */
+    private void setHeadersForCursor() {
+
+        if (null != nextCursor) {
+            headers.put(NEXT_CURSOR_HEADER, nextCursor);
+            linkHeaders.put(NEXT, Map.of(CURSOR, nextCursor, PER_PAGE, perPage));
+        }
+
+        if (null != totalCount) {
+            headers.put(TOTAL_COUNT_HEADER, totalCount);
+        }
+
+        headers.put(PER_PAGE_HEADER, perPage);
+
+    }
+
     /**
      * Adds the header for the given relation to the associated {@link Map}s.
      * 
@@ -1,5 +1,7 @@
 package com.redhat.labs.lodestar.model.pagination;
 
+import java.util.function.UnaryOperator;
+
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
@@ -7,4 +9,13 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 public class PagedStringResults extends PagedResults<String> {
 
+    /**
+     * Returns a copy of these results.
+     *
+     * @return
+     */
+    public PagedStringResults copy() {
+        return copyTo(new PagedStringResults(), UnaryOperator.identity());
+    }
+
 }
@@ -1,12 +1,7 @@
 package com.redhat.labs.lodestar.model.search;
 
-import static com.mongodb.client.model.Filters.and;
-import static com.mongodb.client.model.Filters.or;
-
-import java.util.Arrays;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,221 +13,71 @@ import lombok.Builder;
 @Builder
 public class BsonSearch {
 
-    private static final String STATE = "state";
-    private static final String START = "start";
-    private static final String END = "end";
     private static final String SEARCH_DELIMITER = "&";
-    private static final String EQUALS = "=";
+    static final int MAX_CACHED_FILTERS = 1000;
 
-    private String searchString;
+    // compiled filters by canonical search string, least recently used first
+    private static final Map<String, Optional<Bson>> FILTERS = new LinkedHashMap<>(16, 0.75f, true) {
 
-    /**
-     * Creates the {@link Bson} based on the given search {@link String}.
-     * 
-     * @param search
-     * @return
-     */
-    public Optional<Bson> createBsonForSearch() {
+        private static final long serialVersionUID = 1L;
 
-        // parse the search string
-        Optional<Map<Object, Map<Object, List<DefaultSearchComponent>>>> searchComponentMap = parseSearchString();
-        if (searchComponentMap.isEmpty()) {
-            return Optional.empty();
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Optional<Bson>> eldest) {
+            return size() > MAX_CACHED_FILTERS;
         }
 
-        // create state search
-        Optional<Bson> stateSearchBson = isRangeSearchComponent(searchComponentMap.get())
-                ? createRangeSearchComponent(searchComponentMap.get())
-                : Optional.empty();
-
-        // create bson for all other attributes
-        Optional<Bson> searchBson = convertToBson(searchComponentMap.get());
-
-        if (searchBson.isPresent() && stateSearchBson.isPresent()) {
-            return Optional.of(and(stateSearchBson.get(), searchBson.get()));
-        } else if (searchBson.isPresent()) {
-            return Optional.of(searchBson.get());
-        } else if (stateSearchBson.isPresent()) {
-            return Optional.of(stateSearchBson.get());
-        } else {
-            return Optional.empty();
-        }
-
-    }
-
-    /**
-     * Return true if the map contains the START, END, or STATE keys. Otherwise,
-     * false.
-     * 
-     * @param searchComponentMap
-     * @return
-     */
-    private boolean isRangeSearchComponent(Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap) {
-
-        return searchComponentMap.containsKey(START) || searchComponentMap.containsKey(END)
-                || searchComponentMap.containsKey(STATE);
+    };
 
-    }
-
-    /**
-     * Creates a {@link Bson} for a range search using a date range and state if
-     * provided.
-     * 
-     * @param searchComponentMap
-     * @return
-     */
-    private Optional<Bson> createRangeSearchComponent(
-            Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap) {
-
-        // get range start value
-        String start = findFirstSearchComponentValue(searchComponentMap, START, EQUALS).orElse(null);
-        searchComponentMap.remove(START);
-
-        // get range end value
-        String end = findFirstSearchComponentValue(searchComponentMap, END, EQUALS).orElse(null);
-        searchComponentMap.remove(END);
-
-        // create state search if required
-        if (searchComponentMap.containsKey(STATE)) {
-            // get state value
-            EngagementState state = EngagementState
-                    .lookup(findFirstSearchComponentValue(searchComponentMap, STATE, EQUALS).orElse(null));
-            searchComponentMap.remove(STATE);
-
-            // build state searchc component
-            StateSearchComponent ssc = StateSearchComponent.builder().state(state).start(start).end(end).build();
-            return ssc.getBson();
-
-        }
-
-        // create range search if state not provided
-        RangeSearchComponent rsc = RangeSearchComponent.builder().start(start).end(end).build();
-        return rsc.getBson();
-
-    }
+    private String searchString;
 
     /**
-     * Parses the given search string to return a {@link List} of
-     * {@link DefaultSearchComponent} grouping by attribute name and then operator.
-     * 
+     * Creates the {@link Bson} based on the given search {@link String}. The
+     * {@link Bson} is compiled from a {@link SearchExpression} the first time a
+     * search is seen and reused for any search with the same components.
+     *
      * @param search
      * @return
      */
-    private Optional<Map<Object, Map<Object, List<DefaultSearchComponent>>>> parseSearchString() {
+    public Optional<Bson> createBsonForSearch() {
 
         if (null == searchString) {
             return Optional.empty();
         }
 
-        String[] components = searchString.split(SEARCH_DELIMITER);
-
-        // group by attribute name and then operator
-        return Optional.of(Stream.of(components).map(c -> DefaultSearchComponent.builder().component(c).build())
-                .filter(sc -> sc.getAttribute().isPresent() && sc.getOperator().isPresent())
-                .collect(Collectors.groupingBy(sc -> sc.getAttribute().get(),
-                        Collectors.groupingBy(sc -> sc.getOperator().get()))));
-
-    }
-
-    /**
-     * Converts the {@link Map} containing {@link DefaultSearchComponent}s to a
-     * {@link Bson} representing the search criteria.
-     * 
-     * @param componentMap
-     * @return
-     */
-    private Optional<Bson> convertToBson(Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap) {
-
-        // field component
-        List<Bson> andBsonList = searchComponentMap.entrySet().stream().map(fieldEntry -> {
-
-            // and the bson for each operator in its list
-            List<Bson> bsonList = fieldEntry.getValue().entrySet().stream().map(Entry::getValue).flatMap(List::stream)
-                    .map(DefaultSearchComponent::getBson).filter(Optional::isPresent).map(Optional::get)
-                    .collect(Collectors.toList());
-
-            return 1 == bsonList.size() ? bsonList.get(0) : or(bsonList);
-
-        }).collect(Collectors.toList());
-
-        return andBsonList.isEmpty() ? Optional.empty() : Optional.of(and(andBsonList));
-
-    }
-
-    /**
-     * Returns an {@link Optional} containing the value of
-     * {@link DefaultSearchComponent}. Otherwise, returns an empty {@link Optional}.
-     * 
-     * @param searchComponent
-     * @return
-     */
-    private Optional<String> getValueFromSearchComponent(Optional<DefaultSearchComponent> searchComponent) {
-
-        return searchComponent.filter(c -> c.getValue().isPresent()).map(DefaultSearchComponent::getValue)
-                .filter(Optional::isPresent).map(Optional::get);
-    }
+        String key = canonicalize(searchString);
+        synchronized (FILTERS) {
+            Optional<Bson> cached = FILTERS.get(key);
+            if (null != cached) {
+                return cached;
+            }
+        }
 
-    /**
-     * Returns an {@link Optional} containing the value associated to the
-     * {@link DefaultSearchComponent} for the given attribute name and operator
-     * names. Otherwise, returns an empty {@link Optional}.
-     * 
-     * @param searchComponentMap
-     * @param attributeName
-     * @param operator
-     * @return
-     */
-    private Optional<String> findFirstSearchComponentValue(
-            Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap, String attributeName,
-            String operator) {
+        // invalid searches throw and are not cached
+        Optional<Bson> bson = SearchExpression.parse(searchString).toBson();
+        synchronized (FILTERS) {
+            FILTERS.put(key, bson);
+        }
 
-        Optional<DefaultSearchComponent> searchComponent = findFirtSearchComponent(searchComponentMap, attributeName,
-                operator);
-        return getValueFromSearchComponent(searchComponent);
+        return bson;
 
     }
 
     /**
-     * Returns an {@link Optional} containing the first
-     * {@link DefaultSearchComponent} in the {@link Map} for the given attribute
-     * name and operator name. Otherwise, returns an empty {@link Optional}.
-     * 
-     * @param searchComponentMap
-     * @param attribute
-     * @param operator
+     * Returns the search string with its components sorted and empty components
+     * removed. Searches with the same canonical form match the same documents.
+     *
+     * @param searchString
      * @return
      */
-    private Optional<DefaultSearchComponent> findFirtSearchComponent(
-            Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap, String attribute,
-            String operator) {
-
-        return findSearchComponentList(searchComponentMap, attribute, operator).stream().findFirst();
-
+    static String canonicalize(String searchString) {
+        return Stream.of(searchString.split(SEARCH_DELIMITER)).filter(c -> !c.isEmpty()).sorted()
+                .collect(Collectors.joining(SEARCH_DELIMITER));
     }
 
-    /**
-     * Returns a {@link List} of {@link DefaultSearchComponent} in the {@link Map}
-     * for the given attribute name and operator name. Otherwise, an empty
-     * {@link List} is returned.
-     * 
-     * @param searchComponentMap
-     * @param attribute
-     * @param operator
-     * @return
-     */
-    private List<DefaultSearchComponent> findSearchComponentList(
-            Map<Object, Map<Object, List<DefaultSearchComponent>>> searchComponentMap, String attribute,
-            String operator) {
-
-        // get map for given attribute
-        Map<Object, List<DefaultSearchComponent>> operatorMap = searchComponentMap.get(attribute);
-        if (null == operatorMap) {
-            return Arrays.asList();
+    static int getCachedFilterCount() {
+        synchronized (FILTERS) {
+            return FILTERS.size();
         }
-
-        return operatorMap.entrySet().stream().filter(e -> e.getKey().equals(operator))
-                .filter(e -> null != e.getValue()).flatMap(e -> e.getValue().stream()).collect(Collectors.toList());
-
     }
 
 }
@@ -7,17 +7,31 @@ import static com.mongodb.client.model.Filters.not;
 import static com.mongodb.client.model.Filters.or;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.regex;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.lte;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
 
 import org.bson.conversions.Bson;
 
-import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.util.ClassFieldUtils;
+import com.redhat.labs.lodestar.util.FieldMetadataRegistry;
+import com.redhat.labs.lodestar.util.FieldMetadataRegistry.FieldMetadata;
 
 import lombok.Builder;
 import lombok.ToString;
@@ -31,12 +45,39 @@ public class DefaultSearchComponent implements BsonSearchComponent {
     private static final String NOT_LIKE = new StringBuilder("not ").append(LIKE).toString();
     private static final String EXISTS = "exists";
     private static final String NOT_EXISTS = new StringBuilder("not ").append(EXISTS).toString();
+    private static final String MATCHES = "matches";
+    private static final String NOT_MATCHES = new StringBuilder("not ").append(MATCHES).toString();
+    private static final String STARTS = "starts";
+    private static final String IN = "in";
+    private static final String BETWEEN = "between";
+    private static final String GREATER_THAN = ">";
+    private static final String GREATER_THAN_OR_EQUALS = new StringBuilder(GREATER_THAN).append(EQUALS).toString();
+    private static final String LESS_THAN = "<";
+    private static final String LESS_THAN_OR_EQUALS = new StringBuilder(LESS_THAN).append(EQUALS).toString();
     private static final String VALUE_DELIMITER = ",";
 
+    // characters with a meaning in a regular expression
+    private static final Pattern REGEX_CHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    // operators with the pattern splitting the attribute from the value. the
+    // operator found first in the component is used, so operators in the value are
+    // ignored, and where two start at the same place the one listed first is used.
+    // word operators need whitespace before them and whitespace or the end after
+    // them so they are not found inside attribute names or values.
+    private static final Map<String, Pattern> OPERATOR_PATTERNS = Stream.of(
+            Stream.of(NOT_EQUALS, GREATER_THAN_OR_EQUALS, LESS_THAN_OR_EQUALS, EQUALS)
+                    .map(o -> Map.entry(o, Pattern.compile("\\s*" + o + "\\s*"))),
+            Stream.of(NOT_EXISTS, EXISTS, NOT_LIKE, LIKE, NOT_MATCHES, MATCHES, STARTS, IN, BETWEEN)
+                    .map(o -> Map.entry(o, Pattern.compile("\\s+" + o + "(?:\\s+|$)"))),
+            Stream.of(GREATER_THAN, LESS_THAN).map(o -> Map.entry(o, Pattern.compile("\\s*" + o + "\\s*"))))
+            .flatMap(Function.identity())
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+
     private String component;
     private Optional<String> attribute = Optional.empty();
     private Optional<String> operator = Optional.empty();
     private Optional<String> value = Optional.empty();
+    private boolean parsed;
 
     @Builder
     public DefaultSearchComponent(String component) {
@@ -44,23 +85,17 @@ public class DefaultSearchComponent implements BsonSearchComponent {
     }
 
     public Optional<String> getAttribute() {
-        if (attribute.isEmpty()) {
-            parseComponent();
-        }
+        parseComponent();
         return attribute;
     }
 
     public Optional<String> getOperator() {
-        if (operator.isEmpty()) {
-            parseComponent();
-        }
+        parseComponent();
         return operator;
     }
 
     public Optional<String> getValue() {
-        if (value.isEmpty()) {
-            parseComponent();
-        }
+        parseComponent();
         return value;
     }
 
@@ -73,16 +108,24 @@ public class DefaultSearchComponent implements BsonSearchComponent {
      */
     public Optional<Bson> getBson() {
 
-        // return is attribute is missing or if operator is equals/like and value is
+        parseComponent();
+
+        // return is attribute is missing or if operator is not exists and value is
         // missing
-        if (attribute.isEmpty() || (!component.contains(EXISTS) && value.isEmpty())) {
+        boolean existsOperator = isExistsOperator() || isNotExistsOperator();
+        if (attribute.isEmpty() || (!existsOperator && value.isEmpty())) {
             return Optional.empty();
         }
 
-        if (component.contains(EXISTS)) {
+        if (existsOperator) {
 
             return Optional.ofNullable(getBsonByOperator(null).orElse(null));
 
+        } else if (isOperator(IN) || isOperator(BETWEEN)) {
+
+            // operators using every value
+            return getBsonForValues(Arrays.asList(value.get().split(VALUE_DELIMITER)));
+
         } else {
 
             // split values if required
@@ -114,19 +157,32 @@ public class DefaultSearchComponent implements BsonSearchComponent {
             return Optional.empty();
         }
 
-        // convert to class attribute name
-        String attributeName = ClassFieldUtils.getFieldNameFromQueryName(attribute.get());
+        String attributeName = getAttributeName();
 
         if (isEqualsOperator()) {
-            return Optional.of(eq(attributeName,
-                    ClassFieldUtils.getObjectFromString(Engagement.class, attributeName, attributeValue)));
+            return Optional.of(eq(attributeName, FieldMetadataRegistry.get(attribute.get()).convert(attributeValue)));
         } else if (isNotEqualsOperator()) {
-            return Optional.of(not(eq(attributeName,
-                    ClassFieldUtils.getObjectFromString(Engagement.class, attributeName, attributeValue))));
+            return Optional
+                    .of(not(eq(attributeName, FieldMetadataRegistry.get(attribute.get()).convert(attributeValue))));
         } else if (isLikeOperator()) {
-            return Optional.of(regex(attributeName, attributeValue, "i"));
+            return Optional.of(regex(attributeName, escape(attributeValue), "i"));
         } else if (isNotLikeOperator()) {
+            return Optional.of(not(regex(attributeName, escape(attributeValue), "i")));
+        } else if (isOperator(MATCHES)) {
+            return Optional.of(regex(attributeName, attributeValue, "i"));
+        } else if (isOperator(NOT_MATCHES)) {
             return Optional.of(not(regex(attributeName, attributeValue, "i")));
+        } else if (isOperator(STARTS)) {
+            // anchored and case sensitive so an index on the field can be used
+            return Optional.of(regex(attributeName, "^" + escape(attributeValue)));
+        } else if (isOperator(GREATER_THAN)) {
+            return Optional.of(gt(attributeName, convert(attributeValue)));
+        } else if (isOperator(GREATER_THAN_OR_EQUALS)) {
+            return Optional.of(gte(attributeName, convert(attributeValue)));
+        } else if (isOperator(LESS_THAN)) {
+            return Optional.of(lt(attributeName, convert(attributeValue)));
+        } else if (isOperator(LESS_THAN_OR_EQUALS)) {
+            return Optional.of(lte(attributeName, convert(attributeValue)));
         } else if (isExistsOperator()) { 
             Bson existsAndNotNull = and(exists(attributeName, true), ne(attributeName, null), ne(attributeName, new ArrayList<>()));            
             return Optional.of(existsAndNotNull);
@@ -141,6 +197,63 @@ public class DefaultSearchComponent implements BsonSearchComponent {
 
     }
 
+    /**
+     * Returns a {@link Bson} for the operators that use all of the values at once.
+     * Throws a {@link WebApplicationException} if between is not given exactly two
+     * values.
+     * 
+     * @param attributeValues
+     * @return
+     */
+    private Optional<Bson> getBsonForValues(List<String> attributeValues) {
+
+        String attributeName = getAttributeName();
+
+        if (isOperator(IN)) {
+            return Optional.of(in(attributeName,
+                    attributeValues.stream().map(this::convert).collect(Collectors.toList())));
+        }
+
+        if (2 != attributeValues.size()) {
+            throw new WebApplicationException(
+                    "'between' search requires two comma separated values, found '" + value.get() + "'", 400);
+        }
+
+        return Optional.of(and(gte(attributeName, convert(attributeValues.get(0))),
+                lte(attributeName, convert(attributeValues.get(1)))));
+
+    }
+
+    /**
+     * Returns the Mongo path of the attribute. Fields of unwound documents keep the
+     * class attribute name.
+     * 
+     * @return
+     */
+    private String getAttributeName() {
+        return FieldMetadataRegistry.find(attribute.get()).map(FieldMetadata::getMongoPath)
+                .orElseGet(() -> ClassFieldUtils.getFieldNameFromQueryName(attribute.get()));
+    }
+
+    private Object convert(String attributeValue) {
+        return FieldMetadataRegistry.get(attribute.get()).convert(attributeValue.trim());
+    }
+
+    /**
+     * Returns the value with any regular expression characters escaped, so it is
+     * matched as a literal.
+     * 
+     * @param attributeValue
+     * @return
+     */
+    public static String escape(String attributeValue) {
+        return REGEX_CHARACTERS.matcher(attributeValue).replaceAll("\\\\$0");
+    }
+
+    private boolean isOperator(String name) {
+        return name.equals(operator.isPresent() ? operator.get() : null);
+    }
+
     private boolean isExistsOperator() {
         return EXISTS.equals(operator.isPresent() ? operator.get() : null);
     }
@@ -167,22 +280,18 @@ public class DefaultSearchComponent implements BsonSearchComponent {
 
     private void parseComponent() {
 
-        if (null == component) {
+        if (parsed || null == component) {
             return;
         }
-
-        if (component.contains(NOT_EQUALS)) {
-            operator = Optional.of(NOT_EQUALS);
-        } else if (component.contains(EQUALS)) {
-            operator = Optional.of(EQUALS);
-        } else if (component.contains(NOT_EXISTS)) {
-            operator = Optional.of(NOT_EXISTS);
-        } else if (component.contains(EXISTS)) {
-            operator = Optional.of(EXISTS);
-        } else if (component.contains(NOT_LIKE)) {
-            operator = Optional.of(NOT_LIKE);
-        } else if (component.contains(LIKE)) {
-            operator = Optional.of(LIKE);
+        parsed = true;
+
+        int first = Integer.MAX_VALUE;
+        for (Map.Entry<String, Pattern> entry : OPERATOR_PATTERNS.entrySet()) {
+            Matcher matcher = entry.getValue().matcher(component);
+            if (matcher.find() && matcher.start() < first) {
+                first = matcher.start();
+                operator = Optional.of(entry.getKey());
+            }
         }
 
         if (operator.isPresent()) {
@@ -193,15 +302,14 @@ public class DefaultSearchComponent implements BsonSearchComponent {
 
     private void setVariableAndValue() {
 
-        String splitString = new StringBuilder("\\s*").append(operator.get()).append("\\s*").toString();
-        String[] split = component.split(splitString);
+        String[] split = OPERATOR_PATTERNS.get(operator.get()).split(component, 2);
 
         // set variable
         attribute = Optional.of(split[0]);
 
         // set value if not an exists operator
         if (!(isExistsOperator() || isNotExistsOperator())) {
-            value = Optional.of(split[1]);
+            value = Optional.of(split[1]).filter(v -> !v.isEmpty());
         }
 
     }
@@ -0,0 +1,168 @@
+package com.redhat.labs.lodestar.model.search;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.or;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.bson.conversions.Bson;
+
+/**
+ * Parsed form of a search string. Each valid component becomes a
+ * {@link DefaultSearchComponent}, grouped into a {@link Term} per attribute,
+ * while the start, end and state components are held as the range of the
+ * search. Parsing resolves every attribute, operator and value once, so the
+ * {@link Bson} can be built without parsing the string again.
+ */
+public class SearchExpression {
+
+    private static final String STATE = "state";
+    private static final String START = "start";
+    private static final String END = "end";
+    private static final String SEARCH_DELIMITER = "&";
+    private static final String EQUALS = "=";
+
+    private final List<Term> terms;
+    private final boolean range;
+    private final String start;
+    private final String end;
+    private final boolean stateSearch;
+    private final String state;
+
+    private SearchExpression(List<Term> terms, boolean range, String start, String end, boolean stateSearch,
+            String state) {
+        this.terms = terms;
+        this.range = range;
+        this.start = start;
+        this.end = end;
+        this.stateSearch = stateSearch;
+        this.state = state;
+    }
+
+    /**
+     * A search attribute and the components using it, grouped by operator.
+     */
+    public static class Term {
+
+        private final String attribute;
+        private final List<DefaultSearchComponent> components;
+
+        Term(String attribute, List<DefaultSearchComponent> components) {
+            this.attribute = attribute;
+            this.components = Collections.unmodifiableList(components);
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        public List<DefaultSearchComponent> getComponents() {
+            return components;
+        }
+
+        /**
+         * Returns the {@link Bson} for the term, or of the components if there are
+         * several.
+         *
+         * @return
+         */
+        Optional<Bson> toBson() {
+
+            List<Bson> bsonList = components.stream().map(DefaultSearchComponent::getBson)
+                    .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
+
+            return Optional.of(1 == bsonList.size() ? bsonList.get(0) : or(bsonList));
+
+        }
+
+    }
+
+    /**
+     * Returns the {@link SearchExpression} for the given search string.
+     *
+     * @param searchString
+     * @return
+     */
+    public static SearchExpression parse(String searchString) {
+
+        // group by attribute name and then operator
+        Map<String, Map<String, List<DefaultSearchComponent>>> grouped = Stream
+                .of(searchString.split(SEARCH_DELIMITER))
+                .map(c -> DefaultSearchComponent.builder().component(c).build())
+                .filter(sc -> sc.getAttribute().isPresent() && sc.getOperator().isPresent())
+                .collect(Collectors.groupingBy(sc -> sc.getAttribute().get(),
+                        Collectors.groupingBy(sc -> sc.getOperator().get())));
+
+        boolean range = grouped.containsKey(START) || grouped.containsKey(END) || grouped.containsKey(STATE);
+        String start = range ? findFirstValue(grouped.remove(START)) : null;
+        String end = range ? findFirstValue(grouped.remove(END)) : null;
+        boolean stateSearch = grouped.containsKey(STATE);
+        String state = stateSearch ? findFirstValue(grouped.remove(STATE)) : null;
+
+        List<Term> terms = grouped.entrySet().stream()
+                .map(e -> new Term(e.getKey(),
+                        e.getValue().values().stream().flatMap(List::stream).collect(Collectors.toList())))
+                .collect(Collectors.toList());
+
+        return new SearchExpression(Collections.unmodifiableList(terms), range, start, end, stateSearch, state);
+
+    }
+
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    public boolean isRange() {
+        return range;
+    }
+
+    /**
+     * Returns the {@link Bson} for the search. The range, if any, comes first and
+     * is combined with the and of every term.
+     *
+     * @return
+     */
+    public Optional<Bson> toBson() {
+
+        Optional<Bson> rangeBson = range ? createRangeBson() : Optional.empty();
+
+        List<Bson> andBsonList = new ArrayList<>();
+        terms.forEach(t -> t.toBson().ifPresent(andBsonList::add));
+        Optional<Bson> searchBson = andBsonList.isEmpty() ? Optional.empty() : Optional.of(and(andBsonList));
+
+        if (searchBson.isPresent() && rangeBson.isPresent()) {
+            return Optional.of(and(rangeBson.get(), searchBson.get()));
+        }
+
+        return searchBson.isPresent() ? searchBson : rangeBson;
+
+    }
+
+    private Optional<Bson> createRangeBson() {
+
+        if (stateSearch) {
+            return StateSearchComponent.builder().state(EngagementState.lookup(state)).start(start).end(end).build()
+                    .getBson();
+        }
+
+        return RangeSearchComponent.builder().start(start).end(end).build().getBson();
+
+    }
+
+    private static String findFirstValue(Map<String, List<DefaultSearchComponent>> operatorMap) {
+
+        if (null == operatorMap || null == operatorMap.get(EQUALS)) {
+            return null;
+        }
+
+        return operatorMap.get(EQUALS).stream().findFirst().flatMap(DefaultSearchComponent::getValue).orElse(null);
+
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+
+/**
+ * Caches the total counts of paged queries. Counts are keyed by the normalized
+ * search, unwind and group of the {@link ListFilterOptions} and are recorded
+ * with the write epoch at the time the count started. Any write to the
+ * engagement collection, seen by the {@link DataVersionTracker}, advances the
+ * epoch, which makes every cached count stale. Counts also expire after the
+ * configured time to live.
+ */
+@ApplicationScoped
+public class CountCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountCache.class);
+
+    static final String HIT = "count-cache-hit";
+    static final String MISS = "count-cache-miss";
+    static final String STALE_HIT = "count-cache-stale-hit";
+
+    @ConfigProperty(name = "mongo.count.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "mongo.count.cache.ttl.seconds", defaultValue = "60")
+    long ttlSeconds;
+
+    @ConfigProperty(name = "mongo.count.cache.max.entries", defaultValue = "1000")
+    int maxEntries;
+
+    @ConfigProperty(name = "mongo.count.cache.stale.while.revalidate", defaultValue = "false")
+    boolean staleWhileRevalidate;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Advances the write epoch, making every cached count stale.
+     */
+    public void advanceEpoch() {
+        writeEpoch.incrementAndGet();
+    }
+
+    public long getEpoch() {
+        return writeEpoch.get();
+    }
+
+    /**
+     * Returns the cached count for the key if it is current. Otherwise, the
+     * counter is run on the given {@link Executor} and its result is cached. If
+     * stale while revalidate is enabled, a stale count is returned immediately
+     * while a single refresh runs in the background.
+     *
+     * @param key
+     * @param counter
+     * @param executor
+     * @return
+     */
+    public CompletableFuture<Integer> getCount(String key, Supplier<Integer> counter, Executor executor) {
+
+        if (!enabled) {
+            return CompletableFuture.supplyAsync(counter, executor);
+        }
+
+        long epoch = writeEpoch.get();
+        CachedCount cached = counts.get(key);
+
+        if (null != cached && cached.isCurrent(epoch, clock.getAsLong())) {
+            metricRegistry.counter(HIT).inc();
+            return CompletableFuture.completedFuture(cached.count);
+        }
+
+        if (null != cached && staleWhileRevalidate) {
+            metricRegistry.counter(STALE_HIT).inc();
+            if (cached.refreshing.compareAndSet(false, true)) {
+                count(key, counter, executor, epoch).whenComplete((count, e) -> cached.refreshing.set(false));
+            }
+            return CompletableFuture.completedFuture(cached.count);
+        }
+
+        metricRegistry.counter(MISS).inc();
+        return count(key, counter, executor, epoch);
+
+    }
+
+    private CompletableFuture<Integer> count(String key, Supplier<Integer> counter, Executor executor, long epoch) {
+
+        return CompletableFuture.supplyAsync(counter, executor).whenComplete((count, e) -> {
+            if (null == e) {
+                put(key, new CachedCount(count, epoch, clock.getAsLong()));
+            } else {
+                LOGGER.debug("count for {} failed, not cached", key, e);
+            }
+        });
+
+    }
+
+    /**
+     * Caches the count unless a count started at a later epoch is already cached.
+     * Stale counts are evicted once the cache is full. If the cache is still
+     * full, the count is not cached.
+     */
+    private void put(String key, CachedCount count) {
+
+        if (counts.size() >= maxEntries && !counts.containsKey(key)) {
+            long now = clock.getAsLong();
+            long epoch = writeEpoch.get();
+            counts.values().removeIf(c -> !c.isCurrent(epoch, now));
+            if (counts.size() >= maxEntries) {
+                return;
+            }
+        }
+
+        counts.merge(key, count, (existing, incoming) -> existing.epoch > incoming.epoch ? existing : incoming);
+
+    }
+
+    /**
+     * Returns the cache key for the given {@link ListFilterOptions}. The search
+     * components are sorted, so the same filters in a different order share a
+     * count. Must be called before the pipeline is built, as unwinding replaces
+     * the search string.
+     *
+     * @param filterOptions
+     * @return
+     */
+    public static String createKey(ListFilterOptions filterOptions) {
+
+        String search = filterOptions.getSearch()
+                .map(s -> Stream.of(s.split("&")).map(String::trim).filter(c -> !c.isEmpty()).sorted()
+                        .collect(Collectors.joining("&")))
+                .orElse("");
+
+        return new StringBuilder(search).append('|').append(filterOptions.getUnwindFieldName().orElse(""))
+                .append('|').append(filterOptions.getGroupByFieldName().orElse("")).append('|')
+                .append(filterOptions.getText().orElse("")).toString();
+
+    }
+
+    private class CachedCount {
+
+        private final Integer count;
+        private final long epoch;
+        private final long created;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CachedCount(Integer count, long epoch, long created) {
+            this.count = count;
+            this.epoch = epoch;
+            this.created = created;
+        }
+
+        boolean isCurrent(long currentEpoch, long now) {
+            return epoch == currentEpoch && now - created < ttlSeconds * 1000;
+        }
+
+    }
+
+}
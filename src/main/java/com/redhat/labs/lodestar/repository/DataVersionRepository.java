@@ -0,0 +1,47 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.inc;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.redhat.labs.lodestar.model.DataVersion;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+
+@ApplicationScoped
+public class DataVersionRepository implements PanacheMongoRepositoryBase<DataVersion, String> {
+
+    private static final String ID = "_id";
+    private static final String VERSION = "version";
+
+    /**
+     * Increments the version with the given name, creating it if it does not
+     * exist. Returns the new version.
+     * 
+     * @param name
+     * @return
+     */
+    public long increment(String name) {
+
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().upsert(true)
+                .returnDocument(ReturnDocument.AFTER);
+
+        return mongoCollection().findOneAndUpdate(eq(ID, name), inc(VERSION, 1L), options).getVersion();
+
+    }
+
+    /**
+     * Returns the current version with the given name, or 0 if it has never been
+     * incremented.
+     * 
+     * @param name
+     * @return
+     */
+    public long findVersion(String name) {
+        return findByIdOptional(name).map(DataVersion::getVersion).orElse(0L);
+    }
+
+}
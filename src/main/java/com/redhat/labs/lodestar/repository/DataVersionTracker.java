@@ -0,0 +1,95 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.DataVersion;
+
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Tracks writes to the engagements across all backend instances. Writes from
+ * this instance are seen immediately. Writes from other instances are seen by
+ * polling the shared engagement {@link DataVersion}. Either advances the local
+ * version, which invalidates anything cached against an earlier version, and
+ * the {@link CountCache} epoch.
+ */
+@ApplicationScoped
+public class DataVersionTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataVersionTracker.class);
+
+    static final String ENGAGEMENTS = "engagements";
+    private static final long UNKNOWN = -1;
+
+    @ConfigProperty(name = "data.version.poll.enabled", defaultValue = "true")
+    boolean pollEnabled;
+
+    @Inject
+    DataVersionRepository versionRepository;
+
+    @Inject
+    CountCache countCache;
+
+    private final AtomicLong localVersion = new AtomicLong();
+    private final AtomicLong sharedVersion = new AtomicLong(UNKNOWN);
+
+    /**
+     * Returns the local version. It changes whenever a write from any instance
+     * has been seen.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return localVersion.get();
+    }
+
+    /**
+     * Records a write to the engagements from this instance.
+     */
+    public void written() {
+
+        advance();
+
+        try {
+            versionRepository.increment(ENGAGEMENTS);
+        } catch (MongoException e) {
+            LOGGER.warn("failed to increment shared engagement version, other instances may serve stale results", e);
+        }
+
+    }
+
+    @Scheduled(every = "{data.version.poll.interval}")
+    void poll() {
+
+        if (!pollEnabled) {
+            return;
+        }
+
+        try {
+
+            long version = versionRepository.findVersion(ENGAGEMENTS);
+            if (sharedVersion.getAndSet(version) != version) {
+                LOGGER.trace("shared engagement version changed to {}", version);
+                advance();
+            }
+
+        } catch (MongoException e) {
+            LOGGER.debug("failed to read shared engagement version", e);
+        }
+
+    }
+
+    private void advance() {
+        localVersion.incrementAndGet();
+        countCache.advanceEpoch();
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.labs.lodestar.model.event.DeadLetterEvent;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+
+@ApplicationScoped
+public class DeadLetterRepository implements PanacheMongoRepositoryBase<DeadLetterEvent, String> {
+
+    private static final String ID = "_id";
+    private static final String DEAD_AT = "deadAt";
+
+    static final List<IndexModel> INDEXES = Arrays.asList(new IndexModel(Indexes.descending(DEAD_AT),
+            new IndexOptions().name(EngagementIndexManager.MANAGED_PREFIX + "dead_letter_dead_at")));
+
+    /**
+     * Creates the index used to list the most recent dead events.
+     */
+    public void createIndexes() {
+        mongoCollection().createIndexes(INDEXES);
+    }
+
+    /**
+     * Returns up to the given number of dead events, most recent first.
+     * 
+     * @param limit
+     * @return
+     */
+    public List<DeadLetterEvent> findRecent(int limit) {
+        return findAll(Sort.descending(DEAD_AT, ID)).page(Page.ofSize(limit)).list();
+    }
+
+}
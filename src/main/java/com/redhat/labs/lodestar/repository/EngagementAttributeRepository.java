@@ -0,0 +1,627 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.include;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import com.redhat.labs.lodestar.model.Artifact;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.EngagementAttribute;
+import com.redhat.labs.lodestar.model.HostingEnvironment;
+import com.redhat.labs.lodestar.model.Score;
+import com.redhat.labs.lodestar.model.UseCase;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+import com.redhat.labs.lodestar.model.pagination.PagedResults;
+import com.redhat.labs.lodestar.model.search.BsonSearch;
+import com.redhat.labs.lodestar.model.search.DefaultSearchComponent;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Keeps the artifacts, scores, use cases and hosting environments of each
+ * engagement as rows in a collection per attribute type, so the paged
+ * attribute lists are read with an indexed query instead of unwinding every
+ * engagement. Each row holds the attribute under the same field name as the
+ * engagement along with the engagement uuid, customer name and project name,
+ * so a search string matches a row the same way it matches the engagement.
+ * Rows are replaced whenever the engagement is written, and compared with the
+ * engagements on startup and then on a schedule to repair rows whose write
+ * failed.
+ */
+@ApplicationScoped
+public class EngagementAttributeRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementAttributeRepository.class);
+
+    private static final String UUID = "uuid";
+    private static final String CUSTOMER_NAME = "customerName";
+    private static final String PROJECT_NAME = "projectName";
+    private static final String INDEX = "index";
+    private static final String ENGAGEMENT_UUID = "engagementUuid";
+    private static final String COUNT = "count";
+    private static final int REPAIR_BATCH_SIZE = 500;
+    private static final String PREFIX = EngagementIndexManager.MANAGED_PREFIX;
+    private static final Set<String> ENGAGEMENT_FIELDS = Set.of(UUID, CUSTOMER_NAME, PROJECT_NAME, "customer_name",
+            "project_name");
+    private static final Set<String> ATTRIBUTE_OPERATORS = Set.of("=", "like", "exists", "matches", "starts",
+            "in", "between", ">", ">=", "<", "<=");
+
+    public enum AttributeType {
+
+        ARTIFACT("EngagementArtifacts", "artifacts", Engagement::getArtifacts, "type"),
+        SCORE("EngagementScores", "scores", Engagement::getScores),
+        USE_CASE("EngagementUseCases", "useCases", Engagement::getUseCases),
+        HOSTING_ENVIRONMENT("EngagementHostingEnvironments", "hostingEnvironments",
+                Engagement::getHostingEnvironments, "ocpCloudProviderName");
+
+        private final String collectionName;
+        private final String fieldName;
+        private final Function<Engagement, List<? extends EngagementAttribute>> values;
+        private final List<String> indexedFields;
+
+        AttributeType(String collectionName, String fieldName,
+                Function<Engagement, List<? extends EngagementAttribute>> values, String... indexedFields) {
+            this.collectionName = collectionName;
+            this.fieldName = fieldName;
+            this.values = values;
+            this.indexedFields = Arrays.asList(indexedFields);
+        }
+
+        public String getCollectionName() {
+            return collectionName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        List<? extends EngagementAttribute> getValues(Engagement engagement) {
+            List<? extends EngagementAttribute> list = null == engagement ? null : values.apply(engagement);
+            return null == list ? Collections.emptyList() : list;
+        }
+
+        List<IndexModel> getIndexes() {
+
+            String name = PREFIX + collectionName.toLowerCase();
+            List<IndexModel> indexes = new ArrayList<>(Arrays.asList(
+                    new IndexModel(Indexes.ascending(UUID, INDEX), new IndexOptions().name(name + "_engagement")),
+                    new IndexModel(Indexes.ascending(fieldName + "." + UUID), new IndexOptions().name(name + "_uuid")),
+                    new IndexModel(Indexes.ascending(CUSTOMER_NAME, PROJECT_NAME, UUID, INDEX),
+                            new IndexOptions().name(name + "_customer_project"))));
+            indexedFields.forEach(field -> indexes.add(new IndexModel(Indexes.ascending(fieldName + "." + field),
+                    new IndexOptions().name(name + "_" + field))));
+            return indexes;
+
+        }
+
+    }
+
+    @ConfigProperty(name = "attribute.collections.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    EngagementRepository repository;
+
+    private volatile boolean ready;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!enabled) {
+            LOGGER.info("engagement attribute collections disabled.");
+            return;
+        }
+
+        try {
+            synchronize();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to synchronize engagement attribute collections, attributes read by unwinding. {}",
+                    e.getMessage());
+        }
+
+    }
+
+    @Scheduled(every = "{attribute.collections.repair.interval}")
+    void scheduledRepair() {
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (ready) {
+                repair();
+            } else {
+                synchronize();
+            }
+        } catch (MongoException e) {
+            LOGGER.warn("failed to repair engagement attribute collections", e);
+        }
+
+    }
+
+    /**
+     * Creates the indexes of each attribute collection, rebuilds any collection
+     * whose number of rows differs from the number of attributes in the
+     * engagements and repairs the rows of the others. Attribute lists are only
+     * read from the rows once this has completed.
+     */
+    void synchronize() {
+
+        for (AttributeType type : AttributeType.values()) {
+
+            MongoCollection<BsonDocument> collection = getCollection(type);
+            collection.createIndexes(type.getIndexes());
+
+            long expected = countAttributes(type);
+            long actual = collection.countDocuments();
+            if (expected != actual) {
+                LOGGER.info("rebuilding {}, {} rows for {} attributes", type.getCollectionName(), actual, expected);
+                rebuild(type);
+            } else {
+                repair(type);
+            }
+
+        }
+
+        ready = true;
+
+    }
+
+    /**
+     * Compares the rows of every attribute collection with the rows created from
+     * the engagements and rewrites the rows of each engagement that differ.
+     *
+     * @return the number of engagements whose rows were rewritten
+     */
+    int repair() {
+
+        int repaired = 0;
+        for (AttributeType type : AttributeType.values()) {
+            repaired += repair(type);
+        }
+        return repaired;
+
+    }
+
+    /**
+     * Reads the engagements and the rows of the {@link AttributeType} in
+     * engagement uuid order, collecting the uuids of engagements whose rows
+     * differ from the rows created from the engagement, and of rows left for
+     * engagements that no longer exist. The rows of those uuids are then
+     * rewritten from a fresh read of the engagements.
+     *
+     * @param type
+     * @return the number of engagements whose rows were rewritten
+     */
+    int repair(AttributeType type) {
+
+        Set<String> stale = new LinkedHashSet<>();
+
+        try (MongoCursor<Engagement> engagements = repository.mongoCollection()
+                .find(Filters.type(UUID, BsonType.STRING))
+                .projection(include(UUID, CUSTOMER_NAME, PROJECT_NAME, type.getFieldName()))
+                .sort(Sorts.ascending(UUID)).iterator();
+                MongoCursor<BsonDocument> rows = getCollection(type).find().projection(excludeId())
+                        .sort(Sorts.ascending(UUID, INDEX)).iterator()) {
+
+            BsonDocument row = next(rows);
+            while (engagements.hasNext()) {
+
+                Engagement engagement = engagements.next();
+
+                // rows of engagements that no longer exist
+                while (null != row && engagement.getUuid().compareTo(getUuid(row)) > 0) {
+                    stale.add(getUuid(row));
+                    row = next(rows);
+                }
+
+                List<BsonDocument> actual = new ArrayList<>();
+                while (null != row && engagement.getUuid().equals(getUuid(row))) {
+                    actual.add(row);
+                    row = next(rows);
+                }
+
+                if (!createRows(type, engagement).equals(actual)) {
+                    stale.add(engagement.getUuid());
+                }
+
+            }
+
+            while (null != row) {
+                stale.add(getUuid(row));
+                row = next(rows);
+            }
+
+        }
+
+        if (stale.isEmpty()) {
+            return 0;
+        }
+
+        LOGGER.info("repairing {} rows of {} engagements", type.getCollectionName(), stale.size());
+
+        List<String> uuids = new ArrayList<>(stale);
+        for (int i = 0; i < uuids.size(); i += REPAIR_BATCH_SIZE) {
+
+            List<String> batch = uuids.subList(i, Math.min(i + REPAIR_BATCH_SIZE, uuids.size()));
+            List<Engagement> engagements = repository.mongoCollection().find(in(UUID, batch))
+                    .projection(include(UUID, CUSTOMER_NAME, PROJECT_NAME, type.getFieldName()))
+                    .into(new ArrayList<>());
+            write(type, batch, engagements);
+
+        }
+
+        return stale.size();
+
+    }
+
+    /**
+     * Replaces the rows of the given {@link Engagement}s in every attribute
+     * collection.
+     *
+     * @param engagements
+     */
+    public void replace(Collection<Engagement> engagements) {
+
+        if (!enabled || engagements.isEmpty()) {
+            return;
+        }
+
+        for (AttributeType type : AttributeType.values()) {
+            write(type, getUuids(engagements), engagements);
+        }
+
+    }
+
+    /**
+     * Replaces the rows of the updated {@link Engagement} in the attribute
+     * collections where its rows differ from the rows of the existing version.
+     *
+     * @param existing
+     * @param updated
+     */
+    public void replace(Engagement existing, Engagement updated) {
+
+        if (!enabled) {
+            return;
+        }
+
+        for (AttributeType type : AttributeType.values()) {
+            if (!createRows(type, existing).equals(createRows(type, updated))) {
+                write(type, getUuids(List.of(updated)), List.of(updated));
+            }
+        }
+
+    }
+
+    /**
+     * Deletes the rows of the given {@link Engagement}s from every attribute
+     * collection.
+     *
+     * @param engagements
+     */
+    public void delete(Collection<Engagement> engagements) {
+
+        if (!enabled) {
+            return;
+        }
+
+        List<String> uuids = getUuids(engagements);
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        for (AttributeType type : AttributeType.values()) {
+            try {
+                getCollection(type).deleteMany(in(UUID, uuids));
+            } catch (MongoException e) {
+                LOGGER.warn("failed to delete {} rows of engagements {}, left for the repair. {}",
+                        type.getCollectionName(), uuids, e.getMessage());
+            }
+        }
+
+    }
+
+    /**
+     * Deletes every row from every attribute collection.
+     */
+    public void deleteAll() {
+
+        if (!enabled) {
+            return;
+        }
+
+        for (AttributeType type : AttributeType.values()) {
+            try {
+                getCollection(type).deleteMany(new BsonDocument());
+            } catch (MongoException e) {
+                LOGGER.warn("failed to delete {} rows, left for the repair. {}", type.getCollectionName(),
+                        e.getMessage());
+            }
+        }
+
+    }
+
+    /**
+     * Returns the page of attributes for the {@link ListFilterOptions} if it can
+     * be read from the rows. Rows are sorted by the sort fields, then by
+     * engagement and position in the engagement.
+     *
+     * @param <T>
+     * @param <P>
+     * @param type
+     * @param filterOptions
+     * @param resultClass
+     * @param page
+     * @return
+     */
+    public <T, P extends PagedResults<T>> Optional<P> findPage(AttributeType type, ListFilterOptions filterOptions,
+            Class<T> resultClass, P page) {
+
+        if (!enabled || !ready || !isRowQuery(type, filterOptions)) {
+            return Optional.empty();
+        }
+
+        Bson filter = MongoAggregationHelper.generateMatchFilter(filterOptions);
+
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(filter));
+        pipeline.add(Aggregates.sort(getSort(type, filterOptions)));
+        MongoAggregationHelper.skipAndLimitStages(pipeline, filterOptions);
+        pipeline.add(Aggregates.replaceRoot(new Document("$mergeObjects",
+                Arrays.asList("$" + type.getFieldName(), new Document(ENGAGEMENT_UUID, "$" + UUID)))));
+        MongoAggregationHelper.projectionStage(pipeline, filterOptions);
+
+        MongoCollection<BsonDocument> collection = getCollection(type);
+        AggregateIterable<T> iterable = collection.aggregate(pipeline, resultClass);
+        if (filterOptions.getPage().isPresent()) {
+            iterable.batchSize(filterOptions.getPerPage().orElse(20));
+        }
+
+        page.setResults(iterable.into(new ArrayList<>()));
+        page.setTotalCount((int) collection.countDocuments(filter));
+        page.setCurrentPage(filterOptions.getPage().orElse(1));
+        page.setPerPage(filterOptions.getPerPage().orElse(20));
+
+        return Optional.of(page);
+
+    }
+
+    /**
+     * Returns true if the {@link ListFilterOptions} can be answered from the rows
+     * of the {@link AttributeType}. The search may only use the engagement uuid,
+     * customer name and project name, plus at most one positive operator, such as
+     * equals, like or exists, on the attribute, as any other search on the
+     * engagement cannot be matched against a row. Paging by cursor and text
+     * searches are not supported.
+     *
+     * @param type
+     * @param filterOptions
+     * @return
+     */
+    static boolean isRowQuery(AttributeType type, ListFilterOptions filterOptions) {
+
+        if (filterOptions.isCursorPaging() || filterOptions.getText().isPresent()
+                || filterOptions.getUnwindFieldName().isPresent() || filterOptions.getGroupByFieldName().isPresent()) {
+            return false;
+        }
+
+        Optional<String> search = filterOptions.getSearch();
+        if (search.isEmpty()) {
+            return true;
+        }
+
+        int attributeComponents = 0;
+        for (String value : search.get().split("&")) {
+
+            DefaultSearchComponent component = DefaultSearchComponent.builder().component(value).build();
+            if (component.getAttribute().isEmpty() || component.getOperator().isEmpty()) {
+                continue;
+            }
+
+            String attribute = component.getAttribute().get().trim();
+            if (ENGAGEMENT_FIELDS.contains(attribute)) {
+                continue;
+            }
+
+            if (!attribute.startsWith(type.getFieldName() + ".")
+                    || !ATTRIBUTE_OPERATORS.contains(component.getOperator().get())
+                    || ++attributeComponents > 1) {
+                return false;
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Returns the rows of the {@link Engagement} for the {@link AttributeType}.
+     *
+     * @param type
+     * @param engagement
+     * @return
+     */
+    List<BsonDocument> createRows(AttributeType type, Engagement engagement) {
+
+        List<? extends EngagementAttribute> attributes = type.getValues(engagement);
+        List<BsonDocument> rows = new ArrayList<>();
+
+        for (int i = 0; i < attributes.size(); i++) {
+
+            EngagementAttribute attribute = attributes.get(i);
+            if (null == attribute) {
+                continue;
+            }
+
+            rows.add(new BsonDocument(UUID, toBsonValue(engagement.getUuid()))
+                    .append(CUSTOMER_NAME, toBsonValue(engagement.getCustomerName()))
+                    .append(PROJECT_NAME, toBsonValue(engagement.getProjectName()))
+                    .append(INDEX, new BsonInt32(i)).append(type.getFieldName(), toBsonDocument(attribute)));
+
+        }
+
+        return rows;
+
+    }
+
+    /**
+     * Replaces the rows of the uuids with the rows of the given
+     * {@link Engagement}s. The engagement has already been written, so a failure
+     * is logged rather than failing the request and the rows are left for the
+     * scheduled repair.
+     *
+     * @param type
+     * @param uuids
+     * @param engagements
+     */
+    private void write(AttributeType type, List<String> uuids, Collection<Engagement> engagements) {
+
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        // one ordered request removing the old rows before adding the new ones
+        List<WriteModel<BsonDocument>> writes = new ArrayList<>();
+        writes.add(new DeleteManyModel<>(in(UUID, uuids)));
+        engagements.stream().filter(e -> null != e.getUuid()).flatMap(e -> createRows(type, e).stream())
+                .forEach(row -> writes.add(new InsertOneModel<>(row)));
+
+        try {
+            getCollection(type).bulkWrite(writes);
+        } catch (MongoException e) {
+            LOGGER.warn("failed to write {} rows of engagements {}, left for the repair. {}",
+                    type.getCollectionName(), uuids, e.getMessage());
+        }
+
+    }
+
+    private void rebuild(AttributeType type) {
+
+        MongoCollection<BsonDocument> collection = getCollection(type);
+        collection.deleteMany(new BsonDocument());
+
+        List<BsonDocument> rows = new ArrayList<>();
+        for (Engagement engagement : repository.mongoCollection().find()
+                .projection(include(UUID, CUSTOMER_NAME, PROJECT_NAME, type.getFieldName()))) {
+
+            rows.addAll(createRows(type, engagement));
+            if (rows.size() >= 1000) {
+                collection.insertMany(rows);
+                rows.clear();
+            }
+
+        }
+
+        if (!rows.isEmpty()) {
+            collection.insertMany(rows);
+        }
+
+    }
+
+    private long countAttributes(AttributeType type) {
+
+        Document size = new Document("$size",
+                new Document("$ifNull", Arrays.asList("$" + type.getFieldName(), Collections.emptyList())));
+        Document result = repository.mongoCollection()
+                .aggregate(Arrays.asList(Aggregates.group(null, Accumulators.sum(COUNT, size))), Document.class)
+                .first();
+
+        return null == result ? 0 : ((Number) result.get(COUNT)).longValue();
+
+    }
+
+    private Bson getSort(AttributeType type, ListFilterOptions filterOptions) {
+
+        List<String> fields = filterOptions.getSortFieldsAsList().stream()
+                .map(field -> CUSTOMER_NAME.equals(field) || PROJECT_NAME.equals(field) ? field
+                        : ENGAGEMENT_UUID.equals(field) ? UUID : type.getFieldName() + "." + field)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Stream.of(UUID, INDEX).filter(field -> !fields.contains(field)).forEach(fields::add);
+
+        return MongoAggregationHelper.determineSort(filterOptions.getSortOrder().orElse(SortOrder.ASC),
+                fields.toArray(new String[fields.size()]));
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private BsonDocument toBsonDocument(EngagementAttribute attribute) {
+
+        BsonDocument document = new BsonDocument();
+        Codec<EngagementAttribute> codec = (Codec<EngagementAttribute>) repository.mongoCollection()
+                .getCodecRegistry().get(attribute.getClass());
+        codec.encode(new BsonDocumentWriter(document), attribute, EncoderContext.builder().build());
+        return document;
+
+    }
+
+    private static BsonDocument next(MongoCursor<BsonDocument> rows) {
+        return rows.hasNext() ? rows.next() : null;
+    }
+
+    private static String getUuid(BsonDocument row) {
+        return row.getString(UUID).getValue();
+    }
+
+    private MongoCollection<BsonDocument> getCollection(AttributeType type) {
+        return repository.mongoDatabase().getCollection(type.getCollectionName(), BsonDocument.class);
+    }
+
+    private static List<String> getUuids(Collection<Engagement> engagements) {
+        return engagements.stream().map(Engagement::getUuid).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static BsonValue toBsonValue(String value) {
+        return null == value ? BsonNull.VALUE : new BsonString(value);
+    }
+
+}
@@ -0,0 +1,283 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.unset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import com.redhat.labs.lodestar.model.Commit;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedCommitResults;
+
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Keeps the commits of each engagement as rows in their own collection, so an
+ * engagement document does not grow with its history. Each row holds the
+ * commit with the engagement uuid, the commit id and the committed date, and
+ * rows are only ever added. Commits found on engagement documents are moved to
+ * the collection on startup. Clients that still read the commits from the
+ * engagement have them set from the collection when it is read.
+ */
+@ApplicationScoped
+public class EngagementCommitRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementCommitRepository.class);
+
+    static final String COLLECTION = "EngagementCommits";
+
+    private static final String UUID = "uuid";
+    private static final String COMMITS = "commits";
+    private static final String ENGAGEMENT_UUID = "engagementUuid";
+    private static final String COMMIT_ID = "commitId";
+    private static final String COMMITTED_DATE = "committedDate";
+    private static final String COMMIT = "commit";
+    private static final String PREFIX = EngagementIndexManager.MANAGED_PREFIX + COLLECTION.toLowerCase();
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int MIGRATION_BATCH_SIZE = 100;
+
+    static final List<IndexModel> INDEXES = Arrays.asList(
+            new IndexModel(Indexes.ascending(ENGAGEMENT_UUID, COMMIT_ID),
+                    new IndexOptions().name(PREFIX + "_commit").unique(true)),
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending(ENGAGEMENT_UUID),
+                    Indexes.descending(COMMITTED_DATE, COMMIT_ID)), new IndexOptions().name(PREFIX + "_date")));
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    void onStart(@Observes StartupEvent event) {
+
+        try {
+            getCollection().createIndexes(INDEXES);
+            migrate();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to move commits from the engagements. {}", e.getMessage());
+        }
+
+    }
+
+    /**
+     * Copies the commits of every engagement that still has them into the
+     * collection and removes them from the engagement. Engagements are streamed in batches so the whole collection is
+     * never held in memory. Returns the number of engagements whose commits were
+     * copied.
+     *
+     * @return
+     */
+    long migrate() {
+
+        long migrated = 0;
+        for (Engagement engagement : repository.mongoCollection().find(exists(COMMITS))
+                .projection(include(UUID, COMMITS)).batchSize(MIGRATION_BATCH_SIZE)) {
+
+            if (null == engagement.getUuid()) {
+                continue;
+            }
+
+            append(engagement.getUuid(), engagement.getCommits());
+            repository.mongoCollection().updateOne(eq(UUID, engagement.getUuid()), unset(COMMITS));
+            migrated++;
+
+        }
+
+        if (migrated > 0) {
+            LOGGER.info("moved commits of {} engagements", migrated);
+            versionTracker.written();
+        }
+
+        return migrated;
+
+    }
+
+    /**
+     * Adds the {@link Commit}s of the engagement that are not already stored.
+     * Commits without an id are ignored. Returns the number of commits added.
+     *
+     * @param engagementUuid
+     * @param commits
+     * @return
+     */
+    public int append(String engagementUuid, Collection<Commit> commits) {
+
+        if (null == engagementUuid || null == commits || commits.isEmpty()) {
+            return 0;
+        }
+
+        MongoCollection<BsonDocument> collection = getCollection();
+
+        Set<String> existing = new HashSet<>();
+        collection.find(eq(ENGAGEMENT_UUID, engagementUuid)).projection(include(COMMIT_ID))
+                .forEach(row -> existing.add(row.getString(COMMIT_ID).getValue()));
+
+        List<BsonDocument> rows = commits.stream().filter(Objects::nonNull).filter(c -> null != c.getId())
+                .filter(c -> existing.add(c.getId())).map(c -> createRow(engagementUuid, c))
+                .collect(Collectors.toList());
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            collection.insertMany(rows, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+
+            // commits added by a concurrent append are already stored
+            if (e.getWriteErrors().stream().anyMatch(error -> DUPLICATE_KEY != error.getCode())) {
+                throw e;
+            }
+            return rows.size() - e.getWriteErrors().size();
+
+        }
+
+        return rows.size();
+
+    }
+
+    /**
+     * Returns the page of {@link Commit}s of the engagement, most recent first.
+     *
+     * @param engagementUuid
+     * @param filterOptions
+     * @return
+     */
+    public PagedCommitResults findPage(String engagementUuid, ListFilterOptions filterOptions) {
+
+        int page = filterOptions.getPage().orElse(1);
+        int perPage = filterOptions.getPerPage().orElse(20);
+        Bson filter = eq(ENGAGEMENT_UUID, engagementUuid);
+
+        List<Bson> pipeline = Arrays.asList(Aggregates.match(filter),
+                Aggregates.sort(Sorts.descending(COMMITTED_DATE, COMMIT_ID)), Aggregates.skip((page - 1) * perPage),
+                Aggregates.limit(perPage), Aggregates.replaceRoot("$" + COMMIT));
+
+        MongoCollection<BsonDocument> collection = getCollection();
+        PagedCommitResults results = new PagedCommitResults();
+        results.setResults(collection.aggregate(pipeline, Commit.class).batchSize(perPage).into(new ArrayList<>()));
+        results.setTotalCount((int) collection.countDocuments(filter));
+        results.setCurrentPage(page);
+        results.setPerPage(perPage);
+
+        return results;
+
+    }
+
+    /**
+     * Returns all the {@link Commit}s of the engagement, most recent first.
+     *
+     * @param engagementUuid
+     * @return
+     */
+    public List<Commit> findAll(String engagementUuid) {
+        return findAll(List.of(engagementUuid)).getOrDefault(engagementUuid, new ArrayList<>());
+    }
+
+    /**
+     * Returns all the {@link Commit}s of each of the engagements, most recent
+     * first, keyed by engagement uuid. Engagements without commits are left out.
+     *
+     * @param engagementUuids
+     * @return
+     */
+    public Map<String, List<Commit>> findAll(Collection<String> engagementUuids) {
+
+        Map<String, List<Commit>> commits = new HashMap<>();
+        if (engagementUuids.isEmpty()) {
+            return commits;
+        }
+
+        Codec<Commit> codec = repository.mongoCollection().getCodecRegistry().get(Commit.class);
+        getCollection().find(in(ENGAGEMENT_UUID, engagementUuids))
+                .sort(Sorts.descending(COMMITTED_DATE, COMMIT_ID))
+                .forEach(row -> commits.computeIfAbsent(row.getString(ENGAGEMENT_UUID).getValue(),
+                        k -> new ArrayList<>()).add(codec.decode(new BsonDocumentReader(row.getDocument(COMMIT)),
+                                DecoderContext.builder().build())));
+
+        return commits;
+
+    }
+
+    /**
+     * Deletes the commits of the given {@link Engagement}s.
+     *
+     * @param engagements
+     */
+    public void delete(Collection<Engagement> engagements) {
+
+        List<String> uuids = engagements.stream().map(Engagement::getUuid).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!uuids.isEmpty()) {
+            getCollection().deleteMany(in(ENGAGEMENT_UUID, uuids));
+        }
+
+    }
+
+    /**
+     * Deletes every commit.
+     */
+    public void deleteAll() {
+        getCollection().deleteMany(new BsonDocument());
+    }
+
+    BsonDocument createRow(String engagementUuid, Commit commit) {
+
+        BsonDocument document = new BsonDocument();
+        Codec<Commit> codec = repository.mongoCollection().getCodecRegistry().get(Commit.class);
+        codec.encode(new BsonDocumentWriter(document), commit, EncoderContext.builder().build());
+
+        return new BsonDocument(ENGAGEMENT_UUID, new BsonString(engagementUuid))
+                .append(COMMIT_ID, new BsonString(commit.getId()))
+                .append(COMMITTED_DATE, toBsonValue(commit.getCommitDate())).append(COMMIT, document);
+
+    }
+
+    MongoCollection<BsonDocument> getCollection() {
+        return repository.mongoDatabase().getCollection(COLLECTION, BsonDocument.class);
+    }
+
+    private static BsonValue toBsonValue(String value) {
+        return null == value ? BsonNull.VALUE : new BsonString(value);
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.MongoIndexUsage;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Declares the indexes required by the queries in {@link EngagementRepository}
+ * and reconciles them against the engagement collection on startup. Only
+ * indexes named with the managed prefix are created, rebuilt or dropped.
+ * Reconciliation is retried on a schedule until it completes and every index
+ * has been built.
+ */
+@ApplicationScoped
+public class EngagementIndexManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementIndexManager.class);
+
+    static final String MANAGED_PREFIX = "lodestar_";
+    public static final String SUBDOMAIN_INDEX = MANAGED_PREFIX + "subdomain";
+    public static final String TEXT_INDEX = MANAGED_PREFIX + "text";
+
+    private static final String NAME = "name";
+    private static final String KEY = "key";
+    private static final String UNIQUE = "unique";
+    private static final String ACCESSES = "accesses";
+    private static final String OPS = "ops";
+    private static final String SINCE = "since";
+    private static final String WEIGHTS = "weights";
+    private static final String TEXT = "text";
+
+    // text index fields and their weights, matches in names rank highest
+    private static final Document TEXT_WEIGHTS = new Document("customerName", 10).append("projectName", 10)
+            .append("categories.name", 5).append("artifacts.title", 3).append("useCases.title", 3)
+            .append("description", 1).append("additionalDetails", 1);
+
+    static final List<IndexModel> ENGAGEMENT_INDEXES = Collections.unmodifiableList(Arrays.asList(
+            new IndexModel(Indexes.ascending("uuid"),
+                    new IndexOptions().name(MANAGED_PREFIX + "uuid").unique(true)
+                            .partialFilterExpression(type("uuid", BsonType.STRING))),
+            new IndexModel(Indexes.ascending("customerName", "projectName"),
+                    new IndexOptions().name(MANAGED_PREFIX + "customer_project").unique(true)
+                            .partialFilterExpression(and(type("customerName", BsonType.STRING),
+                                    type("projectName", BsonType.STRING)))),
+            new IndexModel(Indexes.ascending("subdomainKeys"),
+                    new IndexOptions().name(SUBDOMAIN_INDEX).unique(true)
+                            .partialFilterExpression(type("subdomainKeys", BsonType.STRING))),
+            new IndexModel(Indexes.ascending("projectId"), new IndexOptions().name(MANAGED_PREFIX + "project_id")),
+            new IndexModel(Indexes.ascending("endDate"), new IndexOptions().name(MANAGED_PREFIX + "end_date")),
+            new IndexModel(Indexes.ascending("archiveDate"),
+                    new IndexOptions().name(MANAGED_PREFIX + "archive_date")),
+            new IndexModel(Indexes.ascending("launch.launchedDateTime"),
+                    new IndexOptions().name(MANAGED_PREFIX + "launched_date_time")),
+            new IndexModel(Indexes.ascending("lastUpdate"), new IndexOptions().name(MANAGED_PREFIX + "last_update")),
+            new IndexModel(
+                    Indexes.compoundIndex(
+                            TEXT_WEIGHTS.keySet().stream().map(Indexes::text).collect(Collectors.toList())),
+                    new IndexOptions().name(TEXT_INDEX).weights(TEXT_WEIGHTS))));
+
+    @ConfigProperty(name = "mongo.index.reconcile.enabled", defaultValue = "true")
+    boolean reconcileEnabled;
+
+    @Inject
+    EngagementRepository repository;
+
+    private volatile boolean reconciled = false;
+    private volatile Set<String> failedIndexes = Collections.emptySet();
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!reconcileEnabled) {
+            LOGGER.info("index reconciliation disabled, skipping.");
+            reconciled = true;
+            return;
+        }
+
+        reconcile();
+
+    }
+
+    @Scheduled(every = "{mongo.index.reconcile.interval}")
+    void scheduledReconcile() {
+
+        // retry if mongo was not available on startup or an index failed to build
+        if (reconcileEnabled && (!reconciled || !failedIndexes.isEmpty())) {
+            reconcile();
+        }
+
+    }
+
+    /**
+     * Creates any missing managed indexes, rebuilds managed indexes whose keys or
+     * uniqueness changed and drops managed indexes that are no longer declared.
+     * Returns true if the collection could be reconciled. Indexes that could not
+     * be built, i.e. a unique index over duplicate data, are reported by
+     * {@link #getFailedIndexes()} and do not prevent reconciliation.
+     *
+     * @return
+     */
+    public synchronized boolean reconcile() {
+
+        try {
+
+            // keys must exist before the unique subdomain index can be built
+            long keysSet = repository.setMissingSubdomainKeys();
+            if (keysSet > 0) {
+                LOGGER.info("set subdomain keys on {} engagements", keysSet);
+            }
+
+            MongoCollection<Engagement> collection = repository.mongoCollection();
+            CodecRegistry registry = collection.getCodecRegistry();
+
+            Map<String, BsonDocument> existing = new HashMap<>();
+            collection.listIndexes(BsonDocument.class)
+                    .forEach(index -> existing.put(index.getString(NAME).getValue(), index));
+
+            Set<String> failed = new HashSet<>();
+
+            for (IndexModel model : ENGAGEMENT_INDEXES) {
+
+                String name = model.getOptions().getName();
+                BsonDocument current = existing.remove(name);
+
+                if (null != current && matches(current, model, registry)) {
+                    continue;
+                }
+
+                try {
+
+                    if (null != current) {
+                        LOGGER.info("index {} changed, dropping before rebuild.", name);
+                        collection.dropIndex(name);
+                    }
+
+                    collection.createIndexes(Collections.singletonList(model));
+                    LOGGER.info("created index {}", name);
+
+                } catch (MongoException e) {
+                    LOGGER.error("failed to create index {}. {}", name, e.getMessage());
+                    failed.add(name);
+                }
+
+            }
+
+            // remove managed indexes that are no longer declared
+            existing.keySet().stream().filter(name -> name.startsWith(MANAGED_PREFIX)).forEach(name -> {
+                LOGGER.info("dropping undeclared index {}", name);
+                collection.dropIndex(name);
+            });
+
+            failedIndexes = Collections.unmodifiableSet(failed);
+            reconciled = true;
+
+        } catch (RuntimeException e) {
+            LOGGER.warn("unable to reconcile engagement indexes. {}", e.getMessage());
+        }
+
+        return reconciled;
+
+    }
+
+    /**
+     * Returns true once the indexes have been reconciled.
+     *
+     * @return
+     */
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    /**
+     * Returns the names of the declared indexes that failed to build during the
+     * last reconciliation.
+     *
+     * @return
+     */
+    public Set<String> getFailedIndexes() {
+        return failedIndexes;
+    }
+
+    /**
+     * Returns the names of the declared unique indexes that failed to build during
+     * the last reconciliation. Writes are not checked for duplicates while any are
+     * missing.
+     *
+     * @return
+     */
+    public Set<String> getMissingUniqueIndexes() {
+        return ENGAGEMENT_INDEXES.stream().filter(m -> m.getOptions().isUnique())
+                .map(m -> m.getOptions().getName()).filter(failedIndexes::contains).collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns a {@link List} of {@link MongoIndexUsage} built from the
+     * {@code $indexStats} of the engagement collection.
+     *
+     * @return
+     */
+    public List<MongoIndexUsage> getIndexUsage() {
+
+        List<Document> pipeline = Collections.singletonList(new Document("$indexStats", new Document()));
+
+        List<MongoIndexUsage> usage = new ArrayList<>();
+        repository.mongoCollection().aggregate(pipeline, Document.class).forEach(stats -> {
+
+            String name = stats.getString(NAME);
+            Document accesses = stats.get(ACCESSES, Document.class);
+
+            MongoIndexUsage.MongoIndexUsageBuilder builder = MongoIndexUsage.builder().name(name)
+                    .key(stats.get(KEY, Document.class)).managed(name.startsWith(MANAGED_PREFIX));
+
+            if (null != accesses) {
+                Number ops = accesses.get(OPS, Number.class);
+                builder.ops(null == ops ? null : ops.longValue());
+                builder.since(null == accesses.getDate(SINCE) ? null : accesses.getDate(SINCE).toInstant().toString());
+            }
+
+            usage.add(builder.build());
+
+        });
+
+        return usage;
+
+    }
+
+    /**
+     * Returns the names of all declared indexes.
+     *
+     * @return
+     */
+    public static Set<String> getDeclaredIndexNames() {
+        return ENGAGEMENT_INDEXES.stream().map(m -> m.getOptions().getName()).collect(Collectors.toSet());
+    }
+
+    private boolean matches(BsonDocument current, IndexModel model, CodecRegistry registry) {
+
+        BsonDocument keys = model.getKeys().toBsonDocument(BsonDocument.class, registry);
+        boolean unique = current.getBoolean(UNIQUE, BsonBoolean.FALSE).getValue();
+
+        // text indexes list internal keys, the fields are in the weights
+        if (keys.containsValue(new BsonString(TEXT))) {
+            return weightsMatch(model.getOptions().getWeights().toBsonDocument(BsonDocument.class, registry),
+                    current.getDocument(WEIGHTS, new BsonDocument()));
+        }
+
+        return keys.equals(current.getDocument(KEY)) && unique == model.getOptions().isUnique();
+
+    }
+
+    private boolean weightsMatch(BsonDocument declared, BsonDocument current) {
+        return declared.keySet().equals(current.keySet()) && declared.entrySet().stream().allMatch(
+                e -> e.getValue().asNumber().doubleValue() == current.get(e.getKey()).asNumber().doubleValue());
+    }
+
+}
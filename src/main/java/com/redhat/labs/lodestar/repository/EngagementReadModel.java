@@ -0,0 +1,446 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.Engagement.EngagementState;
+import com.redhat.labs.lodestar.model.HostingEnvironment;
+import com.redhat.labs.lodestar.model.ReadModelCheck;
+import com.redhat.labs.lodestar.model.ReadModelStatus;
+import com.redhat.labs.lodestar.model.filter.FilterOptions;
+import com.redhat.labs.lodestar.util.DateFormatter;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Optional in memory copy of the engagement collection, indexed by uuid,
+ * customer and project name and subdomain. The copy is refreshed whenever the
+ * {@link DataVersionTracker} sees a write. Only engagements whose fingerprint
+ * (a digest of the stored document) changed are decoded again. Reads are
+ * only served while the copy reflects every write seen, so a write on this
+ * instance is never hidden from a following read.
+ */
+@ApplicationScoped
+public class EngagementReadModel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementReadModel.class);
+
+    static final String LAG = "read-model-lag";
+    static final String BYTES = "read-model-bytes";
+    static final String ENGAGEMENTS = "read-model-engagements";
+
+    private static final String ID = "_id";
+    private static final String DIGEST = "SHA-256";
+
+    @ConfigProperty(name = "read.model.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private volatile Snapshot snapshot;
+    private volatile long pendingSince;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!enabled) {
+            LOGGER.info("engagement read model disabled.");
+            return;
+        }
+
+        metricRegistry.register(gauge(LAG, MetricUnits.MILLISECONDS), (Gauge<Long>) this::getLagMillis);
+        metricRegistry.register(gauge(BYTES, MetricUnits.BYTES),
+                (Gauge<Long>) () -> null == snapshot ? 0 : snapshot.bytes);
+        metricRegistry.register(gauge(ENGAGEMENTS, MetricUnits.NONE),
+                (Gauge<Integer>) () -> null == snapshot ? 0 : snapshot.entries.size());
+
+        refresh();
+
+    }
+
+    @Scheduled(every = "{read.model.refresh.interval}")
+    void scheduledRefresh() {
+
+        if (enabled) {
+            refresh();
+        }
+
+    }
+
+    /**
+     * Brings the read model up to date with the writes seen by the
+     * {@link DataVersionTracker}. Returns true if the read model is current.
+     *
+     * @return
+     */
+    public synchronized boolean refresh() {
+
+        long version = versionTracker.getVersion();
+        Snapshot current = snapshot;
+
+        if (null != current && current.version == version) {
+            pendingSince = 0;
+            return true;
+        }
+
+        if (0 == pendingSince) {
+            pendingSince = clock.getAsLong();
+        }
+
+        try {
+
+            Map<ObjectId, Entry> entries = load(null == current ? Collections.emptyMap() : current.entries);
+
+            snapshot = new Snapshot(version, entries, clock.getAsLong());
+            if (versionTracker.getVersion() == version) {
+                pendingSince = 0;
+            }
+
+            LOGGER.debug("engagement read model refreshed, {} engagements", entries.size());
+            return true;
+
+        } catch (MongoException e) {
+            LOGGER.warn("failed to refresh engagement read model", e);
+            return false;
+        }
+
+    }
+
+    /**
+     * Returns true if reads with the given {@link FilterOptions} can be served by
+     * the read model. Projections are left to the data store.
+     *
+     * @param filterOptions
+     * @return
+     */
+    public boolean isServing(FilterOptions filterOptions) {
+
+        Snapshot current = snapshot;
+
+        return enabled && null != current && current.version == versionTracker.getVersion()
+                && (null == filterOptions || (null == filterOptions.getInclude() && null == filterOptions.getExclude()));
+
+    }
+
+    /**
+     * Returns a copy of the {@link Engagement} with the given uuid.
+     *
+     * @param uuid
+     * @return
+     */
+    public Optional<Engagement> findByUuid(String uuid) {
+        return Optional.ofNullable(snapshot.byUuid.get(uuid)).map(Engagement::copy);
+    }
+
+    /**
+     * Returns a copy of the {@link Engagement} with the given customer and project
+     * names.
+     *
+     * @param customerName
+     * @param projectName
+     * @return
+     */
+    public Optional<Engagement> findByCustomerNameAndProjectName(String customerName, String projectName) {
+        return Optional.ofNullable(snapshot.byName.get(nameKey(customerName, projectName))).map(Engagement::copy);
+    }
+
+    /**
+     * Returns a copy of the {@link Engagement} using the given subdomain, ignoring
+     * case.
+     *
+     * @param subdomain
+     * @return
+     */
+    public Optional<Engagement> findBySubdomain(String subdomain) {
+
+        String key = HostingEnvironment.normalizeSubdomain(subdomain);
+        return null == key ? Optional.empty()
+                : Optional.ofNullable(snapshot.bySubdomain.get(key)).map(Engagement::copy);
+
+    }
+
+    /**
+     * Returns the number of {@link Engagement}s in each {@link EngagementState},
+     * classified the same way as
+     * {@link EngagementRepository#countEngagementsByState(LocalDateTime)}.
+     *
+     * @param localTime
+     * @return
+     */
+    public Map<EngagementState, Integer> countEngagementsByState(LocalDateTime localTime) {
+
+        String time = localTime.format(DateFormatter.getInstance().getDateFormat());
+        Collection<Entry> entries = snapshot.entries.values();
+
+        Map<EngagementState, Integer> counts = new EnumMap<>(EngagementState.class);
+        entries.forEach(entry -> counts.merge(getState(entry.engagement, time), 1, Integer::sum));
+        counts.put(EngagementState.ANY, entries.size());
+
+        return counts;
+
+    }
+
+    /**
+     * Returns the size, memory footprint and lag of the read model.
+     *
+     * @return
+     */
+    public ReadModelStatus getStatus() {
+
+        Snapshot current = snapshot;
+
+        ReadModelStatus status = ReadModelStatus.builder().enabled(enabled).current(isServing(null))
+                .lagMillis(getLagMillis()).build();
+
+        if (null != current) {
+            status.setEngagements(current.entries.size());
+            status.setBytes(current.bytes);
+            status.setLastRefresh(Instant.ofEpochMilli(current.created).toString());
+        }
+
+        return status;
+
+    }
+
+    /**
+     * Compares the fingerprint of every engagement in the data store with the read
+     * model. Engagements are identified by their Mongo id.
+     *
+     * @return
+     */
+    public ReadModelCheck check() {
+
+        Snapshot current = snapshot;
+        Map<ObjectId, Entry> entries = null == current ? Collections.emptyMap() : current.entries;
+        Map<ObjectId, Fingerprint> fingerprints = findFingerprints();
+
+        List<String> missing = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        fingerprints.forEach((id, fingerprint) -> {
+            Entry entry = entries.get(id);
+            if (null == entry) {
+                missing.add(id.toHexString());
+            } else if (!entry.fingerprint.equals(fingerprint)) {
+                changed.add(id.toHexString());
+            }
+        });
+
+        List<String> unexpected = entries.keySet().stream().filter(id -> !fingerprints.containsKey(id))
+                .map(ObjectId::toHexString).collect(Collectors.toList());
+
+        return ReadModelCheck.builder().engagements(fingerprints.size()).missing(missing).changed(changed)
+                .unexpected(unexpected).consistent(missing.isEmpty() && changed.isEmpty() && unexpected.isEmpty())
+                .build();
+
+    }
+
+    /**
+     * Returns the time since the read model first fell behind the writes seen, or
+     * 0 if it is current.
+     *
+     * @return
+     */
+    long getLagMillis() {
+        long since = pendingSince;
+        return 0 == since ? 0 : clock.getAsLong() - since;
+    }
+
+    /**
+     * Returns the state of the {@link Engagement} at the given time. Dates are
+     * compared as strings, as they are by the data store.
+     *
+     * @param engagement
+     * @param time
+     * @return
+     */
+    static EngagementState getState(Engagement engagement, String time) {
+
+        if (null == engagement.getLaunch() || null == engagement.getEndDate() || null == engagement.getStartDate()) {
+            return EngagementState.UPCOMING;
+        }
+
+        if (engagement.getEndDate().compareTo(time) >= 0) {
+            return EngagementState.ACTIVE;
+        }
+
+        String archiveDate = engagement.getArchiveDate();
+        return null != archiveDate && archiveDate.compareTo(time) > 0 ? EngagementState.TERMINATING
+                : EngagementState.PAST;
+
+    }
+
+    private Map<ObjectId, Entry> load(Map<ObjectId, Entry> existing) {
+
+        MongoCollection<Engagement> collection = repository.mongoCollection();
+        Codec<Engagement> codec = collection.getCodecRegistry().get(Engagement.class);
+
+        Map<ObjectId, Entry> loaded = new HashMap<>();
+        collection.find(new BsonDocument(), RawBsonDocument.class).forEach(raw -> {
+            ObjectId id = raw.getObjectId(ID).getValue();
+            Fingerprint fingerprint = Fingerprint.of(raw);
+            Entry entry = existing.get(id);
+            loaded.put(id, null != entry && entry.fingerprint.equals(fingerprint) ? entry
+                    : new Entry(raw.decode(codec), fingerprint, raw.getByteBuffer().remaining()));
+        });
+
+        return loaded;
+
+    }
+
+    private Map<ObjectId, Fingerprint> findFingerprints() {
+
+        Map<ObjectId, Fingerprint> fingerprints = new HashMap<>();
+        repository.mongoCollection().find(new BsonDocument(), RawBsonDocument.class)
+                .forEach(raw -> fingerprints.put(raw.getObjectId(ID).getValue(), Fingerprint.of(raw)));
+
+        return fingerprints;
+
+    }
+
+    private static Metadata gauge(String name, String unit) {
+        return Metadata.builder().withName(name).withType(MetricType.GAUGE).withUnit(unit).build();
+    }
+
+    private static String nameKey(String customerName, String projectName) {
+        return customerName + '\u0000' + projectName;
+    }
+
+    /**
+     * Digest of the stored engagement document, so any write to it changes the
+     * fingerprint.
+     */
+    private static class Fingerprint {
+
+        private final byte[] digest;
+
+        Fingerprint(byte[] digest) {
+            this.digest = digest;
+        }
+
+        /**
+         * Returns the {@link Fingerprint} of the document.
+         */
+        static Fingerprint of(RawBsonDocument document) {
+
+            try {
+                MessageDigest digest = MessageDigest.getInstance(DIGEST);
+                digest.update(document.getByteBuffer().asNIO());
+                return new Fingerprint(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Fingerprint && Arrays.equals(digest, ((Fingerprint) o).digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(digest);
+        }
+
+    }
+
+    private static class Entry {
+
+        private final Engagement engagement;
+        private final Fingerprint fingerprint;
+        private final long bytes;
+
+        Entry(Engagement engagement, Fingerprint fingerprint, long bytes) {
+            this.engagement = engagement;
+            this.fingerprint = fingerprint;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /**
+     * Immutable view of the engagements at a version, with its indexes.
+     */
+    private static class Snapshot {
+
+        private final long version;
+        private final Map<ObjectId, Entry> entries;
+        private final Map<String, Engagement> byUuid = new HashMap<>();
+        private final Map<String, Engagement> byName = new HashMap<>();
+        private final Map<String, Engagement> bySubdomain = new HashMap<>();
+        private final long bytes;
+        private final long created;
+
+        Snapshot(long version, Map<ObjectId, Entry> entries, long created) {
+
+            this.version = version;
+            this.entries = entries;
+            this.created = created;
+
+            long total = 0;
+            for (Entry entry : entries.values()) {
+
+                Engagement engagement = entry.engagement;
+                total += entry.bytes;
+
+                if (null != engagement.getUuid()) {
+                    byUuid.put(engagement.getUuid(), engagement);
+                }
+                byName.put(nameKey(engagement.getCustomerName(), engagement.getProjectName()), engagement);
+
+                List<String> subdomainKeys = engagement.getSubdomainKeys();
+                if (null != subdomainKeys) {
+                    subdomainKeys.forEach(key -> bySubdomain.put(key, engagement));
+                }
+
+            }
+
+            this.bytes = total;
+
+        }
+
+    }
+
+}
@@ -2,35 +2,66 @@ package com.redhat.labs.lodestar.repository;
 
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
-import static com.mongodb.client.model.Filters.regex;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.ne;
 import static com.mongodb.client.model.Projections.exclude;
 import static com.mongodb.client.model.Projections.include;
 import static com.mongodb.client.model.Updates.set;
-import static com.mongodb.client.model.Updates.combine;
 
-import java.util.Arrays;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
-
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.http.HttpStatus;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.ReturnDocument;
 import com.redhat.labs.lodestar.model.Artifact;
 import com.redhat.labs.lodestar.model.Category;
 import com.redhat.labs.lodestar.model.Commit;
 import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.Engagement.EngagementState;
 import com.redhat.labs.lodestar.model.EngagementUserSummary;
+import com.redhat.labs.lodestar.model.FacetCount;
 import com.redhat.labs.lodestar.model.HostingEnvironment;
 import com.redhat.labs.lodestar.model.Score;
 import com.redhat.labs.lodestar.model.Status;
@@ -41,10 +72,16 @@ import com.redhat.labs.lodestar.model.pagination.PagedArtifactResults;
 import com.redhat.labs.lodestar.model.pagination.PagedCategoryResults;
 import com.redhat.labs.lodestar.model.pagination.PagedEngagementResults;
 import com.redhat.labs.lodestar.model.pagination.PagedHostingEnvironmentResults;
+import com.redhat.labs.lodestar.model.pagination.PagedResults;
 import com.redhat.labs.lodestar.model.pagination.PagedScoreResults;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
 import com.redhat.labs.lodestar.model.pagination.PagedUseCaseResults;
-import com.redhat.labs.lodestar.util.ClassFieldUtils;
+import com.redhat.labs.lodestar.repository.EngagementAttributeRepository.AttributeType;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
+import com.redhat.labs.lodestar.repository.FacetCountRepository.Facet;
+import com.redhat.labs.lodestar.repository.MongoUpdateHelper.DocumentUpdate;
+import com.redhat.labs.lodestar.util.DateFormatter;
+import com.redhat.labs.lodestar.util.FieldMetadataRegistry;
 
 import io.quarkus.mongodb.panache.PanacheMongoRepository;
 
@@ -60,8 +97,121 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
     private static final String ARTIFACTS = "artifacts";
     private static final String ARTIFACTS_TYPE = new StringBuilder(ARTIFACTS).append(".").append(TYPE).toString();
     private static final String COUNT = "count";
+    private static final String TOTAL_COUNT = "totalCount";
+    private static final Set<String> UNORDERED_ARRAYS = Set.of("engagementUsers");
+    private static final String MONGO_ID = "_id";
+    private static final String SUBDOMAIN_KEYS = "subdomainKeys";
+    private static final String HOSTING_ENVIRONMENTS_SUBDOMAIN = "hostingEnvironments.ocpSubDomain";
+
+    @ConfigProperty(name = "mongo.count.pool.size", defaultValue = "4")
+    int countPoolSize;
+
+    @Inject
+    CountCache countCache;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    @Inject
+    FacetCountRepository facetCounts;
+
+    @Inject
+    EngagementAttributeRepository attributes;
+
+    @Inject
+    EngagementCommitRepository commits;
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    @Inject
+    EngagementSizeMonitor sizes;
+
+    private ExecutorService countExecutor;
+
+    @PostConstruct
+    void createCountExecutor() {
+
+        AtomicInteger threads = new AtomicInteger();
+        countExecutor = Executors.newFixedThreadPool(countPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "mongo-count-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    @PreDestroy
+    void shutdownCountExecutor() {
+        countExecutor.shutdownNow();
+    }
+
+    /*
+     * 
+     * Write Methods
+     * 
+     * Every write is recorded with the version tracker after it completes. Writes
+     * also adjust the facet counts, replace the attribute rows and record the
+     * document size, and deletes remove the commit rows.
+     * 
+     */
+
+    @Override
+    public void persist(Engagement engagement) {
+        PanacheMongoRepository.super.persist(engagement);
+        facetCounts.apply(List.of(), List.of(engagement));
+        attributes.replace(List.of(engagement));
+        sizes.sample(List.of(engagement));
+        versionTracker.written();
+    }
+
+    @Override
+    public void persist(Iterable<Engagement> engagements) {
+        PanacheMongoRepository.super.persist(engagements);
+        facetCounts.apply(List.of(), toList(engagements));
+        attributes.replace(toList(engagements));
+        sizes.sample(toList(engagements));
+        versionTracker.written();
+    }
+
+    @Override
+    public void update(Engagement engagement) {
+        List<Engagement> previous = findFacetValues(List.of(engagement));
+        PanacheMongoRepository.super.update(engagement);
+        facetCounts.apply(previous, List.of(engagement));
+        attributes.replace(List.of(engagement));
+        sizes.sample(List.of(engagement));
+        versionTracker.written();
+    }
+
+    @Override
+    public void update(Iterable<Engagement> engagements) {
+        List<Engagement> previous = findFacetValues(toList(engagements));
+        PanacheMongoRepository.super.update(engagements);
+        facetCounts.apply(previous, toList(engagements));
+        attributes.replace(toList(engagements));
+        sizes.sample(toList(engagements));
+        versionTracker.written();
+    }
+
+    @Override
+    public void delete(Engagement engagement) {
+        List<Engagement> previous = findFacetValues(List.of(engagement));
+        PanacheMongoRepository.super.delete(engagement);
+        facetCounts.apply(previous, List.of());
+        attributes.delete(List.of(engagement));
+        commits.delete(List.of(engagement));
+        versionTracker.written();
+    }
+
+    @Override
+    public long deleteAll() {
+        long deleted = mongoCollection().deleteMany(new BsonDocument()).getDeletedCount();
+        if (facetCounts.isEnabled()) {
+            facetCounts.deleteAll();
+        }
+        attributes.deleteAll();
+        commits.deleteAll();
+        versionTracker.written();
+        return deleted;
+    }
 
     /*
      * 
@@ -84,7 +234,11 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
 
         FindOneAndUpdateOptions optionAfter = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
-        return Optional.ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        Optional<Engagement> updated = Optional
+                .ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        versionTracker.written();
+
+        return updated;
 
     }
 
@@ -102,7 +256,11 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
 
         FindOneAndUpdateOptions optionAfter = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
-        return Optional.ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        Optional<Engagement> updated = Optional
+                .ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        versionTracker.written();
+
+        return updated;
 
     }
 
@@ -120,7 +278,11 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
 
         FindOneAndUpdateOptions optionAfter = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
-        return Optional.ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        Optional<Engagement> updated = Optional
+                .ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        versionTracker.written();
+
+        return updated;
 
     }
 
@@ -128,19 +290,40 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      * Returns an {@link Optional} containing the updated {@link Engagement} where
      * last update matched. Otherwise, returns an empty {@link Optional}
      * 
-     * @param replacement
+     * Only the fields that differ from the existing {@link Engagement} are
+     * written.
+     * 
+     * @param toUpdate
+     * @param existing
      * @param lastUpdate
      * @return
      */
-    public Optional<Engagement> updateEngagement(Engagement toUpdate, String lastUpdate) {
+    public Optional<Engagement> updateEngagement(Engagement toUpdate, Engagement existing, String lastUpdate) {
 
         // create the bson for filter and update
         Bson filter = createFilterForEngagement(toUpdate, lastUpdate);
-        Bson update = createUpdateDocument(toUpdate);
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(toBsonDocument(existing), toBsonDocument(toUpdate),
+                UNORDERED_ARRAYS);
+
+        if (update.isEmpty()) {
+            return Optional.ofNullable(mongoCollection().find(filter).first());
+        }
 
         FindOneAndUpdateOptions optionAfter = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+        if (!update.getArrayFilters().isEmpty()) {
+            optionAfter.arrayFilters(update.getArrayFilters());
+        }
 
-        return Optional.ofNullable(this.mongoCollection().findOneAndUpdate(filter, update, optionAfter));
+        Optional<Engagement> updated = Optional
+                .ofNullable(this.mongoCollection().findOneAndUpdate(filter, update.toBson(), optionAfter));
+        updated.ifPresent(e -> {
+            facetCounts.apply(List.of(existing), List.of(e));
+            attributes.replace(existing, e);
+            sizes.sample(List.of(e));
+        });
+        versionTracker.written();
+
+        return updated;
 
     }
 
@@ -152,25 +335,77 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
 
     /**
      * Returns Optional containing an {@link Engagement} that matches the provided
-     * subdomain.
+     * subdomain, ignoring case.
      * 
      * @param subdomain
      * @return
      */
     public Optional<Engagement> findBySubdomain(String subdomain) {
-        return findBySubdomain(subdomain, Optional.empty());
+
+        String key = HostingEnvironment.normalizeSubdomain(subdomain);
+        if (null == key) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(mongoCollection().find(eq(SUBDOMAIN_KEYS, key)).first());
+
+    }
+
+    /**
+     * Returns the normalized subdomains from the given subdomains that are already
+     * used by an {@link Engagement} other than the one with the given UUID.
+     * 
+     * @param subdomains
+     * @param excludeUuid
+     * @return
+     */
+    public Set<String> findSubdomainsInUse(Collection<String> subdomains, String excludeUuid) {
+
+        Set<String> keys = subdomains.stream().map(HostingEnvironment::normalizeSubdomain).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        if (keys.isEmpty()) {
+            return keys;
+        }
+
+        Bson filter = in(SUBDOMAIN_KEYS, keys);
+        if (null != excludeUuid) {
+            filter = and(filter, ne("uuid", excludeUuid));
+        }
+
+        Set<String> inUse = new HashSet<>();
+        mongoCollection().find(filter, Document.class).projection(include(SUBDOMAIN_KEYS))
+                .forEach(document -> inUse.addAll(document.getList(SUBDOMAIN_KEYS, String.class)));
+        inUse.retainAll(keys);
+
+        return inUse;
+
     }
 
-    public Optional<Engagement> findBySubdomain(String subdomain, Optional<String> engagementUuid) {
+    /**
+     * Sets the normalized subdomain keys on any {@link Engagement} with hosting
+     * environments that was persisted before the keys existed. Returns the number
+     * of engagements updated.
+     * 
+     * @return
+     */
+    public long setMissingSubdomainKeys() {
+
+        Bson filter = and(exists(HOSTING_ENVIRONMENTS_SUBDOMAIN), exists(SUBDOMAIN_KEYS, false));
 
-        String regex = new StringBuilder("^").append(subdomain).append("$").toString();
-        Bson filter = regex("hostingEnvironments.ocpSubDomain", regex, "im");
+        long count = 0;
+        for (Engagement engagement : mongoCollection().find(filter)
+                .projection(include("uuid", HOSTING_ENVIRONMENTS_SUBDOMAIN))) {
+            mongoCollection().updateOne(eq(MONGO_ID, engagement.getMongoId()),
+                    set(SUBDOMAIN_KEYS, engagement.getSubdomainKeys()));
+            count++;
+        }
 
-        if (engagementUuid.isPresent()) {
-            filter = and(filter, eq("uuid", engagementUuid.get()));
+        if (count > 0) {
+            versionTracker.written();
         }
 
-        return Optional.ofNullable(mongoCollection().find(filter).first());
+        return count;
 
     }
 
@@ -246,15 +481,42 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedEngagementResults findPagedEngagements(ListFilterOptions filterOptions) {
 
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-        Optional<PagedEngagementResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedEngagementResults.class));
-        PagedEngagementResults page = optional.orElse(PagedEngagementResults.builder().build());
+        if (filterOptions.isCursorPaging()) {
+            return findKeysetPage(filterOptions, Engagement.class, PagedEngagementResults.builder().build());
+        }
 
-        page.setCurrentPage(filterOptions.getPage().orElse(1));
-        page.setPerPage(filterOptions.getPerPage().orElse(20));
+        return findPage(filterOptions, Engagement.class, PagedEngagementResults.builder().build());
 
-        return page;
+    }
+
+    /**
+     * Returns a {@link Map} containing the number of {@link Engagement}s in each
+     * {@link EngagementState} relative to the given local time. States without any
+     * {@link Engagement}s are omitted, except for ANY which is always present.
+     * 
+     * @param localTime
+     * @return
+     */
+    public Map<EngagementState, Integer> countEngagementsByState(LocalDateTime localTime) {
+
+        String time = localTime.format(DateFormatter.getInstance().getDateFormat());
+
+        List<Bson> pipeline = MongoAggregationHelper.generateEngagementStateCountPipeline(time);
+        Optional<Document> optional = findFirstFromIterable(mongoCollection().aggregate(pipeline, Document.class));
+
+        Map<EngagementState, Integer> counts = new EnumMap<>(EngagementState.class);
+
+        for (EngagementState state : EngagementState.values()) {
+
+            int count = optional.map(d -> d.get(state.name(), Number.class)).map(Number::intValue).orElse(0);
+
+            if (count > 0 || EngagementState.ANY.equals(state)) {
+                counts.put(state, count);
+            }
+
+        }
+
+        return counts;
 
     }
 
@@ -271,25 +533,34 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      * @return
      */
     public PagedStringResults findCustomerSuggestions(ListFilterOptions filterOptions) {
+        return findSuggestions(SuggestionField.CUSTOMER_NAME, filterOptions);
+    }
 
-        // set options for group by and sort
-        filterOptions.setInclude(CUSTOMER_NAME);
-        filterOptions.setGroupByFieldName(Optional.of(CUSTOMER_NAME));
-        filterOptions.setSortFields(MongoAggregationHelper.getLowercaseFieldName("customer_name"));
+    /**
+     * Returns a {@link PagedStringResults} containing the distinct values of the
+     * {@link SuggestionField} that match the given {@link ListFilterOptions},
+     * ignoring case.
+     * 
+     * @param field
+     * @param filterOptions
+     * @return
+     */
+    public PagedStringResults findSuggestions(SuggestionField field, ListFilterOptions filterOptions) {
 
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
+        // set options for group by and sort
+        filterOptions.setInclude(field.getFieldName());
+        filterOptions.setGroupByFieldName(Optional.of(field.getFieldName()));
+        filterOptions.setSortFields(MongoAggregationHelper.getLowercaseFieldName(field.getQueryName()));
 
-        Optional<PagedEngagementResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedEngagementResults.class));
-        PagedEngagementResults engagementResults = optional
-                .orElse(PagedEngagementResults.builder().results(Arrays.asList()).build());
+        PagedEngagementResults engagementResults = findPage(filterOptions, Engagement.class,
+                PagedEngagementResults.builder().build());
 
-        // get customer names from results
-        List<String> customerNames = engagementResults.getResults().stream().map(Engagement::getCustomerName)
+        // get values from results
+        List<String> values = engagementResults.getResults().stream().map(field::getValue)
                 .collect(Collectors.toList());
 
         PagedStringResults results = PagedStringResults.builder().totalCount(engagementResults.getTotalCount())
-                .results(customerNames).build();
+                .results(values).build();
 
         results.setCurrentPage(filterOptions.getPage().orElse(1));
         results.setPerPage(filterOptions.getPerPage().orElse(20));
@@ -307,20 +578,16 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedCategoryResults findCategories(ListFilterOptions filterOptions) {
 
+        Optional<PagedCategoryResults> counted = facetCounts.findCategories(filterOptions);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+
         filterOptions.setUnwindFieldName(Optional.of(CATEGORIES));
         filterOptions.setGroupByFieldName(Optional.of(CATEGORIES_NAME));
         filterOptions.setSortFields(COUNT);
 
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-
-        Optional<PagedCategoryResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedCategoryResults.class));
-        PagedCategoryResults page = optional.orElse(PagedCategoryResults.builder().results(Arrays.asList()).build());
-
-        page.setCurrentPage(filterOptions.getPage().orElse(1));
-        page.setPerPage(filterOptions.getPerPage().orElse(20));
-
-        return page;
+        return findPage(filterOptions, Category.class, PagedCategoryResults.builder().build());
 
     }
 
@@ -333,20 +600,20 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedArtifactResults findArtifacts(ListFilterOptions filterOptions) {
 
-        filterOptions.setUnwindFieldName(Optional.of(ARTIFACTS));
-        filterOptions.setUnwindProjectFieldNames(Optional
-                .of(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(Artifact.class, Optional.of(ARTIFACTS))));
-
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-        Optional<PagedArtifactResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedArtifactResults.class));
+        Optional<PagedArtifactResults> rows = attributes.findPage(AttributeType.ARTIFACT, filterOptions, Artifact.class,
+                PagedArtifactResults.builder().build());
+        if (rows.isPresent()) {
+            return rows.get();
+        }
 
-        PagedArtifactResults results = optional.orElse(PagedArtifactResults.builder().results(Arrays.asList()).build());
+        filterOptions.setUnwindFieldName(Optional.of(ARTIFACTS));
+        filterOptions.setUnwindProjectFieldNames(Optional.of(FieldMetadataRegistry.getProjectionFields(ARTIFACTS)));
 
-        results.setCurrentPage(filterOptions.getPage().orElse(1));
-        results.setPerPage(filterOptions.getPerPage().orElse(20));
+        if (filterOptions.isCursorPaging()) {
+            return findKeysetPage(filterOptions, Artifact.class, PagedArtifactResults.builder().build());
+        }
 
-        return results;
+        return findPage(filterOptions, Artifact.class, PagedArtifactResults.builder().build());
 
     }
 
@@ -359,6 +626,11 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedStringResults findArtifactTypes(ListFilterOptions filterOptions) {
 
+        Optional<PagedStringResults> counted = facetCounts.findArtifactTypes(filterOptions);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+
         filterOptions.setUnwindFieldName(Optional.of(ARTIFACTS));
         filterOptions.setUnwindProjectFieldNames(Optional.of(ARTIFACTS_TYPE));
         filterOptions.setGroupByFieldName(Optional.of(TYPE));
@@ -382,6 +654,25 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
 
     }
 
+    /**
+     * Returns the counts of the {@link Facet} computed from the engagements, keyed
+     * by lowercase value.
+     * 
+     * @param facet
+     * @return
+     */
+    public Map<String, FacetCount> countFacet(Facet facet) {
+
+        List<Bson> pipeline = List.of(Aggregates.unwind("$" + facet.getArrayField()),
+                Aggregates.match(Filters.type(facet.getPath(), BsonType.STRING)),
+                Aggregates.group("$" + facet.getPath(), Accumulators.sum(COUNT, 1L),
+                        Accumulators.min(FacetCountRepository.FIRST_USED, "$" + MONGO_ID)));
+
+        return FacetCountRepository.createCounts(facet,
+                mongoCollection().aggregate(pipeline, Document.class).into(new ArrayList<>()));
+
+    }
+
     /**
      * Returns a {@link PagedScoreResults} containing the {@link Score}s that match
      * the given {@link ListFilterOptions}.
@@ -391,20 +682,20 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedScoreResults findScores(ListFilterOptions filterOptions) {
 
-        filterOptions.setUnwindFieldName(Optional.of("scores"));
-        filterOptions.setUnwindProjectFieldNames(
-                Optional.of(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(Score.class, Optional.of("scores"))));
-
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-        Optional<PagedScoreResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedScoreResults.class));
+        Optional<PagedScoreResults> rows = attributes.findPage(AttributeType.SCORE, filterOptions, Score.class,
+                PagedScoreResults.builder().build());
+        if (rows.isPresent()) {
+            return rows.get();
+        }
 
-        PagedScoreResults results = optional.orElse(PagedScoreResults.builder().results(Arrays.asList()).build());
+        filterOptions.setUnwindFieldName(Optional.of("scores"));
+        filterOptions.setUnwindProjectFieldNames(Optional.of(FieldMetadataRegistry.getProjectionFields("scores")));
 
-        results.setCurrentPage(filterOptions.getPage().orElse(1));
-        results.setPerPage(filterOptions.getPerPage().orElse(20));
+        if (filterOptions.isCursorPaging()) {
+            return findKeysetPage(filterOptions, Score.class, PagedScoreResults.builder().build());
+        }
 
-        return results;
+        return findPage(filterOptions, Score.class, PagedScoreResults.builder().build());
 
     }
 
@@ -417,21 +708,20 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedHostingEnvironmentResults findHostingEnvironments(ListFilterOptions filterOptions) {
 
-        filterOptions.setUnwindFieldName(Optional.of("hostingEnvironments"));
-        filterOptions.setUnwindProjectFieldNames(Optional.of(ClassFieldUtils
-                .classFieldNamesAsCommaSeparatedString(HostingEnvironment.class, Optional.of("hostingEnvironments"))));
-
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-        Optional<PagedHostingEnvironmentResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedHostingEnvironmentResults.class));
+        Optional<PagedHostingEnvironmentResults> rows = attributes.findPage(AttributeType.HOSTING_ENVIRONMENT,
+                filterOptions, HostingEnvironment.class, PagedHostingEnvironmentResults.builder().build());
+        if (rows.isPresent()) {
+            return rows.get();
+        }
 
-        PagedHostingEnvironmentResults results = optional
-                .orElse(PagedHostingEnvironmentResults.builder().results(Arrays.asList()).build());
+        filterOptions.setUnwindFieldName(Optional.of("hostingEnvironments"));
+        filterOptions.setUnwindProjectFieldNames(Optional.of(FieldMetadataRegistry.getProjectionFields("hostingEnvironments")));
 
-        results.setCurrentPage(filterOptions.getPage().orElse(1));
-        results.setPerPage(filterOptions.getPerPage().orElse(20));
+        if (filterOptions.isCursorPaging()) {
+            return findKeysetPage(filterOptions, HostingEnvironment.class, PagedHostingEnvironmentResults.builder().build());
+        }
 
-        return results;
+        return findPage(filterOptions, HostingEnvironment.class, PagedHostingEnvironmentResults.builder().build());
 
     }
 
@@ -444,20 +734,20 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      */
     public PagedUseCaseResults findUseCases(ListFilterOptions filterOptions) {
 
-        filterOptions.setUnwindFieldName(Optional.of("useCases"));
-        filterOptions.setUnwindProjectFieldNames(Optional
-                .of(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(UseCase.class, Optional.of("useCases"))));
-
-        List<Bson> pipeline = MongoAggregationHelper.generatePagedAggregationPipeline(filterOptions);
-        Optional<PagedUseCaseResults> optional = findFirstFromIterable(
-                mongoCollection().aggregate(pipeline, PagedUseCaseResults.class));
+        Optional<PagedUseCaseResults> rows = attributes.findPage(AttributeType.USE_CASE, filterOptions, UseCase.class,
+                PagedUseCaseResults.builder().build());
+        if (rows.isPresent()) {
+            return rows.get();
+        }
 
-        PagedUseCaseResults results = optional.orElse(PagedUseCaseResults.builder().results(Arrays.asList()).build());
+        filterOptions.setUnwindFieldName(Optional.of("useCases"));
+        filterOptions.setUnwindProjectFieldNames(Optional.of(FieldMetadataRegistry.getProjectionFields("useCases")));
 
-        results.setCurrentPage(filterOptions.getPage().orElse(1));
-        results.setPerPage(filterOptions.getPerPage().orElse(20));
+        if (filterOptions.isCursorPaging()) {
+            return findKeysetPage(filterOptions, UseCase.class, PagedUseCaseResults.builder().build());
+        }
 
-        return results;
+        return findPage(filterOptions, UseCase.class, PagedUseCaseResults.builder().build());
 
     }
 
@@ -502,35 +792,18 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
     }
 
     /**
-     * Returns a {@link Bson} containing the fields to be updated for a given
-     * {@link Engagement}.
+     * Returns the {@link BsonDocument} for the {@link Engagement} as it would be
+     * persisted.
      * 
      * @param engagement
      * @return
      */
-    private Bson createUpdateDocument(Engagement engagement) {
+    private BsonDocument toBsonDocument(Engagement engagement) {
 
-        Bson updates = null;
-
-        // convert to map
-        TypeReference<Map<String, Object>> typeRef = new TypeReference<Map<String, Object>>() {
-        };
-        Map<String, Object> fieldMap = objectMapper.convertValue(engagement, typeRef);
-
-        // add a set for each field in the update
-        for (Entry<String, Object> entry : fieldMap.entrySet()) {
-
-            Bson update = set(entry.getKey(), entry.getValue());
-
-            if (null == updates) {
-                updates = update;
-            } else {
-                updates = combine(updates, update);
-            }
-
-        }
-
-        return updates;
+        BsonDocument document = new BsonDocument();
+        mongoCollection().getCodecRegistry().get(Engagement.class).encode(new BsonDocumentWriter(document), engagement,
+                EncoderContext.builder().build());
+        return document;
 
     }
 
@@ -584,6 +857,149 @@ public class EngagementRepository implements PanacheMongoRepository<Engagement>
      * Helper Methods
      */
 
+    /**
+     * Populates the given page with the results for the page number in the
+     * {@link ListFilterOptions}. The results are streamed by one query while the
+     * total count runs concurrently as a separate query, or is taken from the
+     * {@link CountCache}.
+     * 
+     * @param <T>
+     * @param <P>
+     * @param filterOptions
+     * @param resultClass
+     * @param page
+     * @return
+     */
+    <T, P extends PagedResults<T>> P findPage(ListFilterOptions filterOptions, Class<T> resultClass, P page) {
+
+        MongoCollection<Engagement> collection = mongoCollection();
+
+        // key before building the pipeline, unwinding rewrites the search
+        String countKey = CountCache.createKey(filterOptions);
+
+        List<Bson> filterPipeline = MongoAggregationHelper.generateFilterPipeline(filterOptions);
+        List<Bson> pipeline = MongoAggregationHelper.generatePagePipeline(filterPipeline, filterOptions);
+
+        // count concurrently with the page query unless cached
+        Supplier<Integer> counter = MongoAggregationHelper.isDocumentCount(filterOptions)
+                ? countDocuments(collection, MongoAggregationHelper.generateMatchFilter(filterOptions))
+                : countAggregation(collection, MongoAggregationHelper.generateCountPipeline(filterPipeline));
+        CompletableFuture<Integer> totalCount = countCache.getCount(countKey, counter, countExecutor);
+
+        AggregateIterable<T> iterable = collection.aggregate(pipeline, resultClass);
+        if (filterOptions.getPage().isPresent()) {
+            iterable.batchSize(filterOptions.getPerPage().orElse(20));
+        }
+        List<T> results = iterable.into(new ArrayList<>());
+
+        page.setResults(results);
+        page.setTotalCount(join(totalCount));
+        page.setCurrentPage(filterOptions.getPage().orElse(1));
+        page.setPerPage(filterOptions.getPerPage().orElse(20));
+
+        return page;
+
+    }
+
+    private Supplier<Integer> countDocuments(MongoCollection<Engagement> collection, Bson filter) {
+        return () -> Math.toIntExact(collection.countDocuments(filter));
+    }
+
+    private Supplier<Integer> countAggregation(MongoCollection<Engagement> collection, List<Bson> pipeline) {
+        return () -> findFirstFromIterable(collection.aggregate(pipeline, Document.class))
+                .map(d -> d.getInteger(TOTAL_COUNT)).orElse(0);
+    }
+
+    /**
+     * Waits for the given count, rethrowing any {@link RuntimeException} thrown
+     * by the query.
+     * 
+     * @param count
+     * @return
+     */
+    private Integer join(CompletableFuture<Integer> count) {
+
+        try {
+            return count.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+    }
+
+    /**
+     * Populates the given page with the results after the cursor in the
+     * {@link ListFilterOptions}. The total count is only computed if requested.
+     * 
+     * @param <T>
+     * @param <P>
+     * @param filterOptions
+     * @param resultClass
+     * @param page
+     * @return
+     */
+    <T, P extends PagedResults<T>> P findKeysetPage(ListFilterOptions filterOptions, Class<T> resultClass, P page) {
+
+        int perPage = filterOptions.getPerPage().orElse(20);
+        if (perPage < 1) {
+            throw new WebApplicationException("perPage must be greater than 0", HttpStatus.SC_BAD_REQUEST);
+        }
+
+        String countKey = CountCache.createKey(filterOptions);
+        List<Bson> queryPipeline = MongoAggregationHelper.generateKeysetQueryPipeline(filterOptions);
+        List<Bson> pipeline = MongoAggregationHelper.generateKeysetAggregationPipeline(queryPipeline, filterOptions);
+        List<BsonDocument> documents = mongoCollection().aggregate(pipeline, BsonDocument.class)
+                .into(new ArrayList<>());
+
+        Codec<T> codec = mongoCollection().getCodecRegistry().get(resultClass);
+        List<T> results = documents.stream().limit(perPage).map(document -> {
+            BsonDocument result = document.clone();
+            result.remove(MongoAggregationHelper.CURSOR_VALUES);
+            return codec.decode(new BsonDocumentReader(result), DecoderContext.builder().build());
+        }).collect(Collectors.toList());
+
+        page.setCursorPaging(true);
+        page.setResults(results);
+        page.setPerPage(perPage);
+
+        // an extra result means there is a next page
+        if (documents.size() > perPage) {
+            page.setNextCursor(MongoAggregationHelper.createCursor(filterOptions, documents.get(perPage - 1)).encode());
+        }
+
+        Integer totalCount = null;
+        if (filterOptions.isTotalCountIncluded()) {
+            totalCount = join(countCache.getCount(countKey,
+                    countAggregation(mongoCollection(), MongoAggregationHelper.generateCountPipeline(queryPipeline)),
+                    countExecutor));
+        }
+        page.setTotalCount(totalCount);
+
+        return page;
+
+    }
+
+    private List<Engagement> findFacetValues(List<Engagement> engagements) {
+
+        if (!facetCounts.isEnabled()) {
+            return List.of();
+        }
+
+        List<ObjectId> ids = engagements.stream().map(Engagement::getMongoId).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return ids.isEmpty() ? List.of()
+                : mongoCollection().find(in(MONGO_ID, ids)).projection(include(CATEGORIES_NAME, ARTIFACTS_TYPE))
+                        .into(new ArrayList<>());
+
+    }
+
+    private List<Engagement> toList(Iterable<Engagement> engagements) {
+        return StreamSupport.stream(engagements.spliterator(), false).collect(Collectors.toList());
+    }
+
     private <T> Optional<T> findFirstFromIterable(Iterable<T> iterable) {
         return StreamSupport.stream(iterable.spliterator(), false).findFirst();
     }
@@ -0,0 +1,277 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.DocumentSize;
+import com.redhat.labs.lodestar.model.DocumentSizeReport;
+import com.redhat.labs.lodestar.model.Engagement;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Measures the BSON size of engagements and of their top level fields. Every
+ * written engagement is measured into the size histograms, and a warning is
+ * logged when it is larger than the warning threshold. The whole collection is
+ * scanned periodically to find the largest engagements and fields, which are
+ * reported apart from the histograms so they only describe writes. Sizes are
+ * read from the encoded bytes, as MongoDB 3.6 cannot compute them on the
+ * server.
+ */
+@ApplicationScoped
+public class EngagementSizeMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementSizeMonitor.class);
+
+    static final String DOCUMENT_BYTES = "engagement-document-bytes";
+    static final String FIELD_BYTES = "engagement-field-bytes";
+    static final String OVERSIZED = "engagement-document-oversized";
+    static final String SCANNED_BYTES = "engagement-scanned-bytes";
+    static final String SCANNED_LARGEST_BYTES = "engagement-scanned-largest-bytes";
+
+    // fields with a histogram of their own, other fields are only reported by the scan
+    static final List<String> MEASURED_FIELDS = List.of("artifacts", "commits", "engagementUsers",
+            "hostingEnvironments", "scores", "status", "useCases");
+
+    private static final String UUID = "uuid";
+    private static final String CUSTOMER_NAME = "customerName";
+    private static final String PROJECT_NAME = "projectName";
+    private static final int SCAN_BATCH_SIZE = 100;
+    private static final Comparator<DocumentSize> BY_BYTES = Comparator.comparing(DocumentSize::getBytes);
+
+    private static final Metadata DOCUMENT_BYTES_METADATA = histogram(DOCUMENT_BYTES);
+    private static final Metadata FIELD_BYTES_METADATA = histogram(FIELD_BYTES);
+
+    @ConfigProperty(name = "document.size.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "document.size.warning.bytes", defaultValue = "1048576")
+    long warningBytes;
+
+    @ConfigProperty(name = "document.size.top", defaultValue = "20")
+    int top;
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private volatile DocumentSizeReport report;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!enabled) {
+            return;
+        }
+
+        metricRegistry.register(gauge(SCANNED_BYTES), (Gauge<Long>) () -> null == report ? 0 : report.getTotalBytes());
+        metricRegistry.register(gauge(SCANNED_LARGEST_BYTES),
+                (Gauge<Long>) () -> null == report || report.getLargestEngagements().isEmpty() ? 0
+                        : report.getLargestEngagements().get(0).getBytes());
+
+    }
+
+    @Scheduled(every = "{document.size.scan.interval}")
+    void scheduledScan() {
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            scan();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to scan engagement sizes. {}", e.getMessage());
+        }
+
+    }
+
+    /**
+     * Records the size of each written {@link Engagement} and logs a warning for
+     * any larger than the warning threshold.
+     *
+     * @param engagements
+     */
+    public void sample(Collection<Engagement> engagements) {
+
+        if (!enabled) {
+            return;
+        }
+
+        Codec<Engagement> codec = repository.mongoCollection().getCodecRegistry().get(Engagement.class);
+        for (Engagement engagement : engagements) {
+
+            if (null == engagement) {
+                continue;
+            }
+
+            RawBsonDocument document = new RawBsonDocument(engagement, codec);
+            long bytes = document.getByteBuffer().remaining();
+            record(bytes, measureFields(document));
+
+            if (bytes > warningBytes) {
+                metricRegistry.counter(OVERSIZED).inc();
+                LOGGER.warn("engagement {} ({}:{}) is {} bytes, over the warning threshold of {} bytes",
+                        engagement.getUuid(), engagement.getCustomerName(), engagement.getProjectName(), bytes,
+                        warningBytes);
+            }
+
+        }
+
+    }
+
+    /**
+     * Measures every engagement in the data store and keeps the largest
+     * engagements and fields. The sizes are not added to the histograms of
+     * written engagements. Returns the report of the scan.
+     *
+     * @return
+     */
+    public synchronized DocumentSizeReport scan() {
+
+        PriorityQueue<DocumentSize> engagements = new PriorityQueue<>(BY_BYTES);
+        PriorityQueue<DocumentSize> fields = new PriorityQueue<>(BY_BYTES);
+        int count = 0;
+        long totalBytes = 0;
+
+        for (RawBsonDocument document : repository.mongoCollection().find(RawBsonDocument.class)
+                .batchSize(SCAN_BATCH_SIZE)) {
+
+            long bytes = document.getByteBuffer().remaining();
+            Map<String, Long> fieldBytes = measureFields(document);
+            count++;
+            totalBytes += bytes;
+
+            String uuid = getString(document, UUID);
+            String customerName = getString(document, CUSTOMER_NAME);
+            String projectName = getString(document, PROJECT_NAME);
+
+            offer(engagements, DocumentSize.builder().uuid(uuid).customerName(customerName).projectName(projectName)
+                    .bytes(bytes).build());
+            fieldBytes.forEach((field, size) -> offer(fields, DocumentSize.builder().uuid(uuid)
+                    .customerName(customerName).projectName(projectName).field(field).bytes(size).build()));
+
+        }
+
+        report = DocumentSizeReport.builder().engagements(count).totalBytes(totalBytes).warningBytes(warningBytes)
+                .lastScan(Instant.now().toString()).largestEngagements(largestFirst(engagements))
+                .largestFields(largestFirst(fields)).build();
+
+        return report;
+
+    }
+
+    /**
+     * Returns the largest engagements and fields found by the last scan, scanning
+     * first if there has been none.
+     *
+     * @param limit
+     * @return
+     */
+    public DocumentSizeReport getReport(int limit) {
+
+        DocumentSizeReport current = null == report ? scan() : report;
+        int size = Math.max(0, limit);
+
+        return current.toBuilder()
+                .largestEngagements(current.getLargestEngagements().stream().limit(size)
+                        .collect(Collectors.toList()))
+                .largestFields(current.getLargestFields().stream().limit(size).collect(Collectors.toList())).build();
+
+    }
+
+    /**
+     * Returns the number of bytes of each top level field of the document,
+     * including its type and name.
+     *
+     * @param document
+     * @return
+     */
+    static Map<String, Long> measureFields(RawBsonDocument document) {
+
+        Map<String, Long> sizes = new HashMap<>();
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+
+            reader.readStartDocument();
+            int start = reader.getBsonInput().getPosition();
+            while (BsonType.END_OF_DOCUMENT != reader.readBsonType()) {
+                String name = reader.readName();
+                reader.skipValue();
+                int end = reader.getBsonInput().getPosition();
+                sizes.put(name, (long) (end - start));
+                start = end;
+            }
+
+        }
+
+        return sizes;
+
+    }
+
+    private void record(long bytes, Map<String, Long> fieldBytes) {
+
+        metricRegistry.histogram(DOCUMENT_BYTES_METADATA).update(bytes);
+        MEASURED_FIELDS.forEach(field -> metricRegistry.histogram(FIELD_BYTES_METADATA, new Tag("field", field))
+                .update(fieldBytes.getOrDefault(field, 0L)));
+
+    }
+
+    private void offer(PriorityQueue<DocumentSize> largest, DocumentSize size) {
+
+        largest.offer(size);
+        if (largest.size() > top) {
+            largest.poll();
+        }
+
+    }
+
+    private static List<DocumentSize> largestFirst(PriorityQueue<DocumentSize> largest) {
+        List<DocumentSize> sizes = new ArrayList<>(largest);
+        sizes.sort(BY_BYTES.reversed());
+        return sizes;
+    }
+
+    private static String getString(BsonDocument document, String key) {
+        BsonValue value = document.get(key);
+        return null != value && value.isString() ? value.asString().getValue() : null;
+    }
+
+    private static Metadata gauge(String name) {
+        return Metadata.builder().withName(name).withType(MetricType.GAUGE).withUnit(MetricUnits.BYTES).build();
+    }
+
+    private static Metadata histogram(String name) {
+        return Metadata.builder().withName(name).withType(MetricType.HISTOGRAM).withUnit(MetricUnits.BYTES).build();
+    }
+
+}
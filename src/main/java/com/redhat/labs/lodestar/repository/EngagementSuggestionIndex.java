@@ -0,0 +1,507 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Projections.include;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * In memory typeahead index of the distinct customer names, project names,
+ * locations and lead names of the engagements. Each field is kept as an array
+ * of distinct values sorted by their lowercase form, so values starting with
+ * the input are found by binary search and ranked ahead of values only
+ * containing it. The index is loaded from every engagement on startup. After
+ * that it is refreshed whenever the {@link DataVersionTracker} sees a write,
+ * reading only the engagements updated since the last refresh and the ids of
+ * all engagements if some were deleted, and applying only the values that
+ * changed. It only serves suggestions while it reflects every write seen.
+ */
+@ApplicationScoped
+public class EngagementSuggestionIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementSuggestionIndex.class);
+
+    static final String SERVED = "suggestion-index-served";
+    static final String FALLBACK = "suggestion-index-fallback";
+
+    private static final String ID = "_id";
+    private static final String LAST_UPDATE = "lastUpdate";
+
+    // updates read again on each refresh, covering clock differences between instances
+    private static final Duration OVERLAP = Duration.ofMinutes(1);
+    private static final String LIKE = "like";
+    private static final Pattern LIKE_SEARCH = Pattern.compile("^\\s*(\\w+)\\s+like\\s+(.*)$");
+
+    public enum SuggestionField {
+
+        CUSTOMER_NAME("customer_name", "customerName", Engagement::getCustomerName),
+        PROJECT_NAME("project_name", "projectName", Engagement::getProjectName),
+        LOCATION("location", "location", Engagement::getLocation),
+        ENGAGEMENT_LEAD_NAME("engagement_lead_name", "engagementLeadName", Engagement::getEngagementLeadName),
+        TECHNICAL_LEAD_NAME("technical_lead_name", "technicalLeadName", Engagement::getTechnicalLeadName);
+
+        private final String queryName;
+        private final String fieldName;
+        private final Function<Engagement, String> getter;
+
+        SuggestionField(String queryName, String fieldName, Function<Engagement, String> getter) {
+            this.queryName = queryName;
+            this.fieldName = fieldName;
+            this.getter = getter;
+        }
+
+        public String getQueryName() {
+            return queryName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public String getValue(Engagement engagement) {
+            return getter.apply(engagement);
+        }
+
+        /**
+         * Returns the {@link SuggestionField} with the given query name.
+         *
+         * @param queryName
+         * @return
+         */
+        public static Optional<SuggestionField> fromQueryName(String queryName) {
+            return Stream.of(values()).filter(f -> f.queryName.equals(queryName)).findFirst();
+        }
+
+    }
+
+    @ConfigProperty(name = "suggestion.index.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    // values of each engagement and the number of engagements using each value,
+    // only used while refreshing
+    private final Map<ObjectId, String[]> values = new HashMap<>();
+    private final Map<SuggestionField, Map<String, Integer>> counts = new EnumMap<>(SuggestionField.class);
+
+    private volatile Snapshot snapshot;
+    private Instant refreshedAt;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!enabled) {
+            LOGGER.info("engagement suggestion index disabled.");
+            return;
+        }
+
+        refresh();
+
+    }
+
+    @Scheduled(every = "{suggestion.index.refresh.interval}")
+    void scheduledRefresh() {
+
+        if (enabled) {
+            refresh();
+        }
+
+    }
+
+    /**
+     * Brings the index up to date with the writes seen by the
+     * {@link DataVersionTracker}. Returns true if the index is current.
+     *
+     * @return
+     */
+    public synchronized boolean refresh() {
+
+        long version = versionTracker.getVersion();
+        Snapshot current = snapshot;
+
+        if (null != current && current.version == version) {
+            return true;
+        }
+
+        try {
+
+            Instant started = Instant.now();
+            Set<SuggestionField> changed = EnumSet.noneOf(SuggestionField.class);
+
+            if (null == current) {
+                // every engagement on startup
+                replace(load(new BsonDocument()), changed);
+            } else {
+                update(load(gte(LAST_UPDATE, refreshedAt.minus(OVERLAP).toString())), changed);
+                if (repository.mongoCollection().estimatedDocumentCount() != values.size()) {
+                    reconcileIds(changed);
+                }
+            }
+
+            Map<SuggestionField, Term[]> terms = null == current ? new EnumMap<>(SuggestionField.class)
+                    : new EnumMap<>(current.terms);
+            for (SuggestionField field : SuggestionField.values()) {
+                if (null == current || changed.contains(field)) {
+                    terms.put(field, sort(counts.getOrDefault(field, Collections.emptyMap())));
+                }
+            }
+
+            snapshot = new Snapshot(version, terms);
+            refreshedAt = started;
+            LOGGER.debug("engagement suggestion index refreshed, fields changed {}", changed);
+            return true;
+
+        } catch (MongoException e) {
+            LOGGER.warn("failed to refresh engagement suggestion index", e);
+            return false;
+        }
+
+    }
+
+    /**
+     * Returns true if suggestions can be served by the index.
+     *
+     * @return
+     */
+    public boolean isServing() {
+        Snapshot current = snapshot;
+        return enabled && null != current && current.version == versionTracker.getVersion();
+    }
+
+    /**
+     * Returns the page of suggestions for the field if the index can serve the
+     * given {@link ListFilterOptions}. Only a single case insensitive like search
+     * on the field is served. Otherwise,
+     * the suggestions are left to the data store.
+     *
+     * @param field
+     * @param filterOptions
+     * @return
+     */
+    public Optional<PagedStringResults> suggest(SuggestionField field, ListFilterOptions filterOptions) {
+
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Optional<String> input = getInput(field, filterOptions);
+        Snapshot current = snapshot;
+
+        if (input.isEmpty() || null == current || current.version != versionTracker.getVersion()) {
+            metricRegistry.counter(FALLBACK).inc();
+            return Optional.empty();
+        }
+
+        metricRegistry.counter(SERVED).inc();
+
+        List<String> matches = current.find(field, input.get());
+        int perPage = filterOptions.getPerPage().orElse(20);
+        int page = filterOptions.getPage().orElse(1);
+
+        List<String> results = matches;
+        if (filterOptions.getPage().isPresent()) {
+            int from = Math.min(matches.size(), Math.max(0, page - 1) * perPage);
+            results = matches.subList(from, Math.min(matches.size(), from + perPage));
+        }
+
+        PagedStringResults pagedResults = PagedStringResults.builder().totalCount(matches.size())
+                .results(new ArrayList<>(results)).build();
+        pagedResults.setCurrentPage(page);
+        pagedResults.setPerPage(perPage);
+
+        return Optional.of(pagedResults);
+
+    }
+
+    /**
+     * Returns the text to match for the field, or empty if the
+     * {@link ListFilterOptions} cannot be served by the index.
+     *
+     * @param field
+     * @param filterOptions
+     * @return
+     */
+    static Optional<String> getInput(SuggestionField field, ListFilterOptions filterOptions) {
+
+        if (filterOptions.isCursorPaging() || filterOptions.getText().isPresent()
+                || SortOrder.DESC == filterOptions.getSortOrder().orElse(SortOrder.ASC)) {
+            return Optional.empty();
+        }
+
+        Optional<String> search = filterOptions.getSearch().map(String::trim).filter(s -> !s.isEmpty());
+        if (search.isEmpty()) {
+            return Optional.of("");
+        }
+
+        Matcher matcher = LIKE_SEARCH.matcher(search.get());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        String attribute = matcher.group(1);
+        String value = matcher.group(2);
+
+        if (!(field.queryName.equals(attribute) || field.fieldName.equals(attribute)) || value.isEmpty()
+                || value.contains("&") || value.contains(LIKE)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(value);
+
+    }
+
+    /**
+     * Replaces the values of every engagement with the loaded values.
+     *
+     * @param loaded
+     * @param changed
+     */
+    private void replace(Map<ObjectId, String[]> loaded, Set<SuggestionField> changed) {
+
+        removeDeleted(loaded.keySet(), changed);
+        update(loaded, changed);
+
+    }
+
+    /**
+     * Sets the values of the loaded engagements, leaving other engagements as
+     * they are.
+     *
+     * @param loaded
+     * @param changed
+     */
+    private void update(Map<ObjectId, String[]> loaded, Set<SuggestionField> changed) {
+
+        loaded.forEach((id, updated) -> {
+            String[] previous = values.put(id, updated);
+            apply(previous, updated, -1, changed);
+            apply(previous, updated, 1, changed);
+        });
+
+    }
+
+    /**
+     * Removes the values of deleted engagements and loads engagements that are
+     * missing, such as those written without a last update, reading only the ids
+     * of the others.
+     *
+     * @param changed
+     */
+    private void reconcileIds(Set<SuggestionField> changed) {
+
+        Set<ObjectId> ids = new HashSet<>();
+        repository.mongoCollection().find(new BsonDocument(), Document.class).projection(include(ID))
+                .forEach(document -> ids.add(document.getObjectId(ID)));
+
+        removeDeleted(ids, changed);
+
+        ids.removeAll(values.keySet());
+        if (!ids.isEmpty()) {
+            update(load(in(ID, ids)), changed);
+        }
+
+    }
+
+    /**
+     * Removes the values of the engagements that are not in the given ids.
+     *
+     * @param ids
+     * @param changed
+     */
+    private void removeDeleted(Set<ObjectId> ids, Set<SuggestionField> changed) {
+
+        values.entrySet().removeIf(entry -> {
+            boolean deleted = !ids.contains(entry.getKey());
+            if (deleted) {
+                apply(entry.getValue(), null, -1, changed);
+            }
+            return deleted;
+        });
+
+    }
+
+    private Map<ObjectId, String[]> load(Bson filter) {
+
+        List<String> fieldNames = Stream.of(SuggestionField.values()).map(SuggestionField::getFieldName)
+                .collect(Collectors.toList());
+
+        Map<ObjectId, String[]> loaded = new HashMap<>();
+        repository.mongoCollection().find(filter, Document.class).projection(include(fieldNames))
+                .forEach(document -> {
+                    String[] fieldValues = new String[fieldNames.size()];
+                    for (int i = 0; i < fieldValues.length; i++) {
+                        Object value = document.get(fieldNames.get(i));
+                        fieldValues[i] = value instanceof String ? (String) value : null;
+                    }
+                    loaded.put(document.getObjectId(ID), fieldValues);
+                });
+
+        return loaded;
+
+    }
+
+    private void apply(String[] previous, String[] updated, int delta, Set<SuggestionField> changed) {
+
+        for (SuggestionField field : SuggestionField.values()) {
+
+            int i = field.ordinal();
+            String from = null == previous ? null : previous[i];
+            String to = null == updated ? null : updated[i];
+
+            if (delta < 0 && null != from && !from.equals(to)) {
+                counts.computeIfAbsent(field, f -> new HashMap<>()).computeIfPresent(from,
+                        (value, count) -> 1 == count ? null : count - 1);
+                changed.add(field);
+            } else if (delta > 0 && null != to && !to.equals(from)) {
+                counts.computeIfAbsent(field, f -> new HashMap<>()).merge(to, 1, Integer::sum);
+                changed.add(field);
+            }
+
+        }
+
+    }
+
+    private static Term[] sort(Map<String, Integer> fieldCounts) {
+
+        // values differing only by case are one suggestion, as in the data store
+        Map<String, Term> terms = new HashMap<>();
+        fieldCounts.forEach((value, count) -> {
+            if (!value.isBlank()) {
+                terms.merge(normalize(value), new Term(value, count), Term::preferred);
+            }
+        });
+
+        return terms.values().stream().sorted(Term.ORDER).toArray(Term[]::new);
+
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Term {
+
+        private static final Comparator<Term> ORDER = Comparator.comparing(t -> t.key);
+
+        private final String value;
+        private final String key;
+        private final int count;
+
+        Term(String value, int count) {
+            this.value = value;
+            this.key = normalize(value);
+            this.count = count;
+        }
+
+        /**
+         * Returns the spelling used by the most engagements.
+         */
+        static Term preferred(Term a, Term b) {
+            if (a.count != b.count) {
+                return a.count > b.count ? a : b;
+            }
+            return a.value.compareTo(b.value) <= 0 ? a : b;
+        }
+
+    }
+
+    /**
+     * Immutable view of the distinct values at a version.
+     */
+    private static class Snapshot {
+
+        private final long version;
+        private final Map<SuggestionField, Term[]> terms;
+
+        Snapshot(long version, Map<SuggestionField, Term[]> terms) {
+            this.version = version;
+            this.terms = terms;
+        }
+
+        /**
+         * Returns the values starting with the input, followed by the values
+         * containing it, each in lowercase order.
+         */
+        List<String> find(SuggestionField field, String input) {
+
+            Term[] fieldTerms = terms.get(field);
+            String key = normalize(input);
+
+            // keys are distinct, so the first key starting with the input is at
+            // the insertion point of the input
+            int start = Arrays.binarySearch(fieldTerms, new Term(input, 0), Term.ORDER);
+            if (start < 0) {
+                start = -start - 1;
+            }
+
+            int end = start;
+            while (end < fieldTerms.length && fieldTerms[end].key.startsWith(key)) {
+                end++;
+            }
+
+            List<String> matches = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                matches.add(fieldTerms[i].value);
+            }
+
+            for (int i = 0; i < fieldTerms.length; i++) {
+                if ((i < start || i >= end) && fieldTerms[i].key.contains(key)) {
+                    matches.add(fieldTerms[i].value);
+                }
+            }
+
+            return matches;
+
+        }
+
+    }
+
+}
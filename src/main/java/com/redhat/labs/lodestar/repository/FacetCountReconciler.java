@@ -0,0 +1,119 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.FacetCount;
+import com.redhat.labs.lodestar.repository.FacetCountRepository.Facet;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Compares the materialized facet counts with the counts computed from the
+ * engagements and replaces the counts of any facet that differ. Runs on
+ * startup, which also builds the counts the first time, and then on a schedule.
+ */
+@ApplicationScoped
+public class FacetCountReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FacetCountReconciler.class);
+
+    static final String MISMATCH = "facet-count-mismatch";
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    FacetCountRepository facetCounts;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!facetCounts.isEnabled()) {
+            LOGGER.info("facet counts disabled.");
+            return;
+        }
+
+        try {
+            facetCounts.createIndexes();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to create facet count indexes. {}", e.getMessage());
+        }
+        scheduledReconcile();
+
+    }
+
+    @Scheduled(every = "{facet.count.reconcile.interval}")
+    void scheduledReconcile() {
+
+        if (!facetCounts.isEnabled()) {
+            return;
+        }
+
+        try {
+            reconcile();
+        } catch (MongoException e) {
+            LOGGER.warn("failed to reconcile facet counts", e);
+        }
+
+    }
+
+    /**
+     * Replaces the counts of each {@link Facet} that differ from the counts
+     * computed from the engagements. A facet is skipped if an engagement is
+     * written while it is compared.
+     *
+     * @return the number of facets replaced
+     */
+    synchronized int reconcile() {
+
+        int replaced = 0;
+
+        for (Facet facet : Facet.values()) {
+
+            long version = versionTracker.getVersion();
+            Map<String, FacetCount> expected = repository.countFacet(facet);
+            Map<String, FacetCount> actual = facetCounts.findCounts(facet);
+
+            if (version != versionTracker.getVersion()) {
+                LOGGER.debug("engagements written during {} count check, skipping", facet);
+                continue;
+            }
+
+            if (!toCounts(expected).equals(toCounts(actual))) {
+                LOGGER.warn("{} counts differ from the engagements, {} stored and {} expected. replacing.", facet,
+                        actual.size(), expected.size());
+                metricRegistry.counter(MISMATCH, new Tag("facet", facet.name().toLowerCase())).inc();
+                facetCounts.replace(facet, expected, actual);
+                replaced++;
+            }
+
+        }
+
+        return replaced;
+
+    }
+
+    private Map<String, Long> toCounts(Map<String, FacetCount> counts) {
+        return counts.entrySet().stream()
+                .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().getCount()));
+    }
+
+}
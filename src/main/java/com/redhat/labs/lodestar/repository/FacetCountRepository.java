@@ -0,0 +1,381 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.regex;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.set;
+import static com.mongodb.client.model.Updates.setOnInsert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.redhat.labs.lodestar.model.Artifact;
+import com.redhat.labs.lodestar.model.Category;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.FacetCount;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+import com.redhat.labs.lodestar.model.pagination.PagedCategoryResults;
+import com.redhat.labs.lodestar.model.pagination.PagedResults;
+import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.model.search.DefaultSearchComponent;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+
+/**
+ * Materialized counts of the category names and artifact types used by the
+ * engagements. Counts are adjusted by the difference between the old and new
+ * values on every engagement write, so the category and artifact type lists
+ * are read without unwinding the engagement collection.
+ */
+@ApplicationScoped
+public class FacetCountRepository implements PanacheMongoRepositoryBase<FacetCount, String> {
+
+    private static final String ID = "_id";
+    private static final String FACET = "facet";
+    private static final String KEY = "key";
+    private static final String NAME = "name";
+    private static final String COUNT = "count";
+    static final String FIRST_USED = "firstUsed";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final Pattern LIKE_SEARCH = Pattern.compile("^\\s*([\\w.]+)\\s+like\\s+(.*)$");
+
+    static final List<IndexModel> INDEXES = Collections.unmodifiableList(Arrays.asList(
+            new IndexModel(Indexes.ascending(FACET, KEY), new IndexOptions().name("lodestar_facet_key")),
+            new IndexModel(Indexes.ascending(FACET, COUNT), new IndexOptions().name("lodestar_facet_count")),
+            new IndexModel(Indexes.ascending(FACET, NAME), new IndexOptions().name("lodestar_facet_name"))));
+
+    public enum Facet {
+
+        CATEGORY("category", "categories", "name",
+                e -> null == e.getCategories() ? Stream.empty()
+                        : e.getCategories().stream().filter(Objects::nonNull).map(Category::getName)),
+        ARTIFACT_TYPE("artifact_type", "artifacts", "type",
+                e -> null == e.getArtifacts() ? Stream.empty()
+                        : e.getArtifacts().stream().filter(Objects::nonNull).map(Artifact::getType));
+
+        private final String name;
+        private final String arrayField;
+        private final String valueField;
+        private final Function<Engagement, Stream<String>> values;
+
+        Facet(String name, String arrayField, String valueField, Function<Engagement, Stream<String>> values) {
+            this.name = name;
+            this.arrayField = arrayField;
+            this.valueField = valueField;
+            this.values = values;
+        }
+
+        public String getArrayField() {
+            return arrayField;
+        }
+
+        public String getPath() {
+            return arrayField + "." + valueField;
+        }
+
+        Stream<String> getValues(Engagement engagement) {
+            return null == engagement ? Stream.empty() : values.apply(engagement).filter(Objects::nonNull);
+        }
+
+    }
+
+    @ConfigProperty(name = "facet.count.enabled", defaultValue = "true")
+    boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates the indexes used to page and filter the counts.
+     */
+    public void createIndexes() {
+        mongoCollection().createIndexes(INDEXES);
+    }
+
+    /**
+     * Adjusts the counts by the values removed with the previous versions of the
+     * {@link Engagement}s and the values added with the new versions. Does
+     * nothing if the counts are disabled.
+     *
+     * @param previous
+     * @param updated
+     */
+    public void apply(Collection<Engagement> previous, Collection<Engagement> updated) {
+
+        if (!enabled) {
+            return;
+        }
+
+        List<WriteModel<FacetCount>> writes = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+
+        for (Facet facet : Facet.values()) {
+
+            Map<String, Long> deltas = new HashMap<>();
+            Map<String, String> names = new HashMap<>();
+
+            previous.stream().flatMap(facet::getValues)
+                    .forEach(value -> deltas.merge(normalize(value), -1L, Long::sum));
+            updated.stream().flatMap(facet::getValues).forEach(value -> {
+                deltas.merge(normalize(value), 1L, Long::sum);
+                names.putIfAbsent(normalize(value), value);
+            });
+
+            deltas.forEach((key, delta) -> {
+                if (0 != delta) {
+                    String id = createId(facet, key);
+                    ids.add(id);
+                    writes.add(new UpdateOneModel<>(eq(ID, id),
+                            combine(inc(COUNT, delta), setOnInsert(FACET, facet.name), setOnInsert(KEY, key),
+                                    setOnInsert(NAME, names.getOrDefault(key, key))),
+                            new UpdateOptions().upsert(true)));
+                }
+            });
+
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        bulkWrite(writes);
+        mongoCollection().deleteMany(and(in(ID, ids), lte(COUNT, 0)));
+
+    }
+
+    /**
+     * Replaces the stored counts of the {@link Facet} with the given counts, both
+     * keyed by lowercase key. Each count is upserted on its own so that counts
+     * adjusted by writes while it is replaced are kept, and only the stored
+     * values missing from the given counts are removed.
+     *
+     * @param facet
+     * @param counts
+     * @param stored
+     */
+    public void replace(Facet facet, Map<String, FacetCount> counts, Map<String, FacetCount> stored) {
+
+        List<WriteModel<FacetCount>> writes = counts.values().stream()
+                .map(count -> new UpdateOneModel<FacetCount>(eq(ID, createId(facet, count.getKey())),
+                        combine(set(COUNT, count.getCount()), set(NAME, count.getName()),
+                                setOnInsert(FACET, facet.name), setOnInsert(KEY, count.getKey())),
+                        new UpdateOptions().upsert(true)))
+                .collect(Collectors.toList());
+        if (!writes.isEmpty()) {
+            bulkWrite(writes);
+        }
+
+        List<String> removed = stored.keySet().stream().filter(key -> !counts.containsKey(key))
+                .map(key -> createId(facet, key)).collect(Collectors.toList());
+        if (!removed.isEmpty()) {
+            mongoCollection().deleteMany(in(ID, removed));
+        }
+
+    }
+
+    /**
+     * Returns the counts of the {@link Facet} by lowercase key.
+     *
+     * @param facet
+     * @return
+     */
+    public Map<String, FacetCount> findCounts(Facet facet) {
+        return mongoCollection().find(eq(FACET, facet.name)).into(new ArrayList<>()).stream()
+                .collect(Collectors.toMap(FacetCount::getKey, Function.identity()));
+    }
+
+    /**
+     * Returns the page of categories for the {@link ListFilterOptions}, sorted by
+     * count, if they can be read from the counts.
+     *
+     * @param filterOptions
+     * @return
+     */
+    public Optional<PagedCategoryResults> findCategories(ListFilterOptions filterOptions) {
+
+        return findPage(Facet.CATEGORY, filterOptions, COUNT, PagedCategoryResults.builder().build(),
+                count -> Category.builder().name(count.getName()).count(count.getCount().intValue()).build());
+
+    }
+
+    /**
+     * Returns the page of artifact types for the {@link ListFilterOptions}, sorted
+     * by type, if they can be read from the counts.
+     *
+     * @param filterOptions
+     * @return
+     */
+    public Optional<PagedStringResults> findArtifactTypes(ListFilterOptions filterOptions) {
+        return findPage(Facet.ARTIFACT_TYPE, filterOptions, NAME, PagedStringResults.builder().build(),
+                FacetCount::getName);
+    }
+
+    /**
+     * Returns the counts of the unwound values grouped by spelling, keyed by
+     * lowercase name. Each group holds the spelling as its id, the number of
+     * times it is used and the id of the first engagement using it. Names
+     * differing only by case are counted together using the spelling used
+     * first, the same spelling kept by {@link #apply(Collection, Collection)}.
+     *
+     * @param facet
+     * @param spellings
+     * @return
+     */
+    static Map<String, FacetCount> createCounts(Facet facet, Collection<Document> spellings) {
+
+        Map<String, FacetCount> counts = new HashMap<>();
+        Map<String, ObjectId> firstUsed = new HashMap<>();
+
+        spellings.forEach(spelling -> {
+
+            String name = spelling.getString(ID);
+            ObjectId first = spelling.getObjectId(FIRST_USED);
+            String key = normalize(name);
+            FacetCount facetCount = counts.computeIfAbsent(key, k -> FacetCount.builder().id(createId(facet, k))
+                    .facet(facet.name).key(k).name(name).count(0L).build());
+            facetCount.setCount(facetCount.getCount() + ((Number) spelling.get(COUNT)).longValue());
+
+            ObjectId used = firstUsed.get(key);
+            if (null == used || first.compareTo(used) < 0
+                    || (first.equals(used) && name.compareTo(facetCount.getName()) < 0)) {
+                firstUsed.put(key, first);
+                facetCount.setName(name);
+            }
+
+        });
+
+        return counts;
+
+    }
+
+    /**
+     * Returns the pattern to match against the lowercase key if the search in the
+     * {@link ListFilterOptions} can be answered from the counts. Only no search or
+     * a single like on the facet path can be.
+     *
+     * @param facet
+     * @param filterOptions
+     * @return
+     */
+    static Optional<String> getLikePattern(Facet facet, ListFilterOptions filterOptions) {
+
+        if (filterOptions.isCursorPaging() || filterOptions.getText().isPresent()
+                || null != filterOptions.getInclude() || null != filterOptions.getExclude()) {
+            return Optional.empty();
+        }
+
+        Optional<String> search = filterOptions.getSearch().map(String::trim).filter(s -> !s.isEmpty());
+        if (search.isEmpty()) {
+            return Optional.of("");
+        }
+
+        Matcher matcher = LIKE_SEARCH.matcher(search.get());
+        if (!matcher.matches() || !facet.getPath().equals(matcher.group(1))) {
+            return Optional.empty();
+        }
+
+        String value = matcher.group(2);
+        return value.isEmpty() || value.contains("&") || value.contains("like") ? Optional.empty()
+                : Optional.of(value);
+
+    }
+
+    private <T, P extends PagedResults<T>> Optional<P> findPage(Facet facet, ListFilterOptions filterOptions,
+            String sortField, P page, Function<FacetCount, T> mapper) {
+
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Optional<String> pattern = getLikePattern(facet, filterOptions);
+        if (pattern.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Bson filter = pattern.get().isEmpty() ? eq(FACET, facet.name)
+                : and(eq(FACET, facet.name), regex(KEY, DefaultSearchComponent.escape(pattern.get()), "i"));
+        Bson sort = SortOrder.DESC == filterOptions.getSortOrder().orElse(SortOrder.ASC)
+                ? Sorts.descending(sortField, KEY)
+                : Sorts.ascending(sortField, KEY);
+
+        FindIterable<FacetCount> iterable = mongoCollection().find(filter).sort(sort);
+        if (filterOptions.getPage().isPresent()) {
+            int perPage = filterOptions.getPerPage().orElse(20);
+            iterable.skip(perPage * (filterOptions.getPage().get() - 1)).limit(perPage);
+        }
+
+        page.setResults(iterable.into(new ArrayList<>()).stream().map(mapper).collect(Collectors.toList()));
+        page.setTotalCount((int) mongoCollection().countDocuments(filter));
+        page.setCurrentPage(filterOptions.getPage().orElse(1));
+        page.setPerPage(filterOptions.getPerPage().orElse(20));
+
+        return Optional.of(page);
+
+    }
+
+    private void bulkWrite(List<WriteModel<FacetCount>> writes) {
+
+        try {
+            mongoCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+
+            // concurrent upserts of a new value, the retry updates the inserted count
+            List<WriteModel<FacetCount>> retries = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (DUPLICATE_KEY != error.getCode()) {
+                    throw e;
+                }
+                retries.add(writes.get(error.getIndex()));
+            }
+            mongoCollection().bulkWrite(retries, new BulkWriteOptions().ordered(false));
+
+        }
+
+    }
+
+    private static String createId(Facet facet, String key) {
+        return facet.name + ":" + key;
+    }
+
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -10,6 +10,14 @@ import static com.mongodb.client.model.Aggregates.project;
 import static com.mongodb.client.model.Aggregates.skip;
 import static com.mongodb.client.model.Aggregates.sort;
 import static com.mongodb.client.model.Aggregates.unwind;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Filters.nor;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Filters.text;
 import static com.mongodb.client.model.Projections.exclude;
 import static com.mongodb.client.model.Projections.excludeId;
 import static com.mongodb.client.model.Projections.fields;
@@ -20,12 +28,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.ws.rs.WebApplicationException;
 
 import org.bson.BsonDocument;
 import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 
@@ -35,8 +45,11 @@ import com.mongodb.client.model.BsonField;
 import com.mongodb.client.model.Facet;
 import com.mongodb.client.model.Field;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UnwindOptions;
+import com.redhat.labs.lodestar.model.Engagement.EngagementState;
 import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
 import com.redhat.labs.lodestar.model.filter.SortOrder;
+import com.redhat.labs.lodestar.model.pagination.PageCursor;
 import com.redhat.labs.lodestar.model.search.BsonSearch;
 
 public class MongoAggregationHelper {
@@ -45,22 +58,270 @@ public class MongoAggregationHelper {
     private static final String TOTAL_COUNT = "totalCount";
     private static final String TO_LOWER_QUERY = "$toLower";
     private static final String ARRAY_ELEMENT_AT = "$arrayElemAt";
+    private static final String IF_NULL = "$ifNull";
+    private static final String STATE = "state";
+    private static final String LAUNCH = "launch";
+    private static final String START_DATE = "startDate";
+    private static final String END_DATE = "endDate";
+    private static final String ARCHIVE_DATE = "archiveDate";
+    private static final String ID = "_id";
+    private static final String UUID = "uuid";
+    private static final String UNWIND_INDEX = "unwindIndex";
+    private static final String TEXT_SCORE = "textScore";
+    private static final String CURSOR_NOT_SUPPORTED = "cursor paging is not supported for grouped results";
+    static final String CURSOR_VALUES = "cursorValues";
 
     private MongoAggregationHelper() {
         throw new IllegalStateException("Utility class");
     }
 
-    public static List<Bson> generatePagedAggregationPipeline(ListFilterOptions filterOptions) {
+    /**
+     * Returns the stages that match, unwind and group the documents. Shared by the
+     * page and count queries, as unwinding replaces the search string in the
+     * {@link ListFilterOptions}.
+     * 
+     * @param filterOptions
+     * @return
+     */
+    public static List<Bson> generateFilterPipeline(ListFilterOptions filterOptions) {
 
         List<Bson> pipeline = new ArrayList<>();
-        pipeline.addAll(queryPipeline(filterOptions));
-        pipeline.addAll(pagingAndLimitPipeline(filterOptions));
-        pipeline.addAll(pagingProjectionPipeline());
+
+        // set match criteria
+        searchStage(pipeline, filterOptions);
+
+        // unwind if required
+        unwindStage(pipeline, filterOptions);
+
+        // add lowercase field and group/count
+        addLowercaseFieldAndGroupStage(pipeline, filterOptions);
+
+        return pipeline;
+
+    }
+
+    /**
+     * Returns a pipeline for the requested page of results. The results are
+     * streamed rather than collected into a single document.
+     * 
+     * @param filterPipeline
+     * @param filterOptions
+     * @return
+     */
+    public static List<Bson> generatePagePipeline(List<Bson> filterPipeline, ListFilterOptions filterOptions) {
+
+        if (filterOptions.isCursorPaging()) {
+            throw new WebApplicationException(CURSOR_NOT_SUPPORTED, 400);
+        }
+
+        List<Bson> pipeline = new ArrayList<>(filterPipeline);
+        sortStage(pipeline, filterOptions);
+        skipAndLimitStages(pipeline, filterOptions);
+        projectionStage(pipeline, filterOptions);
 
         return pipeline;
 
     }
 
+    /**
+     * Returns true if the results are whole documents, so they can be counted
+     * with the match filter alone.
+     * 
+     * @param filterOptions
+     * @return
+     */
+    public static boolean isDocumentCount(ListFilterOptions filterOptions) {
+        return filterOptions.getUnwindFieldName().isEmpty() && filterOptions.getGroupByFieldName().isEmpty();
+    }
+
+    /**
+     * Returns the filter for the text and search string in the
+     * {@link ListFilterOptions}. Matches all documents if there is neither.
+     * 
+     * @param filterOptions
+     * @return
+     */
+    public static Bson generateMatchFilter(ListFilterOptions filterOptions) {
+
+        Optional<Bson> search = filterOptions.getSearch()
+                .flatMap(s -> BsonSearch.builder().searchString(s).build().createBsonForSearch());
+        Optional<String> text = filterOptions.getText();
+
+        if (text.isPresent()) {
+            return search.isPresent() ? and(text(text.get()), search.get()) : text(text.get());
+        }
+
+        return search.orElseGet(BsonDocument::new);
+
+    }
+
+    /**
+     * Returns the stages that match and unwind the documents for paging by cursor.
+     * Shared by the page and count pipelines, as unwinding replaces the search
+     * string in the {@link ListFilterOptions}.
+     * 
+     * @param filterOptions
+     * @return
+     */
+    public static List<Bson> generateKeysetQueryPipeline(ListFilterOptions filterOptions) {
+
+        if (filterOptions.getGroupByFieldName().isPresent()) {
+            throw new WebApplicationException(CURSOR_NOT_SUPPORTED, 400);
+        }
+
+        List<Bson> pipeline = new ArrayList<>();
+        searchStage(pipeline, filterOptions);
+        unwindStage(pipeline, filterOptions);
+
+        return pipeline;
+
+    }
+
+    /**
+     * Returns a pipeline for the page of results after the cursor in the
+     * {@link ListFilterOptions}. The range on the sort keys comes before the sort
+     * so it can use an index. One extra result is returned to detect if there is
+     * a next page. Each result contains its key values in the cursor values field.
+     * 
+     * @param queryPipeline
+     * @param filterOptions
+     * @return
+     */
+    public static List<Bson> generateKeysetAggregationPipeline(List<Bson> queryPipeline,
+            ListFilterOptions filterOptions) {
+
+        List<String> keys = getKeysetFields(filterOptions);
+        SortOrder sortOrder = filterOptions.getSortOrder().orElse(SortOrder.ASC);
+
+        List<Bson> pipeline = new ArrayList<>(queryPipeline);
+
+        // range after the cursor
+        Optional<String> token = filterOptions.getCursor().filter(c -> !c.isBlank());
+        if (token.isPresent()) {
+
+            PageCursor cursor = PageCursor.decode(token.get());
+            if (!keys.equals(cursor.getKeys()) || !sortOrder.equals(cursor.getSortOrder())) {
+                throw new WebApplicationException("cursor does not match the sort fields and sort order", 400);
+            }
+
+            pipeline.add(match(keysetPredicate(keys, cursor.getValues(), sortOrder)));
+
+        }
+
+        pipeline.add(sort(determineSort(sortOrder, keys.toArray(new String[keys.size()]))));
+        pipeline.add(limit(filterOptions.getPerPage().orElse(20) + 1));
+
+        // capture the key values before the projection can remove them
+        List<String> keyVariables = keys.stream().map(MongoAggregationHelper::getVariableName)
+                .collect(Collectors.toList());
+        pipeline.add(addFields(new Field<>(CURSOR_VALUES, keyVariables)));
+
+        projectionStage(pipeline, filterOptions);
+
+        return pipeline;
+
+    }
+
+    /**
+     * Returns a pipeline that counts the documents matched by the given query
+     * pipeline.
+     * 
+     * @param queryPipeline
+     * @return
+     */
+    public static List<Bson> generateCountPipeline(List<Bson> queryPipeline) {
+
+        List<Bson> pipeline = new ArrayList<>(queryPipeline);
+        pipeline.add(count(TOTAL_COUNT));
+
+        return pipeline;
+
+    }
+
+    /**
+     * Returns the {@link PageCursor} positioned after the given result of a
+     * pipeline created by {@link #generateKeysetAggregationPipeline}.
+     * 
+     * @param filterOptions
+     * @param result
+     * @return
+     */
+    public static PageCursor createCursor(ListFilterOptions filterOptions, BsonDocument result) {
+        return PageCursor.builder().keys(getKeysetFields(filterOptions))
+                .sortOrder(filterOptions.getSortOrder().orElse(SortOrder.ASC))
+                .values(new ArrayList<>(result.getArray(CURSOR_VALUES).getValues())).build();
+    }
+
+    /**
+     * Returns the sort fields followed by the fields that make the sort unique.
+     * Unwound results are unique by the engagement id and the array index.
+     * 
+     * @param filterOptions
+     * @return
+     */
+    static List<String> getKeysetFields(ListFilterOptions filterOptions) {
+
+        List<String> keys = new ArrayList<>(filterOptions.getSortFieldsAsList());
+        keys.remove(ID);
+        keys.remove(UNWIND_INDEX);
+        keys.add(ID);
+
+        if (filterOptions.getUnwindFieldName().isPresent()) {
+            keys.add(UNWIND_INDEX);
+        }
+
+        return keys;
+
+    }
+
+    /**
+     * Returns a filter for the documents sorted after the given key values, in the
+     * form (k1 > v1) or (k1 = v1 and k2 > v2) and so on. Null and missing values
+     * sort before any other value.
+     * 
+     * @param keys
+     * @param values
+     * @param sortOrder
+     * @return
+     */
+    static Bson keysetPredicate(List<String> keys, List<BsonValue> values, SortOrder sortOrder) {
+
+        List<Bson> branches = new ArrayList<>();
+        List<Bson> equalities = new ArrayList<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            String key = keys.get(i);
+            BsonValue value = values.get(i);
+
+            Optional<Bson> after = afterValue(key, value, sortOrder);
+            if (after.isPresent()) {
+                List<Bson> branch = new ArrayList<>(equalities);
+                branch.add(after.get());
+                branches.add(branch.size() == 1 ? branch.get(0) : and(branch));
+            }
+
+            equalities.add(eq(key, value.isNull() ? null : value));
+
+        }
+
+        // nothing sorts after the cursor
+        return branches.isEmpty() ? nor(new Document()) : or(branches);
+
+    }
+
+    private static Optional<Bson> afterValue(String key, BsonValue value, SortOrder sortOrder) {
+
+        boolean ascending = SortOrder.ASC.equals(sortOrder);
+
+        if (value.isNull()) {
+            return ascending ? Optional.of(ne(key, null)) : Optional.empty();
+        }
+
+        return ascending ? Optional.of(gt(key, value)) : Optional.of(or(lt(key, value), eq(key, null)));
+
+    }
+
     public static List<Bson> generatePagedAggregationPipelineForUserSummary(ListFilterOptions filterOptions) {
 
         List<Bson> pipeline = new ArrayList<>();
@@ -73,44 +334,103 @@ public class MongoAggregationHelper {
 
     }
 
-    static List<Bson> queryPipeline(ListFilterOptions filterOptions) {
+    /**
+     * Returns a pipeline that classifies each engagement into an
+     * {@link EngagementState} relative to the given local time and counts the
+     * engagements in each state using a single group stage. The classification
+     * mirrors {@link com.redhat.labs.lodestar.model.Engagement#getEngagementCurrentState}.
+     * 
+     * Dates are stored using the format from
+     * {@link com.redhat.labs.lodestar.util.DateFormatter}, so comparing the
+     * formatted strings matches comparing the parsed dates.
+     * 
+     * @param localTime
+     * @return
+     */
+    public static List<Bson> generateEngagementStateCountPipeline(String localTime) {
 
-        // Create pipeline for search and sorting
         List<Bson> pipeline = new ArrayList<>();
 
-        // set match criteria
-        matchStage(pipeline, filterOptions);
+        // only the fields required to determine the state
+        pipeline.add(project(fields(excludeId(), include(LAUNCH, START_DATE, END_DATE, ARCHIVE_DATE))));
 
-        // unwind if required
-        unwindStage(pipeline, filterOptions);
+        // classify each engagement
+        pipeline.add(addFields(new Field<>(STATE, engagementStateExpression(localTime))));
 
-        // add lowercase field and group/count
-        addLowercaseFieldAndGroupStage(pipeline, filterOptions);
+        // count each state
+        List<BsonField> counts = new ArrayList<>();
+        Stream.of(EngagementState.values()).filter(s -> !EngagementState.ANY.equals(s))
+                .forEach(s -> counts.add(Accumulators.sum(s.name(), new Document("$cond",
+                        Arrays.asList(new Document("$eq", Arrays.asList(getVariableName(STATE), s.name())), 1, 0)))));
+        counts.add(Accumulators.sum(EngagementState.ANY.name(), 1));
 
-        // sort results
-        sortStage(pipeline, filterOptions);
+        pipeline.add(group(null, counts));
 
         return pipeline;
 
     }
 
-    static List<Bson> pagingAndLimitPipeline(ListFilterOptions filterOptions) {
+    /**
+     * Returns a $switch expression that resolves to the name of the
+     * {@link EngagementState} for the current document.
+     * 
+     * @param localTime
+     * @return
+     */
+    static Document engagementStateExpression(String localTime) {
 
-        // create pipeline for paging and limits
-        List<Bson> paging = new ArrayList<>();
+        // not launched or irregularly launched
+        Document upcoming = new Document("$or",
+                Arrays.asList(isNullOrMissing(LAUNCH), isNullOrMissing(END_DATE), isNullOrMissing(START_DATE)));
 
-        // enable paging or limits
-        skipAndLimitStages(paging, filterOptions);
+        // has reached end date
+        Document ended = new Document("$lt", Arrays.asList(getVariableName(END_DATE), localTime));
 
-        // add projection
-        projectionStage(paging, filterOptions);
+        // has reached end date, but not archive date
+        Document beforeArchive = new Document("$gt",
+                Arrays.asList(new Document(IF_NULL, Arrays.asList(getVariableName(ARCHIVE_DATE), null)), localTime));
+        Document terminating = new Document("$and", Arrays.asList(ended, beforeArchive));
 
-        // Create facets for engagements and total count
-        Facet engagements = new Facet("results", paging);
-        Facet count = new Facet(TOTAL_COUNT, count());
-        Bson facetStage = facet(engagements, count);
+        List<Document> branches = Arrays.asList(switchBranch(upcoming, EngagementState.UPCOMING),
+                switchBranch(terminating, EngagementState.TERMINATING), switchBranch(ended, EngagementState.PAST));
 
-        return Arrays.asList(facetStage);
+        return new Document("$switch",
+                new Document("branches", branches).append("default", EngagementState.ACTIVE.name()));
+
+    }
+
+    /**
+     * Returns an expression that is true if the field is null or missing.
+     * 
+     * @param fieldName
+     * @return
+     */
+    static Document isNullOrMissing(String fieldName) {
+        return new Document("$eq",
+                Arrays.asList(new Document(IF_NULL, Arrays.asList(getVariableName(fieldName), null)), null));
+    }
+
+    /**
+     * Returns a $switch branch that resolves to the name of the state when the
+     * case expression is true.
+     * 
+     * @param caseExpression
+     * @param state
+     * @return
+     */
+    static Document switchBranch(Document caseExpression, EngagementState state) {
+        return new Document("case", caseExpression).append("then", state.name());
+    }
+
+    static List<Bson> queryPipeline(ListFilterOptions filterOptions) {
+
+        // Create pipeline for search and sorting
+        List<Bson> pipeline = generateFilterPipeline(filterOptions);
+
+        // sort results
+        sortStage(pipeline, filterOptions);
+
+        return pipeline;
 
     }
 
@@ -150,20 +470,6 @@ public class MongoAggregationHelper {
 
     }
 
-    static List<Bson> pagingProjectionPipeline() {
-
-        // create documents for paging fields (engagements and totalEngagements)
-        Document d = new Document(ARRAY_ELEMENT_AT, Arrays.asList("$totalCount.count", 0));
-        Document countField = new Document(TOTAL_COUNT, d);
-        Document engagementsField = new Document("results", "$results");
-
-        // projection for paging fields
-        Bson pageProjection = project(fields(engagementsField, countField));
-
-        return Arrays.asList(pageProjection);
-
-    }
-
     /*
      * Stages
      */
@@ -175,8 +481,17 @@ public class MongoAggregationHelper {
             return;
         }
 
-        // unwind based on field name
-        pipeline.add(unwind(getVariableName(unwindFieldName.get())));
+        // only the unwound field and engagement uuid are used after unwinding, so
+        // drop the rest of the engagement before it is copied for every element
+        pipeline.add(project(include(unwindFieldName.get(), UUID)));
+
+        // unwind based on field name, keeping the array index to page by cursor
+        if (filterOptions.isCursorPaging()) {
+            pipeline.add(unwind(getVariableName(unwindFieldName.get()),
+                    new UnwindOptions().includeArrayIndex(UNWIND_INDEX)));
+        } else {
+            pipeline.add(unwind(getVariableName(unwindFieldName.get())));
+        }
 
         // get unwind field search string
         Optional<String> search = filterOptions.getSearchStringByField(unwindFieldName.get());
@@ -194,8 +509,10 @@ public class MongoAggregationHelper {
 
         // create include fields from fields
         String[] fields = projectFields.get().split(",");
-        Bson[] excludeId = new Bson[] { excludeId() };
-        Bson[] engagementUuid = new Bson[] { new BsonDocument("engagementUuid", new BsonString("$uuid")) };
+        Bson[] excludeId = new Bson[] {
+                filterOptions.isCursorPaging() ? include(ID, UNWIND_INDEX) : excludeId() };
+        Bson[] engagementUuid = new Bson[] {
+                new BsonDocument("engagementUuid", new BsonString(getVariableName(UUID))) };
         Bson[] bsonFields = Stream.of(fields).map(MongoAggregationHelper::getUnwindProjectField).toArray(Bson[]::new);
         Bson[] combined = Stream.of(excludeId, bsonFields, engagementUuid).flatMap(Stream::of).toArray(Bson[]::new);
 
@@ -204,6 +521,24 @@ public class MongoAggregationHelper {
 
     }
 
+    /**
+     * Adds the first match stage. A text search must be in the first stage, so it
+     * is combined with the search string there.
+     * 
+     * @param pipeline
+     * @param filterOptions
+     */
+    static void searchStage(List<Bson> pipeline, ListFilterOptions filterOptions) {
+
+        if (filterOptions.getText().isEmpty()) {
+            matchStage(pipeline, filterOptions);
+            return;
+        }
+
+        pipeline.add(match(generateMatchFilter(filterOptions)));
+
+    }
+
     static void matchStage(List<Bson> pipeline, ListFilterOptions filterOptions) {
 
         Optional<String> searchString = filterOptions.getSearch();
@@ -248,9 +583,15 @@ public class MongoAggregationHelper {
     static void sortStage(List<Bson> pipeline, ListFilterOptions filterOptions) {
 
         List<String> sortFields = filterOptions.getSortFieldsAsList();
-        Bson sort = sort(determineSort(filterOptions.getSortOrder().orElse(SortOrder.ASC),
-                sortFields.toArray(new String[sortFields.size()])));
-        pipeline.add(sort);
+        Bson sort = determineSort(filterOptions.getSortOrder().orElse(SortOrder.ASC),
+                sortFields.toArray(new String[sortFields.size()]));
+
+        // most relevant first, only whole documents keep their text score
+        if (filterOptions.isRankedByText() && isDocumentCount(filterOptions)) {
+            sort = Sorts.orderBy(Sorts.metaTextScore(TEXT_SCORE), sort);
+        }
+
+        pipeline.add(sort(sort));
 
     }
 
@@ -277,9 +618,19 @@ public class MongoAggregationHelper {
         if (include.isPresent() && exclude.isPresent()) {
             throw new WebApplicationException("cannot provide both include and exclude parameters", 400);
         } else if (include.isPresent()) {
-            pipeline.add(project(fields(excludeId(), include(List.copyOf(include.get())))));
+            List<String> fields = new ArrayList<>(include.get());
+            if (filterOptions.isCursorPaging()) {
+                fields.add(CURSOR_VALUES);
+            }
+            pipeline.add(project(fields(excludeId(), include(fields))));
         } else if (exclude.isPresent()) {
-            pipeline.add(project(fields(excludeId(), exclude(List.copyOf(exclude.get())))));
+            List<String> fields = new ArrayList<>(exclude.get());
+            if (filterOptions.isCursorPaging()) {
+                fields.add(UNWIND_INDEX);
+            }
+            pipeline.add(project(fields(excludeId(), exclude(fields))));
+        } else if (filterOptions.isCursorPaging()) {
+            pipeline.add(project(fields(excludeId(), exclude(UNWIND_INDEX))));
         } else if (groupByField.isPresent()) {
             String fieldName = getNestedFieldName(groupByField.get());
             pipeline.add(project(fields(excludeId(),
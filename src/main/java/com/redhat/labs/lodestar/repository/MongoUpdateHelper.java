@@ -0,0 +1,193 @@
+package com.redhat.labs.lodestar.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
+import lombok.Getter;
+
+/**
+ * Builds the minimal update for a document by comparing the BSON of the
+ * persisted version with the BSON of its replacement. Arrays of documents keyed
+ * by uuid are updated element by element where MongoDB allows it.
+ */
+public class MongoUpdateHelper {
+
+    private static final String ID = "_id";
+    private static final String UUID = "uuid";
+    private static final String ARRAY_FILTER_PREFIX = "e";
+
+    private MongoUpdateHelper() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns the {@link DocumentUpdate} that turns the existing document into the
+     * incoming document. The _id field is never updated. Arrays listed in
+     * unorderedArrays are compared without regard to element order.
+     *
+     * @param existing
+     * @param incoming
+     * @param unorderedArrays
+     * @return
+     */
+    public static DocumentUpdate generateUpdate(BsonDocument existing, BsonDocument incoming,
+            Set<String> unorderedArrays) {
+
+        DocumentUpdate update = new DocumentUpdate();
+        diffDocument(null, existing, incoming, unorderedArrays, update);
+        return update;
+
+    }
+
+    private static void diffDocument(String prefix, BsonDocument existing, BsonDocument incoming,
+            Set<String> unorderedArrays, DocumentUpdate update) {
+
+        for (Entry<String, BsonValue> entry : incoming.entrySet()) {
+
+            if (null == prefix && ID.equals(entry.getKey())) {
+                continue;
+            }
+
+            diffValue(path(prefix, entry.getKey()), existing.get(entry.getKey()), entry.getValue(), unorderedArrays,
+                    update);
+
+        }
+
+        existing.keySet().stream().filter(key -> !incoming.containsKey(key))
+                .filter(key -> !(null == prefix && ID.equals(key)))
+                .forEach(key -> update.updates.add(Updates.unset(path(prefix, key))));
+
+    }
+
+    private static void diffValue(String path, BsonValue existing, BsonValue incoming, Set<String> unorderedArrays,
+            DocumentUpdate update) {
+
+        if (incoming.equals(existing)) {
+            return;
+        }
+
+        if (null != existing && existing.isDocument() && incoming.isDocument()) {
+            diffDocument(path, existing.asDocument(), incoming.asDocument(), unorderedArrays, update);
+        } else if (null != existing && existing.isArray() && incoming.isArray() && !path.contains(".$[")
+                && isKeyedArray(existing.asArray()) && isKeyedArray(incoming.asArray())) {
+            diffKeyedArray(path, existing.asArray(), incoming.asArray(), unorderedArrays, update);
+        } else {
+            update.updates.add(Updates.set(path, incoming));
+        }
+
+    }
+
+    /**
+     * Updates an array of uuid keyed documents using only one of $push, $pull or
+     * filtered positional $set, as MongoDB rejects more than one operator on the
+     * same array. Any other combination, or a change in order, replaces the whole
+     * array.
+     */
+    private static void diffKeyedArray(String path, BsonArray existing, BsonArray incoming,
+            Set<String> unorderedArrays, DocumentUpdate update) {
+
+        Map<String, BsonDocument> existingByUuid = indexByUuid(existing);
+        Map<String, BsonDocument> incomingByUuid = indexByUuid(incoming);
+
+        List<BsonDocument> added = incomingByUuid.entrySet().stream()
+                .filter(entry -> !existingByUuid.containsKey(entry.getKey())).map(Entry::getValue)
+                .collect(Collectors.toList());
+        List<String> removed = existingByUuid.keySet().stream().filter(uuid -> !incomingByUuid.containsKey(uuid))
+                .collect(Collectors.toList());
+        List<String> retained = incomingByUuid.keySet().stream().filter(existingByUuid::containsKey)
+                .collect(Collectors.toList());
+        List<String> changed = retained.stream()
+                .filter(uuid -> !incomingByUuid.get(uuid).equals(existingByUuid.get(uuid)))
+                .collect(Collectors.toList());
+
+        int operations = (added.isEmpty() ? 0 : 1) + (removed.isEmpty() ? 0 : 1) + (changed.isEmpty() ? 0 : 1);
+
+        if (operations > 1 || !isOrderKept(path, existingByUuid, incomingByUuid, retained, unorderedArrays)) {
+            update.updates.add(Updates.set(path, incoming));
+        } else if (!added.isEmpty()) {
+            update.updates.add(Updates.pushEach(path, added));
+        } else if (!removed.isEmpty()) {
+            update.updates.add(Updates.pull(path, Filters.in(UUID, removed)));
+        } else {
+            changed.forEach(uuid -> {
+                String identifier = ARRAY_FILTER_PREFIX + update.arrayFilters.size();
+                update.arrayFilters.add(Filters.eq(identifier + "." + UUID, uuid));
+                diffDocument(path + ".$[" + identifier + "]", existingByUuid.get(uuid), incomingByUuid.get(uuid),
+                        unorderedArrays, update);
+            });
+        }
+
+    }
+
+    private static boolean isOrderKept(String path, Map<String, BsonDocument> existingByUuid,
+            Map<String, BsonDocument> incomingByUuid, List<String> retained, Set<String> unorderedArrays) {
+
+        if (unorderedArrays.contains(path)) {
+            return true;
+        }
+
+        // retained elements keep their relative order and new elements are appended
+        List<String> existingOrder = existingByUuid.keySet().stream().filter(incomingByUuid::containsKey)
+                .collect(Collectors.toList());
+        List<String> incomingPrefix = new ArrayList<>(incomingByUuid.keySet()).subList(0, retained.size());
+
+        return existingOrder.equals(retained) && incomingPrefix.equals(retained);
+
+    }
+
+    /**
+     * Returns true if every element is a document with a unique string uuid.
+     */
+    private static boolean isKeyedArray(BsonArray array) {
+
+        long uuids = array.stream().filter(BsonValue::isDocument).map(BsonValue::asDocument)
+                .map(document -> document.get(UUID)).filter(uuid -> null != uuid && uuid.isString()).distinct()
+                .count();
+
+        return uuids == array.size();
+
+    }
+
+    private static Map<String, BsonDocument> indexByUuid(BsonArray array) {
+
+        Map<String, BsonDocument> byUuid = new LinkedHashMap<>();
+        array.forEach(value -> byUuid.put(value.asDocument().getString(UUID).getValue(), value.asDocument()));
+        return byUuid;
+
+    }
+
+    private static String path(String prefix, String key) {
+        return null == prefix ? key : prefix + "." + key;
+    }
+
+    @Getter
+    public static class DocumentUpdate {
+
+        private final List<Bson> updates = new ArrayList<>();
+        private final List<Bson> arrayFilters = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return updates.isEmpty();
+        }
+
+        public Bson toBson() {
+            return Updates.combine(Collections.unmodifiableList(updates));
+        }
+
+    }
+
+}
@@ -0,0 +1,261 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+
+/**
+ * Outbox of engagement events waiting to be delivered. An event is claimed by
+ * moving its available time past the end of a lease and setting the lease
+ * owner, so an event whose delivery never completes is claimed again once the
+ * lease expires.
+ */
+@ApplicationScoped
+public class OutboxRepository implements PanacheMongoRepository<OutboxEvent> {
+
+    private static final String ID = "_id";
+    private static final String ADDRESS = "address";
+    private static final String ENGAGEMENT_UUID = "engagementUuid";
+    private static final String LAST_UPDATE = "lastUpdate";
+    private static final String COMMIT_MESSAGE = "engagement.commitMessage";
+    private static final String AVAILABLE_AT = "availableAt";
+    private static final String CREATED_AT = "createdAt";
+    private static final String LEASE_OWNER = "leaseOwner";
+    private static final String ATTEMPTS = "attempts";
+
+    static final List<IndexModel> INDEXES = Arrays.asList(
+            new IndexModel(Indexes.ascending(AVAILABLE_AT),
+                    new IndexOptions().name(EngagementIndexManager.MANAGED_PREFIX + "outbox_available_at")),
+            new IndexModel(Indexes.ascending(CREATED_AT),
+                    new IndexOptions().name(EngagementIndexManager.MANAGED_PREFIX + "outbox_created_at")),
+            new IndexModel(Indexes.ascending(ENGAGEMENT_UUID, ADDRESS),
+                    new IndexOptions().name(EngagementIndexManager.MANAGED_PREFIX + "outbox_engagement")));
+
+    /**
+     * Creates the indexes used to claim events, find the oldest event and find the
+     * events of an engagement.
+     */
+    public void createIndexes() {
+        mongoCollection().createIndexes(INDEXES);
+    }
+
+    /**
+     * Inserts the events so they only become available once the given delay has
+     * passed, unless released before.
+     *
+     * @param events
+     * @param now
+     * @param delayMillis
+     */
+    public void prepare(List<OutboxEvent> events, long now, long delayMillis) {
+
+        events.forEach(e -> {
+            e.setCreatedAt(now);
+            e.setAvailableAt(now + delayMillis);
+        });
+        persist(events);
+
+    }
+
+    /**
+     * Makes the events available for delivery.
+     *
+     * @param events
+     * @param now
+     */
+    public void release(List<OutboxEvent> events, long now) {
+        if (!events.isEmpty()) {
+            mongoCollection().updateMany(in(ID, getIds(events)), set(AVAILABLE_AT, now));
+        }
+    }
+
+    /**
+     * Deletes the events without delivering them.
+     *
+     * @param events
+     */
+    public void discard(List<OutboxEvent> events) {
+        mongoCollection().deleteMany(in(ID, getIds(events)));
+    }
+
+    /**
+     * Claims up to the given number of available events, oldest first, for the
+     * lease owner until the lease expires.
+     *
+     * @param owner
+     * @param now
+     * @param leaseMillis
+     * @param limit
+     * @return
+     */
+    public List<OutboxEvent> claim(String owner, long now, long leaseMillis, int limit) {
+
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().sort(Sorts.ascending(AVAILABLE_AT))
+                .returnDocument(ReturnDocument.AFTER);
+
+        List<OutboxEvent> claimed = new ArrayList<>();
+        while (claimed.size() < limit) {
+
+            OutboxEvent event = mongoCollection().findOneAndUpdate(lte(AVAILABLE_AT, now),
+                    combine(set(AVAILABLE_AT, now + leaseMillis), set(LEASE_OWNER, owner), inc(ATTEMPTS, 1)),
+                    options);
+            if (null == event) {
+                break;
+            }
+            claimed.add(event);
+
+        }
+
+        return claimed;
+
+    }
+
+    /**
+     * Deletes the delivered event if it is still leased by the owner. Returns
+     * false if the lease expired and the event was claimed again.
+     *
+     * @param event
+     * @param owner
+     * @return
+     */
+    public boolean complete(OutboxEvent event, String owner) {
+        return 1 == mongoCollection().deleteOne(and(eq(ID, event.id), eq(LEASE_OWNER, owner))).getDeletedCount();
+    }
+
+    /**
+     * Makes the event available again at the given time if it is still leased by
+     * the owner.
+     *
+     * @param event
+     * @param owner
+     * @param availableAt
+     */
+    public void retryAt(OutboxEvent event, String owner, long availableAt) {
+        mongoCollection().updateOne(and(eq(ID, event.id), eq(LEASE_OWNER, owner)), set(AVAILABLE_AT, availableAt));
+    }
+
+    /**
+     * Deletes the events for the same address and engagement as the given event
+     * that were written with an older last update and have never been claimed.
+     * Returns the deleted events, oldest first.
+     *
+     * @param event
+     * @return
+     */
+    public List<OutboxEvent> supersede(OutboxEvent event) {
+
+        FindOneAndDeleteOptions options = new FindOneAndDeleteOptions().sort(Sorts.ascending(CREATED_AT));
+
+        List<OutboxEvent> superseded = new ArrayList<>();
+        while (true) {
+
+            OutboxEvent older = mongoCollection().findOneAndDelete(and(eq(ADDRESS, event.getAddress()),
+                    eq(ENGAGEMENT_UUID, event.getEngagementUuid()), ne(ID, event.id),
+                    lt(LAST_UPDATE, event.getLastUpdate()), eq(LEASE_OWNER, null)), options);
+            if (null == older) {
+                break;
+            }
+            superseded.add(older);
+
+        }
+
+        return superseded;
+
+    }
+
+    /**
+     * Sets the creation and available times of the event and, if given, the
+     * commit message of its engagement.
+     *
+     * @param event
+     * @param createdAt
+     * @param availableAt
+     * @param commitMessage
+     */
+    public void coalesce(OutboxEvent event, long createdAt, long availableAt, String commitMessage) {
+
+        List<Bson> updates = new ArrayList<>();
+        updates.add(set(CREATED_AT, createdAt));
+        updates.add(set(AVAILABLE_AT, availableAt));
+        if (null != commitMessage) {
+            updates.add(set(COMMIT_MESSAGE, commitMessage));
+        }
+
+        mongoCollection().updateOne(eq(ID, event.id), combine(updates));
+
+    }
+
+    /**
+     * Returns the next event for the same address and engagement as the given
+     * event that was written with a newer last update, if any.
+     *
+     * @param event
+     * @return
+     */
+    public Optional<OutboxEvent> findNext(OutboxEvent event) {
+        return Optional.ofNullable(mongoCollection().find(and(eq(ADDRESS, event.getAddress()),
+                eq(ENGAGEMENT_UUID, event.getEngagementUuid()), gt(LAST_UPDATE, event.getLastUpdate())))
+                .sort(Sorts.ascending(LAST_UPDATE)).first());
+    }
+
+    /**
+     * Sets the commit message of the engagement of the event if it is still the
+     * expected message. Returns false if it was changed meanwhile.
+     *
+     * @param event
+     * @param expected
+     * @param commitMessage
+     * @return
+     */
+    public boolean replaceCommitMessage(OutboxEvent event, String expected, String commitMessage) {
+        return 1 == mongoCollection()
+                .updateOne(and(eq(ID, event.id), eq(COMMIT_MESSAGE, expected)), set(COMMIT_MESSAGE, commitMessage))
+                .getModifiedCount();
+    }
+
+    /**
+     * Returns the creation time of the oldest event, if any.
+     *
+     * @return
+     */
+    public Optional<Long> findOldestCreatedAt() {
+        return Optional.ofNullable(mongoCollection().find().projection(include(CREATED_AT))
+                .sort(Sorts.ascending(CREATED_AT)).first())
+                .map(OutboxEvent::getCreatedAt);
+    }
+
+    private static List<ObjectId> getIds(List<OutboxEvent> events) {
+        return events.stream().map(e -> e.id).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.redhat.labs.lodestar.resource;
+
+import java.util.List;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.metrics.annotation.Timed;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import com.redhat.labs.lodestar.model.DocumentSizeReport;
+import com.redhat.labs.lodestar.model.MongoIndexUsage;
+import com.redhat.labs.lodestar.model.ReadModelCheck;
+import com.redhat.labs.lodestar.model.ReadModelStatus;
+import com.redhat.labs.lodestar.model.event.DeadLetterEvent;
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
+import com.redhat.labs.lodestar.repository.EngagementReadModel;
+import com.redhat.labs.lodestar.repository.EngagementSizeMonitor;
+import com.redhat.labs.lodestar.service.DeadLetterService;
+
+@RequestScoped
+@Path("/admin")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Admin", description = "Operational data for the LodeStar Backend")
+public class AdminResource {
+
+    @Inject
+    EngagementIndexManager indexManager;
+
+    @Inject
+    EngagementReadModel readModel;
+
+    @Inject
+    EngagementSizeMonitor sizeMonitor;
+
+    @Inject
+    DeadLetterService deadLetterService;
+
+    @ConfigProperty(name = "document.size.top", defaultValue = "20")
+    int defaultLimit;
+
+    @GET
+    @Path("/indexes")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Index usage statistics returned.") })
+    @Operation(summary = "Returns the usage statistics for each index on the engagement collection.")
+    @Counted(name = "admin-get-indexes-counted")
+    @Timed(name = "admin-get-indexes-timer", unit = MetricUnits.MILLISECONDS)
+    public List<MongoIndexUsage> getIndexUsage() {
+        return indexManager.getIndexUsage();
+    }
+
+    @GET
+    @Path("/read-model")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Read model status returned.") })
+    @Operation(summary = "Returns the size and lag of the in memory engagement read model.")
+    @Counted(name = "admin-get-read-model-counted")
+    @Timed(name = "admin-get-read-model-timer", unit = MetricUnits.MILLISECONDS)
+    public ReadModelStatus getReadModelStatus() {
+        return readModel.getStatus();
+    }
+
+    @GET
+    @Path("/read-model/check")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Read model consistency check returned.") })
+    @Operation(summary = "Compares the in memory engagement read model with the engagement collection.")
+    @Counted(name = "admin-check-read-model-counted")
+    @Timed(name = "admin-check-read-model-timer", unit = MetricUnits.MILLISECONDS)
+    public ReadModelCheck checkReadModel() {
+        return readModel.check();
+    }
+
+    @GET
+    @Path("/document-sizes")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Document size report returned.") })
+    @Operation(summary = "Returns the largest engagements and engagement fields found by the last size scan.")
+    @Counted(name = "admin-get-document-sizes-counted")
+    @Timed(name = "admin-get-document-sizes-timer", unit = MetricUnits.MILLISECONDS)
+    public DocumentSizeReport getDocumentSizes(@Parameter(name = "limit", required = false,
+            description = "number of engagements and fields to return") @QueryParam("limit") Integer limit) {
+        return sizeMonitor.getReport(null == limit ? defaultLimit : limit);
+    }
+
+    @GET
+    @Path("/dead-letters")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Dead events returned.") })
+    @Operation(summary = "Returns the engagement events that could not be delivered, most recent first.")
+    @Counted(name = "admin-get-dead-letters-counted")
+    @Timed(name = "admin-get-dead-letters-timer", unit = MetricUnits.MILLISECONDS)
+    public List<DeadLetterEvent> getDeadLetters(@Parameter(name = "limit", required = false,
+            description = "number of events to return") @QueryParam("limit") @DefaultValue("100") int limit) {
+        return deadLetterService.findRecent(limit);
+    }
+
+    @POST
+    @Path("/dead-letters/replay")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Dead events sent again, number of events returned.") })
+    @Operation(summary = "Sends every dead engagement event again and removes it from the dead letters.")
+    @Counted(name = "admin-replay-dead-letters-counted")
+    @Timed(name = "admin-replay-dead-letters-timer", unit = MetricUnits.MILLISECONDS)
+    public long replayDeadLetters() {
+        return deadLetterService.replayAll();
+    }
+
+    @POST
+    @Path("/dead-letters/{id}/replay")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "404", description = "Dead event not found"),
+            @APIResponse(responseCode = "202", description = "Dead event sent again.") })
+    @Operation(summary = "Sends the dead engagement event again and removes it from the dead letters.")
+    @Counted(name = "admin-replay-dead-letter-counted")
+    @Timed(name = "admin-replay-dead-letter-timer", unit = MetricUnits.MILLISECONDS)
+    public Response replayDeadLetter(@PathParam("id") String id) {
+
+        deadLetterService.replay(id);
+        return Response.accepted().build();
+
+    }
+
+    @DELETE
+    @Path("/dead-letters")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "200", description = "Dead events removed, number of events returned.") })
+    @Operation(summary = "Removes every dead engagement event without sending it.")
+    @Counted(name = "admin-purge-dead-letters-counted")
+    @Timed(name = "admin-purge-dead-letters-timer", unit = MetricUnits.MILLISECONDS)
+    public long purgeDeadLetters() {
+        return deadLetterService.purgeAll();
+    }
+
+    @DELETE
+    @Path("/dead-letters/{id}")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "404", description = "Dead event not found"),
+            @APIResponse(responseCode = "204", description = "Dead event removed.") })
+    @Operation(summary = "Removes the dead engagement event without sending it.")
+    @Counted(name = "admin-purge-dead-letter-counted")
+    @Timed(name = "admin-purge-dead-letter-timer", unit = MetricUnits.MILLISECONDS)
+    public Response purgeDeadLetter(@PathParam("id") String id) {
+
+        deadLetterService.purge(id);
+        return Response.noContent().build();
+
+    }
+
+}
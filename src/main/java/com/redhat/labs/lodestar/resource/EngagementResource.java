@@ -1,24 +1,32 @@
 package com.redhat.labs.lodestar.resource;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.NotBlank;
 import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PATCH;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -44,8 +52,11 @@ import com.redhat.labs.lodestar.model.Engagement.EngagementState;
 import com.redhat.labs.lodestar.model.EngagementUserSummary;
 import com.redhat.labs.lodestar.model.filter.FilterOptions;
 import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.ListView;
+import com.redhat.labs.lodestar.model.pagination.PagedCommitResults;
 import com.redhat.labs.lodestar.model.pagination.PagedEngagementResults;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
 import com.redhat.labs.lodestar.service.EngagementService;
 import com.redhat.labs.lodestar.util.DateFormatter;
 
@@ -67,6 +78,7 @@ public class EngagementResource {
 
     public static final String ACCESS_CONTROL_EXPOSE_HEADER = "Access-Control-Expose-Headers";
     public static final String LAST_UPDATE_HEADER = "last-update";
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
 
     @Inject
     JsonWebToken jwt;
@@ -74,6 +86,9 @@ public class EngagementResource {
     @Inject
     EngagementService engagementService;
 
+    @Inject
+    Validator validator;
+
     /*
      * GET LIST
      */
@@ -97,7 +112,14 @@ public class EngagementResource {
         // create one page with many results for v1
         setDefaultPagingFilterOptions(filterOptions);
 
+        // v2 lists return the card fields unless asked otherwise
+        filterOptions.applyView(isV1(filterOptions) ? ListView.FULL : ListView.CARD);
+
         PagedEngagementResults page = engagementService.getEngagementsPaged(filterOptions);
+        if (isV1(filterOptions.getApiVersion())) {
+            engagementService.setInlineCommits(page.getResults(), filterOptions);
+        }
+
         ResponseBuilder builder = Response.ok(page.getResults()).links(page.getLinks(uriInfo.getAbsolutePathBuilder()));
         page.getHeaders().entrySet().stream().forEach(e -> builder.header(e.getKey(), e.getValue()));
         return builder.build();
@@ -142,6 +164,33 @@ public class EngagementResource {
 
     }
 
+    @GET
+    @Path("/suggest/{field}")
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "400", description = "Field does not support suggestions."),
+            @APIResponse(responseCode = "200", description = "Suggestions have been returned.") })
+    @Operation(summary = "Returns the distinct values of customer_name, project_name, location, engagement_lead_name or technical_lead_name")
+    @Counted(name = "engagement-suggest-field-counted")
+    @Timed(name = "engagement-suggest-field-timer", unit = MetricUnits.MILLISECONDS)
+    public Response findSuggestions(@Context UriInfo uriInfo, @PathParam("field") String field,
+            @Parameter(name = "suggest", required = false, description = "case insensitive text the values start with or contain") @QueryParam("suggest") Optional<String> suggest,
+            @BeanParam ListFilterOptions filterOptions) {
+
+        SuggestionField suggestionField = SuggestionField.fromQueryName(field).orElseThrow(
+                () -> new WebApplicationException("no suggestions for field " + field, HttpStatus.SC_BAD_REQUEST));
+
+        if (suggest.isPresent()) {
+            filterOptions.addLikeSearchCriteria(suggestionField.getQueryName(), suggest.get());
+        }
+
+        PagedStringResults page = engagementService.getSuggestions(suggestionField, filterOptions);
+        ResponseBuilder builder = Response.ok(page.getResults()).links(page.getLinks(uriInfo.getAbsolutePathBuilder()));
+        page.getHeaders().entrySet().stream().forEach(e -> builder.header(e.getKey(), e.getValue()));
+        return builder.build();
+
+    }
+
     /*
      * GET SINGLE
      */
@@ -156,9 +205,14 @@ public class EngagementResource {
     @Counted(name = "engagement-get-counted")
     @Timed(name = "enagement-get-timer", unit = MetricUnits.MILLISECONDS)
     public Response get(@PathParam("customerName") String customerName, @PathParam("projectName") String projectName,
+            @Parameter(name = "Accept-version", required = false, description = "Valid Values are 'v1' or 'v2'. v1 sets the commits on the engagement.") @HeaderParam(value = "Accept-version") String apiVersion,
             @BeanParam FilterOptions filterOptions) {
 
         Engagement engagement = engagementService.getByCustomerAndProjectName(customerName, projectName, filterOptions);
+        if (isV1(apiVersion)) {
+            engagementService.setInlineCommits(List.of(engagement), filterOptions);
+        }
+
         return Response.ok(engagement).header(LAST_UPDATE_HEADER, engagement.getLastUpdate())
                 .header(ACCESS_CONTROL_EXPOSE_HEADER, LAST_UPDATE_HEADER).build();
 
@@ -173,14 +227,39 @@ public class EngagementResource {
     @Operation(summary = "Returns the engagement resource for the given id.")
     @Counted(name = "engagement-get-by-uuid-counted")
     @Timed(name = "engagement-get-by-uuid-timer", unit = MetricUnits.MILLISECONDS)
-    public Response get(@PathParam("id") String uuid, @BeanParam FilterOptions filterOptions) {
+    public Response get(@PathParam("id") String uuid,
+            @Parameter(name = "Accept-version", required = false, description = "Valid Values are 'v1' or 'v2'. v1 sets the commits on the engagement.") @HeaderParam(value = "Accept-version") String apiVersion,
+            @BeanParam FilterOptions filterOptions) {
 
         Engagement engagement = engagementService.getByUuid(uuid, filterOptions);
+        if (isV1(apiVersion)) {
+            engagementService.setInlineCommits(List.of(engagement), filterOptions);
+        }
+
         return Response.ok(engagement).header(LAST_UPDATE_HEADER, engagement.getLastUpdate())
                 .header(ACCESS_CONTROL_EXPOSE_HEADER, LAST_UPDATE_HEADER).build();
 
     }
 
+    @GET
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @Path("/{id}/commits")
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "404", description = "Engagement resource with id does not exist"),
+            @APIResponse(responseCode = "200", description = "Commits have been returned.") })
+    @Operation(summary = "Returns a page of the commits of the engagement resource for the given id, most recent first.")
+    @Counted(name = "engagement-get-commits-counted")
+    @Timed(name = "engagement-get-commits-timer", unit = MetricUnits.MILLISECONDS)
+    public Response getCommits(@Context UriInfo uriInfo, @PathParam("id") String uuid,
+            @BeanParam ListFilterOptions filterOptions) {
+
+        PagedCommitResults page = engagementService.getCommits(uuid, filterOptions);
+        ResponseBuilder builder = Response.ok(page.getResults()).links(page.getLinks(uriInfo.getAbsolutePathBuilder()));
+        page.getHeaders().entrySet().stream().forEach(e -> builder.header(e.getKey(), e.getValue()));
+        return builder.build();
+
+    }
+
     /*
      * GET - Queries
      */
@@ -200,6 +279,7 @@ public class EngagementResource {
 
         // set defaults for paging if not already set
         setDefaultPagingFilterOptions(filterOptions);
+        filterOptions.applyView(isV1(filterOptions) ? ListView.FULL : ListView.CARD);
 
         // set state parameter
         filterOptions.addEqualsSearchCriteria("state", state);
@@ -211,6 +291,10 @@ public class EngagementResource {
         filterOptions.addEqualsSearchCriteria("end", end);
 
         PagedEngagementResults page = engagementService.getEngagementsPaged(filterOptions);
+        if (isV1(filterOptions.getApiVersion())) {
+            engagementService.setInlineCommits(page.getResults(), filterOptions);
+        }
+
         ResponseBuilder builder = Response.ok(page.getResults()).links(page.getLinks(uriInfo.getAbsolutePathBuilder()));
         page.getHeaders().entrySet().stream().forEach(e -> builder.header(e.getKey(), e.getValue()));
         return builder.build();
@@ -356,6 +440,41 @@ public class EngagementResource {
 
     }
 
+    /*
+     * PATCH
+     */
+
+    @PATCH
+    @SecurityRequirement(name = "jwt", scopes = {})
+    @Path("/{id}")
+    @Consumes({ MERGE_PATCH_JSON, MediaType.APPLICATION_JSON })
+    @APIResponses(value = { @APIResponse(responseCode = "401", description = "Missing or Invalid JWT"),
+            @APIResponse(responseCode = "400", description = "Invalid merge patch or resulting engagement"),
+            @APIResponse(responseCode = "404", description = "Engagement resource not found to update"),
+            @APIResponse(responseCode = "409", description = "Engagement was modified since the last update supplied"),
+            @APIResponse(responseCode = "200", description = "Engagement updated in the database") })
+    @Operation(summary = "Applies a JSON Merge Patch (RFC 7386) to the engagement resource in the database.")
+    @Counted(name = "engagement-patch-by-uuid-counted")
+    @Timed(name = "engagement-patch-by-uuid-timer", unit = MetricUnits.MILLISECONDS)
+    public Engagement patch(@PathParam("id") String uuid, String mergePatch) {
+
+        Engagement engagement = engagementService.applyMergePatch(uuid, mergePatch);
+
+        Set<ConstraintViolation<Engagement>> violations = validator.validate(engagement);
+        if (!violations.isEmpty()) {
+            String message = violations.stream().map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .collect(Collectors.joining(", "));
+            throw new WebApplicationException(message, HttpStatus.SC_BAD_REQUEST);
+        }
+
+        // pull user info from token
+        engagement.setLastUpdateByName(getUsernameFromToken());
+        engagement.setLastUpdateByEmail(getUserEmailFromToken());
+
+        return engagementService.update(engagement);
+
+    }
+
     @PUT
     @Path("/launch")
     @SecurityRequirement(name = "jwt", scopes = {})
@@ -490,14 +609,17 @@ public class EngagementResource {
 
     private void setDefaultPagingFilterOptions(ListFilterOptions options) {
 
-        boolean isV1 = false;
-        if (null == options.getApiVersion() || ACCEPT_VERSION_1.equals(options.getApiVersion())) {
-            isV1 = true;
-        }
-
         options.setPage(getPage(options.getPage()));
-        options.setPerPage(getPerPage(options.getPerPage(), isV1));
+        options.setPerPage(getPerPage(options.getPerPage(), isV1(options)));
+
+    }
+
+    private boolean isV1(ListFilterOptions options) {
+        return isV1(options.getApiVersion());
+    }
 
+    private boolean isV1(String apiVersion) {
+        return null == apiVersion || ACCEPT_VERSION_1.equals(apiVersion);
     }
 
     private Integer getPage(Optional<Integer> page) {
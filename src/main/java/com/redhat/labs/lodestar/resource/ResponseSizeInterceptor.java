@@ -0,0 +1,87 @@
+package com.redhat.labs.lodestar.resource;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Records the number of bytes written for each response body in a histogram
+ * tagged with the resource method that produced it.
+ */
+@Provider
+public class ResponseSizeInterceptor implements WriterInterceptor {
+
+    static final String PAYLOAD_BYTES = "response-payload-bytes";
+    static final String UNKNOWN = "unknown";
+
+    private static final Metadata PAYLOAD_BYTES_METADATA = Metadata.builder().withName(PAYLOAD_BYTES)
+            .withType(MetricType.HISTOGRAM).withUnit(MetricUnits.BYTES).build();
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+
+        CountingOutputStream counter = new CountingOutputStream(context.getOutputStream());
+        context.setOutputStream(counter);
+
+        try {
+            context.proceed();
+        } finally {
+            metricRegistry.histogram(PAYLOAD_BYTES_METADATA, new Tag("endpoint", getEndpoint()))
+                    .update(counter.count);
+        }
+
+    }
+
+    String getEndpoint() {
+
+        if (null == resourceInfo || null == resourceInfo.getResourceClass()
+                || null == resourceInfo.getResourceMethod()) {
+            return UNKNOWN;
+        }
+
+        return resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName();
+
+    }
+
+    static class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
@@ -20,9 +20,11 @@ import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import com.redhat.labs.lodestar.exception.mapper.LodeStarGitLabAPIServiceResponseMapper;
 import com.redhat.labs.lodestar.model.Artifact;
 import com.redhat.labs.lodestar.model.filter.ArtifactOptions;
+import com.redhat.labs.lodestar.rest.client.limit.AdaptiveLimit;
 
 @ApplicationScoped
 @RegisterRestClient(configKey = "lodestar.artifacts.api")
+@AdaptiveLimit("artifacts-api")
 @RegisterProvider(value = LodeStarGitLabAPIServiceResponseMapper.class, priority = 50)
 @Produces("application/json")
 @Consumes("application/json")
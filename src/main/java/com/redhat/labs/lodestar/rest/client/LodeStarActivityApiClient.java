@@ -18,9 +18,11 @@ import org.jboss.resteasy.annotations.jaxrs.PathParam;
 
 import com.redhat.labs.lodestar.exception.mapper.LodeStarGitLabAPIServiceResponseMapper;
 import com.redhat.labs.lodestar.model.Hook;
+import com.redhat.labs.lodestar.rest.client.limit.AdaptiveLimit;
 
 @ApplicationScoped
 @RegisterRestClient(configKey = "lodestar.activity.api")
+@AdaptiveLimit("activity-api")
 @RegisterProvider(value = LodeStarGitLabAPIServiceResponseMapper.class, priority = 50)
 @Produces("application/json")
 @Consumes("application/json")
@@ -11,9 +11,11 @@ import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
 import com.redhat.labs.lodestar.exception.mapper.LodeStarGitLabAPIServiceResponseMapper;
+import com.redhat.labs.lodestar.rest.client.limit.AdaptiveLimit;
 
 @ApplicationScoped
 @RegisterRestClient(configKey = "lodestar.config.api")
+@AdaptiveLimit("config-api")
 @RegisterProvider(value = LodeStarGitLabAPIServiceResponseMapper.class, priority = 50)
 public interface LodeStarConfigApiClient {
 
@@ -21,9 +21,11 @@ import com.redhat.labs.lodestar.model.Commit;
 import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.Status;
 import com.redhat.labs.lodestar.model.status.ApplicationVersion;
+import com.redhat.labs.lodestar.rest.client.limit.AdaptiveLimit;
 
 @ApplicationScoped
 @RegisterRestClient(configKey = "lodestar.git.api")
+@AdaptiveLimit("git-api")
 @RegisterProvider(value = LodeStarGitLabAPIServiceResponseMapper.class, priority = 50)
 public interface LodeStarGitApiClient {
 
@@ -9,9 +9,11 @@ import javax.ws.rs.core.Response;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
 import com.redhat.labs.lodestar.model.status.VersionManifest;
+import com.redhat.labs.lodestar.rest.client.limit.AdaptiveLimit;
 
 @ApplicationScoped
 @RegisterRestClient(configKey = "lodestar.status.api")
+@AdaptiveLimit("status-api")
 public interface LodeStarStatusApiClient {
 
     @GET
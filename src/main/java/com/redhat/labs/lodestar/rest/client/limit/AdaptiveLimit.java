@@ -0,0 +1,30 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * Limits the number of concurrent calls to the downstream API with the given
+ * name using its {@link AdaptiveLimiter}.
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface AdaptiveLimit {
+
+    /**
+     * Name of the downstream API, used in its configuration and metrics.
+     * 
+     * @return
+     */
+    @Nonbinding
+    String value() default "";
+
+}
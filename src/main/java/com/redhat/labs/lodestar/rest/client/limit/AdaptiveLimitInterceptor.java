@@ -0,0 +1,98 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs each call to a downstream API annotated with {@link AdaptiveLimit}
+ * within the limit of the API. A call that cannot get a place is refused with
+ * a 503, which callers already handle like an unavailable API.
+ */
+@AdaptiveLimit
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class AdaptiveLimitInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveLimitInterceptor.class);
+
+    @Inject
+    AdaptiveLimiterRegistry registry;
+
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    @AroundInvoke
+    Object limit(InvocationContext context) throws Exception {
+
+        String name = names.computeIfAbsent(context.getMethod(), AdaptiveLimitInterceptor::getName);
+        AdaptiveLimiter limiter = registry.get(name);
+        if (null == limiter) {
+            return context.proceed();
+        }
+
+        if (!limiter.acquire()) {
+            registry.rejected(name);
+            LOGGER.warn("rejected call to {}, {} calls in progress", name, limiter.getInFlight());
+            throw new WebApplicationException("too many concurrent calls to " + name,
+                    HttpStatus.SC_SERVICE_UNAVAILABLE);
+        }
+
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return context.proceed();
+        } catch (WebApplicationException e) {
+            overloaded = isOverloaded(e.getResponse().getStatus());
+            throw e;
+        } catch (ProcessingException e) {
+            // connection refused or timed out
+            overloaded = true;
+            throw e;
+        } finally {
+            limiter.release(System.nanoTime() - start, overloaded);
+        }
+
+    }
+
+    private static boolean isOverloaded(int status) {
+        return Status.TOO_MANY_REQUESTS.getStatusCode() == status
+                || Status.SERVICE_UNAVAILABLE.getStatusCode() == status
+                || Status.GATEWAY_TIMEOUT.getStatusCode() == status;
+    }
+
+    /**
+     * Returns the name of the API from the {@link AdaptiveLimit} on the method, its
+     * class or an interface of its class, otherwise the name of the class.
+     * 
+     * @param method
+     * @return
+     */
+    static String getName(Method method) {
+
+        AdaptiveLimit limit = method.getAnnotation(AdaptiveLimit.class);
+        Class<?> type = method.getDeclaringClass();
+        if (null == limit) {
+            limit = type.getAnnotation(AdaptiveLimit.class);
+        }
+        for (int i = 0; null == limit && i < type.getInterfaces().length; i++) {
+            limit = type.getInterfaces()[i].getAnnotation(AdaptiveLimit.class);
+        }
+
+        return null == limit || limit.value().isEmpty() ? type.getSimpleName() : limit.value();
+
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one downstream API that adapts to how the API responds,
+ * using additive increase and multiplicative decrease. Each call that completes
+ * within the latency threshold while the limit is at least half used raises the
+ * limit by one. Each call that is slower, times out or is refused by an
+ * overloaded API multiplies the limit by the backoff ratio. Calls over the limit
+ * wait up to the queue timeout for another call to complete and are rejected
+ * after it.
+ */
+public class AdaptiveLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final long queueTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+            long latencyThresholdMillis, long queueTimeoutMillis) {
+
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+
+    }
+
+    /**
+     * Takes a place for a call, waiting up to the queue timeout if the limit is
+     * reached. Returns false if no place became free.
+     * 
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean acquire() throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+
+            long remaining = queueTimeoutNanos;
+            while (inFlight >= getLimit()) {
+                if (remaining <= 0) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+
+            inFlight++;
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    /**
+     * Gives back the place of a completed call and adjusts the limit from its
+     * latency and whether the API was overloaded.
+     * 
+     * @param latencyNanos
+     * @param overloaded
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+
+        lock.lock();
+        try {
+
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+
+            inFlight--;
+            released.signalAll();
+
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the current number of calls allowed at once.
+     * 
+     * @return
+     */
+    public int getLimit() {
+
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    /**
+     * Returns the number of calls in progress.
+     * 
+     * @return
+     */
+    public int getInFlight() {
+
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+
+    }
+
+    /**
+     * Returns the number of calls rejected since start.
+     * 
+     * @return
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+}
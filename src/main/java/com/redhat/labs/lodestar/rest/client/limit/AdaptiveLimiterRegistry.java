@@ -0,0 +1,109 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Creates the {@link AdaptiveLimiter} of each downstream API the first time it
+ * is called. Each setting can be given for one API as
+ * rest.client.limit.&lt;name&gt;.&lt;setting&gt;, otherwise the setting for all
+ * APIs is used.
+ */
+@ApplicationScoped
+public class AdaptiveLimiterRegistry {
+
+    static final String LIMIT = "rest-client-limit";
+    static final String IN_FLIGHT = "rest-client-in-flight";
+    static final String REJECTED = "rest-client-rejected";
+
+    private static final String PREFIX = "rest.client.limit.";
+    private static final String CLIENT = "client";
+
+    @ConfigProperty(name = "rest.client.limit.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "rest.client.limit.initial", defaultValue = "20")
+    int initialLimit;
+
+    @ConfigProperty(name = "rest.client.limit.min", defaultValue = "2")
+    int minLimit;
+
+    @ConfigProperty(name = "rest.client.limit.max", defaultValue = "200")
+    int maxLimit;
+
+    @ConfigProperty(name = "rest.client.limit.backoff.ratio", defaultValue = "0.9")
+    double backoffRatio;
+
+    @ConfigProperty(name = "rest.client.limit.latency.threshold.millis", defaultValue = "5000")
+    long latencyThresholdMillis;
+
+    @ConfigProperty(name = "rest.client.limit.queue.timeout.millis", defaultValue = "1000")
+    long queueTimeoutMillis;
+
+    @Inject
+    Config config;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@link AdaptiveLimiter} of the downstream API, or null if
+     * limits are disabled.
+     * 
+     * @param name
+     * @return
+     */
+    public AdaptiveLimiter get(String name) {
+        return enabled ? limiters.computeIfAbsent(name, this::create) : null;
+    }
+
+    /**
+     * Counts a call rejected by the limiter of the downstream API.
+     * 
+     * @param name
+     */
+    public void rejected(String name) {
+        metricRegistry.counter(REJECTED, new Tag(CLIENT, name)).inc();
+    }
+
+    private AdaptiveLimiter create(String name) {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter(name, setting(name, "initial", initialLimit),
+                setting(name, "min", minLimit), setting(name, "max", maxLimit),
+                setting(name, "backoff.ratio", backoffRatio),
+                setting(name, "latency.threshold.millis", latencyThresholdMillis),
+                setting(name, "queue.timeout.millis", queueTimeoutMillis));
+
+        Tag tag = new Tag(CLIENT, name);
+        metricRegistry.register(gauge(LIMIT), (Gauge<Integer>) limiter::getLimit, tag);
+        metricRegistry.register(gauge(IN_FLIGHT), (Gauge<Integer>) limiter::getInFlight, tag);
+
+        return limiter;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T setting(String name, String setting, T defaultValue) {
+        return config.getOptionalValue(PREFIX + name + "." + setting, (Class<T>) defaultValue.getClass())
+                .orElse(defaultValue);
+    }
+
+    private static Metadata gauge(String name) {
+        return Metadata.builder().withName(name).withType(MetricType.GAUGE).withUnit(MetricUnits.NONE).build();
+    }
+
+}
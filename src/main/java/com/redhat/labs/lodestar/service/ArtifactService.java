@@ -1,6 +1,7 @@
 package com.redhat.labs.lodestar.service;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -32,6 +33,9 @@ public class ArtifactService {
     
     @Inject
     EngagementService engagementService;
+
+    @Inject
+    EngagementEventExecutor eventExecutor;
     
     public Response getArtifacts(ListFilterOptions filterOptions, String engagementUuid, String type, boolean dashboardView) {
         int page = filterOptions.getPage().isEmpty() ? 0 : filterOptions.getPage().get() - 1;
@@ -65,7 +69,24 @@ public class ArtifactService {
         
     }
     
-    @ConsumeEvent(value = EventType.UPDATE_ARTIFACTS_EVENT_ADDRESS, blocking = true)
+    /**
+     * Sends the artifacts update for the engagement in the message after the
+     * handlers already submitted for the engagement.
+     * 
+     * @param message
+     */
+    @ConsumeEvent(EventType.UPDATE_ARTIFACTS_EVENT_ADDRESS)
+    void consumeUpdateArtifactsEvent(String message) {
+
+        String uuid = message.split(",")[0];
+        try {
+            eventExecutor.execute(uuid, () -> sendUpdate(message));
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("Failed to update artifacts for engagement {}, event queue full", uuid);
+        }
+
+    }
+
     public void sendUpdate(String message) {
 
         String[] uuidNameEmail = message.split(",");
@@ -0,0 +1,159 @@
+package com.redhat.labs.lodestar.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.http.HttpStatus;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.event.DeadLetterEvent;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.repository.DeadLetterRepository;
+
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Keeps the engagement events that could not be delivered, so they can be
+ * listed, replayed or purged once the cause of the failure is fixed.
+ */
+@ApplicationScoped
+public class DeadLetterService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadLetterService.class);
+
+    static final String DEAD_LETTERED = "event-dead-lettered";
+    static final String DEAD_LETTER_COUNT = "event-dead-letter-count";
+
+    @Inject
+    DeadLetterRepository repository;
+
+    @Inject
+    OutboxService outbox;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    void onStart(@Observes StartupEvent event) {
+
+        try {
+            repository.createIndexes();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to create dead letter indexes. {}", e.getMessage());
+        }
+
+        metricRegistry.register(Metadata.builder().withName(DEAD_LETTER_COUNT).withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE).build(), (Gauge<Long>) repository::count);
+
+    }
+
+    /**
+     * Stores the event that failed after the given number of attempts.
+     * 
+     * @param event
+     * @param attempts
+     * @param error
+     */
+    public void record(OutboxEvent event, int attempts, String error) {
+
+        LOGGER.error("giving up on {} event for engagement {} after {} attempts. {}", event.getAddress(),
+                event.getEngagementUuid(), attempts, error);
+        metricRegistry.counter(DEAD_LETTERED).inc();
+
+        DeadLetterEvent dead = DeadLetterEvent.builder().id(new ObjectId().toHexString())
+                .address(event.getAddress()).engagementUuid(event.getEngagementUuid())
+                .lastUpdate(event.getLastUpdate()).engagement(event.getEngagement()).message(event.getMessage())
+                .attempts(attempts).error(error).deadAt(Instant.now().toString()).build();
+
+        try {
+            repository.persist(dead);
+        } catch (MongoException e) {
+            LOGGER.error("unable to store dead {} event for engagement {}. {}", event.getAddress(),
+                    event.getEngagementUuid(), e.getMessage());
+        }
+
+    }
+
+    /**
+     * Returns up to the given number of dead events, most recent first.
+     * 
+     * @param limit
+     * @return
+     */
+    public List<DeadLetterEvent> findRecent(int limit) {
+        return repository.findRecent(Math.max(1, limit));
+    }
+
+    /**
+     * Sends the dead event with the given id again and removes it. An update is
+     * only delivered if the engagement has not been updated since.
+     * 
+     * @param id
+     */
+    public void replay(String id) {
+        replay(findById(id));
+    }
+
+    /**
+     * Sends every dead event again and removes them. Returns the number of events
+     * replayed.
+     * 
+     * @return
+     */
+    public long replayAll() {
+
+        long replayed = 0;
+        for (DeadLetterEvent dead : repository.listAll()) {
+            replay(dead);
+            replayed++;
+        }
+
+        return replayed;
+
+    }
+
+    /**
+     * Removes the dead event with the given id without sending it.
+     * 
+     * @param id
+     */
+    public void purge(String id) {
+        repository.delete(findById(id));
+    }
+
+    /**
+     * Removes every dead event without sending them. Returns the number of events
+     * removed.
+     * 
+     * @return
+     */
+    public long purgeAll() {
+        return repository.deleteAll();
+    }
+
+    private void replay(DeadLetterEvent dead) {
+
+        LOGGER.info("replaying {} event for engagement {}", dead.getAddress(), dead.getEngagementUuid());
+        outbox.send(List.of(dead.toOutboxEvent()));
+        repository.delete(dead);
+
+    }
+
+    private DeadLetterEvent findById(String id) {
+        return repository.findByIdOptional(id).orElseThrow(
+                () -> new WebApplicationException("no dead letter event found with id " + id, HttpStatus.SC_NOT_FOUND));
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.redhat.labs.lodestar.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs engagement event handlers on a fixed number of stripes, each a single
+ * thread with a bounded queue. Handlers for the same engagement uuid always run
+ * on the same stripe, in the order they were submitted, so the APIs receive
+ * changes to an engagement in the order they were made. Handlers for other
+ * engagements run in parallel on the other stripes. A handler is rejected when
+ * its stripe's queue is full.
+ */
+@ApplicationScoped
+public class EngagementEventExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngagementEventExecutor.class);
+
+    static final String QUEUE_DEPTH = "engagement-executor-queue-depth";
+    static final String WAIT = "engagement-executor-wait";
+    static final String REJECTED = "engagement-executor-rejected";
+
+    private static final String STRIPE = "stripe";
+
+    @ConfigProperty(name = "event.executor.stripes", defaultValue = "8")
+    int stripeCount;
+
+    @ConfigProperty(name = "event.executor.queue.size", defaultValue = "1000")
+    int queueSize;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private ThreadPoolExecutor[] stripes;
+    private Histogram[] waits;
+
+    @PostConstruct
+    void createStripes() {
+
+        stripes = new ThreadPoolExecutor[stripeCount];
+        waits = new Histogram[stripeCount];
+
+        Metadata waitMetadata = Metadata.builder().withName(WAIT).withType(MetricType.HISTOGRAM)
+                .withUnit(MetricUnits.MILLISECONDS).build();
+        Metadata depthMetadata = Metadata.builder().withName(QUEUE_DEPTH).withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE).build();
+
+        for (int i = 0; i < stripeCount; i++) {
+
+            String name = "engagement-events-" + i;
+            ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+            Tag tag = new Tag(STRIPE, String.valueOf(i));
+            stripes[i] = stripe;
+            waits[i] = metricRegistry.histogram(waitMetadata, tag);
+            metricRegistry.register(depthMetadata, (Gauge<Integer>) () -> stripe.getQueue().size(), tag);
+
+        }
+
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the handler after every handler already submitted for the same
+     * engagement. Errors thrown by the handler are logged.
+     * 
+     * @param engagementUuid
+     * @param handler
+     * @throws RejectedExecutionException if the queue of the stripe is full
+     */
+    public void execute(String engagementUuid, Runnable handler) {
+
+        int stripe = stripeOf(engagementUuid);
+        long queuedAt = System.nanoTime();
+
+        try {
+            stripes[stripe].execute(() -> {
+
+                waits[stripe].update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+                try {
+                    handler.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("event handler failed for engagement {}", engagementUuid, e);
+                }
+
+            });
+        } catch (RejectedExecutionException e) {
+            metricRegistry.counter(REJECTED, new Tag(STRIPE, String.valueOf(stripe))).inc();
+            throw e;
+        }
+
+    }
+
+    /**
+     * Runs the handler after every handler already submitted for the same
+     * engagement, completing the returned future with its result.
+     * 
+     * @param <T>
+     * @param engagementUuid
+     * @param handler
+     * @return
+     * @throws RejectedExecutionException if the queue of the stripe is full
+     */
+    public <T> CompletableFuture<T> submit(String engagementUuid, Supplier<T> handler) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(engagementUuid, () -> {
+            try {
+                future.complete(handler.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+
+    }
+
+    int stripeOf(String engagementUuid) {
+        return null == engagementUuid ? 0 : Math.floorMod(engagementUuid.hashCode(), stripeCount);
+    }
+
+}
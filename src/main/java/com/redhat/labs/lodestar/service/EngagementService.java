@@ -1,19 +1,29 @@
 package com.redhat.labs.lodestar.service;
 
+import java.io.StringReader;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.EnumMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.JsonValue.ValueType;
 import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
 import javax.ws.rs.WebApplicationException;
 
 import org.apache.http.HttpStatus;
@@ -23,6 +33,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoServerException;
 import com.redhat.labs.lodestar.model.Artifact;
 import com.redhat.labs.lodestar.model.Category;
 import com.redhat.labs.lodestar.model.Commit;
@@ -39,17 +51,25 @@ import com.redhat.labs.lodestar.model.Score;
 import com.redhat.labs.lodestar.model.Status;
 import com.redhat.labs.lodestar.model.UseCase;
 import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
 import com.redhat.labs.lodestar.model.filter.FilterOptions;
 import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
 import com.redhat.labs.lodestar.model.pagination.PagedArtifactResults;
 import com.redhat.labs.lodestar.model.pagination.PagedCategoryResults;
+import com.redhat.labs.lodestar.model.pagination.PagedCommitResults;
 import com.redhat.labs.lodestar.model.pagination.PagedEngagementResults;
 import com.redhat.labs.lodestar.model.pagination.PagedHostingEnvironmentResults;
 import com.redhat.labs.lodestar.model.pagination.PagedScoreResults;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
 import com.redhat.labs.lodestar.model.pagination.PagedUseCaseResults;
+import com.redhat.labs.lodestar.repository.EngagementCommitRepository;
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
+import com.redhat.labs.lodestar.repository.EngagementReadModel;
 import com.redhat.labs.lodestar.repository.EngagementRepository;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
 import com.redhat.labs.lodestar.rest.client.LodeStarGitApiClient;
+import com.redhat.labs.lodestar.service.QueryResultCache.CachedQuery;
 
 import io.vertx.mutiny.core.eventbus.EventBus;
 
@@ -60,6 +80,7 @@ public class EngagementService {
 
     private static final String BACKEND_BOT = "lodestar-backend-bot";
     private static final String BACKEND_BOT_EMAIL = "lodestar-backend-bot@bot.com";
+    private static final String COMMITS = "commits";
 
     @ConfigProperty(name = "status.file")
     List<String> statusFile;
@@ -73,6 +94,21 @@ public class EngagementService {
     @Inject
     EngagementRepository repository;
 
+    @Inject
+    QueryResultCache queryCache;
+
+    @Inject
+    EngagementCommitRepository commitRepository;
+
+    @Inject
+    EngagementReadModel readModel;
+
+    @Inject
+    OutboxService outbox;
+
+    @Inject
+    EngagementSuggestionIndex suggestionIndex;
+
     @Inject
     EventBus eventBus;
 
@@ -108,11 +144,19 @@ public class EngagementService {
         // reset commit message
         engagement.setCommitMessage(null);
 
-        // save to database
-        repository.persist(engagement);
-
-        // send create engagement event after save to database
-        eventBus.sendAndForget(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, copy);
+        // save to database with the create engagement event, unique indexes catch a
+        // concurrent create
+        try {
+            outbox.write(List.of(OutboxEvent.of(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, copy)), () -> {
+                repository.persist(engagement);
+                return engagement;
+            });
+        } catch (MongoServerException e) {
+            if (isDuplicateKey(e)) {
+                throw duplicateKeyConflict(e, engagement, "engagement already exists, use PUT to update resource");
+            }
+            throw e;
+        }
 
         return engagement;
 
@@ -203,7 +247,7 @@ public class EngagementService {
         String currentLastUpdated = engagement.getLastUpdate();
 
         validateHostingEnvironments(engagement.getHostingEnvironments());
-        validateSubdomainOnUpdate(engagement);
+        validateSubdomainOnUpdate(engagement, existing);
         validateCustomerAndProjectNames(engagement, existing);
         setBeforeUpdate(engagement, existing);
 
@@ -216,28 +260,115 @@ public class EngagementService {
             engagement.getEngagementUsers().stream().forEach(u -> u.setReset(false));
         }
 
-        Engagement updated = repository.updateEngagement(engagement, currentLastUpdated)
-                .orElseThrow(() -> new WebApplicationException(
-                        "Failed to modify engagement because request contained stale data.  Please refresh and try again.",
-                        HttpStatus.SC_CONFLICT));
+        // events sent once saved
+        List<OutboxEvent> events = new ArrayList<>();
+        events.add(OutboxEvent.of(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, copy));
 
-        // send update engagement event once saved
-        eventBus.sendAndForget(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, copy);
-        
         String message = String.format("%s,%s,%s", engagement.getUuid(), engagement.getLastUpdateByEmail(), engagement.getLastUpdateByName());
 
         if(commitMessageContains(copy, "engagement_users")) {
-            eventBus.sendAndForget(EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS, message);
+            events.add(OutboxEvent.of(EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS, copy, message));
         }
         
         if(commitMessageContains(copy, "artifacts")) {
-            eventBus.sendAndForget(EventType.UPDATE_ARTIFACTS_EVENT_ADDRESS, message);
+            events.add(OutboxEvent.of(EventType.UPDATE_ARTIFACTS_EVENT_ADDRESS, copy, message));
         }
 
-        return updated;
+        try {
+            return outbox.write(events, () -> repository.updateEngagement(engagement, existing, currentLastUpdated)
+                    .orElseThrow(() -> new WebApplicationException(
+                            "Failed to modify engagement because request contained stale data.  Please refresh and try again.",
+                            HttpStatus.SC_CONFLICT)));
+        } catch (MongoServerException e) {
+            if (isDuplicateKey(e)) {
+                throw duplicateKeyConflict(e, engagement,
+                        "failed to change name(s).  engagement with customer name '" + engagement.getCustomerName()
+                                + "' and project '" + engagement.getProjectName() + "' already exists.");
+            }
+            throw e;
+        }
 
     }
     
+    /**
+     * Returns the {@link Engagement} with the given UUID after applying the JSON
+     * Merge Patch (RFC 7386). The result is not persisted, use
+     * {@link #update(Engagement)} to save it. The persisted last update is used
+     * for the stale data check unless the patch supplies one.
+     * 
+     * @param uuid
+     * @param mergePatch
+     * @return
+     */
+    public Engagement applyMergePatch(String uuid, String mergePatch) {
+
+        Engagement existing = repository.findByUuid(uuid).orElseThrow(
+                () -> new WebApplicationException("no engagement found with id " + uuid, HttpStatus.SC_NOT_FOUND));
+
+        JsonValue patched;
+        try {
+            JsonValue target = readJson(jsonb.toJson(existing));
+            patched = Json.createMergePatch(readJson(mergePatch)).apply(target);
+        } catch (JsonException e) {
+            throw new WebApplicationException("invalid merge patch document. " + e.getMessage(),
+                    HttpStatus.SC_BAD_REQUEST);
+        }
+
+        if (ValueType.OBJECT != patched.getValueType()) {
+            throw new WebApplicationException("merge patch must result in an engagement object",
+                    HttpStatus.SC_BAD_REQUEST);
+        }
+
+        Engagement engagement;
+        try {
+            engagement = jsonb.fromJson(patched.toString(), Engagement.class);
+        } catch (JsonbException e) {
+            throw new WebApplicationException("merge patch does not result in a valid engagement. " + e.getMessage(),
+                    HttpStatus.SC_BAD_REQUEST);
+        }
+        engagement.setUuid(existing.getUuid());
+
+        return engagement;
+
+    }
+
+    private JsonValue readJson(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readValue();
+        }
+    }
+
+    /**
+     * Returns a 409 {@link WebApplicationException} for a unique index violation.
+     * Subdomain violations report the subdomains, otherwise the given message is
+     * used.
+     * 
+     * @param e
+     * @param engagement
+     * @param message
+     * @return
+     */
+    WebApplicationException duplicateKeyConflict(MongoServerException e, Engagement engagement, String message) {
+
+        if (null != e.getMessage() && e.getMessage().contains(EngagementIndexManager.SUBDOMAIN_INDEX)) {
+            message = String.format("The following subdomains are already in use: %s", engagement.getSubdomainKeys());
+        }
+
+        return new WebApplicationException(message, HttpStatus.SC_CONFLICT);
+
+    }
+
+    /**
+     * Returns true if the exception was raised by a unique index on the engagement
+     * collection.
+     * 
+     * @param e
+     * @return
+     */
+    static boolean isDuplicateKey(MongoServerException e) {
+        return ErrorCategory.DUPLICATE_KEY == ErrorCategory.fromErrorCode(e.getCode());
+    }
+
     private boolean commitMessageContains(Engagement engagement, String containee) {
         return engagement.getCommitMessage() != null 
                 && engagement.getCommitMessage().contains(containee);
@@ -302,8 +433,9 @@ public class EngagementService {
 
         if (null != heList) {
 
-            List<String> duplicateSubdomains = heList.stream().filter(he -> null != he.getOcpSubDomain())
-                    .collect(Collectors.groupingBy(HostingEnvironment::getOcpSubDomain, Collectors.counting()))
+            List<String> duplicateSubdomains = heList.stream()
+                    .map(he -> HostingEnvironment.normalizeSubdomain(he.getOcpSubDomain())).filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
                     .entrySet().stream().filter(entry -> entry.getValue() > 1).map(entry -> entry.getKey())
                     .collect(Collectors.toList());
 
@@ -324,23 +456,7 @@ public class EngagementService {
      * @param engagement
      */
     void validateSubdomainOnCreate(Engagement engagement) {
-
-        if (null != engagement.getHostingEnvironments()) {
-
-            // validate each subdomain
-            List<String> subdomainsInUse = engagement.getHostingEnvironments().stream()
-                    .filter(env -> null != env.getOcpSubDomain())
-                    .filter(env -> doesSubdomainExist(env.getOcpSubDomain())).map(HostingEnvironment::getOcpSubDomain)
-                    .collect(Collectors.toList());
-
-            if (!subdomainsInUse.isEmpty()) {
-                throw new WebApplicationException(
-                        String.format("The following subdomains are already in use: %s", subdomainsInUse),
-                        HttpStatus.SC_CONFLICT);
-            }
-
-        }
-
+        validateSubdomainsNotInUse(engagement, null);
     }
 
     /**
@@ -348,39 +464,44 @@ public class EngagementService {
      * from the persisted domain and another {@link Engagement} is already using it.
      * 
      * @param toUpdate
+     * @param existing
      * 
      */
-    void validateSubdomainOnUpdate(Engagement toUpdate) {
+    void validateSubdomainOnUpdate(Engagement toUpdate, Engagement existing) {
+        validateSubdomainsNotInUse(toUpdate, existing.getUuid());
+    }
 
-        if (null != toUpdate.getHostingEnvironments()) {
+    /**
+     * Checks all subdomains of the {@link Engagement} with a single query and
+     * throws {@link WebApplicationException} if any are used by an
+     * {@link Engagement} other than the one with the given UUID.
+     * 
+     * @param engagement
+     * @param uuid
+     */
+    private void validateSubdomainsNotInUse(Engagement engagement, String uuid) {
 
-            List<String> subdomainsInUse = toUpdate.getHostingEnvironments().stream()
-                    .filter(he -> null != he.getOcpSubDomain())
-                    .filter(he -> repository
-                            .findBySubdomain(he.getOcpSubDomain(), Optional.ofNullable(toUpdate.getUuid())).isEmpty())
-                    .filter(he -> repository.findBySubdomain(he.getOcpSubDomain()).isPresent())
-                    .map(HostingEnvironment::getOcpSubDomain).collect(Collectors.toList());
+        if (null == engagement.getHostingEnvironments()) {
+            return;
+        }
 
-            LOGGER.debug("subdomains in use: {}", subdomainsInUse);
+        List<String> subdomains = engagement.getHostingEnvironments().stream().map(HostingEnvironment::getOcpSubDomain)
+                .filter(Objects::nonNull).collect(Collectors.toList());
 
-            if (!subdomainsInUse.isEmpty()) {
-                throw new WebApplicationException(
-                        String.format("The following subdomains are already in use: %s", subdomainsInUse),
-                        HttpStatus.SC_CONFLICT);
-            }
+        Set<String> keysInUse = subdomains.isEmpty() ? Set.of() : repository.findSubdomainsInUse(subdomains, uuid);
 
-        }
+        List<String> subdomainsInUse = subdomains.stream()
+                .filter(subdomain -> keysInUse.contains(HostingEnvironment.normalizeSubdomain(subdomain)))
+                .collect(Collectors.toList());
 
-    }
+        LOGGER.debug("subdomains in use: {}", subdomainsInUse);
+
+        if (!subdomainsInUse.isEmpty()) {
+            throw new WebApplicationException(
+                    String.format("The following subdomains are already in use: %s", subdomainsInUse),
+                    HttpStatus.SC_CONFLICT);
+        }
 
-    /**
-     * Return false if subdomain is null, blank, or is not found in the data store.
-     * Otherwise, true.
-     * 
-     * @param subdomain
-     */
-    boolean doesSubdomainExist(String subdomain) {
-        return getBySubdomain(subdomain).isPresent();
     }
 
     /**
@@ -390,7 +511,14 @@ public class EngagementService {
      * @return
      */
     public Optional<Engagement> getBySubdomain(String subdomain) {
-        return (subdomain == null || subdomain.isBlank()) ? Optional.empty() : repository.findBySubdomain(subdomain);
+
+        if (null == HostingEnvironment.normalizeSubdomain(subdomain)) {
+            return Optional.empty();
+        }
+
+        return readModel.isServing(null) ? readModel.findBySubdomain(subdomain)
+                : repository.findBySubdomain(subdomain);
+
     }
 
     /**
@@ -644,15 +772,60 @@ public class EngagementService {
     }
 
     /**
-     * Updates the {@link List} of {@link Commit}s for the given UUID in the
-     * database.
+     * Adds the {@link Commit}s for the given UUID that are not already stored.
      * 
      * @param uuid
      * @param commits
      */
     public void setCommits(String uuid, List<Commit> commits) {
-        LOGGER.trace("\tupdating {} with {} commits.", uuid, commits.size());
-        repository.setCommits(uuid, commits);
+
+        int added = commitRepository.append(uuid, commits);
+        LOGGER.trace("\tadded {} of {} commits to {}.", added, commits.size(), uuid);
+
+    }
+
+    /**
+     * Sets the stored {@link Commit}s, most recent first, on each of the
+     * {@link Engagement}s for clients that read the commits from the engagement.
+     * Nothing is read if the {@link FilterOptions} leave the commits out.
+     * 
+     * @param engagements
+     * @param options
+     */
+    public void setInlineCommits(List<Engagement> engagements, FilterOptions options) {
+
+        boolean included = options.getIncludeList().map(fields -> fields.contains(COMMITS)).orElse(true)
+                && !options.getExcludeList().map(fields -> fields.contains(COMMITS)).orElse(false);
+        if (!included || engagements.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Commit>> commits = commitRepository.findAll(
+                engagements.stream().map(Engagement::getUuid).filter(Objects::nonNull).collect(Collectors.toSet()));
+        engagements.stream().filter(e -> commits.containsKey(e.getUuid()))
+                .forEach(e -> e.setCommits(commits.get(e.getUuid())));
+
+    }
+
+    /**
+     * Returns a {@link PagedCommitResults} of the {@link Commit}s for the given
+     * UUID, most recent first. Throws a NOT FOUND
+     * {@link WebApplicationException} if there is no such {@link Engagement}.
+     * 
+     * @param uuid
+     * @param filterOptions
+     * @return
+     */
+    public PagedCommitResults getCommits(String uuid, ListFilterOptions filterOptions) {
+
+        PagedCommitResults page = commitRepository.findPage(uuid, filterOptions);
+        if (page.getResults().isEmpty()) {
+            // only look up the engagement when there is nothing to return
+            getByUuid(uuid, new FilterOptions("uuid", null));
+        }
+
+        return page;
+
     }
 
     /**
@@ -679,27 +852,28 @@ public class EngagementService {
      * @return
      */
     public Engagement getByCustomerAndProjectName(String customerName, String projectName, FilterOptions options) {
-        return repository.findByCustomerNameAndProjectName(customerName, projectName, options)
-                .orElseThrow(() -> new WebApplicationException(
-                        "no engagement found with customer:project " + customerName + ":" + projectName,
-                        HttpStatus.SC_NOT_FOUND));
-    }
 
-    public Map<EngagementState, Integer> getEngagementCountByStatus(LocalDateTime currentTime) {
+        Optional<Engagement> engagement = readModel.isServing(options)
+                ? readModel.findByCustomerNameAndProjectName(customerName, projectName)
+                : repository.findByCustomerNameAndProjectName(customerName, projectName, options);
 
-        List<Engagement> engagementList = repository.listAll();
-        Map<EngagementState, Integer> statusCounts = new EnumMap<>(EngagementState.class);
+        return engagement.orElseThrow(() -> new WebApplicationException(
+                "no engagement found with customer:project " + customerName + ":" + projectName,
+                HttpStatus.SC_NOT_FOUND));
 
-        for (Engagement engagement : engagementList) {
-            EngagementState state = engagement.getEngagementCurrentState(currentTime);
-
-            int count = statusCounts.containsKey(state) ? statusCounts.get(state) + 1 : 1;
-            statusCounts.put(state, count);
-        }
-
-        statusCounts.put(EngagementState.ANY, engagementList.size());
+    }
 
-        return statusCounts;
+    /**
+     * Returns a {@link Map} containing the number of {@link Engagement}s in each
+     * {@link EngagementState} at the given time. The counts are computed by the
+     * data store.
+     * 
+     * @param currentTime
+     * @return
+     */
+    public Map<EngagementState, Integer> getEngagementCountByStatus(LocalDateTime currentTime) {
+        return readModel.isServing(null) ? readModel.countEngagementsByState(currentTime)
+                : repository.countEngagementsByState(currentTime);
     }
 
     /**
@@ -710,8 +884,13 @@ public class EngagementService {
      * @return
      */
     public Engagement getByUuid(String uuid, FilterOptions options) {
-        return repository.findByUuid(uuid, options).orElseThrow(
+
+        Optional<Engagement> engagement = readModel.isServing(options) ? readModel.findByUuid(uuid)
+                : repository.findByUuid(uuid, options);
+
+        return engagement.orElseThrow(
                 () -> new WebApplicationException("no engagement found with id " + uuid, HttpStatus.SC_NOT_FOUND));
+
     }
 
     /**
@@ -722,7 +901,8 @@ public class EngagementService {
      * @return
      */
     public PagedEngagementResults getEngagementsPaged(ListFilterOptions listFilterOptions) {
-        return repository.findPagedEngagements(listFilterOptions);
+        return queryCache.getPage(CachedQuery.ENGAGEMENTS, listFilterOptions,
+                () -> repository.findPagedEngagements(listFilterOptions), PagedEngagementResults::copy);
     }
 
     /**
@@ -733,7 +913,8 @@ public class EngagementService {
      * @return
      */
     public EngagementUserSummary getUserSummary(ListFilterOptions listFilterOptions) {
-        return repository.findEngagementUserSummary(listFilterOptions);
+        return queryCache.get(CachedQuery.USER_SUMMARY, listFilterOptions,
+                () -> repository.findEngagementUserSummary(listFilterOptions), EngagementUserSummary::copy);
     }
 
     /**
@@ -746,7 +927,33 @@ public class EngagementService {
      *         input
      */
     public PagedStringResults getSuggestions(ListFilterOptions filterOptions) {
-        return repository.findCustomerSuggestions(filterOptions);
+        return getSuggestions(SuggestionField.CUSTOMER_NAME, filterOptions,
+                () -> repository.findCustomerSuggestions(filterOptions));
+    }
+
+    /**
+     * Returns a {@link PagedStringResults} of the distinct values of the
+     * {@link SuggestionField} that match the given {@link ListFilterOptions}.
+     * 
+     * @param field
+     * @param filterOptions
+     * @return
+     */
+    public PagedStringResults getSuggestions(SuggestionField field, ListFilterOptions filterOptions) {
+        return getSuggestions(field, filterOptions, () -> repository.findSuggestions(field, filterOptions));
+    }
+
+    private PagedStringResults getSuggestions(SuggestionField field, ListFilterOptions filterOptions,
+            Supplier<PagedStringResults> loader) {
+
+        Optional<PagedStringResults> indexed = suggestionIndex.suggest(field, filterOptions);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
+        filterOptions.setSuggestFieldName(Optional.of(field.getQueryName()));
+        return queryCache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, filterOptions, loader, PagedStringResults::copy);
+
     }
 
     /**
@@ -796,11 +1003,11 @@ public class EngagementService {
                     HttpStatus.SC_BAD_REQUEST);
         }
 
-        // delete from db
-        repository.delete(engagement);
-
-        // send delete event
-        eventBus.sendAndForget(EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS, engagement);
+        // delete from db with the delete event
+        outbox.write(List.of(OutboxEvent.of(EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS, engagement)), () -> {
+            repository.delete(engagement);
+            return engagement;
+        });
 
     }
 
@@ -813,7 +1020,8 @@ public class EngagementService {
      * @return
      */
     public PagedCategoryResults getCategories(ListFilterOptions options) {
-        return repository.findCategories(options);
+        return queryCache.getPage(CachedQuery.CATEGORIES, options, () -> repository.findCategories(options),
+                PagedCategoryResults::copy);
     }
 
     /**
@@ -824,7 +1032,8 @@ public class EngagementService {
      * @return
      */
     public PagedStringResults getArtifactTypes(ListFilterOptions filterOptions) {
-        return repository.findArtifactTypes(filterOptions);
+        return queryCache.getPage(CachedQuery.ARTIFACT_TYPES, filterOptions,
+                () -> repository.findArtifactTypes(filterOptions), PagedStringResults::copy);
     }
 
     /**
@@ -835,7 +1044,8 @@ public class EngagementService {
      * @return
      */
     public PagedArtifactResults getArtifacts(ListFilterOptions filterOptions) {
-        return repository.findArtifacts(filterOptions);
+        return queryCache.getPage(CachedQuery.ARTIFACTS, filterOptions, () -> repository.findArtifacts(filterOptions),
+                PagedArtifactResults::copy);
     }
 
     public PagedHostingEnvironmentResults getHostingEnvironments(ListFilterOptions filterOptions) {
@@ -866,12 +1076,18 @@ public class EngagementService {
             return e;
         }).collect(Collectors.toList());
 
-        // send updates to git api
-        updated.stream().forEach(e -> eventBus.sendAndForget(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, e));
+        // send updates to git api once saved
+        List<OutboxEvent> events = updated.stream()
+                .map(e -> OutboxEvent.of(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, e)).collect(Collectors.toList());
 
         long count = updated.size();
 
-        repository.update(updated);
+        if (!updated.isEmpty()) {
+            outbox.write(events, () -> {
+                repository.update(updated);
+                return count;
+            });
+        }
 
         return count;
 
@@ -1064,7 +1280,15 @@ public class EngagementService {
                     engagement.getProjectName());
 
             engagement.setLastUpdate(getZuluTimeAsString());
-            repository.persist(engagement);
+            try {
+                repository.persist(engagement);
+            } catch (MongoServerException e) {
+                if (isDuplicateKey(e)) {
+                    LOGGER.debug("engagement {} persisted concurrently, skipping.", engagement.getUuid());
+                    return false;
+                }
+                throw e;
+            }
 
             return true;
 
@@ -1127,14 +1351,14 @@ public class EngagementService {
     }
 
     /**
-     * Uses {@link ObjectMapper} to create a deep copy of the given
-     * {@link Engagement}.
+     * Creates a deep copy of the given {@link Engagement} without a JSON round
+     * trip.
      * 
      * @param toClone
      * @return
      */
     Engagement clone(Engagement toClone) {
-        return jsonb.fromJson(jsonb.toJson(toClone), Engagement.class);
+        return toClone.copy();
     }
 
 }
\ No newline at end of file
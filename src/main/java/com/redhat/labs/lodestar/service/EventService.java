@@ -2,7 +2,8 @@ package com.redhat.labs.lodestar.service;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 
 import javax.inject.Inject;
@@ -21,6 +22,7 @@ import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.EngagementUser;
 import com.redhat.labs.lodestar.model.Status;
 import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
 import com.redhat.labs.lodestar.model.event.RetriableEvent;
 import com.redhat.labs.lodestar.model.event.RetriableEvent.RetriableEventBuilder;
 import com.redhat.labs.lodestar.model.filter.FilterOptions;
@@ -35,16 +37,11 @@ public class EventService {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventService.class);
 
     private static final String LAST_PAGE_HEADER = "x-last-page";
+    private static final String LAST_UPDATE = "lastUpdate";
 
-    @ConfigProperty(name = "event.max.retries", defaultValue = "-1")
+    @ConfigProperty(name = "event.max.retries", defaultValue = "5")
     Integer eventMaxRetries;
 
-    @ConfigProperty(name = "event.retry.delay.factor", defaultValue = "2")
-    Integer eventRetryDelayFactor;
-
-    @ConfigProperty(name = "event.retry.max.delay", defaultValue = "60")
-    Integer eventRetryMaxDelay;
-
     @ConfigProperty(name = "get.engagement.per.page", defaultValue = "20")
     Integer engagementPerPage;
 
@@ -59,6 +56,18 @@ public class EventService {
     @Inject
     EngagementService engagementService;
 
+    @Inject
+    ParticipantService participantService;
+
+    @Inject
+    ArtifactService artifactService;
+
+    @Inject
+    RetryScheduler retryScheduler;
+
+    @Inject
+    EngagementEventExecutor eventExecutor;
+
     @Inject
     EventBus eventBus;
 
@@ -71,10 +80,11 @@ public class EventService {
      * 
      * @param engagement
      */
-    @ConsumeEvent(value = EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS)
     void consumeCreateEngagementEvent(Engagement engagement) {
         RetriableEvent event = buildRetriableEvent(engagement);
-        createOrUpdateEngagement(event, true);
+        executeInOrder(event, EventType.RETRY_CREATE_EVENT_ADDRESS, EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> createOrUpdateEngagement(event, true));
     }
 
     /**
@@ -83,10 +93,11 @@ public class EventService {
      * 
      * @param engagement
      */
-    @ConsumeEvent(value = EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS)
     void consumeUpdateEngagementEvent(Engagement engagement) {
         RetriableEvent event = buildRetriableEvent(engagement);
-        createOrUpdateEngagement(event, false);
+        executeInOrder(event, EventType.RETRY_UPDATE_EVENT_ADDRESS, EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> createOrUpdateEngagement(event, false));
     }
 
     /**
@@ -98,7 +109,8 @@ public class EventService {
     @ConsumeEvent(EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS)
     void consumeDeleteEngagementEvent(Engagement engagement) {
         RetriableEvent event = buildRetriableEvent(engagement);
-        deleteEngagement(event);
+        executeInOrder(event, EventType.RETRY_DELETE_EVENT_ADDRESS, EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> deleteEngagement(event));
     }
 
     /**
@@ -113,87 +125,83 @@ public class EventService {
     }
 
     /**
-     * Sends the given {@link Engagement} to be processed if the max retry limit has
-     * not been exceeded.
+     * Sends the given {@link Engagement} to be processed again once its retry
+     * delay has passed.
      * 
      * @param event
      */
-    @ConsumeEvent(value = EventType.RETRY_CREATE_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.RETRY_CREATE_EVENT_ADDRESS)
     void consumeRetryCreateEvent(RetriableEvent event) {
-        retryEvent(event, () -> createOrUpdateEngagement(event, true));
+        executeInOrder(event, EventType.RETRY_CREATE_EVENT_ADDRESS, EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> createOrUpdateEngagement(event, true));
     }
 
     /**
-     * Sends the given {@link Engagement} to be processed if the max retry limit has
-     * not been exceeded and the {@link Engagement} has not been updated since the
+     * Sends the given {@link Engagement} to be processed again once its retry
+     * delay has passed, if the {@link Engagement} has not been updated since the
      * original update request.
      * 
      * @param event
      */
-    @ConsumeEvent(value = EventType.RETRY_UPDATE_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.RETRY_UPDATE_EVENT_ADDRESS)
     void consumeRetryUpdateEvent(RetriableEvent event) {
-        retryEvent(event, () -> {
+        executeInOrder(event, EventType.RETRY_UPDATE_EVENT_ADDRESS, EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> retryUpdate(event));
+    }
 
-            Engagement engagement = event.getEngagement();
+    private void retryUpdate(RetriableEvent event) {
 
-            try {
+        Engagement engagement = event.getEngagement();
 
-                // get current engagement from db
-                Engagement persisted = engagementService.getByUuid(engagement.getUuid(), new FilterOptions());
+        try {
 
-                // only resend if exists and not updated
-                if (null != persisted && persisted.getLastUpdate().equals(engagement.getLastUpdate())) {
-                    createOrUpdateEngagement(event, false);
-                }
+            // get current engagement from db
+            Engagement persisted = engagementService.getByUuid(engagement.getUuid(), new FilterOptions());
 
-            } catch (WebApplicationException wae) {
-                // exit if engagement deleted after event sent
-                if (wae.getResponse().getStatus() == 404) {
-                    LOGGER.info("cancelling retry event because engagement with id {} not found in db.",
-                            engagement.getUuid());
-                }
+            // only resend if exists and not updated
+            if (null != persisted && persisted.getLastUpdate().equals(engagement.getLastUpdate())) {
+                createOrUpdateEngagement(event, false);
             }
 
-        });
+        } catch (WebApplicationException wae) {
+            // exit if engagement deleted after event sent
+            if (wae.getResponse().getStatus() == 404) {
+                LOGGER.info("cancelling retry event because engagement with id {} not found in db.",
+                        engagement.getUuid());
+            }
+        }
 
     }
 
     /**
-     * Sends the given {@link Engagement} to be processed if the max retry limit has
-     * not been exceeded.
+     * Sends the given {@link Engagement} to be processed again once its retry
+     * delay has passed.
      * 
      * @param event
      */
-    @ConsumeEvent(value = EventType.RETRY_DELETE_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.RETRY_DELETE_EVENT_ADDRESS)
     void consumeRetryDeleteEvent(RetriableEvent event) {
-        retryEvent(event, () -> deleteEngagement(event));
+        executeInOrder(event, EventType.RETRY_DELETE_EVENT_ADDRESS, EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS,
+                () -> deleteEngagement(event));
     }
 
     /**
-     * Runs the given function if the event max retry has not been exceeded.
+     * Runs the handler after the handlers already submitted for the
+     * {@link Engagement}. If too many handlers are waiting, the event is retried
+     * later instead.
      * 
      * @param event
-     * @param runnable
+     * @param retryAddress
+     * @param address
+     * @param handler
      */
-    void retryEvent(RetriableEvent event, Runnable runnable) {
-
-        if (event.shouldRetry()) {
-
-            // perform sleep to delay retry
-            int seconds = event.getCurrentRetryCount() * eventRetryDelayFactor;
-            if (seconds > eventRetryMaxDelay) {
-                seconds = eventRetryMaxDelay;
-            }
-
-            try {
-                TimeUnit.SECONDS.sleep(seconds);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-
-            // run configured method
-            runnable.run();
+    private void executeInOrder(RetriableEvent event, String retryAddress, String address, Runnable handler) {
 
+        try {
+            eventExecutor.execute(event.getEngagement().getUuid(), handler);
+        } catch (RejectedExecutionException e) {
+            event.incrementCurrentRetryCount();
+            retryScheduler.retry(retryAddress, address, event, "event queue full");
         }
 
     }
@@ -204,7 +212,7 @@ public class EventService {
      * the API response.
      * 
      * If the API call produces an error code, the {@link RetriableEvent} will be
-     * sent to the {@link EventBus} for reprocessing.
+     * scheduled for reprocessing.
      * 
      * @param event
      * @param isCreate
@@ -213,6 +221,36 @@ public class EventService {
 
         Engagement engagement = event.getEngagement();
 
+        try {
+            pushEngagement(engagement, isCreate);
+        } catch (WebApplicationException e) {
+            // rest call returned and 400 or above http code
+            LOGGER.error("failed to create or update engagement with message '{}', engagement: {}", e.getMessage(),
+                    engagement);
+
+            event.incrementCurrentRetryCount();
+            if (isCreate) {
+                retryScheduler.retry(EventType.RETRY_CREATE_EVENT_ADDRESS, EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS,
+                        event, e.getMessage());
+            } else {
+                retryScheduler.retry(EventType.RETRY_UPDATE_EVENT_ADDRESS, EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS,
+                        event, e.getMessage());
+            }
+
+        }
+
+    }
+
+    /**
+     * Calls the create or update API with the given {@link Engagement}. If the
+     * isCreate flag is true, it will update the project ID in the database based on
+     * the API response.
+     * 
+     * @param engagement
+     * @param isCreate
+     */
+    private void pushEngagement(Engagement engagement, boolean isCreate) {
+
         try (Response response = gitApiClient.createOrUpdateEngagement(engagement, engagement.getLastUpdateByName(),
                 engagement.getLastUpdateByEmail())) {
 
@@ -222,15 +260,95 @@ public class EventService {
                 engagementService.setProjectId(engagement.getUuid(), projectId);
             }
 
-        } catch (WebApplicationException e) {
-            // rest call returned and 400 or above http code
-            LOGGER.error("failed to create or update engagement with message '{}', engagement: {}", e.getMessage(),
-                    engagement);
+        }
 
-            String address = isCreate ? EventType.RETRY_CREATE_EVENT_ADDRESS : EventType.RETRY_UPDATE_EVENT_ADDRESS;
-            event.incrementCurrentRetryCount();
-            eventBus.sendAndForget(address, event);
+    }
+
+    /**
+     * Delivers an {@link OutboxEvent} to its handler. Returns false without
+     * delivering if the event no longer applies, because the engagement write
+     * that produced it never completed or, for an update, the engagement has been
+     * updated since. A create for an engagement updated since pushes the
+     * persisted engagement rather than the older one in the event. Errors are
+     * thrown rather than retried on the {@link EventBus}, so the event stays in
+     * the outbox until delivered.
+     * 
+     * @param event
+     * @return
+     */
+    boolean deliver(OutboxEvent event) {
+
+        Optional<String> persisted = findLastUpdate(event.getEngagementUuid());
+
+        switch (event.getAddress()) {
+        case EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS:
+            return deliverIf(isWritten(persisted, event),
+                    () -> pushEngagement(getCreated(event, persisted.get()), true));
+        case EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS:
+            return deliverIf(persisted.filter(lastUpdate -> lastUpdate.equals(event.getLastUpdate())).isPresent(),
+                    () -> pushEngagement(event.getEngagement(), false));
+        case EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS:
+            return deliverIf(persisted.isEmpty(), () -> gitApiClient
+                    .deleteEngagement(event.getEngagement().getCustomerName(), event.getEngagement().getProjectName()));
+        case EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS:
+            return deliverIf(isWritten(persisted, event),
+                    () -> participantService.updateParticipants(event.getMessage()));
+        case EventType.UPDATE_ARTIFACTS_EVENT_ADDRESS:
+            return deliverIf(isWritten(persisted, event), () -> artifactService.sendUpdate(event.getMessage()));
+        default:
+            LOGGER.warn("no outbox handler for address {}", event.getAddress());
+            return false;
+        }
+
+    }
+
+    private boolean deliverIf(boolean applies, Runnable handler) {
+
+        if (applies) {
+            handler.run();
+        }
+
+        return applies;
+
+    }
+
+    /**
+     * Returns the {@link Engagement} of the create event, or the persisted
+     * {@link Engagement} with the commit message of the event if it has been
+     * updated since, so a newer update is never overwritten by the create.
+     * 
+     * @param event
+     * @param lastUpdate
+     * @return
+     */
+    private Engagement getCreated(OutboxEvent event, String lastUpdate) {
 
+        if (null == event.getLastUpdate() || lastUpdate.equals(event.getLastUpdate())) {
+            return event.getEngagement();
+        }
+
+        Engagement persisted = engagementService.getByUuid(event.getEngagementUuid(), new FilterOptions());
+        persisted.setCommitMessage(event.getEngagement().getCommitMessage());
+        return persisted;
+
+    }
+
+    private boolean isWritten(Optional<String> persisted, OutboxEvent event) {
+        return persisted.filter(
+                lastUpdate -> null == event.getLastUpdate() || lastUpdate.compareTo(event.getLastUpdate()) >= 0)
+                .isPresent();
+    }
+
+    private Optional<String> findLastUpdate(String uuid) {
+
+        try {
+            return Optional.ofNullable(engagementService.getByUuid(uuid, new FilterOptions(LAST_UPDATE, null)))
+                    .map(e -> null == e.getLastUpdate() ? "" : e.getLastUpdate());
+        } catch (WebApplicationException wae) {
+            if (wae.getResponse().getStatus() == 404) {
+                return Optional.empty();
+            }
+            throw wae;
         }
 
     }
@@ -239,7 +357,7 @@ public class EventService {
      * Calls the delete API with the given {@link Engagement}.
      * 
      * If the API call produces an error code, the {@link RetriableEvent} will be
-     * sent to the {@link EventBus} for reprocessing.
+     * scheduled for reprocessing.
      * 
      * @param event
      */
@@ -253,7 +371,8 @@ public class EventService {
 
             LOGGER.error("failed to delete engagement with message {}, engagement: {}", e.getMessage(), engagement);
             event.incrementCurrentRetryCount();
-            eventBus.sendAndForget(EventType.RETRY_DELETE_EVENT_ADDRESS, event);
+            retryScheduler.retry(EventType.RETRY_DELETE_EVENT_ADDRESS, EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS, event,
+                    e.getMessage());
 
         }
 
@@ -503,8 +622,12 @@ public class EventService {
      * 
      * @param engagement
      */
-    @ConsumeEvent(value = EventType.UPDATE_COMMITS_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.UPDATE_COMMITS_EVENT_ADDRESS)
     void consumeUpdateCommitsEvent(Engagement engagement) {
+        executeInOrder(engagement, () -> updateCommits(engagement));
+    }
+
+    private void updateCommits(Engagement engagement) {
 
         Response response = activityApiClient.getActivityForUuid(engagement.getUuid());
         engagementService.setCommits(engagement.getUuid(), response.readEntity(new GenericType<List<Commit>>() {
@@ -517,8 +640,12 @@ public class EventService {
      * 
      * @param engagement
      */
-    @ConsumeEvent(value = EventType.UPDATE_STATUS_EVENT_ADDRESS, blocking = true)
+    @ConsumeEvent(EventType.UPDATE_STATUS_EVENT_ADDRESS)
     void consumeUpdateStatusEvent(Engagement engagement) {
+        executeInOrder(engagement, () -> updateStatus(engagement));
+    }
+
+    private void updateStatus(Engagement engagement) {
 
         try {
             Status status = gitApiClient.getStatus(engagement.getCustomerName(), engagement.getProjectName());
@@ -530,6 +657,24 @@ public class EventService {
 
     }
     
+    /**
+     * Runs the refresh handler after the handlers already submitted for the
+     * {@link Engagement}. If too many handlers are waiting, the refresh is skipped
+     * until the next webhook.
+     * 
+     * @param engagement
+     * @param handler
+     */
+    private void executeInOrder(Engagement engagement, Runnable handler) {
+
+        try {
+            eventExecutor.execute(engagement.getUuid(), handler);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("skipping refresh of engagement {}, event queue full", engagement.getUuid());
+        }
+
+    }
+
     @ConsumeEvent(value = EventType.RELOAD_ACTIVITY_EVENT_ADDRESS, blocking = true)
     void consumeActivityReloadEvent(String name) {
         activityApiClient.refresh();
@@ -0,0 +1,409 @@
+package com.redhat.labs.lodestar.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.repository.OutboxRepository;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.mutiny.core.eventbus.EventBus;
+
+/**
+ * Writes engagement events to the outbox along with the engagement change and
+ * drains the outbox with a pool of workers. MongoDB 3.6 cannot write both in
+ * one transaction, so an event is inserted before the change, hidden until the
+ * change completes and removed if it fails. An event left hidden by a stopped
+ * instance becomes available after a delay, and is only delivered if the
+ * change was written. Each worker claims a batch of events with a lease and
+ * removes each event once delivered, so every event is delivered at least
+ * once. An event that fails is retried with the backoff of the
+ * {@link RetryScheduler} until it runs out of retries and is dead lettered.
+ * Engagement updates are held for a quiet period so a burst of updates is sent
+ * to the Git API once, and the commit message of an update discarded for a
+ * newer one is carried to the newer update.
+ * When disabled, events are sent on the {@link EventBus} after the change.
+ */
+@ApplicationScoped
+public class OutboxService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxService.class);
+
+    static final String DEPTH = "outbox-depth";
+    static final String AGE = "outbox-age";
+    static final String DELIVERED = "outbox-delivered";
+    static final String DISCARDED = "outbox-discarded";
+    static final String FAILED = "outbox-failed";
+    static final String CALLS_SAVED = "git-api-calls-saved";
+
+    private static final String MESSAGE_SEPARATOR = "\n\n";
+    private static final int CARRY_FORWARD_ATTEMPTS = 3;
+
+    @ConfigProperty(name = "outbox.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "outbox.workers", defaultValue = "2")
+    int workerCount;
+
+    @ConfigProperty(name = "outbox.batch.size", defaultValue = "20")
+    int batchSize;
+
+    @ConfigProperty(name = "outbox.lease.millis", defaultValue = "60000")
+    long leaseMillis;
+
+    @ConfigProperty(name = "outbox.pending.millis", defaultValue = "30000")
+    long pendingMillis;
+
+    @ConfigProperty(name = "outbox.coalesce.quiet.millis", defaultValue = "3000")
+    long quietMillis;
+
+    @ConfigProperty(name = "outbox.coalesce.max.wait.millis", defaultValue = "30000")
+    long maxWaitMillis;
+
+    @Inject
+    OutboxRepository repository;
+
+    @Inject
+    EventService eventService;
+
+    @Inject
+    RetryScheduler retryScheduler;
+
+    @Inject
+    DeadLetterService deadLetters;
+
+    @Inject
+    EngagementEventExecutor eventExecutor;
+
+    @Inject
+    EventBus eventBus;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private ExecutorService workers;
+
+    void onStart(@Observes StartupEvent event) {
+
+        if (!enabled) {
+            LOGGER.info("engagement event outbox disabled.");
+            return;
+        }
+
+        try {
+            repository.createIndexes();
+        } catch (MongoException e) {
+            LOGGER.warn("unable to create outbox indexes. {}", e.getMessage());
+        }
+
+        metricRegistry.register(gauge(DEPTH, MetricUnits.NONE), (Gauge<Long>) repository::count);
+        metricRegistry.register(gauge(AGE, MetricUnits.MILLISECONDS), (Gauge<Long>) () -> repository
+                .findOldestCreatedAt().map(createdAt -> Math.max(0, clock.getAsLong() - createdAt)).orElse(0L));
+
+        createWorkers();
+
+    }
+
+    void createWorkers() {
+
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-drainer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (null != workers) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns true if events are written to the outbox.
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the engagement write and records the events it produces. Events are
+     * only delivered if the write returns, and the write does not wait for their
+     * delivery.
+     *
+     * @param <T>
+     * @param events
+     * @param write
+     * @return
+     */
+    public <T> T write(List<OutboxEvent> events, Supplier<T> write) {
+
+        if (!enabled || events.isEmpty()) {
+            T result = write.get();
+            events.forEach(e -> eventBus.sendAndForget(e.getAddress(), e.payload()));
+            return result;
+        }
+
+        repository.prepare(events, clock.getAsLong(), pendingMillis);
+
+        T result;
+        try {
+            result = write.get();
+        } catch (RuntimeException e) {
+            repository.discard(events);
+            throw e;
+        }
+
+        long now = clock.getAsLong();
+        Map<Boolean, List<OutboxEvent>> coalesced = events.stream()
+                .collect(Collectors.partitioningBy(this::isCoalesced));
+        repository.release(coalesced.get(false), now);
+        coalesced.get(true).forEach(e -> coalesce(e, now));
+
+        drain();
+
+        return result;
+
+    }
+
+    /**
+     * Replaces the older updates of the engagement that are still waiting with the
+     * given update, adding their commit messages before its own. The update is
+     * held until no newer update has been written for the quiet period, but no
+     * longer than the maximum wait since the first update it replaced.
+     *
+     * @param event
+     * @param now
+     */
+    void coalesce(OutboxEvent event, long now) {
+
+        List<OutboxEvent> superseded = repository.supersede(event);
+
+        long createdAt = superseded.stream().mapToLong(OutboxEvent::getCreatedAt).min().orElse(event.getCreatedAt());
+        long availableAt = Math.min(now + quietMillis, createdAt + maxWaitMillis);
+
+        String commitMessage = null;
+        if (!superseded.isEmpty()) {
+
+            metricRegistry.counter(CALLS_SAVED).inc(superseded.size());
+            LOGGER.debug("coalesced {} updates of engagement {}", superseded.size() + 1, event.getEngagementUuid());
+
+            String joined = Stream.concat(superseded.stream(), Stream.of(event)).map(OutboxEvent::getEngagement)
+                    .filter(Objects::nonNull).map(Engagement::getCommitMessage).filter(Objects::nonNull)
+                    .collect(Collectors.joining(MESSAGE_SEPARATOR));
+            commitMessage = joined.isEmpty() ? null : joined;
+
+        }
+
+        repository.coalesce(event, createdAt, availableAt, commitMessage);
+
+    }
+
+    /**
+     * Adds the commit message of an update discarded because the engagement was
+     * updated since before the message of the next update of the engagement, as
+     * coalescing does, so the message still reaches the Git API. The message is
+     * dropped if the next update has already been delivered.
+     *
+     * @param event
+     */
+    void carryForward(OutboxEvent event) {
+
+        if (!EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS.equals(event.getAddress()) || null == event.getLastUpdate()
+                || null == event.getEngagement() || null == event.getEngagement().getCommitMessage()) {
+            return;
+        }
+
+        String message = event.getEngagement().getCommitMessage();
+        for (int attempt = 0; attempt < CARRY_FORWARD_ATTEMPTS; attempt++) {
+
+            Optional<OutboxEvent> next = repository.findNext(event);
+            if (next.isEmpty()) {
+                LOGGER.debug("no later update of engagement {} to carry commit message to",
+                        event.getEngagementUuid());
+                return;
+            }
+
+            String current = null == next.get().getEngagement() ? null
+                    : next.get().getEngagement().getCommitMessage();
+            String joined = null == current ? message : message + MESSAGE_SEPARATOR + current;
+            if (repository.replaceCommitMessage(next.get(), current, joined)) {
+                return;
+            }
+
+        }
+
+        LOGGER.warn("unable to carry commit message of discarded update to engagement {}",
+                event.getEngagementUuid());
+
+    }
+
+    private boolean isCoalesced(OutboxEvent event) {
+        return quietMillis > 0 && EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS.equals(event.getAddress())
+                && null != event.getLastUpdate();
+    }
+
+    /**
+     * Records the events for delivery without an engagement write, such as when
+     * replaying dead events.
+     *
+     * @param events
+     */
+    public void send(List<OutboxEvent> events) {
+        write(events, () -> null);
+    }
+
+    @Scheduled(every = "{outbox.drain.interval}")
+    void scheduledDrain() {
+
+        if (enabled) {
+            drain();
+        }
+
+    }
+
+    /**
+     * Starts workers until the configured number are draining the outbox. Each
+     * worker stops once there are no available events.
+     */
+    void drain() {
+
+        if (null == workers) {
+            return;
+        }
+
+        int current;
+        while ((current = running.get()) < workerCount) {
+            if (running.compareAndSet(current, current + 1)) {
+                workers.execute(this::work);
+            }
+        }
+
+    }
+
+    private void work() {
+
+        try {
+            int claimed;
+            do {
+                claimed = drainBatch();
+            } while (claimed > 0);
+        } catch (RuntimeException e) {
+            LOGGER.warn("outbox worker stopped, will resume on next drain. {}", e.getMessage());
+        } finally {
+            running.decrementAndGet();
+        }
+
+    }
+
+    /**
+     * Claims a batch of available events and delivers each. Returns the number of
+     * events claimed.
+     *
+     * @return
+     */
+    int drainBatch() {
+
+        String owner = new ObjectId().toHexString();
+        List<OutboxEvent> batch = repository.claim(owner, clock.getAsLong(), leaseMillis, batchSize);
+
+        // deliver in order per engagement, in parallel across engagements
+        CompletableFuture.allOf(batch.stream().map(e -> deliverInOrder(e, owner)).toArray(CompletableFuture[]::new))
+                .join();
+
+        return batch.size();
+
+    }
+
+    private CompletableFuture<Void> deliverInOrder(OutboxEvent event, String owner) {
+
+        try {
+            return eventExecutor.submit(event.getEngagementUuid(), () -> {
+                deliver(event, owner);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("event queue full, delaying {} event for engagement {}", event.getAddress(),
+                    event.getEngagementUuid());
+            repository.retryAt(event, owner, clock.getAsLong() + retryScheduler.backoff(1));
+            return CompletableFuture.completedFuture(null);
+        }
+
+    }
+
+    private void deliver(OutboxEvent event, String owner) {
+
+        boolean delivered;
+        try {
+            delivered = eventService.deliver(event);
+        } catch (RuntimeException e) {
+
+            metricRegistry.counter(FAILED).inc();
+            if (!retryScheduler.shouldRetry(event.getAttempts())) {
+                deadLetters.record(event, event.getAttempts(), e.getMessage());
+                repository.complete(event, owner);
+                return;
+            }
+
+            long delay = retryScheduler.backoff(event.getAttempts());
+            LOGGER.warn("failed to deliver {} event for engagement {} on attempt {}, retrying in {} ms. {}",
+                    event.getAddress(), event.getEngagementUuid(), event.getAttempts(), delay, e.getMessage());
+            repository.retryAt(event, owner, clock.getAsLong() + delay);
+            return;
+
+        }
+
+        repository.complete(event, owner);
+        if (delivered) {
+            metricRegistry.meter(DELIVERED).mark();
+        } else {
+            LOGGER.debug("discarded {} event for engagement {}", event.getAddress(), event.getEngagementUuid());
+            metricRegistry.counter(DISCARDED).inc();
+            carryForward(event);
+        }
+
+    }
+
+    private static Metadata gauge(String name, String unit) {
+        return Metadata.builder().withName(name).withType(MetricType.GAUGE).withUnit(unit).build();
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.redhat.labs.lodestar.service;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -28,12 +29,32 @@ public class ParticipantService {
     
     @Inject
     EngagementService engagementService;
+
+    @Inject
+    EngagementEventExecutor eventExecutor;
     
     public List<EngagementUser> getParticiipantsForEngagement(String engagementUuid) {
         return participantRestClient.getParticipantsForEngagement(engagementUuid);
     }
     
-    @ConsumeEvent(value = EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS)
+    /**
+     * Sends the participants update for the engagement in the message after the
+     * handlers already submitted for the engagement.
+     * 
+     * @param message
+     */
+    @ConsumeEvent(EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS)
+    void consumeUpdateParticipantsEvent(String message) {
+
+        String uuid = message.split(",")[0];
+        try {
+            eventExecutor.execute(uuid, () -> updateParticipants(message));
+        } catch (RejectedExecutionException e) {
+            LOGGER.error("Failed to update participants for engagement {}, event queue full", uuid);
+        }
+
+    }
+
     public void updateParticipants(String message) {
         String[] uuidNameEmail = message.split(",");
         
@@ -0,0 +1,309 @@
+package com.redhat.labs.lodestar.service;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedResults;
+import com.redhat.labs.lodestar.repository.CountCache;
+import com.redhat.labs.lodestar.repository.DataVersionTracker;
+
+/**
+ * Caches the results of the read mostly list and aggregation queries. Each
+ * query has its own LRU segment bounded by weight, where a page weighs one plus
+ * its number of results. Callers are given a copy of the cached result, so
+ * changing a result does not change what later callers read. Results are cached against the version from the
+ * {@link DataVersionTracker}, so a write on any instance invalidates them once
+ * this instance has seen it. Results also expire after the time to live of the
+ * query.
+ */
+@ApplicationScoped
+public class QueryResultCache {
+
+    static final String HIT = "query-cache-hit";
+    static final String MISS = "query-cache-miss";
+    static final String EVICTION = "query-cache-eviction";
+    static final String HIT_RATE = "query-cache-hit-rate";
+    static final String WEIGHT = "query-cache-weight";
+    private static final String QUERY_TAG = "query";
+    private static final String PREFIX = "query.cache.";
+
+    public enum CachedQuery {
+
+        ENGAGEMENTS("engagements", 5000), CATEGORIES("categories", 2000), ARTIFACTS("artifacts", 2000),
+        ARTIFACT_TYPES("artifact.types", 2000), CUSTOMER_SUGGESTIONS("customer.suggestions", 2000),
+        USER_SUMMARY("user.summary", 100);
+
+        private final String configName;
+        private final long defaultMaxWeight;
+
+        CachedQuery(String configName, long defaultMaxWeight) {
+            this.configName = configName;
+            this.defaultMaxWeight = defaultMaxWeight;
+        }
+
+    }
+
+    @ConfigProperty(name = "query.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "query.cache.ttl.seconds", defaultValue = "30")
+    long defaultTtlSeconds;
+
+    @Inject
+    Config config;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<CachedQuery, Segment> segments = new EnumMap<>(CachedQuery.class);
+
+    @PostConstruct
+    void createSegments() {
+
+        for (CachedQuery query : CachedQuery.values()) {
+
+            long ttlSeconds = config.getOptionalValue(PREFIX + query.configName + ".ttl.seconds", Long.class)
+                    .orElse(defaultTtlSeconds);
+            long maxWeight = config.getOptionalValue(PREFIX + query.configName + ".max.weight", Long.class)
+                    .orElse(query.defaultMaxWeight);
+
+            Segment segment = new Segment(query, ttlSeconds * 1000, maxWeight);
+            segments.put(query, segment);
+
+            Tag tag = new Tag(QUERY_TAG, query.configName);
+            metricRegistry.register(Metadata.builder().withName(HIT_RATE).withType(MetricType.GAUGE).build(),
+                    (Gauge<Double>) segment::getHitRate, tag);
+            metricRegistry.register(Metadata.builder().withName(WEIGHT).withType(MetricType.GAUGE).build(),
+                    (Gauge<Long>) segment::getWeight, tag);
+
+        }
+
+    }
+
+    /**
+     * Returns a copy of the cached page for the query and
+     * {@link ListFilterOptions}. Otherwise, loads the page, caches it and returns a
+     * copy.
+     *
+     * @param <P>
+     * @param query
+     * @param filterOptions
+     * @param loader
+     * @param copier
+     * @return
+     */
+    public <P extends PagedResults<?>> P getPage(CachedQuery query, ListFilterOptions filterOptions,
+            Supplier<P> loader, UnaryOperator<P> copier) {
+
+        return get(query, filterOptions, () -> {
+            P page = loader.get();
+            // set the headers now, cached pages are only read
+            if (null != page) {
+                page.getHeaders();
+            }
+            return page;
+        }, copier, page -> 1L + page.getResults().size());
+
+    }
+
+    /**
+     * Returns a copy of the cached result for the query and
+     * {@link ListFilterOptions}. Otherwise, loads the result, caches it and returns
+     * a copy.
+     *
+     * @param <T>
+     * @param query
+     * @param filterOptions
+     * @param loader
+     * @param copier
+     * @return
+     */
+    public <T> T get(CachedQuery query, ListFilterOptions filterOptions, Supplier<T> loader, UnaryOperator<T> copier) {
+        return get(query, filterOptions, loader, copier, result -> 1L);
+    }
+
+    private <T> T get(CachedQuery query, ListFilterOptions filterOptions, Supplier<T> loader, UnaryOperator<T> copier,
+            ToLongFunction<T> weigher) {
+
+        if (!enabled) {
+            return loader.get();
+        }
+
+        // key before loading, the repository rewrites the filter options
+        String key = createKey(filterOptions);
+        long version = versionTracker.getVersion();
+        Segment segment = segments.get(query);
+
+        @SuppressWarnings("unchecked")
+        T cached = (T) segment.get(key, version, clock.getAsLong());
+        if (null != cached) {
+            metricRegistry.counter(HIT, segment.tag).inc();
+            return copier.apply(cached);
+        }
+
+        metricRegistry.counter(MISS, segment.tag).inc();
+        T result = loader.get();
+        if (null == result) {
+            return null;
+        }
+
+        segment.put(key, new Entry(result, weigher.applyAsLong(result), version, clock.getAsLong()));
+        return copier.apply(result);
+
+    }
+
+    double getHitRate(CachedQuery query) {
+        return segments.get(query).getHitRate();
+    }
+
+    long getWeight(CachedQuery query) {
+        return segments.get(query).getWeight();
+    }
+
+    /**
+     * Returns the cache key for the given {@link ListFilterOptions}, covering the
+     * filter, the page and the projection. Sort fields are keyed as given, so a
+     * request without them is not confused with one naming the default sort, and
+     * results ranked by a text search are keyed apart from sorted results.
+     *
+     * @param filterOptions
+     * @return
+     */
+    static String createKey(ListFilterOptions filterOptions) {
+
+        return new StringBuilder(CountCache.createKey(filterOptions)).append('|')
+                .append(filterOptions.getSortFields().orElse("")).append('|')
+                .append(filterOptions.isRankedByText()).append('|')
+                .append(filterOptions.getSortOrder().map(Enum::name).orElse("")).append('|')
+                .append(filterOptions.getPage().map(String::valueOf).orElse("")).append('|')
+                .append(filterOptions.getPerPage().map(String::valueOf).orElse("")).append('|')
+                .append(filterOptions.isCursorPaging()).append(filterOptions.getCursor().orElse("")).append('|')
+                .append(filterOptions.isTotalCountIncluded()).append('|')
+                .append(sorted(filterOptions.getIncludeList().orElse(null))).append('|')
+                .append(sorted(filterOptions.getExcludeList().orElse(null))).append('|')
+                .append(filterOptions.getSuggestFieldName().orElse("")).append('|')
+                .append(filterOptions.getUnwindProjectFieldNames().orElse("")).toString();
+
+    }
+
+    private static String sorted(Set<String> values) {
+        return null == values ? "" : String.join(",", new TreeSet<>(values));
+    }
+
+    private static class Entry {
+
+        private final Object value;
+        private final long weight;
+        private final long version;
+        private final long created;
+
+        Entry(Object value, long weight, long version, long created) {
+            this.value = value;
+            this.weight = weight;
+            this.version = version;
+            this.created = created;
+        }
+
+    }
+
+    private class Segment {
+
+        private final Tag tag;
+        private final long ttlMillis;
+        private final long maxWeight;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private long weight;
+
+        Segment(CachedQuery query, long ttlMillis, long maxWeight) {
+            this.tag = new Tag(QUERY_TAG, query.configName);
+            this.ttlMillis = ttlMillis;
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized Object get(String key, long version, long now) {
+
+            Entry entry = entries.get(key);
+            if (null != entry && entry.version == version && now - entry.created < ttlMillis) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+
+            if (null != entry) {
+                remove(key);
+            }
+
+            misses.incrementAndGet();
+            return null;
+
+        }
+
+        synchronized void put(String key, Entry entry) {
+
+            if (entry.weight > maxWeight) {
+                return;
+            }
+
+            remove(key);
+            entries.put(key, entry);
+            weight += entry.weight;
+
+            // least recently used first
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                weight -= iterator.next().getValue().weight;
+                iterator.remove();
+                metricRegistry.counter(EVICTION, tag).inc();
+            }
+
+        }
+
+        private void remove(String key) {
+
+            Entry removed = entries.remove(key);
+            if (null != removed) {
+                weight -= removed.weight;
+            }
+
+        }
+
+        double getHitRate() {
+            long total = hits.get() + misses.get();
+            return 0 == total ? 0 : (double) hits.get() / total;
+        }
+
+        synchronized long getWeight() {
+            return weight;
+        }
+
+    }
+
+}
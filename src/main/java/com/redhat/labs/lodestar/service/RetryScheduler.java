@@ -0,0 +1,143 @@
+package com.redhat.labs.lodestar.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.model.event.RetriableEvent;
+
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.eventbus.EventBus;
+
+/**
+ * Schedules failed engagement events to be sent again on a timer rather than
+ * holding a worker thread while waiting. The delay grows exponentially with
+ * each attempt up to the maximum delay, and part of it is random so retries
+ * failing together do not all run together. An event is dead lettered once it
+ * runs out of retries, or when too many retries are already waiting.
+ */
+@ApplicationScoped
+public class RetryScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryScheduler.class);
+
+    static final String SCHEDULED = "event-retry-scheduled";
+    static final String IN_FLIGHT = "event-retry-in-flight";
+
+    @ConfigProperty(name = "event.max.retries", defaultValue = "5")
+    int maxRetries;
+
+    @ConfigProperty(name = "event.retry.initial.delay.millis", defaultValue = "1000")
+    long initialDelayMillis;
+
+    @ConfigProperty(name = "event.retry.delay.factor", defaultValue = "2")
+    int delayFactor;
+
+    @ConfigProperty(name = "event.retry.max.delay", defaultValue = "60")
+    int maxDelaySeconds;
+
+    @ConfigProperty(name = "event.retry.jitter", defaultValue = "0.5")
+    double jitter;
+
+    @ConfigProperty(name = "event.retry.max.in.flight", defaultValue = "100")
+    int maxInFlight;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    EventBus eventBus;
+
+    @Inject
+    DeadLetterService deadLetters;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    void onStart(@Observes StartupEvent event) {
+        metricRegistry.register(Metadata.builder().withName(IN_FLIGHT).withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE).build(), (Gauge<Integer>) inFlight::get);
+    }
+
+    /**
+     * Sends the event to the retry address once its backoff has passed. The event
+     * is dead lettered as a delivery to the original address if it has no retries
+     * left or too many retries are waiting.
+     * 
+     * @param retryAddress
+     * @param address
+     * @param event
+     * @param error
+     */
+    public void retry(String retryAddress, String address, RetriableEvent event, String error) {
+
+        int attempts = event.getCurrentRetryCount();
+        if (!event.shouldRetry()) {
+            deadLetters.record(OutboxEvent.of(address, event.getEngagement()), attempts, error);
+            return;
+        }
+
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            deadLetters.record(OutboxEvent.of(address, event.getEngagement()), attempts,
+                    "too many retries waiting. " + error);
+            return;
+        }
+
+        long delay = backoff(attempts);
+        LOGGER.debug("retrying {} event for engagement {} in {} ms", address, event.getEngagement().getUuid(), delay);
+        metricRegistry.counter(SCHEDULED).inc();
+
+        vertx.setTimer(delay, id -> {
+            inFlight.decrementAndGet();
+            eventBus.sendAndForget(retryAddress, event);
+        });
+
+    }
+
+    /**
+     * Returns true if an event that failed the given number of delivery attempts
+     * should be attempted again.
+     * 
+     * @param attempts
+     * @return
+     */
+    public boolean shouldRetry(int attempts) {
+        return maxRetries < 0 || attempts <= maxRetries;
+    }
+
+    /**
+     * Returns the number of milliseconds to wait before the next attempt, after
+     * the given number of failed attempts.
+     * 
+     * @param attempts
+     * @return
+     */
+    public long backoff(int attempts) {
+
+        double delay = initialDelayMillis * Math.pow(Math.max(1, delayFactor), Math.max(0, attempts - 1));
+        long capped = (long) Math.min(delay, TimeUnit.SECONDS.toMillis(maxDelaySeconds));
+        long random = (long) (capped * Math.min(1, Math.max(0, jitter)));
+
+        return capped - random + (random > 0 ? ThreadLocalRandom.current().nextLong(random + 1) : 0);
+
+    }
+
+}
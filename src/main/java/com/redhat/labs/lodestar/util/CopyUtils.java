@@ -0,0 +1,86 @@
+package com.redhat.labs.lodestar.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+public class CopyUtils {
+
+    private CopyUtils() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns a new {@link List} containing the elements of the given
+     * {@link List}. Intended for lists of immutable values. Returns null if the
+     * given {@link List} is null.
+     *
+     * @param <T>
+     * @param list
+     * @return
+     */
+    public static <T> List<T> copyList(List<T> list) {
+        return null == list ? null : new ArrayList<>(list);
+    }
+
+    /**
+     * Returns a new {@link List} containing a copy of each element of the given
+     * {@link List}. Null elements are kept as null. Returns null if the given
+     * {@link List} is null.
+     *
+     * @param <T>
+     * @param list
+     * @param copier
+     * @return
+     */
+    public static <T> List<T> copyList(List<T> list, UnaryOperator<T> copier) {
+
+        if (null == list) {
+            return null;
+        }
+
+        List<T> copy = new ArrayList<>(list.size());
+        list.forEach(element -> copy.add(null == element ? null : copier.apply(element)));
+        return copy;
+
+    }
+
+    /**
+     * Returns a new {@link Set} containing a copy of each element of the given
+     * {@link Set}. Returns null if the given {@link Set} is null.
+     *
+     * @param <T>
+     * @param set
+     * @param copier
+     * @return
+     */
+    public static <T> Set<T> copySet(Set<T> set, UnaryOperator<T> copier) {
+
+        if (null == set) {
+            return null;
+        }
+
+        Set<T> copy = new HashSet<>();
+        set.forEach(element -> copy.add(null == element ? null : copier.apply(element)));
+        return copy;
+
+    }
+
+    /**
+     * Returns a new {@link Map} with the entries of the given {@link Map}. Values
+     * are not copied. Returns null if the given {@link Map} is null.
+     *
+     * @param <K>
+     * @param <V>
+     * @param map
+     * @return
+     */
+    public static <K, V> Map<K, V> copyMap(Map<K, V> map) {
+        return null == map ? null : new LinkedHashMap<>(map);
+    }
+
+}
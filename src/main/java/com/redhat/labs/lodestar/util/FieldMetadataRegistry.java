@@ -0,0 +1,236 @@
+package com.redhat.labs.lodestar.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import com.redhat.labs.lodestar.model.Engagement;
+
+/**
+ * Immutable metadata for every field reachable from {@link Engagement}, built
+ * once when the class is loaded. Each field is registered under its path, the
+ * snake case form of its path and any alias used by the API, and carries its
+ * Mongo path, type and a converter from a search value. The comma separated
+ * projection fields of each list of nested documents are also computed here,
+ * so no reflection is needed while serving requests.
+ */
+public class FieldMetadataRegistry {
+
+    private static final String MODEL_PACKAGE = Engagement.class.getPackageName();
+    private static final String MONGO_ID = "_id";
+
+    private static final Map<String, FieldMetadata> FIELDS;
+    private static final Map<String, String> PROJECTION_FIELDS;
+
+    static {
+
+        Map<String, FieldMetadata> fields = new HashMap<>();
+        Map<String, String> projections = new HashMap<>();
+        register(Engagement.class, null, null, Set.of(Engagement.class), fields, projections);
+
+        // query names, snake case and aliases for each path
+        Map<String, FieldMetadata> names = new HashMap<>(fields);
+        fields.values().forEach(f -> names.putIfAbsent(camelToSnakeCase(f.getPath()), f));
+        ClassFieldUtils.getAliases().forEach((alias, name) -> {
+            FieldMetadata field = fields.get(ClassFieldUtils.snakeToCamelCase(name));
+            if (null != field) {
+                names.put(alias, field);
+            }
+        });
+
+        FIELDS = Collections.unmodifiableMap(names);
+        PROJECTION_FIELDS = Collections.unmodifiableMap(projections);
+
+    }
+
+    private FieldMetadataRegistry() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * The path, type and value converter of a field.
+     */
+    public static class FieldMetadata {
+
+        private final String path;
+        private final String mongoPath;
+        private final Class<?> type;
+        private final Function<String, Object> converter;
+
+        FieldMetadata(String path, String mongoPath, Class<?> type) {
+            this.path = path;
+            this.mongoPath = mongoPath;
+            this.type = type;
+            this.converter = createConverter(type);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getMongoPath() {
+            return mongoPath;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * Returns an instance of the field type for the given value.
+         *
+         * @param value
+         * @return
+         */
+        public Object convert(String value) {
+            return converter.apply(value);
+        }
+
+    }
+
+    /**
+     * Returns the {@link FieldMetadata} for the given query name, which may be
+     * the field path, its snake case form or an alias.
+     *
+     * @param queryName
+     * @return
+     */
+    public static Optional<FieldMetadata> find(String queryName) {
+
+        if (null == queryName) {
+            return Optional.empty();
+        }
+
+        FieldMetadata field = FIELDS.get(queryName);
+        return null != field ? Optional.of(field)
+                : Optional.ofNullable(FIELDS.get(ClassFieldUtils.getFieldNameFromQueryName(queryName)));
+
+    }
+
+    /**
+     * Returns the {@link FieldMetadata} for the given query name. Throws a
+     * {@link WebApplicationException} if there is no such field.
+     *
+     * @param queryName
+     * @return
+     */
+    public static FieldMetadata get(String queryName) {
+        return find(queryName).orElseThrow(() -> new WebApplicationException(
+                String.format("invalid field %s on %s", queryName, Engagement.class.getName()), 400));
+    }
+
+    /**
+     * Returns the comma separated paths of the fields of the documents in the
+     * given list field of {@link Engagement}.
+     *
+     * @param listField
+     * @return
+     */
+    public static String getProjectionFields(String listField) {
+
+        String fields = PROJECTION_FIELDS.get(listField);
+        if (null == fields) {
+            throw new IllegalArgumentException("not a list of documents: " + listField);
+        }
+        return fields;
+
+    }
+
+    private static void register(Class<?> clazz, String prefix, String mongoPrefix, Set<Class<?>> visited,
+            Map<String, FieldMetadata> fields, Map<String, String> projections) {
+
+        for (Field field : FieldUtils.getAllFields(clazz)) {
+
+            if (field.isSynthetic() || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            String name = field.getName();
+            String path = null == prefix ? name : prefix + "." + name;
+            String mongoName = field.isAnnotationPresent(BsonId.class) ? MONGO_ID : name;
+            String mongoPath = null == mongoPrefix ? mongoName : mongoPrefix + "." + mongoName;
+
+            fields.put(path, new FieldMetadata(path, mongoPath, field.getType()));
+
+            // nested model documents, or collections of them
+            Class<?> nested = getElementType(field);
+            if (!nested.getPackageName().equals(MODEL_PACKAGE) || nested.isEnum() || visited.contains(nested)) {
+                continue;
+            }
+
+            if (Collection.class.isAssignableFrom(field.getType())) {
+                projections.put(path, Stream.of(FieldUtils.getAllFields(nested))
+                        .map(f -> ClassFieldUtils.getNestedFieldName(f.getName(), Optional.of(path)))
+                        .collect(Collectors.joining(",")));
+            }
+
+            Set<Class<?>> nestedVisited = Stream.concat(visited.stream(), Stream.of(nested))
+                    .collect(Collectors.toSet());
+            register(nested, path, mongoPath, nestedVisited, fields, projections);
+
+        }
+
+    }
+
+    private static Class<?> getElementType(Field field) {
+
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (1 == arguments.length && arguments[0] instanceof Class) {
+                return (Class<?>) arguments[0];
+            }
+        }
+
+        return field.getType();
+
+    }
+
+    private static Function<String, Object> createConverter(Class<?> type) {
+
+        if (String.class.equals(type)) {
+            return value -> value;
+        }
+
+        Constructor<?> constructor;
+        try {
+            constructor = type.getConstructor(String.class);
+        } catch (NoSuchMethodException e) {
+            return value -> {
+                throw new WebApplicationException(
+                        "cannot create instance of " + type.getName() + ", error = " + e.getMessage(), 400);
+            };
+        }
+
+        return value -> {
+            try {
+                return constructor.newInstance(value);
+            } catch (Exception e) {
+                throw new WebApplicationException(
+                        "cannot create instance of " + type.getName() + ", error = " + e.getMessage(), 400);
+            }
+        };
+
+    }
+
+    static String camelToSnakeCase(String value) {
+        return value.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+}
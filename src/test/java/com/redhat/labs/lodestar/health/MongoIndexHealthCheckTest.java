@@ -0,0 +1,63 @@
+package com.redhat.labs.lodestar.health;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
+
+class MongoIndexHealthCheckTest {
+
+    EngagementIndexManager indexManager;
+    MongoIndexHealthCheck check;
+
+    @BeforeEach
+    void setUp() {
+
+        indexManager = Mockito.mock(EngagementIndexManager.class);
+        Mockito.when(indexManager.getMissingUniqueIndexes()).thenReturn(Collections.emptySet());
+        Mockito.when(indexManager.getFailedIndexes()).thenReturn(Collections.emptySet());
+
+        check = new MongoIndexHealthCheck();
+        check.indexManager = indexManager;
+
+    }
+
+    @Test
+    void testDownUntilReconciled() {
+
+        assertEquals(HealthCheckResponse.State.DOWN, check.call().getState());
+        Mockito.verify(indexManager, Mockito.never()).reconcile();
+
+    }
+
+    @Test
+    void testDownWhenUniqueIndexMissing() {
+
+        Mockito.when(indexManager.isReconciled()).thenReturn(true);
+        Mockito.when(indexManager.getFailedIndexes()).thenReturn(Set.of("lodestar_uuid", "lodestar_text"));
+        Mockito.when(indexManager.getMissingUniqueIndexes()).thenReturn(Set.of("lodestar_uuid"));
+
+        HealthCheckResponse response = check.call();
+        assertEquals(HealthCheckResponse.State.DOWN, response.getState());
+        assertEquals("[lodestar_uuid]", response.getData().get().get("missing"));
+
+    }
+
+    @Test
+    void testUpWhenOnlyOtherIndexesFailed() {
+
+        Mockito.when(indexManager.isReconciled()).thenReturn(true);
+        Mockito.when(indexManager.getFailedIndexes()).thenReturn(Set.of("lodestar_text"));
+
+        assertEquals(HealthCheckResponse.State.UP, check.call().getState());
+
+    }
+
+}
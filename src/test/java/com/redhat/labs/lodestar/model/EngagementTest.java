@@ -2,14 +2,29 @@ package com.redhat.labs.lodestar.model;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.json.bind.JsonbConfig;
+import javax.json.bind.config.PropertyNamingStrategy;
+
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import com.redhat.labs.lodestar.util.DateFormatter;
+import com.redhat.labs.lodestar.utils.MockUtils;
 
 public class EngagementTest {
     private String currentTime = "2021-05-25T00:00:00.000Z";
+    private Jsonb jsonb = JsonbBuilder
+            .create(new JsonbConfig().withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES));
     
     @Test
     public void testEngagementUpcoming() {
@@ -80,4 +95,74 @@ public class EngagementTest {
         Assertions.assertEquals(Engagement.EngagementState.ACTIVE, active.getEngagementCurrentState(currentTimeLocal));
     }
 
+    @Test
+    public void testCopyMatchesJsonRoundTrip() {
+
+        Engagement engagement = mockFullEngagement();
+        Engagement copy = engagement.copy();
+
+        Assertions.assertNotSame(engagement, copy);
+        Assertions.assertEquals(engagement.getMongoId(), copy.getMongoId());
+        Assertions.assertEquals(engagement.getSubdomainKeys(), copy.getSubdomainKeys());
+
+        Engagement roundTrip = jsonb.fromJson(jsonb.toJson(engagement), Engagement.class);
+        Assertions.assertEquals(jsonb.toJson(roundTrip), jsonb.toJson(copy));
+
+    }
+
+    @Test
+    public void testCopyIsDeep() {
+
+        Engagement engagement = mockFullEngagement();
+        Engagement copy = engagement.copy();
+
+        copy.getHostingEnvironments().get(0).setOcpSubDomain("changed");
+        copy.getHostingEnvironments().add(MockUtils.mockHostingEnvironment("env2", "sub2"));
+        copy.getSubdomainKeys().add("changed");
+        copy.getLaunch().setLaunchedBy("changed");
+        copy.getEngagementUsers().iterator().next().setRole("changed");
+        copy.getStatus().getSubsystems().get(0).getMessages().get(0).setMessage("changed");
+        copy.getStatus().getSubsystems().get(0).getAccessUrls().get(0).put("url", "changed");
+        copy.getCommits().get(0).getAdded().add("changed");
+        copy.getCreationDetails().setCreatedByUser("changed");
+        copy.getCategories().get(0).setName("changed");
+        copy.getUseCases().get(0).setTitle("changed");
+        copy.getArtifacts().get(0).setTitle("changed");
+        copy.getScores().get(0).setValue(0.0);
+        copy.getBillingCodes().get(0).getBillingProjects().get(0).getTasks().add("changed");
+
+        Assertions.assertEquals(jsonb.toJson(mockFullEngagement()), jsonb.toJson(engagement));
+        Assertions.assertEquals(List.of("sub1"), engagement.getSubdomainKeys());
+
+    }
+
+    private Engagement mockFullEngagement() {
+
+        Message message = Message.builder().severity("info").message("up").build();
+        Subsystem subsystem = Subsystem.builder().name("openshift").status("green")
+                .messages(new ArrayList<>(List.of(message)))
+                .accessUrls(new ArrayList<>(List.of(new HashMap<>(Map.of("url", "https://console"))))).build();
+        Status status = Status.builder().status("green").messages(new ArrayList<>())
+                .subsystems(new ArrayList<>(List.of(subsystem))).build();
+        BillingProject billingProject = BillingProject.builder().code("c1").tasks(new ArrayList<>(List.of("t1")))
+                .build();
+        BillingCodes billingCodes = BillingCodes.builder().billingProjects(new ArrayList<>(List.of(billingProject)))
+                .build();
+        EngagementUser user = MockUtils.mockEngagementUser("a@example.com", "A", "User", "dev", "u1", false);
+
+        return MockUtils.mockEngagement().toBuilder().uuid("1234").mongoId(new ObjectId("5f6b6c5e2f2b1a0c3d4e5f60"))
+                .hostingEnvironments(new ArrayList<>(List.of(MockUtils.mockHostingEnvironment("env1", "sub1"))))
+                .subdomainKeys(new ArrayList<>(List.of("sub1")))
+                .launch(MockUtils.mockLaunch("2021-01-01T00:00:00.000Z", "launcher", "launcher@example.com"))
+                .engagementUsers(new HashSet<>(Set.of(user))).status(status)
+                .commits(new ArrayList<>(List.of(MockUtils.mockCommit("status.json", true, null))))
+                .creationDetails(CreationDetails.builder().createdByUser("creator").build())
+                .categories(new ArrayList<>(List.of(MockUtils.mockCategory("c1"))))
+                .useCases(new ArrayList<>(List.of(MockUtils.mockUseCase("u1", "d1", 1))))
+                .artifacts(new ArrayList<>(List.of(MockUtils.mockArtifact("a1", "demo", "http://a1"))))
+                .scores(new ArrayList<>(List.of(MockUtils.mockScore("s1", 1.0))))
+                .billingCodes(new ArrayList<>(List.of(billingCodes))).build();
+
+    }
+
 }
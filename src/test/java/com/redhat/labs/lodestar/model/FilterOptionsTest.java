@@ -1,14 +1,20 @@
 package com.redhat.labs.lodestar.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Optional;
 import java.util.Set;
 
+import javax.ws.rs.WebApplicationException;
+
 import org.junit.jupiter.api.Test;
 
 import com.redhat.labs.lodestar.model.filter.FilterOptions;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.ListView;
 
 class FilterOptionsTest {
 
@@ -67,4 +73,36 @@ class FilterOptionsTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testApplyView() {
+
+        ListFilterOptions options = ListFilterOptions.builder().build();
+        options.applyView(ListView.CARD);
+        assertEquals(ListView.CARD.getInclude().get(), options.getInclude());
+        assertTrue(options.getIncludeList().get().contains("customerName"));
+
+        options = ListFilterOptions.builder().view(ListView.TABLE).build();
+        options.applyView(ListView.CARD);
+        assertTrue(options.getIncludeList().get().containsAll(Set.of(ListView.CARD.getInclude().get().split(","))));
+        assertTrue(options.getIncludeList().get().contains("engagementLeadName"));
+
+        options = ListFilterOptions.builder().view(ListView.FULL).build();
+        options.applyView(ListView.CARD);
+        assertNull(options.getInclude());
+
+        options = ListFilterOptions.builder().exclude("commits").build();
+        options.applyView(ListView.CARD);
+        assertNull(options.getInclude());
+
+    }
+
+    @Test
+    void testListViewFromString() {
+
+        assertEquals(ListView.TABLE, ListView.fromString("table"));
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> ListView.fromString("grid"));
+        assertEquals(400, e.getResponse().getStatus());
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.redhat.labs.lodestar.model.pagination;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+
+class PageCursorTest {
+
+    @Test
+    void testEncodeDecode() {
+
+        PageCursor cursor = PageCursor.builder().keys(List.of("customerName", "projectName", "_id", "unwindIndex"))
+                .sortOrder(SortOrder.DESC).values(Arrays.asList(new BsonString("c1"), BsonNull.VALUE,
+                        new BsonObjectId(new ObjectId()), new BsonInt32(2)))
+                .build();
+
+        String token = cursor.encode();
+        assertEquals(cursor, PageCursor.decode(token));
+
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "not-a-cursor", "%%%", "e30" })
+    void testDecodeInvalid(String token) {
+
+        WebApplicationException ex = assertThrows(WebApplicationException.class, () -> PageCursor.decode(token));
+        assertEquals(400, ex.getResponse().getStatus());
+
+    }
+
+}
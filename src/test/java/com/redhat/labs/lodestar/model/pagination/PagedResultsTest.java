@@ -154,4 +154,38 @@ class PagedResultsTest {
 
     }
 
+    @Test
+    void testGetHeadersCursorPagingWithNext() {
+
+        PagedResults results = PagedResults.builder().cursorPaging(true).perPage(2).totalCount(null)
+                .nextCursor("abc").build();
+
+        Map<String, Object> headers = results.getHeaders();
+        assertEquals("abc", headers.get("x-next-cursor"));
+        assertEquals(2, headers.get("x-per-page"));
+        assertFalse(headers.containsKey("x-total-count"));
+        assertFalse(headers.containsKey("x-last-page"));
+        assertFalse(headers.containsKey("x-current-page"));
+
+        Link[] links = results.getLinks(UriBuilder.fromPath("http://some/path"));
+        assertEquals(1, links.length);
+        assertEquals("next", links[0].getRel());
+        assertEquals("abc", links[0].getParams().get("cursor"));
+
+    }
+
+    @Test
+    void testGetHeadersCursorPagingLastPageWithCount() {
+
+        PagedResults results = PagedResults.builder().cursorPaging(true).perPage(2).totalCount(5).build();
+
+        Map<String, Object> headers = results.getHeaders();
+        assertFalse(headers.containsKey("x-next-cursor"));
+        assertEquals(5, headers.get("x-total-count"));
+
+        Link[] links = results.getLinks(UriBuilder.fromPath("http://some/path"));
+        assertEquals(0, links.length);
+
+    }
+
 }
@@ -1,6 +1,7 @@
 package com.redhat.labs.lodestar.model.search;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,6 +30,21 @@ class BsonSearchTest {
 
     }
 
+    @Test
+    void testCompiledFilterReused() {
+
+        Optional<Bson> first = BsonSearch.builder().searchString("customer_name=c&project_name like p").build()
+                .createBsonForSearch();
+        Optional<Bson> second = BsonSearch.builder().searchString("project_name like p&&customer_name=c").build()
+                .createBsonForSearch();
+
+        assertSame(first.get(), second.get());
+        assertEquals("customer_name=c&project_name like p",
+                BsonSearch.canonicalize("project_name like p&&customer_name=c"));
+        assertTrue(BsonSearch.getCachedFilterCount() <= BsonSearch.MAX_CACHED_FILTERS);
+
+    }
+
     @ParameterizedTest
     @MethodSource("provideExceptionValues")
     void testSearchStringStateExceptions(String searchString, String exceptionMessage) {
@@ -1,10 +1,14 @@
 package com.redhat.labs.lodestar.model.search;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.stream.Stream;
 
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -65,7 +69,77 @@ class DefaultSearchComponentTest {
                 Arguments.of("customer_name not exists", "customer_name", "not exists", "",
                         "Or Filter{filters=[And Filter{filters=[Operator Filter{fieldName='customerName', operator='$exists', value=BsonBoolean{value=false}}, Filter{fieldName='customerName', value=null}]}, And Filter{filters=[Operator Filter{fieldName='customerName', operator='$exists', value=BsonBoolean{value=true}}, Filter{fieldName='customerName', value=[]}]}]}"),
                 Arguments.of("customer_name=one,two,three", "customer_name", "=", "one,two,three",
-                        "Or Filter{filters=[Filter{fieldName='customerName', value=one}, Filter{fieldName='customerName', value=two}, Filter{fieldName='customerName', value=three}]}"));
+                        "Or Filter{filters=[Filter{fieldName='customerName', value=one}, Filter{fieldName='customerName', value=two}, Filter{fieldName='customerName', value=three}]}"),
+                Arguments.of("customer_name like a.b (c)", "customer_name", "like", "a.b (c)",
+                        "Operator Filter{fieldName='customerName', operator='$eq', value=BsonRegularExpression{pattern='a\\.b \\(c\\)', options='i'}}"),
+                Arguments.of("customer_name matches ^a.b", "customer_name", "matches", "^a.b",
+                        "Operator Filter{fieldName='customerName', operator='$eq', value=BsonRegularExpression{pattern='^a.b', options='i'}}"),
+                Arguments.of("customer_name not matches ^a", "customer_name", "not matches", "^a",
+                        "Not Filter{filter=Operator Filter{fieldName='customerName', operator='$eq', value=BsonRegularExpression{pattern='^a', options='i'}}}"),
+                Arguments.of("customer_name starts Red.", "customer_name", "starts", "Red.",
+                        "Operator Filter{fieldName='customerName', operator='$eq', value=BsonRegularExpression{pattern='^Red\\.', options=''}}"),
+                Arguments.of("hosting_environments.environment_name in dev,test", "hosting_environments.environment_name",
+                        "in", "dev,test",
+                        "Operator Filter{fieldName='hostingEnvironments.environmentName', operator='$in', value=[dev, test]}"),
+                Arguments.of("project_id>5", "project_id", ">", "5",
+                        "Operator Filter{fieldName='projectId', operator='$gt', value=5}"),
+                Arguments.of("project_id >= 5", "project_id", ">=", "5",
+                        "Operator Filter{fieldName='projectId', operator='$gte', value=5}"),
+                Arguments.of("end_date<2021-01-01", "end_date", "<", "2021-01-01",
+                        "Operator Filter{fieldName='endDate', operator='$lt', value=2021-01-01}"),
+                Arguments.of("end_date <= 2021-01-01", "end_date", "<=", "2021-01-01",
+                        "Operator Filter{fieldName='endDate', operator='$lte', value=2021-01-01}"),
+                Arguments.of("end_date between 2021-01-01,2021-06-30", "end_date", "between", "2021-01-01,2021-06-30",
+                        "And Filter{filters=[Operator Filter{fieldName='endDate', operator='$gte', value=2021-01-01}, Operator Filter{fieldName='endDate', operator='$lte', value=2021-06-30}]}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "end_date between 2021-01-01", "project_id > five", "not_a_field > 1" })
+    void testInvalidValues(String component) {
+
+        DefaultSearchComponent sc = DefaultSearchComponent.builder().component(component).build();
+
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> sc.getBson());
+        assertEquals(400, e.getResponse().getStatus());
+
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "hosting_environments.environment_name like prod", "description like more in time",
+            "description like a>b" })
+    void testWordOperatorsNotFoundInAttributesOrValues(String component) {
+
+        DefaultSearchComponent sc = DefaultSearchComponent.builder().component(component).build();
+        assertEquals("like", sc.getOperator().get());
+
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideOperatorsInValuesTestValues")
+    void testOperatorsInValues(String component, String attribute, String operator, String value) {
+
+        DefaultSearchComponent sc = DefaultSearchComponent.builder().component(component).build();
+
+        assertEquals(attribute, sc.getAttribute().get());
+        assertEquals(operator, sc.getOperator().get());
+        assertEquals(value, sc.getValue().get());
+
+    }
+
+    private static Stream<Arguments> provideOperatorsInValuesTestValues() {
+        return Stream.of(Arguments.of("project_name starts Unlikely", "project_name", "starts", "Unlikely"),
+                Arguments.of("project_name starts Existsing", "project_name", "starts", "Existsing"),
+                Arguments.of("project_name starts Likely exists", "project_name", "starts", "Likely exists"),
+                Arguments.of("project_name matches ^in", "project_name", "matches", "^in"),
+                Arguments.of("project_name like a=b", "project_name", "like", "a=b"),
+                Arguments.of("project_name=not like this", "project_name", "=", "not like this"),
+                Arguments.of("project_name starts Notable", "project_name", "starts", "Notable"),
+                Arguments.of("description in between,like", "description", "in", "between,like"));
+    }
+
+    @Test
+    void testEscape() {
+        assertEquals("a\\^b\\$\\.\\*\\[c\\]\\\\", DefaultSearchComponent.escape("a^b$.*[c]\\"));
     }
 
 }
@@ -0,0 +1,47 @@
+package com.redhat.labs.lodestar.model.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.search.SearchExpression.Term;
+
+class SearchExpressionTest {
+
+    @Test
+    void testTermsGroupedByAttribute() {
+
+        SearchExpression expression = SearchExpression.parse("customer_name=a&customer_name like b&region=1&invalid");
+
+        Map<String, Integer> terms = expression.getTerms().stream()
+                .collect(Collectors.toMap(Term::getAttribute, t -> t.getComponents().size()));
+        assertEquals(Map.of("customer_name", 2, "region", 1), terms);
+        assertFalse(expression.isRange());
+
+    }
+
+    @Test
+    void testRangeHeldSeparately() {
+
+        SearchExpression expression = SearchExpression
+                .parse("customer_name=c1&state=active&start=2020-01-01&end=2021-01-01");
+
+        assertTrue(expression.isRange());
+        assertEquals(1, expression.getTerms().size());
+        assertEquals(
+                "And Filter{filters=[And Filter{filters=[Operator Filter{fieldName='launch', operator='$exists', value=BsonBoolean{value=true}}, Operator Filter{fieldName='endDate', operator='$gte', value=2020-01-01}]}, And Filter{filters=[Filter{fieldName='customerName', value=c1}]}]}",
+                expression.toBson().get().toString());
+
+    }
+
+    @Test
+    void testNoValidComponents() {
+        assertTrue(SearchExpression.parse("invalid&").toBson().isEmpty());
+    }
+
+}
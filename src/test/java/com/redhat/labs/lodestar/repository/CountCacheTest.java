@@ -0,0 +1,161 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+
+class CountCacheTest {
+
+    static final Executor DIRECT = Runnable::run;
+
+    CountCache cache;
+    MetricRegistry registry;
+    Counter hits;
+    Counter misses;
+    Counter staleHits;
+    AtomicLong now = new AtomicLong(1000);
+    AtomicInteger counts = new AtomicInteger();
+    Supplier<Integer> counter = () -> counts.incrementAndGet();
+
+    @BeforeEach
+    void setUp() {
+
+        registry = Mockito.mock(MetricRegistry.class);
+        hits = Mockito.mock(Counter.class);
+        misses = Mockito.mock(Counter.class);
+        staleHits = Mockito.mock(Counter.class);
+        Mockito.when(registry.counter(CountCache.HIT)).thenReturn(hits);
+        Mockito.when(registry.counter(CountCache.MISS)).thenReturn(misses);
+        Mockito.when(registry.counter(CountCache.STALE_HIT)).thenReturn(staleHits);
+
+        cache = new CountCache();
+        cache.enabled = true;
+        cache.ttlSeconds = 60;
+        cache.maxEntries = 10;
+        cache.metricRegistry = registry;
+        cache.clock = now::get;
+
+    }
+
+    @Test
+    void testCachedUntilEpochAdvances() {
+
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+
+        cache.advanceEpoch();
+        assertEquals(2, cache.getCount("a", counter, DIRECT).join());
+
+        Mockito.verify(hits).inc();
+        Mockito.verify(misses, Mockito.times(2)).inc();
+
+    }
+
+    @Test
+    void testExpiresAfterTtl() {
+
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        now.addAndGet(59999);
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        now.addAndGet(1);
+        assertEquals(2, cache.getCount("a", counter, DIRECT).join());
+
+    }
+
+    @Test
+    void testCountStartedBeforeWriteNotUsed() {
+
+        // the write lands while the count is running
+        Supplier<Integer> racing = () -> {
+            cache.advanceEpoch();
+            return counts.incrementAndGet();
+        };
+
+        assertEquals(1, cache.getCount("a", racing, DIRECT).join());
+        assertEquals(2, cache.getCount("a", counter, DIRECT).join());
+
+    }
+
+    @Test
+    void testStaleWhileRevalidate() {
+
+        cache.staleWhileRevalidate = true;
+        AtomicInteger refreshes = new AtomicInteger();
+        Executor deferred = runnable -> refreshes.incrementAndGet();
+
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        cache.advanceEpoch();
+
+        // stale count returned while a single refresh is scheduled
+        assertEquals(1, cache.getCount("a", counter, deferred).join());
+        assertEquals(1, cache.getCount("a", counter, deferred).join());
+        assertEquals(1, refreshes.get());
+        Mockito.verify(staleHits, Mockito.times(2)).inc();
+
+    }
+
+    @Test
+    void testDisabled() {
+
+        cache.enabled = false;
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        assertEquals(2, cache.getCount("a", counter, DIRECT).join());
+        Mockito.verifyNoInteractions(registry);
+
+    }
+
+    @Test
+    void testFailedCountNotCached() {
+
+        Supplier<Integer> failing = () -> {
+            throw new IllegalStateException("down");
+        };
+
+        assertTrue(cache.getCount("a", failing, DIRECT).isCompletedExceptionally());
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+
+    }
+
+    @Test
+    void testFullCacheNotExceeded() {
+
+        cache.maxEntries = 1;
+        assertEquals(1, cache.getCount("a", counter, DIRECT).join());
+        assertEquals(2, cache.getCount("b", counter, DIRECT).join());
+        assertEquals(3, cache.getCount("b", counter, DIRECT).join());
+
+        // stale entries make room
+        cache.advanceEpoch();
+        assertEquals(4, cache.getCount("b", counter, DIRECT).join());
+        assertEquals(4, cache.getCount("b", counter, DIRECT).join());
+
+    }
+
+    @Test
+    void testCreateKeyNormalizesSearch() {
+
+        ListFilterOptions first = ListFilterOptions.builder().search("state=active& customerName like c1").build();
+        ListFilterOptions second = ListFilterOptions.builder().search("customerName like c1&state=active&").build();
+        assertEquals(CountCache.createKey(first), CountCache.createKey(second));
+
+        ListFilterOptions unwound = ListFilterOptions.builder().search("customerName like c1&state=active").build();
+        unwound.setUnwindFieldName(Optional.of("artifacts"));
+        assertNotEquals(CountCache.createKey(first), CountCache.createKey(unwound));
+
+    }
+
+}
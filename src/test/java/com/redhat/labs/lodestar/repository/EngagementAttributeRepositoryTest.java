@@ -0,0 +1,198 @@
+package com.redhat.labs.lodestar.repository;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoCollection;
+import com.redhat.labs.lodestar.model.Artifact;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.HostingEnvironment;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedArtifactResults;
+import com.redhat.labs.lodestar.model.pagination.PagedHostingEnvironmentResults;
+import com.redhat.labs.lodestar.repository.EngagementAttributeRepository.AttributeType;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementAttributeRepositoryTest {
+
+    @Inject
+    EngagementRepository repository;
+
+    EngagementAttributeRepository attributes;
+
+    @BeforeEach
+    void setUp() {
+
+        attributes = new EngagementAttributeRepository();
+        attributes.enabled = true;
+        attributes.repository = repository;
+
+        Engagement e1 = mockEngagement("1", Arrays.asList(MockUtils.mockArtifact("a1", "demo", "l1"),
+                MockUtils.mockArtifact("a2", "report", "l2")));
+        e1.setHostingEnvironments(Arrays.asList(MockUtils.mockHostingEnvironment("env1", "sub1")));
+        Engagement e2 = mockEngagement("2", Arrays.asList(MockUtils.mockArtifact("a3", "demo", "l3")));
+        repository.persist(Arrays.asList(e1, e2, mockEngagement("3", null)));
+
+        // rows are built from the engagements written before
+        attributes.synchronize();
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        attributes.deleteAll();
+    }
+
+    @Test
+    void testRowsMatchUnwoundAttributes() {
+
+        for (String search : Arrays.asList(null, "artifacts.type=demo", "uuid=1", "artifacts.title like A",
+                "customer_name like c2&artifacts.type=demo", "artifacts.link_address exists")) {
+
+            PagedArtifactResults rows = attributes.findPage(AttributeType.ARTIFACT, options(search), Artifact.class,
+                    PagedArtifactResults.builder().build()).get();
+            PagedArtifactResults unwound = repository.findArtifacts(options(search));
+
+            assertEquals(describe(unwound.getResults()), describe(rows.getResults()), search);
+            assertEquals(unwound.getTotalCount(), rows.getTotalCount(), search);
+
+        }
+
+        PagedHostingEnvironmentResults environments = attributes.findPage(AttributeType.HOSTING_ENVIRONMENT,
+                options("hostingEnvironments.ocpCloudProviderName=provider1"), HostingEnvironment.class,
+                PagedHostingEnvironmentResults.builder().build()).get();
+        assertEquals(1, environments.getResults().size());
+        assertEquals("1", environments.getResults().get(0).getEngagementUuid());
+
+    }
+
+    @Test
+    void testPagedBySortFields() {
+
+        ListFilterOptions options = ListFilterOptions.builder().sortFields("title").page(2).perPage(2).build();
+        PagedArtifactResults page = attributes
+                .findPage(AttributeType.ARTIFACT, options, Artifact.class, PagedArtifactResults.builder().build())
+                .get();
+
+        assertEquals(Arrays.asList("a3"),
+                page.getResults().stream().map(Artifact::getTitle).collect(Collectors.toList()));
+        assertEquals(3, page.getTotalCount());
+        assertEquals(2, page.getCurrentPage());
+
+    }
+
+    @Test
+    void testWritesReplaceRows() {
+
+        Engagement existing = repository.findByUuid("2").get();
+        Engagement updated = repository.findByUuid("2").get();
+        updated.setArtifacts(Arrays.asList(MockUtils.mockArtifact("a4", "video", "l4")));
+        attributes.replace(existing, updated);
+
+        assertEquals(Arrays.asList("2:a4"), describe(findArtifacts("uuid=2")));
+
+        attributes.replace(List.of(repository.findByUuid("3").get()));
+        attributes.delete(List.of(repository.findByUuid("1").get()));
+        assertEquals(Arrays.asList("2:a4"), describe(findArtifacts(null)));
+
+    }
+
+    @Test
+    void testRepairRewritesRowsThatDiffer() {
+
+        assertEquals(0, attributes.repair());
+
+        // a changed row, rows missing for an engagement and rows left for a deleted one
+        MongoCollection<BsonDocument> rows = repository.mongoDatabase()
+                .getCollection(AttributeType.ARTIFACT.getCollectionName(), BsonDocument.class);
+        rows.updateOne(and(eq("uuid", "1"), eq("index", 0)), set("artifacts.title", "changed"));
+        rows.deleteMany(eq("uuid", "2"));
+        rows.insertOne(new BsonDocument("uuid", new BsonString("4")).append("index", new BsonInt32(0)));
+
+        assertEquals(3, attributes.repair(AttributeType.ARTIFACT));
+        assertEquals(Arrays.asList("1:a1", "1:a2", "2:a3"), describe(findArtifacts(null)));
+        assertEquals(0, attributes.repair());
+
+    }
+
+    @Test
+    void testIsRowQuery() {
+
+        assertTrue(isRowQuery(null));
+        assertTrue(isRowQuery("artifacts.type=demo&uuid=1&customer_name like c"));
+        assertTrue(isRowQuery("artifacts.uuid=x"));
+
+        assertFalse(isRowQuery("artifacts.type not like demo"));
+        assertFalse(isRowQuery("artifacts.type=demo&artifacts.title like a"));
+        assertFalse(isRowQuery("scores.name=s"));
+        assertFalse(isRowQuery("engagement_region=na"));
+        assertFalse(isRowQuery("state=active"));
+        assertFalse(EngagementAttributeRepository.isRowQuery(AttributeType.ARTIFACT,
+                ListFilterOptions.builder().cursor("").build()));
+
+    }
+
+    @Test
+    void testNotServedUntilSynchronized() {
+
+        EngagementAttributeRepository other = new EngagementAttributeRepository();
+        other.enabled = true;
+        other.repository = repository;
+
+        assertTrue(other.findPage(AttributeType.ARTIFACT, options(null), Artifact.class,
+                PagedArtifactResults.builder().build()).isEmpty());
+
+    }
+
+    private List<Artifact> findArtifacts(String search) {
+        return attributes.findPage(AttributeType.ARTIFACT, options(search), Artifact.class,
+                PagedArtifactResults.builder().build()).get().getResults();
+    }
+
+    private boolean isRowQuery(String search) {
+        return EngagementAttributeRepository.isRowQuery(AttributeType.ARTIFACT, options(search));
+    }
+
+    private ListFilterOptions options(String search) {
+        return ListFilterOptions.builder().search(search).build();
+    }
+
+    private List<String> describe(List<Artifact> artifacts) {
+        return artifacts.stream().map(a -> a.getEngagementUuid() + ":" + a.getTitle()).sorted()
+                .collect(Collectors.toList());
+    }
+
+    private Engagement mockEngagement(String uuid, List<Artifact> artifacts) {
+
+        Engagement engagement = MockUtils.mockMinimumEngagement("c" + uuid, "p" + uuid, uuid);
+        engagement.setArtifacts(artifacts);
+        return engagement;
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.Commit;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedCommitResults;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementCommitRepositoryTest {
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    EngagementCommitRepository commits;
+
+    @BeforeEach
+    void setUp() {
+
+        commits = new EngagementCommitRepository();
+        commits.repository = repository;
+        commits.versionTracker = versionTracker;
+        commits.getCollection().createIndexes(EngagementCommitRepository.INDEXES);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        commits.deleteAll();
+        repository.deleteAll();
+    }
+
+    @Test
+    void testAppendOnlyAddsNewCommits() {
+
+        assertEquals(2, commits.append("1", Arrays.asList(commit("a", "2021-01-01"), commit("b", "2021-01-02"))));
+        assertEquals(1, commits.append("1",
+                Arrays.asList(commit("a", "2021-01-01"), commit("b", "2021-01-02"), commit("c", "2021-01-03"))));
+        assertEquals(0, commits.append("1", Arrays.asList(commit("c", "2021-01-03"), Commit.builder().build())));
+        assertEquals(1, commits.append("2", Arrays.asList(commit("a", "2021-01-01"))));
+
+        assertEquals(Arrays.asList("c", "b", "a"), ids(commits.findAll("1")));
+        assertEquals(Arrays.asList("a"), ids(commits.findAll("2")));
+
+    }
+
+    @Test
+    void testFindPage() {
+
+        commits.append("1", Arrays.asList(commit("a", "2021-01-01"), commit("b", "2021-01-02"),
+                commit("c", "2021-01-03")));
+
+        ListFilterOptions options = new ListFilterOptions();
+        options.setPage(2);
+        options.setPerPage(2);
+
+        PagedCommitResults page = commits.findPage("1", options);
+        assertEquals(3, page.getTotalCount());
+        assertEquals(2, page.getCurrentPage());
+        assertEquals(Arrays.asList("a"), ids(page.getResults()));
+        assertEquals("2021-01-01", page.getResults().get(0).getCommitDate());
+
+        assertEquals(Arrays.asList("c", "b"), ids(commits.findPage("1", new ListFilterOptions()).getResults()));
+        assertTrue(commits.findPage("2", new ListFilterOptions()).getResults().isEmpty());
+
+    }
+
+    @Test
+    void testMigrateMovesCommitsFromEngagements() {
+
+        repository.persist(Arrays.asList(MockUtils.mockMinimumEngagement("c1", "p1", "1"),
+                MockUtils.mockMinimumEngagement("c2", "p2", "2")));
+        repository.setCommits("1", Arrays.asList(commit("a", "2021-01-01"), commit("b", "2021-01-02")));
+
+        assertEquals(1, commits.migrate());
+        assertEquals(Arrays.asList("b", "a"), ids(commits.findAll("1")));
+        assertNull(repository.findByUuid("1").get().getCommits());
+
+        // nothing left to move
+        assertEquals(0, commits.migrate());
+
+    }
+
+    @Test
+    void testFindAllByEngagement() {
+
+        commits.append("1", Arrays.asList(commit("a", "2021-01-01"), commit("b", "2021-02-01")));
+        commits.append("2", Arrays.asList(commit("c", "2021-01-15")));
+
+        Map<String, List<Commit>> found = commits.findAll(Arrays.asList("1", "2", "3"));
+        assertEquals(Arrays.asList("b", "a"), ids(found.get("1")));
+        assertEquals(Arrays.asList("c"), ids(found.get("2")));
+        assertFalse(found.containsKey("3"));
+
+    }
+
+    @Test
+    void testDelete() {
+
+        commits.append("1", Arrays.asList(commit("a", "2021-01-01")));
+        commits.append("2", Arrays.asList(commit("b", "2021-01-01")));
+
+        commits.delete(Arrays.asList(Engagement.builder().uuid("1").build()));
+        assertTrue(commits.findAll("1").isEmpty());
+        assertEquals(1, commits.findAll("2").size());
+
+    }
+
+    private static Commit commit(String id, String commitDate) {
+        return Commit.builder().id(id).message("message " + id).commitDate(commitDate).build();
+    }
+
+    private static List<String> ids(List<Commit> commits) {
+        return commits.stream().map(Commit::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.redhat.labs.lodestar.model.Commit;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.HostingEnvironment;
+import com.redhat.labs.lodestar.model.ReadModelCheck;
+import com.redhat.labs.lodestar.model.Status;
+import com.redhat.labs.lodestar.model.filter.FilterOptions;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementReadModelTest {
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    EngagementReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+
+        readModel = new EngagementReadModel();
+        readModel.enabled = true;
+        readModel.repository = repository;
+        readModel.versionTracker = versionTracker;
+        readModel.metricRegistry = Mockito.mock(MetricRegistry.class);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testLookups() {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        e1.setHostingEnvironments(Arrays.asList(HostingEnvironment.builder().ocpSubDomain("Sub1").build()));
+        repository.persist(Arrays.asList(e1, MockUtils.mockMinimumEngagement("c2", "p2", "2")));
+
+        assertFalse(readModel.isServing(null));
+        assertTrue(readModel.refresh());
+        assertTrue(readModel.isServing(new FilterOptions()));
+        assertFalse(readModel.isServing(new FilterOptions("uuid", null)));
+
+        assertEquals("1", readModel.findByUuid("1").get().getUuid());
+        assertEquals("2", readModel.findByCustomerNameAndProjectName("c2", "p2").get().getUuid());
+        assertEquals("1", readModel.findBySubdomain(" sub1").get().getUuid());
+        assertTrue(readModel.findByUuid("3").isEmpty());
+
+        // copies are returned
+        assertNotSame(readModel.findByUuid("1").get(), readModel.findByUuid("1").get());
+
+        assertEquals(2, readModel.getStatus().getEngagements());
+        assertTrue(readModel.getStatus().getBytes() > 0);
+
+    }
+
+    @Test
+    void testWritesStopServingUntilRefreshed() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "1"));
+        repository.persist(MockUtils.mockMinimumEngagement("c2", "p2", "2"));
+        readModel.refresh();
+
+        repository.setStatus("1", Status.builder().status("green").build());
+        repository.setCommits("2", Arrays.asList(Commit.builder().id("a").build()));
+        assertFalse(readModel.isServing(null));
+
+        readModel.refresh();
+        assertTrue(readModel.isServing(null));
+        assertEquals("green", readModel.findByUuid("1").get().getStatus().getStatus());
+        assertEquals(1, readModel.findByUuid("2").get().getCommits().size());
+
+        repository.delete(repository.findByUuid("2").get());
+        readModel.refresh();
+        assertTrue(readModel.findByUuid("2").isEmpty());
+        assertTrue(readModel.check().getConsistent());
+
+    }
+
+    @Test
+    void testWriteLeavingLastUpdateReloaded() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", null));
+        readModel.refresh();
+
+        // uuids are set later without changing the last update
+        Engagement engagement = repository.findByCustomerNameAndProjectName("c1", "p1").get();
+        engagement.setUuid("1");
+        repository.update(engagement);
+
+        readModel.refresh();
+        assertEquals("c1", readModel.findByUuid("1").get().getCustomerName());
+        assertTrue(readModel.check().getConsistent());
+
+    }
+
+    @Test
+    void testCheckReportsChangesNotSeen() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "1"));
+        readModel.refresh();
+
+        // written around the repository, so no version change is seen
+        repository.mongoCollection().updateOne(Filters.eq("uuid", "1"), Updates.set("projectId", 5));
+        ObjectId id = repository.findByUuid("1").get().getMongoId();
+
+        ReadModelCheck check = readModel.check();
+        assertFalse(check.getConsistent());
+        assertEquals(Arrays.asList(id.toHexString()), check.getChanged());
+
+    }
+
+    @Test
+    void testCountEngagementsByStateMatchesRepository() {
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime localTime = today.atTime(12, 0);
+
+        Engagement upcoming = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        Engagement active = mockDates(MockUtils.mockMinimumEngagement("c2", "p2", "2"), today.minusDays(5),
+                today.plusDays(5), today.plusDays(35));
+        Engagement terminating = mockDates(MockUtils.mockMinimumEngagement("c3", "p3", "3"), today.minusDays(20),
+                today.minusDays(1), today.plusDays(29));
+        Engagement past = mockDates(MockUtils.mockMinimumEngagement("c4", "p4", "4"), today.minusDays(60),
+                today.minusDays(40), null);
+        repository.persist(Arrays.asList(upcoming, active, terminating, past));
+
+        readModel.refresh();
+        assertEquals(repository.countEngagementsByState(localTime), readModel.countEngagementsByState(localTime));
+
+    }
+
+    private Engagement mockDates(Engagement engagement, LocalDate start, LocalDate end, LocalDate archive) {
+
+        engagement.setStartDate(start.toString());
+        engagement.setEndDate(end.toString());
+        engagement.setArchiveDate(null == archive ? null : archive.toString());
+        engagement.setLaunch(MockUtils.mockLaunch(start.toString(), "someone", "someone@example.com"));
+        return engagement;
+
+    }
+
+}
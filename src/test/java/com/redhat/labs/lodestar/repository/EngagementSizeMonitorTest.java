@@ -0,0 +1,131 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.DocumentSize;
+import com.redhat.labs.lodestar.model.DocumentSizeReport;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementSizeMonitorTest {
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    EngagementSizeMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+
+        monitor = new EngagementSizeMonitor();
+        monitor.enabled = true;
+        monitor.warningBytes = 1048576;
+        monitor.top = 2;
+        monitor.repository = repository;
+        monitor.metricRegistry = metricRegistry;
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testMeasureFields() {
+
+        BsonDocument document = new BsonDocument("a", new BsonString("value")).append("b", new BsonInt32(1))
+                .append("c", new BsonArray(Arrays.asList(new BsonString("x"), new BsonString("y"))));
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+
+        Map<String, Long> sizes = EngagementSizeMonitor.measureFields(raw);
+
+        // type, name and terminator, then length, characters and terminator
+        assertEquals(13L, sizes.get("a"));
+        assertEquals(7L, sizes.get("b"));
+        // length and terminator of the document is all that is not a field
+        assertEquals(raw.getByteBuffer().remaining(), sizes.values().stream().mapToLong(Long::longValue).sum() + 5);
+
+    }
+
+    @Test
+    void testScanFindsLargest() {
+
+        repository.persist(Arrays.asList(engagement("c1", "p1", "1", 10), engagement("c2", "p2", "2", 5000),
+                engagement("c3", "p3", "3", 1000)));
+
+        // the scan is kept out of the histograms of written engagements
+        monitor.sample(Arrays.asList(engagement("c4", "p4", "4", 10)));
+        Histogram written = metricRegistry.getHistograms().get(new MetricID(EngagementSizeMonitor.DOCUMENT_BYTES));
+        long sampled = written.getCount();
+
+        DocumentSizeReport report = monitor.scan();
+        assertEquals(sampled, written.getCount());
+        assertEquals(3, report.getEngagements());
+        assertTrue(report.getTotalBytes() > 6000);
+
+        List<DocumentSize> engagements = report.getLargestEngagements();
+        assertEquals(2, engagements.size());
+        assertEquals("2", engagements.get(0).getUuid());
+        assertEquals("3", engagements.get(1).getUuid());
+
+        DocumentSize field = report.getLargestFields().get(0);
+        assertEquals("2", field.getUuid());
+        assertEquals("description", field.getField());
+        assertTrue(field.getBytes() > 5000);
+
+        assertEquals(1, monitor.getReport(1).getLargestEngagements().size());
+        assertEquals(2, monitor.getReport(10).getLargestFields().size());
+
+    }
+
+    @Test
+    void testSampleCountsOversized() {
+
+        long before = metricRegistry.counter(EngagementSizeMonitor.OVERSIZED).getCount();
+
+        monitor.warningBytes = 2000;
+        monitor.sample(Arrays.asList(engagement("c1", "p1", "1", 10), engagement("c2", "p2", "2", 5000)));
+
+        assertEquals(before + 1, metricRegistry.counter(EngagementSizeMonitor.OVERSIZED).getCount());
+
+    }
+
+    private static Engagement engagement(String customerName, String projectName, String uuid, int descriptionSize) {
+        Engagement engagement = MockUtils.mockMinimumEngagement(customerName, projectName, uuid);
+        engagement.setDescription(StringUtils.repeat("a", descriptionSize));
+        return engagement;
+    }
+
+}
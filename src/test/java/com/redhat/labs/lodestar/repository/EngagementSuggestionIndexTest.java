@@ -0,0 +1,186 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.SortOrder;
+import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementSuggestionIndexTest {
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    EngagementSuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+
+        index = new EngagementSuggestionIndex();
+        index.enabled = true;
+        index.repository = repository;
+        index.versionTracker = versionTracker;
+        index.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_MOCKS);
+
+        repository.persist(Arrays.asList(mockEngagement("Acme Red", "1"), mockEngagement("Red Hat", "2"),
+                mockEngagement("red hat", "3"), mockEngagement("Bored Co", "4"), mockEngagement("Other", "5")));
+        index.refresh();
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testPrefixBeforeSubstring() {
+
+        PagedStringResults results = suggest(SuggestionField.CUSTOMER_NAME, "customer_name like RED").get();
+
+        // values differing by case are one suggestion using the most common spelling
+        assertEquals(Arrays.asList("Red Hat", "Acme Red", "Bored Co"), results.getResults());
+        assertEquals(3, results.getTotalCount());
+
+    }
+
+    @Test
+    void testNoSearchReturnsAllValues() {
+
+        PagedStringResults results = suggest(SuggestionField.CUSTOMER_NAME, null).get();
+        assertEquals(Arrays.asList("Acme Red", "Bored Co", "Other", "Red Hat"), results.getResults());
+
+    }
+
+    @Test
+    void testPaging() {
+
+        ListFilterOptions options = ListFilterOptions.builder().page(2).perPage(3).build();
+        PagedStringResults results = index.suggest(SuggestionField.CUSTOMER_NAME, options).get();
+
+        assertEquals(Arrays.asList("Red Hat"), results.getResults());
+        assertEquals(4, results.getTotalCount());
+        assertEquals(2, results.getCurrentPage());
+
+    }
+
+    @Test
+    void testOtherFields() {
+
+        assertEquals(Arrays.asList("Raleigh"), suggest(SuggestionField.LOCATION, "location like ALE").get().getResults());
+        assertEquals(Arrays.asList("Lead 1"),
+                suggest(SuggestionField.ENGAGEMENT_LEAD_NAME, "engagement_lead_name like 1").get().getResults());
+
+    }
+
+    @Test
+    void testWritesAppliedOnRefresh() {
+
+        Engagement engagement = repository.findByUuid("5").get();
+        engagement.setCustomerName("Redwood");
+        engagement.setLastUpdate(Instant.now().toString());
+        repository.update(engagement);
+        repository.delete(repository.findByUuid("4").get());
+
+        // behind the write until refreshed
+        assertTrue(suggest(SuggestionField.CUSTOMER_NAME, "customer_name like red").isEmpty());
+
+        index.refresh();
+        assertEquals(Arrays.asList("Red Hat", "Redwood", "Acme Red"),
+                suggest(SuggestionField.CUSTOMER_NAME, "customer_name like red").get().getResults());
+
+        repository.delete(repository.findByUuid("2").get());
+        index.refresh();
+        assertEquals(Arrays.asList("red hat", "Redwood", "Acme Red"),
+                suggest(SuggestionField.CUSTOMER_NAME, "customer_name like red").get().getResults());
+
+    }
+
+    @Test
+    void testOnlyUpdatedAndMissingEngagementsRead() {
+
+        // changed without a last update, so not read again
+        repository.mongoCollection().updateOne(Filters.eq("uuid", "1"), Updates.set("customerName", "Acme Blue"));
+
+        Engagement engagement = repository.findByUuid("5").get();
+        engagement.setCustomerName("Redwood");
+        engagement.setLastUpdate(Instant.now().toString());
+        repository.update(engagement);
+
+        // inserted without a last update, found by its id
+        repository.persist(mockEngagement("Red Rock", "6"));
+
+        index.refresh();
+        assertEquals(Arrays.asList("Red Hat", "Red Rock", "Redwood", "Acme Red", "Bored Co"),
+                suggest(SuggestionField.CUSTOMER_NAME, "customer_name like red").get().getResults());
+
+    }
+
+    @Test
+    void testGetInput() {
+
+        assertEquals(Optional.of(""), input(null));
+        assertEquals(Optional.of("red h"), input("customer_name like red h"));
+        assertEquals(Optional.of("red"), input("customerName like red"));
+
+        assertTrue(input("customer_name not like red").isEmpty());
+        assertTrue(input("customer_name like red&project_name like p").isEmpty());
+        assertTrue(input("project_name like red").isEmpty());
+        assertEquals(Optional.of("^red"), input("customer_name like ^red"));
+        assertTrue(input("customer_name=red").isEmpty());
+
+        assertTrue(EngagementSuggestionIndex
+                .getInput(SuggestionField.CUSTOMER_NAME, ListFilterOptions.builder().sortOrder(SortOrder.DESC).build())
+                .isEmpty());
+        assertTrue(EngagementSuggestionIndex
+                .getInput(SuggestionField.CUSTOMER_NAME, ListFilterOptions.builder().cursor("").build()).isEmpty());
+
+    }
+
+    private Optional<PagedStringResults> suggest(SuggestionField field, String search) {
+        return index.suggest(field, ListFilterOptions.builder().search(search).build());
+    }
+
+    private Optional<String> input(String search) {
+        return EngagementSuggestionIndex.getInput(SuggestionField.CUSTOMER_NAME,
+                ListFilterOptions.builder().search(search).build());
+    }
+
+    private Engagement mockEngagement(String customerName, String uuid) {
+
+        Engagement engagement = MockUtils.mockMinimumEngagement(customerName, "p" + uuid, uuid);
+        engagement.setLocation("5".equals(uuid) ? "Raleigh" : "Boston");
+        engagement.setEngagementLeadName("Lead " + uuid);
+        return engagement;
+
+    }
+
+}
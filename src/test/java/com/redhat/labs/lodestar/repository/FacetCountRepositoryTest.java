@@ -0,0 +1,224 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.model.Category;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.FacetCount;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedCategoryResults;
+import com.redhat.labs.lodestar.repository.FacetCountRepository.Facet;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class FacetCountRepositoryTest {
+
+    private static final String FACET = "facet";
+
+    @Inject
+    EngagementRepository repository;
+
+    @Inject
+    DataVersionTracker versionTracker;
+
+    FacetCountRepository facetCounts;
+    FacetCountReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+
+        facetCounts = new FacetCountRepository();
+        facetCounts.enabled = true;
+
+        reconciler = new FacetCountReconciler();
+        reconciler.repository = repository;
+        reconciler.facetCounts = facetCounts;
+        reconciler.versionTracker = versionTracker;
+        reconciler.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_MOCKS);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        facetCounts.deleteAll();
+    }
+
+    @Test
+    void testApplyAdjustsCounts() {
+
+        Engagement e1 = mockEngagement("1", Arrays.asList("Beta", "alpha"), "demo");
+        Engagement e2 = mockEngagement("2", Arrays.asList("beta"), "demo");
+        Engagement e3 = mockEngagement("3", Arrays.asList("Beta", "gamma"), "Video");
+        facetCounts.apply(List.of(), List.of(e1));
+        facetCounts.apply(List.of(), List.of(e2, e3));
+
+        assertEquals(Map.of("alpha", 1L, "beta", 3L, "gamma", 1L), counts(Facet.CATEGORY));
+        assertEquals(Map.of("demo", 2L, "video", 1L), counts(Facet.ARTIFACT_TYPE));
+        assertEquals("Beta", facetCounts.findCounts(Facet.CATEGORY).get("beta").getName());
+
+        Engagement updated = mockEngagement("3", Arrays.asList("alpha"), "Video");
+        facetCounts.apply(List.of(e3), List.of(updated));
+        facetCounts.apply(List.of(e2), List.of());
+
+        // values no longer used are removed
+        assertEquals(Map.of("alpha", 2L, "beta", 1L), counts(Facet.CATEGORY));
+        assertEquals(Map.of("demo", 1L, "video", 1L), counts(Facet.ARTIFACT_TYPE));
+
+        // nothing is written when disabled
+        facetCounts.enabled = false;
+        facetCounts.apply(List.of(), List.of(e2));
+        assertEquals(Map.of("alpha", 2L, "beta", 1L), counts(Facet.CATEGORY));
+
+    }
+
+    @Test
+    void testFindCategoriesSortedByCount() {
+
+        facetCounts.apply(List.of(), List.of(mockEngagement("1", Arrays.asList("b", "a"), "demo"),
+                mockEngagement("2", Arrays.asList("b"), "demo")));
+
+        PagedCategoryResults results = facetCounts.findCategories(ListFilterOptions.builder().build()).get();
+        assertEquals(Arrays.asList("a", "b"),
+                results.getResults().stream().map(Category::getName).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1, 2),
+                results.getResults().stream().map(Category::getCount).collect(Collectors.toList()));
+        assertEquals(2, results.getTotalCount());
+
+        results = facetCounts.findCategories(ListFilterOptions.builder().search("categories.name like B").build())
+                .get();
+        assertEquals(1, results.getResults().size());
+        assertEquals("b", results.getResults().get(0).getName());
+
+        results = facetCounts.findCategories(ListFilterOptions.builder().page(2).perPage(1).build()).get();
+        assertEquals("b", results.getResults().get(0).getName());
+        assertEquals(2, results.getTotalCount());
+
+        assertEquals(Arrays.asList("demo"),
+                facetCounts.findArtifactTypes(ListFilterOptions.builder().build()).get().getResults());
+        assertTrue(facetCounts.findCategories(ListFilterOptions.builder().search("customer_name=c").build())
+                .isEmpty());
+
+    }
+
+    @Test
+    void testReconcileReplacesCountsThatDiffer() {
+
+        List<Engagement> engagements = Arrays.asList(mockEngagement("1", Arrays.asList("a", "B"), "demo"),
+                mockEngagement("2", Arrays.asList("a", "b"), "demo"));
+        repository.persist(engagements);
+
+        // counts are built the first time
+        assertEquals(2, reconciler.reconcile());
+        assertEquals(Map.of("a", 2L, "b", 2L), counts(Facet.CATEGORY));
+        assertEquals(Map.of("demo", 2L), counts(Facet.ARTIFACT_TYPE));
+        assertEquals(0, reconciler.reconcile());
+
+        // the spelling used first is kept, as it is by writes
+        assertEquals("B", facetCounts.findCounts(Facet.CATEGORY).get("b").getName());
+
+        // counts kept by writes match the engagements
+        facetCounts.deleteAll();
+        facetCounts.apply(List.of(), engagements);
+        assertEquals(0, reconciler.reconcile());
+        assertEquals("B", facetCounts.findCounts(Facet.CATEGORY).get("b").getName());
+
+        facetCounts.delete(FACET, "category");
+        assertEquals(1, reconciler.reconcile());
+        assertEquals(Map.of("a", 2L, "b", 2L), counts(Facet.CATEGORY));
+
+    }
+
+    @Test
+    void testReplaceKeepsValuesWrittenMeanwhile() {
+
+        Engagement e1 = mockEngagement("1", Arrays.asList("a", "b"), "demo");
+        facetCounts.apply(List.of(), List.of(e1));
+        Map<String, FacetCount> stored = facetCounts.findCounts(Facet.CATEGORY);
+
+        // a value added after the stored counts were read
+        facetCounts.apply(List.of(), List.of(mockEngagement("2", Arrays.asList("c"), "demo")));
+
+        Map<String, FacetCount> expected = FacetCountRepository.createCounts(Facet.CATEGORY,
+                List.of(spelling("a", 3L, new ObjectId())));
+        facetCounts.replace(Facet.CATEGORY, expected, stored);
+
+        assertEquals(Map.of("a", 3L, "c", 1L), counts(Facet.CATEGORY));
+
+    }
+
+    @Test
+    void testCreateCountsUsesFirstSpelling() {
+
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        Map<String, FacetCount> counts = FacetCountRepository.createCounts(Facet.CATEGORY,
+                List.of(spelling("Red Hat", 2L, second), spelling("red hat", 1L, first), spelling("Other", 1L, first)));
+
+        assertEquals(3L, counts.get("red hat").getCount());
+        assertEquals("red hat", counts.get("red hat").getName());
+        assertEquals("category:red hat", counts.get("red hat").getId());
+        assertEquals(1L, counts.get("other").getCount());
+
+    }
+
+    @Test
+    void testGetLikePattern() {
+
+        assertEquals(Optional.of(""), likePattern(null));
+        assertEquals(Optional.of("dev"), likePattern("categories.name like dev"));
+
+        assertTrue(likePattern("artifacts.type like dev").isEmpty());
+        assertTrue(likePattern("categories.name like dev&customer_name like c").isEmpty());
+        assertTrue(likePattern("customer_name=c").isEmpty());
+        assertTrue(FacetCountRepository
+                .getLikePattern(Facet.CATEGORY, ListFilterOptions.builder().include("name").build()).isEmpty());
+
+    }
+
+    private Optional<String> likePattern(String search) {
+        return FacetCountRepository.getLikePattern(Facet.CATEGORY, ListFilterOptions.builder().search(search).build());
+    }
+
+    private Document spelling(String name, long count, ObjectId firstUsed) {
+        return new Document("_id", name).append("count", count).append(FacetCountRepository.FIRST_USED, firstUsed);
+    }
+
+    private Map<String, Long> counts(Facet facet) {
+        return facetCounts.findCounts(facet).values().stream()
+                .collect(Collectors.toMap(FacetCount::getKey, FacetCount::getCount));
+    }
+
+    private Engagement mockEngagement(String uuid, List<String> categories, String artifactType) {
+
+        Engagement engagement = MockUtils.mockMinimumEngagement("c" + uuid, "p" + uuid, uuid);
+        engagement.setCategories(categories.stream().map(MockUtils::mockCategory).collect(Collectors.toList()));
+        engagement.setArtifacts(Arrays.asList(MockUtils.mockArtifact("a" + uuid, artifactType, "link")));
+        return engagement;
+
+    }
+
+}
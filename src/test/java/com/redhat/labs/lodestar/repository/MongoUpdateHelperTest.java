@@ -0,0 +1,157 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoClientSettings;
+import com.redhat.labs.lodestar.repository.MongoUpdateHelper.DocumentUpdate;
+
+class MongoUpdateHelperTest {
+
+    static final Set<String> UNORDERED = Set.of("engagementUsers");
+
+    @Test
+    void testNoChanges() {
+
+        BsonDocument existing = BsonDocument.parse("{_id: 1, uuid: 'a', description: 'd', launch: {launchedBy: 'x'}}");
+        BsonDocument incoming = existing.clone();
+        incoming.remove("_id");
+
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED);
+        assertTrue(update.isEmpty());
+
+    }
+
+    @Test
+    void testSetChangedAndUnsetRemovedFields() {
+
+        BsonDocument existing = BsonDocument.parse("{uuid: 'a', description: 'd', location: 'l', projectId: 1}");
+        BsonDocument incoming = BsonDocument.parse("{uuid: 'a', description: 'changed', projectId: 1}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(BsonDocument.parse("{$set: {description: 'changed'}, $unset: {location: ''}}"), update);
+
+    }
+
+    @Test
+    void testNestedDocumentChange() {
+
+        BsonDocument existing = BsonDocument.parse("{launch: {launchedBy: 'x', launchedByEmail: 'x@x.com'}}");
+        BsonDocument incoming = BsonDocument.parse("{launch: {launchedBy: 'y', launchedByEmail: 'x@x.com'}}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(BsonDocument.parse("{$set: {'launch.launchedBy': 'y'}}"), update);
+
+    }
+
+    @Test
+    void testKeyedArrayElementChanged() {
+
+        BsonDocument existing = BsonDocument
+                .parse("{artifacts: [{uuid: '1', title: 't1'}, {uuid: '2', title: 't2', type: 'demo'}]}");
+        BsonDocument incoming = BsonDocument.parse("{artifacts: [{uuid: '1', title: 't1'}, {uuid: '2', title: 'new'}]}");
+
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED);
+        assertEquals(BsonDocument.parse("{$set: {'artifacts.$[e0].title': 'new'}, $unset: {'artifacts.$[e0].type': ''}}"),
+                render(update));
+        assertEquals(1, update.getArrayFilters().size());
+        assertEquals(BsonDocument.parse("{'e0.uuid': '2'}"), update.getArrayFilters().get(0)
+                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()));
+
+    }
+
+    @Test
+    void testKeyedArrayElementAdded() {
+
+        BsonDocument existing = BsonDocument.parse("{artifacts: [{uuid: '1', title: 't1'}]}");
+        BsonDocument incoming = BsonDocument.parse("{artifacts: [{uuid: '1', title: 't1'}, {uuid: '2', title: 't2'}]}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(BsonDocument.parse("{$push: {artifacts: {$each: [{uuid: '2', title: 't2'}]}}}"), update);
+
+    }
+
+    @Test
+    void testKeyedArrayElementRemoved() {
+
+        BsonDocument existing = BsonDocument.parse("{artifacts: [{uuid: '1', title: 't1'}, {uuid: '2', title: 't2'}]}");
+        BsonDocument incoming = BsonDocument.parse("{artifacts: [{uuid: '2', title: 't2'}]}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(BsonDocument.parse("{$pull: {artifacts: {uuid: {$in: ['1']}}}}"), update);
+
+    }
+
+    @Test
+    void testKeyedArrayMixedChangesReplaceArray() {
+
+        BsonDocument existing = BsonDocument.parse("{artifacts: [{uuid: '1', title: 't1'}, {uuid: '2', title: 't2'}]}");
+        BsonDocument incoming = BsonDocument.parse("{artifacts: [{uuid: '2', title: 'new'}, {uuid: '3', title: 't3'}]}");
+
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED);
+        assertEquals(new BsonDocument("$set", new BsonDocument("artifacts", incoming.getArray("artifacts"))),
+                render(update));
+        assertTrue(update.getArrayFilters().isEmpty());
+
+    }
+
+    @Test
+    void testKeyedArrayReorderReplacesArray() {
+
+        BsonDocument existing = BsonDocument.parse("{useCases: [{uuid: '1', order: 1}, {uuid: '2', order: 2}]}");
+        BsonDocument incoming = BsonDocument.parse("{useCases: [{uuid: '2', order: 2}, {uuid: '1', order: 1}]}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(new BsonDocument("$set", new BsonDocument("useCases", incoming.getArray("useCases"))), update);
+
+    }
+
+    @Test
+    void testUnorderedArrayIgnoresOrder() {
+
+        BsonDocument existing = BsonDocument
+                .parse("{engagementUsers: [{uuid: '1', role: 'dev'}, {uuid: '2', role: 'dev'}]}");
+        BsonDocument incoming = BsonDocument
+                .parse("{engagementUsers: [{uuid: '2', role: 'lead'}, {uuid: '1', role: 'dev'}]}");
+
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED);
+        assertEquals(BsonDocument.parse("{$set: {'engagementUsers.$[e0].role': 'lead'}}"), render(update));
+
+    }
+
+    @Test
+    void testArrayWithoutUuidsReplaced() {
+
+        BsonDocument existing = BsonDocument.parse("{subdomainKeys: ['a', 'b']}");
+        BsonDocument incoming = BsonDocument.parse("{subdomainKeys: ['a']}");
+
+        BsonDocument update = render(MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED));
+        assertEquals(BsonDocument.parse("{$set: {subdomainKeys: ['a']}}"), update);
+
+    }
+
+    @Test
+    void testArrayAddedToMissingField() {
+
+        BsonDocument existing = BsonDocument.parse("{uuid: 'a'}");
+        BsonDocument incoming = BsonDocument.parse("{uuid: 'a', scores: [{uuid: '1', value: 1.0}]}");
+
+        DocumentUpdate update = MongoUpdateHelper.generateUpdate(existing, incoming, UNORDERED);
+        assertFalse(update.isEmpty());
+        assertEquals(new BsonDocument("$set", new BsonDocument("scores", new BsonArray(incoming.getArray("scores")))),
+                render(update));
+
+    }
+
+    private BsonDocument render(DocumentUpdate update) {
+        return update.toBson().toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+}
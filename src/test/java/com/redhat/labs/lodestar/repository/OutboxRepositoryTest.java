@@ -0,0 +1,127 @@
+package com.redhat.labs.lodestar.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class OutboxRepositoryTest {
+
+    @Inject
+    OutboxRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testPreparedEventsHiddenUntilReleased() {
+
+        List<OutboxEvent> events = Arrays.asList(event("1"), event("2"));
+        repository.prepare(events, 1000, 500);
+
+        assertEquals(2, repository.count());
+        assertTrue(repository.claim("a", 1000, 100, 10).isEmpty());
+
+        repository.release(events, 1100);
+
+        List<OutboxEvent> claimed = repository.claim("a", 1100, 100, 10);
+        assertEquals(2, claimed.size());
+        assertEquals("a", claimed.get(0).getLeaseOwner());
+        assertEquals(1, claimed.get(0).getAttempts());
+        assertEquals(1000L, repository.findOldestCreatedAt().get());
+
+    }
+
+    @Test
+    void testPreparedEventsAvailableAfterDelay() {
+
+        repository.prepare(Arrays.asList(event("1")), 1000, 500);
+
+        assertEquals(1, repository.claim("a", 1500, 100, 10).size());
+
+    }
+
+    @Test
+    void testDiscard() {
+
+        List<OutboxEvent> events = Arrays.asList(event("1"));
+        repository.prepare(events, 1000, 500);
+        repository.discard(events);
+
+        assertEquals(0, repository.count());
+        assertTrue(repository.findOldestCreatedAt().isEmpty());
+
+    }
+
+    @Test
+    void testClaimLimitAndLease() {
+
+        List<OutboxEvent> events = Arrays.asList(event("1"), event("2"), event("3"));
+        repository.prepare(events, 1000, 0);
+
+        assertEquals(2, repository.claim("a", 1000, 100, 2).size());
+        assertEquals(1, repository.claim("b", 1000, 100, 2).size());
+        assertTrue(repository.claim("c", 1050, 100, 2).isEmpty());
+
+        // leases expired, claimed again
+        List<OutboxEvent> claimed = repository.claim("c", 1100, 100, 5);
+        assertEquals(3, claimed.size());
+        assertEquals(2, claimed.get(0).getAttempts());
+
+    }
+
+    @Test
+    void testCompleteOnlyByLeaseOwner() {
+
+        repository.prepare(Arrays.asList(event("1")), 1000, 0);
+
+        OutboxEvent first = repository.claim("a", 1000, 100, 1).get(0);
+        OutboxEvent second = repository.claim("b", 1100, 100, 1).get(0);
+
+        assertFalse(repository.complete(first, "a"));
+        assertEquals(1, repository.count());
+        assertTrue(repository.complete(second, "b"));
+        assertEquals(0, repository.count());
+
+    }
+
+    @Test
+    void testRetryAt() {
+
+        repository.prepare(Arrays.asList(event("1")), 1000, 0);
+
+        OutboxEvent claimed = repository.claim("a", 1000, 1000, 1).get(0);
+        repository.retryAt(claimed, "a", 1200);
+
+        assertTrue(repository.claim("b", 1100, 1000, 1).isEmpty());
+        assertEquals(1, repository.claim("b", 1200, 1000, 1).size());
+
+    }
+
+    private static OutboxEvent event(String uuid) {
+        Engagement engagement = MockUtils.mockMinimumEngagement("c" + uuid, "p" + uuid, uuid);
+        return OutboxEvent.of(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, engagement);
+    }
+
+}
@@ -3,9 +3,10 @@ package com.redhat.labs.lodestar.resource;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.equalTo;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -13,11 +14,9 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
-import com.redhat.labs.lodestar.model.Engagement;
-import com.redhat.labs.lodestar.model.Launch;
+import com.redhat.labs.lodestar.model.Engagement.EngagementState;
 import com.redhat.labs.lodestar.service.EngagementService;
 import com.redhat.labs.lodestar.utils.IntegrationTestHelper;
-import com.redhat.labs.lodestar.utils.MockUtils;
 import com.redhat.labs.lodestar.utils.TokenUtils;
 
 import io.quarkus.test.junit.QuarkusTest;
@@ -35,19 +34,22 @@ public class EngagementResourceCountTest extends IntegrationTestHelper {
         String url = "/engagements/count";
         String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", new HashMap<String, Long>());
 
-        List<Engagement> all = new ArrayList<>();
+        Map<EngagementState, Integer> upcoming = new EnumMap<>(EngagementState.class);
+        upcoming.put(EngagementState.UPCOMING, 2);
+        upcoming.put(EngagementState.ANY, 2);
 
-        all.add(MockUtils.mockEngagement());
-        all.add(MockUtils.mockEngagement());
+        Mockito.when(eRepository.countEngagementsByState(Mockito.any())).thenReturn(upcoming);
 
-        Mockito.when(eRepository.listAll()).thenReturn(all);
+        given().when().auth().oauth2(token).get(url).then().statusCode(200).body("UPCOMING", equalTo(2))
+                .body("ANY", equalTo(2));
+
+        Map<EngagementState, Integer> past = new EnumMap<>(EngagementState.class);
+        past.put(EngagementState.PAST, 2);
+        past.put(EngagementState.ANY, 2);
+
+        LocalDateTime localTime = LocalDateTime.of(2021, 6, 8, 0, 0);
+        Mockito.when(eRepository.countEngagementsByState(localTime)).thenReturn(past);
 
-        given().when().auth().oauth2(token).get(url).then().statusCode(200).body("UPCOMING", equalTo(2));
-        
-        for(Engagement e : all) {
-            e.setLaunch(new Launch());
-        }
-        
         given().when().auth().oauth2(token).queryParam("localTime", "2021-06-08T00:00:00.000Z").get(url).then().statusCode(200).body("PAST", equalTo(2));
     }
 
@@ -16,6 +16,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 
+import com.google.common.collect.Sets;
 import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.HostingEnvironment;
 import com.redhat.labs.lodestar.utils.IntegrationTestHelper;
@@ -177,7 +178,8 @@ class EngagementResourceCreateTest extends IntegrationTestHelper {
         engagement2.setHostingEnvironments(Arrays.asList(env2));
 
         Mockito.when(eRepository.findByUuid("5432")).thenReturn(Optional.empty());
-        Mockito.when(eRepository.findBySubdomain("aSuperRandomSubdomain")).thenReturn(Optional.of(engagement));
+        Mockito.when(eRepository.findSubdomainsInUse(Mockito.any(), Mockito.isNull()))
+                .thenReturn(Sets.newHashSet("asuperrandomsubdomain"));
 
         String body = quarkusJsonb.toJson(engagement2);
 
@@ -3,6 +3,7 @@ package com.redhat.labs.lodestar.resource;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.time.ZoneId;
@@ -18,6 +19,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 
+import com.google.common.collect.Lists;
 import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.EngagementUser;
 import com.redhat.labs.lodestar.model.Launch;
@@ -46,7 +48,7 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
         toUpdate.setDescription("testing");
 
         Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
 
         String body = quarkusJsonb.toJson(toUpdate);
 
@@ -145,7 +147,7 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
         toUpdate.setEngagementUsers(Sets.newHashSet(user1, user2, user3));
 
         Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
 
         String body = quarkusJsonb.toJson(toUpdate);
 
@@ -208,7 +210,7 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
         toUpdate.setDescription("testing");
 
         Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
 
         String body = quarkusJsonb.toJson(toUpdate);
         
@@ -291,10 +293,10 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
         persisted.setLastUpdate(ZonedDateTime.now(ZoneId.of("Z")).toString());
         Engagement toUpdate = MockUtils.cloneEngagement(persisted);
         toUpdate.setDescription("testing");
+        toUpdate.setHostingEnvironments(Lists.newArrayList(MockUtils.mockHostingEnvironment("env1", "s")));
 
         Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(eRepository.findBySubdomain("s", Optional.of("1234"))).thenReturn(Optional.empty());
-        Mockito.when(eRepository.findBySubdomain("s")).thenReturn(Optional.of(MockUtils.mockMinimumEngagement("c5","e4", "9876")));
+        Mockito.when(eRepository.findSubdomainsInUse(Lists.newArrayList("s"), "1234")).thenReturn(Sets.newHashSet("s"));
 
         String body = quarkusJsonb.toJson(toUpdate);
 
@@ -358,7 +360,7 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
         toUpdate.setDescription("testing");
 
         Mockito.when(eRepository.findByCustomerNameAndProjectName("c1", "e2")).thenReturn(Optional.of(persisted));
-        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq(toUpdate.getLastUpdate()))).thenReturn(Optional.of(toUpdate));
 
         String body = quarkusJsonb.toJson(toUpdate);
 
@@ -397,4 +399,131 @@ class EngagementResourceUpdateTest extends IntegrationTestHelper {
 
     }
     
+    @Test
+    void testPatchEngagementWithAuthAndRoleSuccess() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "e2", "1234");
+        persisted.setProjectId(1234);
+        persisted.setDescription("original");
+        persisted.setLocation("Raleigh, NC");
+        persisted.setLastUpdate(ZonedDateTime.now(ZoneId.of("Z")).toString());
+
+        Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq(persisted.getLastUpdate())))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"description\": \"patched\", \"location\": null}")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(200)
+                .body("customer_name", equalTo("c1"))
+                .body("project_name", equalTo("e2"))
+                .body("project_id", equalTo(1234))
+                .body("description", equalTo("patched"))
+                .body("location", nullValue());
+
+    }
+
+    @Test
+    void testPatchEngagementStale() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "e2", "1234");
+        persisted.setLastUpdate(ZonedDateTime.now(ZoneId.of("Z")).toString());
+
+        Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+        Mockito.when(eRepository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.eq("old")))
+                .thenReturn(Optional.empty());
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"description\": \"patched\", \"last_update\": \"old\"}")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(409);
+
+    }
+
+    @Test
+    void testPatchEngagementInvalidPatch() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "e2", "1234");
+        Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"description\": ")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(400);
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"customer_name\": null}")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(400);
+
+    }
+
+    @Test
+    void testPatchEngagementNotFound() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        Mockito.when(eRepository.findByUuid("1234")).thenReturn(Optional.empty());
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"description\": \"patched\"}")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(404);
+
+    }
+
+    @Test
+    void testPatchEngagementReaderForbidden() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsReader.json", timeClaims);
+
+        given()
+            .when()
+                .auth()
+                .oauth2(token)
+                .body("{\"description\": \"patched\"}")
+                .contentType("application/merge-patch+json")
+                .patch("/engagements/1234")
+            .then()
+                .statusCode(403);
+
+    }
+
 }
\ No newline at end of file
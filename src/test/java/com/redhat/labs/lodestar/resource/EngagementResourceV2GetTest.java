@@ -1,8 +1,8 @@
 package com.redhat.labs.lodestar.resource;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.HashMap;
@@ -16,10 +16,12 @@ import org.mockito.Mockito;
 
 import com.google.common.collect.Lists;
 import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.filter.ListView;
 import com.redhat.labs.lodestar.model.filter.SortOrder;
 import com.redhat.labs.lodestar.model.pagination.PagedCategoryResults;
 import com.redhat.labs.lodestar.model.pagination.PagedEngagementResults;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
 import com.redhat.labs.lodestar.utils.IntegrationTestHelper;
 import com.redhat.labs.lodestar.utils.TokenUtils;
 
@@ -36,6 +38,9 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
     static String SEARCH_PARAM = "search";
     static String SEARCH_VALUE = "customer like something";
 
+    static String TEXT_PARAM = "q";
+    static String TEXT_VALUE = "migration";
+
     static String SORT_ORDER_PARAM = "sortOrder";
     static String SORT_ORDER_VALUE = "ASC";
 
@@ -82,6 +87,7 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
         ListFilterOptions captured = ac.getValue();
         assertEquals(INCLUDE_VALUE, captured.getInclude());
         assertEquals(SEARCH_VALUE, captured.getSearch().get());
+        assertEquals(TEXT_VALUE, captured.getText().get());
         assertEquals(SortOrder.ASC, captured.getSortOrder().get());
         assertEquals(SORT_FIELDS_VALUE, captured.getSortFields().get());
         assertEquals(PAGE_VALUE, captured.getPage().get());
@@ -117,8 +123,9 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
         Mockito.verify(eRepository).findPagedEngagements(ac.capture());
 
         ListFilterOptions captured = ac.getValue();
-        assertNull(captured.getInclude());
+        assertEquals(ListView.CARD.getInclude().get(), captured.getInclude());
         assertEquals(Optional.empty(), captured.getSearch());
+        assertEquals(Optional.empty(), captured.getText());
         assertEquals(Optional.empty(), captured.getSortOrder());
         assertEquals(Optional.empty(), captured.getSortFields());
         assertEquals(PAGE_VALUE, captured.getPage().get());
@@ -162,6 +169,49 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
 
     }
     
+    @Test
+    void testGetFieldSuggestionsWithAuthAndRoleSuccess() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        PagedStringResults results = PagedStringResults.builder().results(Lists.newArrayList("Raleigh")).build();
+        Mockito.when(eRepository.findSuggestions(Mockito.eq(SuggestionField.LOCATION),
+                Mockito.any(ListFilterOptions.class))).thenReturn(results);
+
+        given()
+            .auth()
+            .oauth2(token)
+            .queryParam(SUGGEST_PARAM, "ral")
+            .header("Accept-version", "v2")
+        .when()
+            .get("engagements/suggest/location")
+        .then()
+            .statusCode(200)
+            .body(containsString("Raleigh"));
+
+        ArgumentCaptor<ListFilterOptions> ac = ArgumentCaptor.forClass(ListFilterOptions.class);
+        Mockito.verify(eRepository).findSuggestions(Mockito.eq(SuggestionField.LOCATION), ac.capture());
+        assertEquals("location like ral", ac.getValue().getSearch().get());
+
+    }
+
+    @Test
+    void testGetFieldSuggestionsUnknownField() throws Exception {
+
+        HashMap<String, Long> timeClaims = new HashMap<>();
+        String token = TokenUtils.generateTokenString("/JwtClaimsWriter.json", timeClaims);
+
+        given()
+            .auth()
+            .oauth2(token)
+        .when()
+            .get("engagements/suggest/description")
+        .then()
+            .statusCode(400);
+
+    }
+
     @Test
     void testGetCustomersWithAuthAndRoleSuccessNoQueryParams() throws Exception {
 
@@ -369,7 +419,7 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
         Mockito.verify(eRepository).findPagedEngagements(ac.capture());
 
         ListFilterOptions captured = ac.getValue();
-        assertNull(captured.getInclude());
+        assertEquals(ListView.CARD.getInclude().get(), captured.getInclude());
         assertEquals("state=active&start=2000-01-01&end=2100-01-01", captured.getSearch().get());
         assertEquals(Optional.empty(), captured.getSortOrder());
         assertEquals(Optional.empty(), captured.getSortFields());
@@ -388,6 +438,9 @@ class EngagementResourceV2GetTest extends IntegrationTestHelper {
         // search
         params.put(SEARCH_PARAM, SEARCH_VALUE);
 
+        // text
+        params.put(TEXT_PARAM, TEXT_VALUE);
+
         // sortOrder
         params.put(SORT_ORDER_PARAM, SORT_ORDER_VALUE);
 
@@ -0,0 +1,112 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+@Tag("integration")
+class AdaptiveLimitInterceptorTest {
+
+    static HttpServer server;
+
+    @Inject
+    StubApiClient client;
+
+    @Inject
+    AdaptiveLimiterRegistry registry;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/overloaded", exchange -> respond(exchange, 0, 503));
+        server.createContext("/fast", exchange -> respond(exchange, 0, 200));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        client.uri = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @Test
+    void testOverloadedApiLowersLimit() {
+
+        for (int i = 0; i < 3; i++) {
+            WebApplicationException e = assertThrows(WebApplicationException.class, client::getOverloaded);
+            assertEquals(503, e.getResponse().getStatus());
+        }
+
+        AdaptiveLimiter limiter = registry.get("overloaded-stub-api");
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getRejected());
+
+    }
+
+    @Test
+    void testFastApiRaisesLimitOnlyWhenUsed() {
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, client.getFast());
+        }
+
+        // one call at a time only uses half of the initial limit of two
+        assertEquals(3, registry.get("fast-stub-api").getLimit());
+        assertEquals(0, gauge(AdaptiveLimiterRegistry.IN_FLIGHT, "fast-stub-api"));
+
+    }
+
+    private int gauge(String name, String clientName) {
+        return ((Number) metricRegistry.getGauges().get(new MetricID(name, client(clientName))).getValue())
+                .intValue();
+    }
+
+    private static org.eclipse.microprofile.metrics.Tag client(String name) {
+        return new org.eclipse.microprofile.metrics.Tag("client", name);
+    }
+
+    private static void respond(HttpExchange exchange, long latencyMillis, int status) throws IOException {
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+
+    }
+
+}
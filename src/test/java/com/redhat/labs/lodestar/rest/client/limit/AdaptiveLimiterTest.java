@@ -0,0 +1,107 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void testLimitGrowsWhenUsed() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 4, 1, 6, 0.5, 100, 0);
+
+        // half the limit in use
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        limiter.release(FAST, false);
+        assertEquals(5, limiter.getLimit());
+
+        // less than half in use
+        limiter.release(FAST, false);
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.acquire());
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.release(FAST, false);
+        }
+        assertEquals(6, limiter.getLimit());
+
+    }
+
+    @Test
+    void testLimitShrinksWhenSlowOrOverloaded() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 8, 3, 10, 0.5, 100, 0);
+
+        assertTrue(limiter.acquire());
+        limiter.release(SLOW, false);
+        assertEquals(4, limiter.getLimit());
+
+        assertTrue(limiter.acquire());
+        limiter.release(FAST, true);
+        assertEquals(3, limiter.getLimit());
+
+        assertTrue(limiter.acquire());
+        limiter.release(SLOW, true);
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+    }
+
+    @Test
+    void testRejectedOverLimit() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 4, 0.9, 100, 20);
+
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getInFlight());
+
+    }
+
+    @Test
+    void testQueuedUntilReleased() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 4, 0.9, 100, 5000);
+
+        assertTrue(limiter.acquire());
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(queued.isDone());
+
+        limiter.release(SLOW, false);
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getRejected());
+
+    }
+
+    @Test
+    void testInitialLimitWithinBounds() {
+
+        assertEquals(5, new AdaptiveLimiter("test", 50, 1, 5, 0.9, 100, 0).getLimit());
+        assertEquals(3, new AdaptiveLimiter("test", 0, 3, 5, 0.9, 100, 0).getLimit());
+
+    }
+
+}
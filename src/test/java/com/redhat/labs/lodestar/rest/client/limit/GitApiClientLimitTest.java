@@ -0,0 +1,182 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.status.ApplicationVersion;
+import com.redhat.labs.lodestar.rest.client.LodeStarGitApiClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+@QuarkusTest
+@Tag("integration")
+@TestProfile(GitApiClientLimitTest.SlowGitApiProfile.class)
+class GitApiClientLimitTest {
+
+    static final String GIT_API = "git-api";
+    static final String GIT_API_URL = "lodestar.git.api/mp-rest/url";
+
+    static ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    @Inject
+    @RestClient
+    LodeStarGitApiClient gitApiClient;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @ConfigProperty(name = GIT_API_URL)
+    String gitApiUrl;
+
+    /**
+     * Starts a stub Git API on a free port, holding each version call until
+     * released, and points the Git API client at it with a limit of two calls
+     * that backs off on any call slower than 100 ms. The profile is created
+     * outside of the application, so the test only talks to the stub over HTTP.
+     */
+    public static class SlowGitApiProfile implements QuarkusTestProfile {
+
+        private static HttpServer server;
+        private static final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(GIT_API_URL, "http://localhost:" + start(), "rest.client.limit.git-api.initial", "2",
+                    "rest.client.limit.git-api.min", "1", "rest.client.limit.git-api.latency.threshold.millis",
+                    "100", "rest.client.limit.git-api.queue.timeout.millis", "50");
+        }
+
+        private static synchronized int start() {
+
+            if (null == server) {
+
+                try {
+                    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                server.createContext("/api/v1/version", SlowGitApiProfile::respondWhenReleased);
+                server.createContext("/release", exchange -> {
+                    released.countDown();
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                });
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+
+            }
+
+            return server.getAddress().getPort();
+
+        }
+
+        private static void respondWhenReleased(HttpExchange exchange) throws IOException {
+
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            byte[] body = "{\"application\":\"lodestar-git-api\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+
+        }
+
+    }
+
+    @AfterAll
+    static void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testSlowGitApiCallsRejectedAndLimitLowered() throws Exception {
+
+        CompletableFuture<ApplicationVersion> first = CompletableFuture.supplyAsync(gitApiClient::getVersion, callers);
+        CompletableFuture<ApplicationVersion> second = CompletableFuture.supplyAsync(gitApiClient::getVersion, callers);
+        awaitInFlight(2);
+
+        assertEquals(2, gauge(AdaptiveLimiterRegistry.LIMIT));
+        assertEquals(2, gauge(AdaptiveLimiterRegistry.IN_FLIGHT));
+
+        // both places taken, further calls fail once the queue timeout passes
+        for (int i = 0; i < 3; i++) {
+            WebApplicationException e = assertThrows(WebApplicationException.class, gitApiClient::getVersion);
+            assertEquals(503, e.getResponse().getStatus());
+        }
+
+        release();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertNotNull(second.get(10, TimeUnit.SECONDS));
+
+        assertEquals(1, gauge(AdaptiveLimiterRegistry.LIMIT));
+        assertEquals(0, gauge(AdaptiveLimiterRegistry.IN_FLIGHT));
+        assertEquals(3, metricRegistry
+                .counter(AdaptiveLimiterRegistry.REJECTED, new org.eclipse.microprofile.metrics.Tag("client", GIT_API))
+                .getCount());
+
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (System.currentTimeMillis() < deadline
+                && !(metricRegistry.getGauges().containsKey(gaugeId(AdaptiveLimiterRegistry.IN_FLIGHT))
+                        && expected == gauge(AdaptiveLimiterRegistry.IN_FLIGHT))) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+    }
+
+    private void release() throws IOException, InterruptedException {
+        HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(gitApiUrl + "/release")).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private int gauge(String name) {
+        return ((Number) metricRegistry.getGauges().get(gaugeId(name)).getValue()).intValue();
+    }
+
+    private static MetricID gaugeId(String name) {
+        return new MetricID(name, new org.eclipse.microprofile.metrics.Tag("client", GIT_API));
+    }
+
+}
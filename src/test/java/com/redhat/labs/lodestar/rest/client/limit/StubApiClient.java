@@ -0,0 +1,55 @@
+package com.redhat.labs.lodestar.rest.client.limit;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Calls the stub server of {@link AdaptiveLimitInterceptorTest} with a limit
+ * per endpoint, mapping error responses the same way the REST clients do. The
+ * limit of a real REST client is covered by {@link GitApiClientLimitTest}.
+ */
+@ApplicationScoped
+public class StubApiClient {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    URI uri;
+
+    @AdaptiveLimit("overloaded-stub-api")
+    public int getOverloaded() {
+        return get("/overloaded");
+    }
+
+    @AdaptiveLimit("fast-stub-api")
+    public int getFast() {
+        return get("/fast");
+    }
+
+    private int get(String path) {
+
+        try {
+
+            int status = client.send(HttpRequest.newBuilder(uri.resolve(path)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status >= 400) {
+                throw new WebApplicationException(status);
+            }
+            return status;
+
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        }
+
+    }
+
+}
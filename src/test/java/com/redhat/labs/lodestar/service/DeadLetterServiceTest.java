@@ -0,0 +1,127 @@
+package com.redhat.labs.lodestar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.model.event.DeadLetterEvent;
+import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.repository.DeadLetterRepository;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class DeadLetterServiceTest {
+
+    @Inject
+    DeadLetterRepository repository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    OutboxService outbox;
+
+    DeadLetterService service;
+
+    @BeforeEach
+    void setUp() {
+
+        outbox = Mockito.mock(OutboxService.class);
+
+        service = new DeadLetterService();
+        service.repository = repository;
+        service.outbox = outbox;
+        service.metricRegistry = metricRegistry;
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testRecordAndFindRecent() {
+
+        service.record(event("1"), 3, "first");
+        service.record(event("2"), 6, "second");
+
+        List<DeadLetterEvent> dead = service.findRecent(10);
+        assertEquals(2, dead.size());
+        assertEquals("2", dead.get(0).getEngagementUuid());
+        assertEquals(6, dead.get(0).getAttempts());
+        assertEquals("second", dead.get(0).getError());
+        assertEquals(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, dead.get(0).getAddress());
+        assertEquals("p2", dead.get(0).getEngagement().getProjectName());
+
+        assertEquals(1, service.findRecent(1).size());
+
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testReplay() {
+
+        service.record(event("1"), 3, "first");
+        service.record(event("2"), 3, "second");
+        String id = service.findRecent(10).get(1).getId();
+
+        service.replay(id);
+
+        ArgumentCaptor<List<OutboxEvent>> sent = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(outbox).send(sent.capture());
+        assertEquals("1", sent.getValue().get(0).getEngagementUuid());
+        assertEquals("p1", sent.getValue().get(0).getEngagement().getProjectName());
+        assertEquals(1, repository.count());
+
+        assertEquals(1, service.replayAll());
+        assertEquals(0, repository.count());
+        Mockito.verify(outbox, Mockito.times(2)).send(Mockito.any());
+
+    }
+
+    @Test
+    void testPurge() {
+
+        service.record(event("1"), 3, "first");
+        service.record(event("2"), 3, "second");
+
+        service.purge(service.findRecent(1).get(0).getId());
+        assertEquals(1, repository.count());
+        assertEquals(1, service.purgeAll());
+        assertEquals(0, repository.count());
+        Mockito.verifyNoInteractions(outbox);
+
+    }
+
+    @Test
+    void testReplayNotFound() {
+
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> service.replay("missing"));
+        assertEquals(404, e.getResponse().getStatus());
+
+    }
+
+    private static OutboxEvent event(String uuid) {
+        return OutboxEvent.of(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS,
+                MockUtils.mockMinimumEngagement("c" + uuid, "p" + uuid, uuid));
+    }
+
+}
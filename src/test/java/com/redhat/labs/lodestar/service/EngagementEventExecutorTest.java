@@ -0,0 +1,140 @@
+package com.redhat.labs.lodestar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class EngagementEventExecutorTest {
+
+    EngagementEventExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+
+        executor = new EngagementEventExecutor();
+        executor.stripeCount = 4;
+        executor.queueSize = 2;
+        executor.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_DEEP_STUBS);
+        executor.createStripes();
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testSameEngagementRunsInOrder() throws Exception {
+
+        executor.queueSize = 100;
+        executor.shutdown();
+        executor.createStripes();
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 50)
+                .mapToObj(i -> executor.submit("1234", () -> {
+                    ran.add(i);
+                    return i;
+                })).collect(Collectors.toList());
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), ran);
+
+    }
+
+    @Test
+    void testOtherEngagementsRunInParallel() throws Exception {
+
+        String first = "a";
+        String second = IntStream.range(0, 100).mapToObj(String::valueOf)
+                .filter(key -> executor.stripeOf(key) != executor.stripeOf(first)).findFirst().get();
+
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(first, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // runs while the first engagement's handler is still waiting
+        assertEquals("done", executor.submit(second, () -> "done").get(5, TimeUnit.SECONDS));
+        release.countDown();
+
+    }
+
+    @Test
+    void testFullStripeRejects() {
+
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // one running and two queued
+        executor.execute("1234", blocked);
+        waitForHandlerToStart();
+        executor.execute("1234", blocked);
+        executor.execute("1234", blocked);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("1234", blocked));
+        release.countDown();
+
+    }
+
+    @Test
+    void testFailedHandlerDoesNotStopStripe() throws Exception {
+
+        executor.execute("1234", () -> {
+            throw new IllegalStateException();
+        });
+
+        assertTrue(executor.submit("1234", () -> true).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Object> failed = executor.submit("1234", () -> {
+            throw new IllegalStateException();
+        });
+        assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    void testStripeOf() {
+
+        assertEquals(executor.stripeOf("1234"), executor.stripeOf("1234"));
+        assertEquals(0, executor.stripeOf(null));
+        IntStream.range(-100, 100).map(i -> executor.stripeOf(String.valueOf(i)))
+                .forEach(stripe -> assertTrue(stripe >= 0 && stripe < 4));
+
+    }
+
+    private static void waitForHandlerToStart() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
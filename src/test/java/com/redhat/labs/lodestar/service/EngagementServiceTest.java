@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -24,18 +25,27 @@ import javax.json.bind.config.PropertyNamingStrategy;
 import javax.ws.rs.WebApplicationException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
 import com.redhat.labs.lodestar.model.Artifact;
 import com.redhat.labs.lodestar.model.Category;
+import com.redhat.labs.lodestar.model.Commit;
 import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.EngagementUser;
 import com.redhat.labs.lodestar.model.Hook;
@@ -47,7 +57,11 @@ import com.redhat.labs.lodestar.model.event.EventType;
 import com.redhat.labs.lodestar.model.filter.FilterOptions;
 import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.repository.EngagementCommitRepository;
+import com.redhat.labs.lodestar.repository.EngagementReadModel;
 import com.redhat.labs.lodestar.repository.EngagementRepository;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex;
+import com.redhat.labs.lodestar.repository.EngagementSuggestionIndex.SuggestionField;
 import com.redhat.labs.lodestar.rest.client.LodeStarGitApiClient;
 import com.redhat.labs.lodestar.utils.MockUtils;
 
@@ -60,6 +74,9 @@ class EngagementServiceTest {
     Jsonb jsonb = JsonbBuilder.create(config);
 
     EngagementRepository repository;
+    EngagementCommitRepository commitRepository;
+    EngagementReadModel readModel;
+    EngagementSuggestionIndex suggestionIndex;
     EventBus eventBus;
     LodeStarGitApiClient gitApi;
 
@@ -71,6 +88,9 @@ class EngagementServiceTest {
         statusFile.add("status.json");
 
         repository = Mockito.mock(EngagementRepository.class);
+        commitRepository = Mockito.mock(EngagementCommitRepository.class);
+        readModel = Mockito.mock(EngagementReadModel.class);
+        suggestionIndex = Mockito.mock(EngagementSuggestionIndex.class);
         eventBus = Mockito.mock(EventBus.class);
         gitApi = Mockito.mock(LodeStarGitApiClient.class);
 
@@ -79,14 +99,64 @@ class EngagementServiceTest {
         service.commitFilteredMessages = Lists.newArrayList("manual_refresh");
         service.jsonb = jsonb;
         service.repository = repository;
+        service.commitRepository = commitRepository;
+        service.readModel = readModel;
+        service.suggestionIndex = suggestionIndex;
+        // disabled, so every query is loaded
+        service.queryCache = new QueryResultCache();
         service.eventBus = eventBus;
         service.gitApi = gitApi;
 
+        // disabled, so events are sent on the event bus
+        OutboxService outbox = new OutboxService();
+        outbox.eventBus = eventBus;
+        service.outbox = outbox;
+
     }
 
     @AfterEach
     void tearDown() {
-        Mockito.reset(repository, eventBus, gitApi);
+        Mockito.reset(repository, commitRepository, readModel, suggestionIndex, eventBus, gitApi);
+    }
+
+    // commits
+
+    @Test
+    void testSetCommits() {
+
+        List<Commit> commits = Lists.newArrayList(MockUtils.mockCommit("status.json", false, null));
+        service.setCommits("1", commits);
+
+        Mockito.verify(commitRepository).append("1", commits);
+        Mockito.verify(repository, Mockito.never()).setCommits(Mockito.anyString(), Mockito.anyList());
+
+    }
+
+    @Test
+    void testSetInlineCommits() {
+
+        List<Commit> commits = Lists.newArrayList(MockUtils.mockCommit("status.json", false, null));
+        Mockito.when(commitRepository.findAll(Set.of("1", "2"))).thenReturn(Map.of("1", commits));
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        Engagement e2 = MockUtils.mockMinimumEngagement("c2", "p2", "2");
+        service.setInlineCommits(List.of(e1, e2), new FilterOptions());
+
+        assertEquals(commits, e1.getCommits());
+        assertNull(e2.getCommits());
+
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = { "'uuid,customer_name',", ",commits" })
+    void testSetInlineCommitsNotIncluded(String include, String exclude) {
+
+        Engagement engagement = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        service.setInlineCommits(List.of(engagement),
+                FilterOptions.builder().include(include).exclude(exclude).build());
+
+        Mockito.verify(commitRepository, Mockito.never()).findAll(Mockito.anyCollection());
+
     }
 
     // create
@@ -148,7 +218,8 @@ class EngagementServiceTest {
         e.setHostingEnvironments(Lists.newArrayList(he1, he2));
 
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.empty());
-        Mockito.when(repository.findBySubdomain(Mockito.anyString())).thenReturn(Optional.of(e));
+        Mockito.when(repository.findSubdomainsInUse(Lists.newArrayList("subdomain1", "subdomain2"), null))
+                .thenReturn(Sets.newHashSet("subdomain1", "subdomain2"));
 
         WebApplicationException wae = assertThrows(WebApplicationException.class, () -> service.create(e));
         assertEquals(409, wae.getResponse().getStatus());
@@ -176,6 +247,24 @@ class EngagementServiceTest {
 
     }
 
+    @Test
+    void testCreateDuplicateKeyConflict() {
+
+        Engagement e = MockUtils.mockMinimumEngagement("c1", "p1", "1234");
+
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.empty());
+        Mockito.doThrow(new MongoWriteException(new WriteError(11000, "E11000 duplicate key error", new BsonDocument()),
+                new ServerAddress())).when(repository).persist(Mockito.any(Engagement.class));
+
+        WebApplicationException wae = assertThrows(WebApplicationException.class, () -> service.create(e));
+        assertEquals(409, wae.getResponse().getStatus());
+        assertEquals("engagement already exists, use PUT to update resource", wae.getMessage());
+
+        Mockito.verify(eventBus, Mockito.times(0)).sendAndForget(Mockito.eq(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS),
+                Mockito.any());
+
+    }
+
     // update
 
     @ParameterizedTest
@@ -248,8 +337,8 @@ class EngagementServiceTest {
         e2.setProjectId(2222);
 
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(e));
-        Mockito.when(repository.findBySubdomain(Mockito.anyString(), Mockito.any())).thenReturn(Optional.empty());
-        Mockito.when(repository.findBySubdomain(Mockito.anyString())).thenReturn(Optional.of(e2));
+        Mockito.when(repository.findSubdomainsInUse(Lists.newArrayList("subdomain1", "subdomain2"), "1234"))
+                .thenReturn(Sets.newHashSet("subdomain1", "subdomain2"));
 
         WebApplicationException wae = assertThrows(WebApplicationException.class, () -> service.update(e));
         assertEquals(409, wae.getResponse().getStatus());
@@ -295,7 +384,7 @@ class EngagementServiceTest {
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
         Mockito.when(repository.findByCustomerNameAndProjectName("c3", "p3", new FilterOptions()))
                 .thenReturn(Optional.empty());
-        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any()))
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.of(toUpdate));
 
         Engagement updated = service.update(toUpdate);
@@ -315,6 +404,73 @@ class EngagementServiceTest {
 
     }
 
+    @Test
+    void testUpdateNameChangedDuplicateKeyConflict() {
+
+        Engagement toUpdate = MockUtils.mockMinimumEngagement("c3", "p3", "1234");
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "p1", "1234");
+
+        BsonDocument response = new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(11000))
+                .append("errmsg", new BsonString("E11000 duplicate key error"));
+
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+        Mockito.when(repository.findByCustomerNameAndProjectName("c3", "p3", new FilterOptions()))
+                .thenReturn(Optional.empty());
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenThrow(new MongoCommandException(response, new ServerAddress()));
+
+        WebApplicationException wae = assertThrows(WebApplicationException.class, () -> service.update(toUpdate));
+        assertEquals(409, wae.getResponse().getStatus());
+        assertEquals("failed to change name(s).  engagement with customer name 'c3' and project 'p3' already exists.",
+                wae.getMessage());
+
+    }
+
+    @Test
+    void testApplyMergePatch() {
+
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "p1", "1234");
+        persisted.setDescription("original");
+        persisted.setLocation("Raleigh, NC");
+        persisted.setHostingEnvironments(Lists.newArrayList(MockUtils.mockHostingEnvironment("env1", "sub1")));
+
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+
+        Engagement patched = service.applyMergePatch("1234",
+                "{\"uuid\": \"9999\", \"description\": \"patched\", \"location\": null}");
+
+        assertEquals("1234", patched.getUuid());
+        assertEquals("c1", patched.getCustomerName());
+        assertEquals("patched", patched.getDescription());
+        assertNull(patched.getLocation());
+        assertEquals(persisted.getHostingEnvironments(), patched.getHostingEnvironments());
+
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "{\"description\": ", "[]", "{\"project_id\": \"abc\"}" })
+    void testApplyMergePatchInvalid(String patch) {
+
+        Engagement persisted = MockUtils.mockMinimumEngagement("c1", "p1", "1234");
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
+
+        WebApplicationException wae = assertThrows(WebApplicationException.class,
+                () -> service.applyMergePatch("1234", patch));
+        assertEquals(400, wae.getResponse().getStatus());
+
+    }
+
+    @Test
+    void testApplyMergePatchNotFound() {
+
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.empty());
+
+        WebApplicationException wae = assertThrows(WebApplicationException.class,
+                () -> service.applyMergePatch("1234", "{}"));
+        assertEquals(404, wae.getResponse().getStatus());
+
+    }
+
     @Test
     void testUpdateSuccessNoNameChange() throws Exception {
 
@@ -328,7 +484,7 @@ class EngagementServiceTest {
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
         Mockito.when(repository.findByCustomerNameAndProjectName("c3", "p3", new FilterOptions()))
                 .thenReturn(Optional.empty());
-        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any()))
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.of(toUpdate));
 
         Engagement updated = service.update(toUpdate);
@@ -508,6 +664,20 @@ class EngagementServiceTest {
 
     }
 
+    @Test
+    void testGetByUuidFromReadModel() {
+
+        FilterOptions options = new FilterOptions();
+        Mockito.when(readModel.isServing(options)).thenReturn(true);
+        Mockito.when(readModel.findByUuid("1234"))
+                .thenReturn(Optional.of(MockUtils.mockMinimumEngagement("c1", "p1", "1234")));
+
+        Engagement e = service.getByUuid("1234", options);
+        assertEquals("1234", e.getUuid());
+        Mockito.verify(repository, Mockito.never()).findByUuid(Mockito.anyString(), Mockito.any(FilterOptions.class));
+
+    }
+
     // getAll
 
     @ParameterizedTest
@@ -570,6 +740,31 @@ class EngagementServiceTest {
 
     }
 
+    @Test
+    void testGetSuggestionsFromIndex() {
+
+        ListFilterOptions options = new ListFilterOptions();
+        options.setSearch("customer_name like c");
+        PagedStringResults results = PagedStringResults.builder().results(Lists.newArrayList("customer1")).build();
+        Mockito.when(suggestionIndex.suggest(SuggestionField.CUSTOMER_NAME, options))
+                .thenReturn(Optional.of(results));
+
+        assertEquals(results, service.getSuggestions(options));
+        Mockito.verify(repository, Mockito.never()).findCustomerSuggestions(Mockito.any(ListFilterOptions.class));
+
+    }
+
+    @Test
+    void testGetSuggestionsForField() {
+
+        ListFilterOptions options = new ListFilterOptions();
+        PagedStringResults results = PagedStringResults.builder().results(Lists.newArrayList("Raleigh")).build();
+        Mockito.when(repository.findSuggestions(SuggestionField.LOCATION, options)).thenReturn(results);
+
+        assertEquals(results, service.getSuggestions(SuggestionField.LOCATION, options));
+
+    }
+
     // deleteByCustomerAndProjectName
 
     @Test
@@ -839,7 +1034,7 @@ class EngagementServiceTest {
         persisted.setProjectId(1111);
 
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any()))
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.of(toUpdate));
 
         Engagement updated = service.launch(toUpdate);
@@ -847,7 +1042,7 @@ class EngagementServiceTest {
         assertNotNull(updated.getLaunch());
         assertNull(updated.getLaunch().getLaunchedBy());
 
-        Mockito.verify(repository).updateEngagement(Mockito.any(), Mockito.any());
+        Mockito.verify(repository).updateEngagement(Mockito.any(), Mockito.any(), Mockito.any());
         Mockito.verify(eventBus).sendAndForget(Mockito.eq(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS), Mockito.any());
 
     }
@@ -863,7 +1058,7 @@ class EngagementServiceTest {
         persisted.setProjectId(1111);
 
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any()))
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.of(toUpdate));
 
         Engagement updated = service.launch(toUpdate);
@@ -877,7 +1072,7 @@ class EngagementServiceTest {
         assertNotNull(updated);
         assertNull(updated.getLaunch());
         
-        Mockito.verify(repository, Mockito.times(2)).updateEngagement(Mockito.any(), Mockito.any());
+        Mockito.verify(repository, Mockito.times(2)).updateEngagement(Mockito.any(), Mockito.any(), Mockito.any());
         Mockito.verify(eventBus, Mockito.times(2)).sendAndForget(Mockito.eq(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS), Mockito.any());
 
     }
@@ -894,7 +1089,7 @@ class EngagementServiceTest {
         persisted.setProjectId(1111);
 
         Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.of(persisted));
-        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any()))
+        Mockito.when(repository.updateEngagement(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.of(toUpdate));
 
         // reset
@@ -903,7 +1098,7 @@ class EngagementServiceTest {
         assertNotNull(updated.getLaunch());
         assertEquals("test", updated.getLaunch().getLaunchedBy());
         
-        Mockito.verify(repository, Mockito.times(1)).updateEngagement(Mockito.any(), Mockito.any());
+        Mockito.verify(repository, Mockito.times(1)).updateEngagement(Mockito.any(), Mockito.any(), Mockito.any());
         Mockito.verify(eventBus, Mockito.times(1)).sendAndForget(Mockito.eq(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS), Mockito.any());
 
     }
@@ -934,6 +1129,19 @@ class EngagementServiceTest {
 
     }
 
+    @Test
+    void testPersistEngagementIfNotFoundDuplicateKey() {
+
+        Engagement e = MockUtils.mockMinimumEngagement("c1", "p1", "1234");
+
+        Mockito.when(repository.findByUuid("1234")).thenReturn(Optional.empty());
+        Mockito.doThrow(new MongoWriteException(new WriteError(11000, "E11000 duplicate key error", new BsonDocument()),
+                new ServerAddress())).when(repository).persist(Mockito.any(Engagement.class));
+
+        assertFalse(service.persistEngagementIfNotFound(e));
+
+    }
+
     @Test
     void testSetEngagementAttributeIdsAndTimestamps() {
 
@@ -1,5 +1,8 @@
 package com.redhat.labs.lodestar.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -11,11 +14,13 @@ import javax.ws.rs.core.Response;
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import com.redhat.labs.lodestar.model.Engagement;
 import com.redhat.labs.lodestar.model.Status;
 import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
 import com.redhat.labs.lodestar.utils.IntegrationTestHelper;
 
 import io.quarkus.test.junit.QuarkusTest;
@@ -85,6 +90,31 @@ class EventServiceTest extends IntegrationTestHelper {
 
     }
 
+    @Test
+    void testDeliverCreatePushesEngagementUpdatedSince() {
+
+        Mockito.when(gitApiClient.createOrUpdateEngagement(Mockito.any(), Mockito.anyString(), Mockito.anyString()))
+                .thenReturn(Response.status(201).header("Location", "some/path/to/id/5678").build());
+
+        Engagement created = Engagement.builder().uuid("1234").customerName("c1").projectName("p1")
+                .description("created").commitMessage("create").lastUpdate("2021-01-01T00:00:01Z")
+                .lastUpdateByName("someone").lastUpdateByEmail("someone@example.com").build();
+        Engagement updated = created.toBuilder().description("updated").commitMessage("update")
+                .lastUpdate("2021-01-01T00:00:02Z").build();
+        Mockito.when(engagementService.getByUuid(Mockito.eq("1234"), Mockito.any())).thenReturn(updated);
+
+        assertTrue(eventService.deliver(OutboxEvent.of(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, created)));
+
+        // the newer engagement is pushed with the message of the create
+        ArgumentCaptor<Engagement> pushed = ArgumentCaptor.forClass(Engagement.class);
+        Mockito.verify(gitApiClient).createOrUpdateEngagement(pushed.capture(), Mockito.eq("someone"),
+                Mockito.eq("someone@example.com"));
+        assertEquals("updated", pushed.getValue().getDescription());
+        assertEquals("create", pushed.getValue().getCommitMessage());
+        Mockito.verify(engagementService).setProjectId("1234", 5678);
+
+    }
+
     @Test
     void testConsumeUpdateEngagementEventSuccess() {
 
@@ -0,0 +1,177 @@
+package com.redhat.labs.lodestar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.repository.OutboxRepository;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class OutboxServiceTest {
+
+    @Inject
+    OutboxRepository repository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    OutboxService outbox;
+
+    long now = 10000;
+
+    @BeforeEach
+    void setUp() {
+
+        outbox = new OutboxService();
+        outbox.enabled = true;
+        outbox.pendingMillis = 30000;
+        outbox.quietMillis = 3000;
+        outbox.maxWaitMillis = 5000;
+        outbox.repository = repository;
+        outbox.metricRegistry = metricRegistry;
+        outbox.clock = () -> now;
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testWriteReleasesEvents() {
+
+        outbox.write(List.of(OutboxEvent.of(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, engagement("1", null))),
+                () -> null);
+
+        OutboxEvent event = repository.listAll().get(0);
+        assertEquals(10000L, event.getAvailableAt());
+        assertEquals(10000L, event.getCreatedAt());
+
+    }
+
+    @Test
+    void testWriteDiscardsEventsWhenWriteFails() {
+
+        List<OutboxEvent> events = List
+                .of(OutboxEvent.of(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, engagement("1", null)));
+
+        assertThrows(IllegalStateException.class, () -> outbox.write(events, () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, repository.count());
+
+    }
+
+    @Test
+    void testUpdatesCoalesced() {
+
+        long before = metricRegistry.counter(OutboxService.CALLS_SAVED).getCount();
+
+        send(update("2021-01-01T00:00:01Z", "first"));
+        now = 11000;
+        send(update("2021-01-01T00:00:02Z", null));
+        now = 12000;
+        send(update("2021-01-01T00:00:03Z", "third"));
+
+        List<OutboxEvent> events = repository.listAll();
+        assertEquals(1, events.size());
+
+        OutboxEvent event = events.get(0);
+        assertEquals("2021-01-01T00:00:03Z", event.getLastUpdate());
+        assertEquals("first\n\nthird", event.getEngagement().getCommitMessage());
+        assertEquals(10000L, event.getCreatedAt());
+        assertEquals(15000L, event.getAvailableAt());
+        assertEquals(before + 2, metricRegistry.counter(OutboxService.CALLS_SAVED).getCount());
+
+    }
+
+    @Test
+    void testCoalescedUpdateHeldNoLongerThanMaxWait() {
+
+        send(update("2021-01-01T00:00:01Z", "first"));
+        now = 14000;
+        send(update("2021-01-01T00:00:02Z", "second"));
+
+        // first written at 10000, so held until 15000 rather than 17000
+        assertEquals(15000L, repository.listAll().get(0).getAvailableAt());
+
+    }
+
+    @Test
+    void testClaimedUpdateNotCoalesced() {
+
+        send(update("2021-01-01T00:00:01Z", "first"));
+        now = 13000;
+        repository.claim("worker", now, 60000, 10);
+        send(update("2021-01-01T00:00:02Z", "second"));
+
+        assertEquals(2, repository.count());
+
+    }
+
+    @Test
+    void testDiscardedUpdateMessageCarriedForward() {
+
+        send(update("2021-01-01T00:00:01Z", "first"));
+        now = 13000;
+        OutboxEvent first = repository.claim("worker", now, 60000, 10).get(0);
+        send(update("2021-01-01T00:00:02Z", "second"));
+        send(update("2021-01-01T00:00:03Z", null));
+
+        // the claimed update is discarded once the engagement is updated again
+        repository.complete(first, "worker");
+        outbox.carryForward(first);
+
+        List<OutboxEvent> events = repository.listAll();
+        assertEquals(1, events.size());
+        assertEquals("first\n\nsecond", events.get(0).getEngagement().getCommitMessage());
+
+    }
+
+    @Test
+    void testOtherEventsNotCoalesced() {
+
+        Engagement engagement = engagement("2021-01-01T00:00:01Z", "first");
+        send(OutboxEvent.of(EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS, engagement, "message"));
+        send(OutboxEvent.of(EventType.UPDATE_PARTICIPANTS_EVENT_ADDESS,
+                engagement("2021-01-01T00:00:02Z", "second"), "message"));
+
+        assertEquals(2, repository.count());
+
+    }
+
+    private void send(OutboxEvent event) {
+        outbox.send(List.of(event));
+    }
+
+    private static OutboxEvent update(String lastUpdate, String commitMessage) {
+        return OutboxEvent.of(EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, engagement(lastUpdate, commitMessage));
+    }
+
+    private static Engagement engagement(String lastUpdate, String commitMessage) {
+        Engagement engagement = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        engagement.setLastUpdate(lastUpdate);
+        engagement.setCommitMessage(commitMessage);
+        return engagement;
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.redhat.labs.lodestar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.model.EngagementUserSummary;
+import com.redhat.labs.lodestar.model.filter.ListFilterOptions;
+import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
+import com.redhat.labs.lodestar.repository.DataVersionTracker;
+import com.redhat.labs.lodestar.service.QueryResultCache.CachedQuery;
+
+class QueryResultCacheTest {
+
+    QueryResultCache cache;
+    DataVersionTracker versionTracker;
+    Config config;
+    AtomicLong now = new AtomicLong(1000);
+    AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+
+        versionTracker = Mockito.mock(DataVersionTracker.class);
+        config = Mockito.mock(Config.class);
+        Mockito.when(config.getOptionalValue("query.cache.customer.suggestions.max.weight", Long.class))
+                .thenReturn(Optional.of(5L));
+
+        cache = new QueryResultCache();
+        cache.enabled = true;
+        cache.defaultTtlSeconds = 30;
+        cache.config = config;
+        cache.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_MOCKS);
+        cache.versionTracker = versionTracker;
+        cache.clock = now::get;
+        cache.createSegments();
+
+    }
+
+    @Test
+    void testCachedUntilVersionChanges() {
+
+        ListFilterOptions options = ListFilterOptions.builder().search("customerName=c1").build();
+
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        assertEquals(1, loads.get());
+        assertEquals(0.5, cache.getHitRate(CachedQuery.USER_SUMMARY));
+
+        Mockito.when(versionTracker.getVersion()).thenReturn(1L);
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        assertEquals(2, loads.get());
+
+    }
+
+    @Test
+    void testExpiresAfterTtl() {
+
+        ListFilterOptions options = ListFilterOptions.builder().build();
+
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        now.addAndGet(29999);
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        assertEquals(1, loads.get());
+        now.addAndGet(1);
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        assertEquals(2, loads.get());
+
+    }
+
+    @Test
+    void testQueriesCachedSeparately() {
+
+        ListFilterOptions options = ListFilterOptions.builder().build();
+
+        cache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, options, this::page, PagedStringResults::copy);
+        cache.getPage(CachedQuery.ARTIFACT_TYPES, options, this::page, PagedStringResults::copy);
+        assertEquals(2, loads.get());
+        cache.getPage(CachedQuery.ARTIFACT_TYPES, options, this::page, PagedStringResults::copy);
+        assertEquals(2, loads.get());
+
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictedByWeight() {
+
+        // max weight of 5, each page weighs 3
+        ListFilterOptions first = ListFilterOptions.builder().page(1).build();
+        ListFilterOptions second = ListFilterOptions.builder().page(2).build();
+
+        cache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, first, this::page, PagedStringResults::copy);
+        assertEquals(3, cache.getWeight(CachedQuery.CUSTOMER_SUGGESTIONS));
+
+        cache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, second, this::page, PagedStringResults::copy);
+        assertEquals(3, cache.getWeight(CachedQuery.CUSTOMER_SUGGESTIONS));
+        cache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, first, this::page, PagedStringResults::copy);
+        assertEquals(3, loads.get());
+
+    }
+
+    @Test
+    void testPageHeadersSetBeforeCaching() {
+
+        PagedStringResults page = cache.getPage(CachedQuery.CUSTOMER_SUGGESTIONS, ListFilterOptions.builder().build(),
+                () -> PagedStringResults.builder().results(Arrays.asList("a")).build(), PagedStringResults::copy);
+        assertFalse(page.getLinkHeaders().isEmpty());
+
+    }
+
+    @Test
+    void testCopiesReturned() {
+
+        ListFilterOptions options = ListFilterOptions.builder().build();
+
+        PagedStringResults first = cache.getPage(CachedQuery.ARTIFACT_TYPES, options, this::page,
+                PagedStringResults::copy);
+        first.getResults().add("c");
+        first.getHeaders().clear();
+
+        PagedStringResults second = cache.getPage(CachedQuery.ARTIFACT_TYPES, options, this::page,
+                PagedStringResults::copy);
+        assertNotSame(first, second);
+        assertEquals(Arrays.asList("a", "b"), second.getResults());
+        assertFalse(second.getHeaders().isEmpty());
+        assertEquals(1, loads.get());
+
+    }
+
+    @Test
+    void testDisabled() {
+
+        cache.enabled = false;
+        ListFilterOptions options = ListFilterOptions.builder().build();
+
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        cache.get(CachedQuery.USER_SUMMARY, options, this::summary, EngagementUserSummary::copy);
+        assertEquals(2, loads.get());
+
+    }
+
+    @Test
+    void testCreateKey() {
+
+        ListFilterOptions first = ListFilterOptions.builder().search("state=active&customerName=c1")
+                .include("uuid,customer_name").page(1).perPage(10).build();
+        ListFilterOptions second = ListFilterOptions.builder().search("customerName=c1&state=active")
+                .include("customer_name,uuid").page(1).perPage(10).build();
+        assertEquals(QueryResultCache.createKey(first), QueryResultCache.createKey(second));
+
+        second.setPage(2);
+        assertNotEquals(QueryResultCache.createKey(first), QueryResultCache.createKey(second));
+
+        ListFilterOptions offset = ListFilterOptions.builder().build();
+        ListFilterOptions cursor = ListFilterOptions.builder().cursor("").build();
+        assertNotEquals(QueryResultCache.createKey(offset), QueryResultCache.createKey(cursor));
+
+        // the default sort is not the same as no sort fields
+        ListFilterOptions defaultSort = ListFilterOptions.builder().sortFields("customer_name,project_name").build();
+        assertNotEquals(QueryResultCache.createKey(offset), QueryResultCache.createKey(defaultSort));
+
+        // a text search without sort fields is ranked by text score
+        ListFilterOptions ranked = ListFilterOptions.builder().text("lodestar").build();
+        ListFilterOptions sorted = ListFilterOptions.builder().text("lodestar").sortFields("customer_name").build();
+        assertTrue(ranked.isRankedByText());
+        assertNotEquals(QueryResultCache.createKey(ranked), QueryResultCache.createKey(sorted));
+        assertNotEquals(QueryResultCache.createKey(ranked), QueryResultCache.createKey(offset));
+
+    }
+
+    private PagedStringResults page() {
+        loads.incrementAndGet();
+        return PagedStringResults.builder().results(new ArrayList<>(Arrays.asList("a", "b"))).build();
+    }
+
+    private EngagementUserSummary summary() {
+        loads.incrementAndGet();
+        return new EngagementUserSummary();
+    }
+
+}
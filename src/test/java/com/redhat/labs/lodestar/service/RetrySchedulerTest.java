@@ -0,0 +1,141 @@
+package com.redhat.labs.lodestar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Consumer;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.event.EventType;
+import com.redhat.labs.lodestar.model.event.OutboxEvent;
+import com.redhat.labs.lodestar.model.event.RetriableEvent;
+
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.eventbus.EventBus;
+
+class RetrySchedulerTest {
+
+    RetryScheduler scheduler;
+    Vertx vertx;
+    EventBus eventBus;
+    DeadLetterService deadLetters;
+
+    @BeforeEach
+    void setUp() {
+
+        vertx = Mockito.mock(Vertx.class);
+        eventBus = Mockito.mock(EventBus.class);
+        deadLetters = Mockito.mock(DeadLetterService.class);
+
+        scheduler = new RetryScheduler();
+        scheduler.maxRetries = 3;
+        scheduler.initialDelayMillis = 1000;
+        scheduler.delayFactor = 2;
+        scheduler.maxDelaySeconds = 5;
+        scheduler.jitter = 0;
+        scheduler.maxInFlight = 1;
+        scheduler.vertx = vertx;
+        scheduler.eventBus = eventBus;
+        scheduler.deadLetters = deadLetters;
+        scheduler.metricRegistry = Mockito.mock(MetricRegistry.class, Mockito.RETURNS_DEEP_STUBS);
+
+    }
+
+    @Test
+    void testBackoff() {
+
+        assertEquals(1000, scheduler.backoff(1));
+        assertEquals(2000, scheduler.backoff(2));
+        assertEquals(4000, scheduler.backoff(3));
+        // capped at max delay
+        assertEquals(5000, scheduler.backoff(4));
+        assertEquals(5000, scheduler.backoff(40));
+
+    }
+
+    @Test
+    void testBackoffJitter() {
+
+        scheduler.jitter = 0.5;
+
+        for (int i = 0; i < 100; i++) {
+            long delay = scheduler.backoff(2);
+            assertTrue(delay >= 1000 && delay <= 2000, "delay " + delay);
+        }
+
+    }
+
+    @Test
+    void testShouldRetry() {
+
+        assertTrue(scheduler.shouldRetry(3));
+        assertFalse(scheduler.shouldRetry(4));
+
+        scheduler.maxRetries = -1;
+        assertTrue(scheduler.shouldRetry(400));
+
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testRetrySendsOnTimer() {
+
+        RetriableEvent event = event(2, 1);
+        scheduler.retry(EventType.RETRY_UPDATE_EVENT_ADDRESS, EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, event,
+                "error");
+
+        ArgumentCaptor<Consumer<Long>> timer = ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(vertx).setTimer(Mockito.eq(1000L), timer.capture());
+        Mockito.verify(eventBus, Mockito.never()).sendAndForget(Mockito.anyString(), Mockito.any());
+
+        timer.getValue().accept(1L);
+        Mockito.verify(eventBus).sendAndForget(EventType.RETRY_UPDATE_EVENT_ADDRESS, event);
+
+        // in flight retry finished, so another can be scheduled
+        scheduler.retry(EventType.RETRY_UPDATE_EVENT_ADDRESS, EventType.UPDATE_ENGAGEMENT_EVENT_ADDRESS, event,
+                "error");
+        Mockito.verify(vertx, Mockito.times(2)).setTimer(Mockito.anyLong(), Mockito.any());
+        Mockito.verifyNoInteractions(deadLetters);
+
+    }
+
+    @Test
+    void testRetryDeadLettersWhenExhausted() {
+
+        scheduler.retry(EventType.RETRY_CREATE_EVENT_ADDRESS, EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, event(2, 2),
+                "error");
+
+        ArgumentCaptor<OutboxEvent> dead = ArgumentCaptor.forClass(OutboxEvent.class);
+        Mockito.verify(deadLetters).record(dead.capture(), Mockito.eq(2), Mockito.eq("error"));
+        assertEquals(EventType.CREATE_ENGAGEMENT_EVENT_ADDRESS, dead.getValue().getAddress());
+        assertEquals("1234", dead.getValue().getEngagementUuid());
+        Mockito.verifyNoInteractions(vertx);
+
+    }
+
+    @Test
+    void testRetryDeadLettersWhenTooManyInFlight() {
+
+        scheduler.retry(EventType.RETRY_DELETE_EVENT_ADDRESS, EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS, event(-1, 1),
+                "error");
+        scheduler.retry(EventType.RETRY_DELETE_EVENT_ADDRESS, EventType.DELETE_ENGAGEMENT_EVENT_ADDRESS, event(-1, 1),
+                "error");
+
+        Mockito.verify(vertx, Mockito.times(1)).setTimer(Mockito.anyLong(), Mockito.any());
+        Mockito.verify(deadLetters).record(Mockito.any(), Mockito.eq(1), Mockito.contains("too many retries"));
+
+    }
+
+    private static RetriableEvent event(int maxRetryCount, int currentRetryCount) {
+        return RetriableEvent.builder().maxRetryCount(maxRetryCount).currentRetryCount(currentRetryCount)
+                .engagement(Engagement.builder().uuid("1234").customerName("c1").projectName("p1").build()).build();
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.redhat.labs.lodestar.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.redhat.labs.lodestar.model.Artifact;
+import com.redhat.labs.lodestar.model.HostingEnvironment;
+import com.redhat.labs.lodestar.model.Score;
+import com.redhat.labs.lodestar.model.UseCase;
+import com.redhat.labs.lodestar.util.ClassFieldUtils;
+import com.redhat.labs.lodestar.util.FieldMetadataRegistry;
+import com.redhat.labs.lodestar.util.FieldMetadataRegistry.FieldMetadata;
+
+class FieldMetadataRegistryTest {
+
+    @ParameterizedTest
+    @CsvSource({ "customer_name,customerName", "customerName,customerName", "engagement_region,region",
+            "status.overall_status,status.status", "hosting_environments.ocp_sub_domain,hostingEnvironments.ocpSubDomain",
+            "artifacts.uuid,artifacts.uuid", "artifacts.engagement_uuid,artifacts.engagementUuid" })
+    void testFindByQueryName(String queryName, String expectedPath) {
+        assertEquals(expectedPath, FieldMetadataRegistry.get(queryName).getPath());
+    }
+
+    @Test
+    void testMongoPath() {
+        assertEquals("_id", FieldMetadataRegistry.get("mongo_id").getMongoPath());
+        assertEquals("artifacts.linkAddress", FieldMetadataRegistry.get("artifacts.link_address").getMongoPath());
+    }
+
+    @Test
+    void testConverters() {
+
+        FieldMetadata field = FieldMetadataRegistry.get("public_reference");
+        assertEquals(Boolean.class, field.getType());
+        assertEquals(Boolean.TRUE, field.convert("true"));
+
+        assertEquals(Integer.valueOf(12), FieldMetadataRegistry.get("project_id").convert("12"));
+        assertEquals(new ObjectId("5f6b6c5e2f2b1a0c3d4e5f60"),
+                FieldMetadataRegistry.get("mongo_id").convert("5f6b6c5e2f2b1a0c3d4e5f60"));
+        assertEquals("value", FieldMetadataRegistry.get("customer_name").convert("value"));
+
+    }
+
+    @Test
+    void testInvalidValue() {
+
+        FieldMetadata field = FieldMetadataRegistry.get("project_id");
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> field.convert("abc"));
+        assertEquals(400, e.getResponse().getStatus());
+
+        FieldMetadata list = FieldMetadataRegistry.get("categories");
+        e = assertThrows(WebApplicationException.class, () -> list.convert("abc"));
+        assertEquals(400, e.getResponse().getStatus());
+
+    }
+
+    @Test
+    void testInvalidField() {
+
+        assertTrue(FieldMetadataRegistry.find("not_a_field").isEmpty());
+        assertTrue(FieldMetadataRegistry.find(null).isEmpty());
+
+        WebApplicationException e = assertThrows(WebApplicationException.class,
+                () -> FieldMetadataRegistry.get("not_a_field"));
+        assertEquals(400, e.getResponse().getStatus());
+
+    }
+
+    @Test
+    void testProjectionFields() {
+
+        assertEquals(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(Artifact.class, Optional.of("artifacts")),
+                FieldMetadataRegistry.getProjectionFields("artifacts"));
+        assertEquals(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(Score.class, Optional.of("scores")),
+                FieldMetadataRegistry.getProjectionFields("scores"));
+        assertEquals(
+                ClassFieldUtils.classFieldNamesAsCommaSeparatedString(HostingEnvironment.class,
+                        Optional.of("hostingEnvironments")),
+                FieldMetadataRegistry.getProjectionFields("hostingEnvironments"));
+        assertEquals(ClassFieldUtils.classFieldNamesAsCommaSeparatedString(UseCase.class, Optional.of("useCases")),
+                FieldMetadataRegistry.getProjectionFields("useCases"));
+
+        assertThrows(IllegalArgumentException.class, () -> FieldMetadataRegistry.getProjectionFields("customerName"));
+
+    }
+
+}
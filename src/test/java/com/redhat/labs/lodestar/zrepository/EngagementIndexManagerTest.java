@@ -0,0 +1,128 @@
+package com.redhat.labs.lodestar.zrepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.MongoIndexUsage;
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
+import com.redhat.labs.lodestar.repository.EngagementRepository;
+import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
+import com.redhat.labs.lodestar.utils.MockUtils;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@EmbeddedMongoTest
+@QuarkusTest
+@Tag("integration")
+class EngagementIndexManagerTest {
+
+    @Inject
+    EngagementIndexManager indexManager;
+
+    @Inject
+    EngagementRepository repository;
+
+    @Test
+    void testReconcileCreatesDeclaredIndexes() {
+
+        assertTrue(indexManager.reconcile());
+        assertTrue(indexManager.getFailedIndexes().isEmpty());
+        assertTrue(indexManager.getMissingUniqueIndexes().isEmpty());
+        assertTrue(getIndexNames().containsAll(EngagementIndexManager.getDeclaredIndexNames()));
+
+    }
+
+    @Test
+    void testReconcileDropsUndeclaredAndRebuildsChangedIndexes() {
+
+        repository.mongoCollection().createIndex(Indexes.ascending("state"), new IndexOptions().name("lodestar_state"));
+        repository.mongoCollection().createIndex(Indexes.descending("projectId"),
+                new IndexOptions().name("lodestar_project_id"));
+        repository.mongoCollection().createIndex(Indexes.ascending("description"), new IndexOptions().name("custom"));
+
+        assertTrue(indexManager.reconcile());
+
+        Set<String> names = getIndexNames();
+        assertFalse(names.contains("lodestar_state"));
+        assertTrue(names.contains("custom"));
+
+        for (Document index : repository.mongoCollection().listIndexes()) {
+            if ("lodestar_project_id".equals(index.getString("name"))) {
+                assertEquals(1, index.get("key", Document.class).getInteger("projectId"));
+            }
+        }
+
+    }
+
+    @Test
+    void testUniqueIndexesRejectDuplicates() {
+
+        indexManager.reconcile();
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "1234"));
+
+        MongoWriteException sameUuid = assertThrows(MongoWriteException.class,
+                () -> repository.persist(MockUtils.mockMinimumEngagement("c2", "p2", "1234")));
+        assertEquals(ErrorCategory.DUPLICATE_KEY, sameUuid.getError().getCategory());
+
+        MongoWriteException sameNames = assertThrows(MongoWriteException.class,
+                () -> repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "4321")));
+        assertEquals(ErrorCategory.DUPLICATE_KEY, sameNames.getError().getCategory());
+
+        assertEquals(1, repository.count());
+
+    }
+
+    @Test
+    void testUniqueIndexAllowsMissingUuids() {
+
+        indexManager.reconcile();
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "p1", null);
+        Engagement e2 = MockUtils.mockMinimumEngagement("c2", "p2", null);
+        repository.persist(e1, e2);
+
+        assertEquals(2, repository.count());
+
+    }
+
+    @Test
+    void testGetIndexUsage() {
+
+        indexManager.reconcile();
+        repository.findByUuid("1234");
+
+        List<MongoIndexUsage> usage = indexManager.getIndexUsage();
+
+        MongoIndexUsage uuid = usage.stream().filter(u -> "lodestar_uuid".equals(u.getName())).findFirst()
+                .orElseThrow();
+        assertTrue(uuid.getManaged());
+        assertEquals(1, uuid.getKey().get("uuid"));
+        assertTrue(usage.stream().anyMatch(u -> "_id_".equals(u.getName()) && !u.getManaged()));
+
+    }
+
+    private Set<String> getIndexNames() {
+        Set<String> names = new HashSet<>();
+        repository.mongoCollection().listIndexes().forEach(i -> names.add(i.getString("name")));
+        return names;
+    }
+
+}
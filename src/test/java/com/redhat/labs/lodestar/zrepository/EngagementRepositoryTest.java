@@ -3,26 +3,37 @@ package com.redhat.labs.lodestar.zrepository;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
 
 import org.gradle.internal.impldep.com.google.common.collect.Sets;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import com.google.common.collect.Lists;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
 import com.redhat.labs.lodestar.model.Artifact;
 import com.redhat.labs.lodestar.model.Category;
 import com.redhat.labs.lodestar.model.Commit;
 import com.redhat.labs.lodestar.model.Engagement;
+import com.redhat.labs.lodestar.model.Engagement.EngagementState;
 import com.redhat.labs.lodestar.model.EngagementUser;
 import com.redhat.labs.lodestar.model.EngagementUserSummary;
 import com.redhat.labs.lodestar.model.HostingEnvironment;
@@ -40,7 +51,9 @@ import com.redhat.labs.lodestar.model.pagination.PagedHostingEnvironmentResults;
 import com.redhat.labs.lodestar.model.pagination.PagedScoreResults;
 import com.redhat.labs.lodestar.model.pagination.PagedStringResults;
 import com.redhat.labs.lodestar.model.pagination.PagedUseCaseResults;
+import com.redhat.labs.lodestar.repository.EngagementIndexManager;
 import com.redhat.labs.lodestar.repository.EngagementRepository;
+import com.redhat.labs.lodestar.util.DateFormatter;
 import com.redhat.labs.lodestar.utils.EmbeddedMongoTest;
 import com.redhat.labs.lodestar.utils.MockUtils;
 
@@ -64,6 +77,9 @@ class EngagementRepositoryTest {
     @Inject
     EngagementRepository repository;
 
+    @Inject
+    EngagementIndexManager indexManager;
+
     // Set tests:
 
     // set status
@@ -141,7 +157,7 @@ class EngagementRepositoryTest {
         e2.setLastUpdate("updated");
         e2.setDescription("testing");
 
-        Optional<Engagement> optional = repository.updateEngagement(e2, "value");
+        Optional<Engagement> optional = repository.updateEngagement(e2, e1, "value");
         assertTrue(optional.isPresent());
 
     }
@@ -156,9 +172,67 @@ class EngagementRepositoryTest {
         Engagement e2 = MockUtils.cloneEngagement(e1);
         e2.setDescription("testing");
 
-        Optional<Engagement> optional = repository.updateEngagement(e2, "value");
+        Optional<Engagement> optional = repository.updateEngagement(e2, e1, "value");
+        assertTrue(optional.isPresent());
+
+    }
+
+    @Test
+    void testUpdateEngagementOnlyChangedArtifact() throws Exception {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "c2", "1234");
+        e1.setLastUpdate("value");
+        e1.setDescription("description");
+        Artifact a1 = MockUtils.mockArtifact("a1", "demo", "http://a1");
+        a1.setUuid("a1");
+        Artifact a2 = MockUtils.mockArtifact("a2", "demo", "http://a2");
+        a2.setUuid("a2");
+        e1.setArtifacts(Lists.newArrayList(a1, a2));
+        repository.persist(e1);
+
+        Engagement e2 = MockUtils.cloneEngagement(e1);
+        e2.setLastUpdate("updated");
+        e2.getArtifacts().get(1).setTitle("changed");
+
+        Optional<Engagement> optional = repository.updateEngagement(e2, e1, "value");
+        assertTrue(optional.isPresent());
+
+        Engagement updated = optional.get();
+        assertEquals("updated", updated.getLastUpdate());
+        assertEquals("description", updated.getDescription());
+        assertEquals(2, updated.getArtifacts().size());
+        assertEquals("a1", updated.getArtifacts().get(0).getTitle());
+        assertEquals("changed", updated.getArtifacts().get(1).getTitle());
+        assertEquals("http://a2", updated.getArtifacts().get(1).getLinkAddress());
+
+    }
+
+    @Test
+    void testUpdateEngagementAddRemoveArtifactsAndUnsetField() throws Exception {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "c2", "1234");
+        e1.setLastUpdate("value");
+        e1.setDescription("description");
+        Artifact a1 = MockUtils.mockArtifact("a1", "demo", "http://a1");
+        a1.setUuid("a1");
+        e1.setArtifacts(Lists.newArrayList(a1));
+        repository.persist(e1);
+
+        Engagement e2 = MockUtils.cloneEngagement(e1);
+        e2.setLastUpdate("updated");
+        e2.setDescription(null);
+        Artifact a3 = MockUtils.mockArtifact("a3", "demo", "http://a3");
+        a3.setUuid("a3");
+        e2.setArtifacts(Lists.newArrayList(a3));
+
+        Optional<Engagement> optional = repository.updateEngagement(e2, e1, "value");
         assertTrue(optional.isPresent());
 
+        Engagement updated = optional.get();
+        assertNull(updated.getDescription());
+        assertEquals(1, updated.getArtifacts().size());
+        assertEquals("a3", updated.getArtifacts().get(0).getUuid());
+
     }
 
     @Test
@@ -171,14 +245,14 @@ class EngagementRepositoryTest {
         Engagement e2 = MockUtils.cloneEngagement(e1);
         e2.setDescription("testing");
 
-        Optional<Engagement> optional = repository.updateEngagement(e2, "value2");
+        Optional<Engagement> optional = repository.updateEngagement(e2, e1, "value2");
         assertTrue(optional.isEmpty());
 
     }
 
     // Optional<Engagement>:
     // findBySubdomain
-    // findBySubdomain with uuid
+    // findSubdomainsInUse
 
     @Test
     void testFindBySubdomain() {
@@ -201,22 +275,53 @@ class EngagementRepositoryTest {
     }
 
     @Test
-    void testFindBySubdomainWithUuid() {
+    void testFindBySubdomainIgnoresCaseAndRegexCharacters() {
 
         Engagement e = MockUtils.mockMinimumEngagement("c1", "c2", "1234");
-        HostingEnvironment he = MockUtils.mockHostingEnvironment("env1", "sub1");
+        HostingEnvironment he = MockUtils.mockHostingEnvironment("env1", "Sub1");
         e.setHostingEnvironments(Lists.newArrayList(he));
 
         repository.persist(e);
 
-        Optional<Engagement> optional = repository.findBySubdomain("sub1", Optional.of("1234"));
-        assertTrue(optional.isPresent());
-        Engagement persisted = optional.get();
-        assertEquals(e.getUuid(), persisted.getUuid());
-        assertEquals(e.getCustomerName(), persisted.getCustomerName());
-        assertEquals(e.getProjectName(), persisted.getProjectName());
+        assertTrue(repository.findBySubdomain("SUB1").isPresent());
+        assertTrue(repository.findBySubdomain(" sub1 ").isPresent());
+        assertTrue(repository.findBySubdomain("sub.").isEmpty());
+        assertTrue(repository.findBySubdomain(".*").isEmpty());
 
-        assertEquals(e.getHostingEnvironments(), persisted.getHostingEnvironments());
+    }
+
+    @Test
+    void testFindSubdomainsInUse() {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "c2", "1234");
+        e1.setHostingEnvironments(Lists.newArrayList(MockUtils.mockHostingEnvironment("env1", "sub1"),
+                MockUtils.mockHostingEnvironment("env2", "sub2")));
+        Engagement e2 = MockUtils.mockMinimumEngagement("c3", "c4", "4321");
+        e2.setHostingEnvironments(Lists.newArrayList(MockUtils.mockHostingEnvironment("env3", "sub3")));
+
+        repository.persist(e1, e2);
+
+        assertEquals(Set.of("sub1", "sub3"),
+                repository.findSubdomainsInUse(Lists.newArrayList("SUB1", "sub3", "sub4"), null));
+        assertEquals(Set.of("sub3"), repository.findSubdomainsInUse(Lists.newArrayList("sub1", "sub3"), "1234"));
+        assertTrue(repository.findSubdomainsInUse(Lists.newArrayList("sub1", "sub2"), "1234").isEmpty());
+
+    }
+
+    @Test
+    void testSetMissingSubdomainKeys() {
+
+        Engagement e = MockUtils.mockMinimumEngagement("c1", "c2", "1234");
+        e.setHostingEnvironments(Lists.newArrayList(MockUtils.mockHostingEnvironment("env1", "Sub1")));
+        repository.persist(e);
+
+        // simulate an engagement persisted before the keys existed
+        repository.mongoCollection().updateOne(Filters.eq("uuid", "1234"), Updates.unset("subdomainKeys"));
+        assertTrue(repository.findBySubdomain("sub1").isEmpty());
+
+        assertEquals(1, repository.setMissingSubdomainKeys());
+        assertTrue(repository.findBySubdomain("sub1").isPresent());
+        assertEquals(0, repository.setMissingSubdomainKeys());
 
     }
 
@@ -555,6 +660,108 @@ class EngagementRepositoryTest {
 
     }
 
+    @Test
+    void testFindPagedEngagementsByCursor() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c3", "p1", "3"),
+                MockUtils.mockMinimumEngagement("c1", "p1", "1"), MockUtils.mockMinimumEngagement("c2", "p2", "2"),
+                MockUtils.mockMinimumEngagement("c2", "p1", "4"), MockUtils.mockMinimumEngagement(null, "p9", "5"));
+
+        List<String> uuids = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+
+        while (null != cursor) {
+
+            ListFilterOptions fo = ListFilterOptions.builder().cursor(cursor).perPage(2).build();
+            PagedEngagementResults page = repository.findPagedEngagements(fo);
+            assertTrue(page.isCursorPaging());
+            assertNull(page.getTotalCount());
+
+            page.getResults().forEach(e -> uuids.add(e.getUuid()));
+            cursor = page.getNextCursor();
+            pages++;
+
+        }
+
+        assertEquals(3, pages);
+        assertEquals(List.of("5", "1", "4", "2", "3"), uuids);
+
+    }
+
+    @Test
+    void testFindPagedEngagementsByCursorDescendingWithCount() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "1"),
+                MockUtils.mockMinimumEngagement("c2", "p1", "2"), MockUtils.mockMinimumEngagement("c3", "p1", "3"));
+
+        ListFilterOptions fo = ListFilterOptions.builder().cursor("").perPage(2).sortOrder(SortOrder.DESC)
+                .includeTotalCount(true).build();
+        PagedEngagementResults page = repository.findPagedEngagements(fo);
+
+        assertEquals(3, page.getTotalCount());
+        assertEquals(List.of("3", "2"), page.getResults().stream().map(Engagement::getUuid).collect(Collectors.toList()));
+        assertNotNull(page.getNextCursor());
+
+        fo = ListFilterOptions.builder().cursor(page.getNextCursor()).perPage(2).sortOrder(SortOrder.DESC).build();
+        page = repository.findPagedEngagements(fo);
+
+        assertEquals(List.of("1"), page.getResults().stream().map(Engagement::getUuid).collect(Collectors.toList()));
+        assertNull(page.getNextCursor());
+
+    }
+
+    @Test
+    void testFindPagedEngagementsCursorForOtherSortRejected() {
+
+        repository.persist(MockUtils.mockMinimumEngagement("c1", "p1", "1"),
+                MockUtils.mockMinimumEngagement("c2", "p1", "2"));
+
+        ListFilterOptions fo = ListFilterOptions.builder().cursor("").perPage(1).build();
+        String cursor = repository.findPagedEngagements(fo).getNextCursor();
+
+        ListFilterOptions other = ListFilterOptions.builder().cursor(cursor).perPage(1).sortFields("uuid").build();
+        WebApplicationException ex = assertThrows(WebApplicationException.class,
+                () -> repository.findPagedEngagements(other));
+        assertEquals(400, ex.getResponse().getStatus());
+
+        ListFilterOptions invalid = ListFilterOptions.builder().cursor("not-a-cursor").build();
+        ex = assertThrows(WebApplicationException.class, () -> repository.findPagedEngagements(invalid));
+        assertEquals(400, ex.getResponse().getStatus());
+
+    }
+
+    @Test
+    void testFindArtifactsByCursor() {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "p1", "1");
+        e1.setArtifacts(Lists.newArrayList(MockUtils.mockArtifact("a1", "demo", "http://a1"),
+                MockUtils.mockArtifact("a2", "demo", "http://a2")));
+        Engagement e2 = MockUtils.mockMinimumEngagement("c2", "p1", "2");
+        e2.setArtifacts(Lists.newArrayList(MockUtils.mockArtifact("a3", "demo", "http://a3")));
+        repository.persist(e1, e2);
+
+        ListFilterOptions fo = ListFilterOptions.builder().cursor("").perPage(2).includeTotalCount(true).build();
+        PagedArtifactResults page = repository.findArtifacts(fo);
+
+        assertEquals(3, page.getTotalCount());
+        assertEquals(2, page.getResults().size());
+        assertNotNull(page.getNextCursor());
+
+        List<String> titles = page.getResults().stream().map(Artifact::getTitle).collect(Collectors.toList());
+
+        fo = ListFilterOptions.builder().cursor(page.getNextCursor()).perPage(2).build();
+        page = repository.findArtifacts(fo);
+
+        assertEquals(1, page.getResults().size());
+        assertNull(page.getNextCursor());
+        assertEquals("2", page.getResults().get(0).getEngagementUuid());
+
+        titles.addAll(page.getResults().stream().map(Artifact::getTitle).collect(Collectors.toList()));
+        assertEquals(Set.of("a1", "a2", "a3"), Set.copyOf(titles));
+
+    }
+
     // list all search ( =, like, exists, not exists)
     @Test
     void testFindAllWithSearchEquals() {
@@ -596,6 +803,36 @@ class EngagementRepositoryTest {
         assertEquals(0, results.size());
 
     }
+    @Test
+    void testFindAllWithTextSearch() {
+
+        indexManager.reconcile();
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("Acme", "Migration", "1234");
+        Engagement e2 = MockUtils.mockMinimumEngagement("Other", "Platform", "4321");
+        e2.setDescription("rollout for acme");
+        Engagement e3 = MockUtils.mockMinimumEngagement("Third", "Platform", "5678");
+        repository.persist(e1, e2, e3);
+
+        // customer name matches outrank description matches
+        ListFilterOptions fo = ListFilterOptions.builder().text("acme").page(1).perPage(10).build();
+        PagedEngagementResults pagedResults = repository.findPagedEngagements(fo);
+        assertEquals(Arrays.asList("1234", "4321"),
+                pagedResults.getResults().stream().map(Engagement::getUuid).collect(Collectors.toList()));
+        assertEquals(2, pagedResults.getTotalCount());
+
+        // composes with the search
+        fo = ListFilterOptions.builder().text("acme").search("customer_name=Other").build();
+        assertEquals(Arrays.asList("4321"), repository.findPagedEngagements(fo).getResults().stream()
+                .map(Engagement::getUuid).collect(Collectors.toList()));
+
+        // sort fields replace the ranking
+        fo = ListFilterOptions.builder().text("acme").sortFields("customer_name").sortOrder(SortOrder.DESC).build();
+        assertEquals(Arrays.asList("4321", "1234"), repository.findPagedEngagements(fo).getResults().stream()
+                .map(Engagement::getUuid).collect(Collectors.toList()));
+
+    }
+
 ////
     @Test
     void testFindAllWithSearchExistsAttributeNull() {
@@ -967,6 +1204,32 @@ class EngagementRepositoryTest {
 
     }
 
+    @Test
+    void testFindAllWithPagingTotalCount() {
+
+        Engagement e1 = MockUtils.mockMinimumEngagement("c1", "c3", "1234");
+        e1.setCategories(Lists.newArrayList(MockUtils.mockCategory("cat1"), MockUtils.mockCategory("cat2")));
+        Engagement e2 = MockUtils.mockMinimumEngagement("c2", "c5", "4321");
+        e2.setCategories(Lists.newArrayList(MockUtils.mockCategory("Cat1")));
+        Engagement e3 = MockUtils.mockMinimumEngagement("c2", "c4", "1111");
+        repository.persist(e1, e2, e3);
+
+        ListFilterOptions fo = ListFilterOptions.builder().page(2).perPage(1).search("customer_name=c2").build();
+        PagedEngagementResults engagements = repository.findPagedEngagements(fo);
+        assertEquals(1, engagements.getResults().size());
+        assertEquals(2, engagements.getTotalCount());
+
+        // counts unwound attributes
+        fo = ListFilterOptions.builder().page(1).perPage(1).build();
+        PagedCategoryResults categories = repository.findCategories(fo);
+        assertEquals(1, categories.getResults().size());
+        assertEquals(2, categories.getTotalCount());
+
+        fo = ListFilterOptions.builder().page(1).perPage(10).build();
+        assertEquals(0, repository.findArtifacts(fo).getTotalCount());
+
+    }
+
     @Test
     void testGetUserSummaryNoFilter() {
 
@@ -1132,6 +1395,66 @@ class EngagementRepositoryTest {
 
     }
 
+    // count by state
+
+    @Test
+    void testCountEngagementsByStateMatchesEngagementCurrentState() {
+
+        LocalDateTime localTime = LocalDateTime.of(2021, 5, 25, 0, 0);
+        DateTimeFormatter format = DateFormatter.getInstance().getDateFormat();
+
+        String before = localTime.minusDays(30).format(format);
+        String justBefore = localTime.minusDays(1).format(format);
+        String now = localTime.format(format);
+        String after = localTime.plusDays(15).format(format);
+        Launch launch = MockUtils.mockLaunch(before, "someone", "someone@example.com");
+
+        List<Engagement> engagements = new ArrayList<>();
+
+        // upcoming - not launched, missing start date, missing end date
+        engagements.add(mockStateEngagement("1", null, before, after, null));
+        engagements.add(mockStateEngagement("2", launch, null, after, null));
+        engagements.add(mockStateEngagement("3", launch, before, null, null));
+
+        // active - end date after or equal to local time
+        engagements.add(mockStateEngagement("4", launch, before, after, after));
+        engagements.add(mockStateEngagement("5", launch, before, now, after));
+
+        // terminating - end date before local time and archive date after
+        engagements.add(mockStateEngagement("6", launch, before, justBefore, after));
+
+        // past - end date before local time and archive date before, equal or missing
+        engagements.add(mockStateEngagement("7", launch, before, justBefore, justBefore));
+        engagements.add(mockStateEngagement("8", launch, before, justBefore, now));
+        engagements.add(mockStateEngagement("9", launch, before, justBefore, null));
+
+        repository.persist(engagements);
+
+        Map<EngagementState, Integer> expected = new EnumMap<>(EngagementState.class);
+        List<Engagement> persisted = repository.listAll();
+        persisted.stream().map(e -> e.getEngagementCurrentState(localTime))
+                .forEach(state -> expected.merge(state, 1, Integer::sum));
+        expected.put(EngagementState.ANY, persisted.size());
+
+        Map<EngagementState, Integer> counts = repository.countEngagementsByState(localTime);
+        assertEquals(expected, counts);
+        assertEquals(3, counts.get(EngagementState.UPCOMING));
+        assertEquals(2, counts.get(EngagementState.ACTIVE));
+        assertEquals(1, counts.get(EngagementState.TERMINATING));
+        assertEquals(3, counts.get(EngagementState.PAST));
+        assertEquals(9, counts.get(EngagementState.ANY));
+
+    }
+
+    @Test
+    void testCountEngagementsByStateNoEngagements() {
+
+        Map<EngagementState, Integer> counts = repository.countEngagementsByState(LocalDateTime.now());
+        assertEquals(1, counts.size());
+        assertEquals(0, counts.get(EngagementState.ANY));
+
+    }
+
     @Test
     void testFindArtifactsAll() {
 
@@ -1376,6 +1699,18 @@ class EngagementRepositoryTest {
 
     }
 
+    private Engagement mockStateEngagement(String uuid, Launch launch, String startDate, String endDate,
+            String archiveDate) {
+
+        Engagement e = MockUtils.mockMinimumEngagement("customer" + uuid, "project" + uuid, uuid);
+        e.setLaunch(launch);
+        e.setStartDate(startDate);
+        e.setEndDate(endDate);
+        e.setArchiveDate(archiveDate);
+        return e;
+
+    }
+
     // create test data engagements
     private void createAndInsertRangeEngagementData() {
 